@@ -0,0 +1,52 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import edu.ucsb.cs156.example.ExampleApplication;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * JMH state that starts the application against a fresh in-memory H2 database
+ * (the {@code integration} profile) once per fork.  The embedded server listens on a
+ * random port; it is started only because the OAuth2 login configuration requires a web application.
+ */
+@State(Scope.Benchmark)
+public class ApplicationState {
+
+  ConfigurableApplicationContext context;
+
+  @Setup(Level.Trial)
+  public void start() {
+    context = new SpringApplicationBuilder(ExampleApplication.class)
+        .web(WebApplicationType.SERVLET)
+        .profiles("integration")
+        .properties(
+            "spring.main.banner-mode=off",
+            "server.port=0",
+            "logging.level.root=WARN",
+            "logging.level.sql=WARN",
+            "logging.level.org.hibernate.type.descriptor.sql.BasicBinder=WARN")
+        .run();
+  }
+
+  /**
+   * Returns the application's bean of the given type.
+   * @param <T> the bean type
+   * @param type the bean type
+   * @return the bean
+   */
+  public <T> T bean(Class<T> type) {
+    return context.getBean(type);
+  }
+
+  @TearDown(Level.Trial)
+  public void stop() {
+    context.close();
+  }
+}
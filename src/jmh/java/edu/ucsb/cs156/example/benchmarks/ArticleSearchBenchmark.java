@@ -0,0 +1,80 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import edu.ucsb.cs156.example.entities.Articles;
+import edu.ucsb.cs156.example.models.ArticleSearchHit;
+import edu.ucsb.cs156.example.services.ArticleSearchService;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Searches an index of synthetic articles, as {@code /api/Articles/search} does.
+ *
+ * Words are drawn from a vocabulary of 20,000 with a Zipf-like distribution, so
+ * {@code w0} occurs in almost every article and {@code w19999} in very few. The
+ * queries cover a rare word, a common word, two words, and a two-letter prefix
+ * as typed into a search box.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ArticleSearchBenchmark {
+
+  private static final int VOCABULARY = 20_000;
+
+  @Param({ "100000" })
+  int articles;
+
+  @Param({ "w12345", "w3", "w3 w17", "w7 w12" })
+  String query;
+
+  ArticleSearchService search;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    search = new ArticleSearchService();
+    ReflectionTestUtils.setField(search, "maxPrefixTerms", 50);
+    Random random = new Random(42);
+    for (long id = 1; id <= articles; id++) {
+      search.index(Articles.builder()
+          .id(id)
+          .title(words(random, 6))
+          .url("https://example.org/" + id)
+          .explanation(words(random, 40))
+          .build());
+    }
+  }
+
+  private static String words(Random random, int count) {
+    StringBuilder text = new StringBuilder();
+    for (int i = 0; i < count; i++) {
+      // rank ~ VOCABULARY^u is roughly Zipf distributed
+      int rank = (int) Math.pow(VOCABULARY, random.nextDouble()) - 1;
+      text.append('w').append(rank).append(' ');
+    }
+    return text.toString();
+  }
+
+  @Benchmark
+  public List<ArticleSearchHit> searchTop10() {
+    return search.search(query, 10);
+  }
+}
@@ -0,0 +1,74 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import edu.ucsb.cs156.example.config.SecurityConfig;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.AdminDirectoryService;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.mapping.GrantedAuthoritiesMapper;
+import org.springframework.security.oauth2.core.user.OAuth2UserAuthority;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Maps the authorities of a Google login to application roles, as
+ * {@code SecurityConfig}'s authorities mapper does on every login.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AuthorityMappingBenchmark {
+
+  @Param({ "admingaucho@ucsb.edu", "cgaucho@ucsb.edu", "someone@example.org" })
+  String email;
+
+  GrantedAuthoritiesMapper mapper;
+
+  List<GrantedAuthority> authorities;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    UserRepository userRepository = mock(UserRepository.class);
+    when(userRepository.findAdminEmails()).thenReturn(List.of("ldelplaya@ucsb.edu"));
+
+    AdminDirectoryService adminDirectory = new AdminDirectoryService();
+    ReflectionTestUtils.setField(adminDirectory, "userRepository", userRepository);
+    ReflectionTestUtils.setField(adminDirectory, "adminEmails", new ArrayList<>(List.of("admingaucho@ucsb.edu")));
+    adminDirectory.reconcile();
+
+    SecurityConfig securityConfig = new SecurityConfig();
+    ReflectionTestUtils.setField(securityConfig, "adminDirectory", adminDirectory);
+    mapper = ReflectionTestUtils.invokeMethod(securityConfig, "userAuthoritiesMapper");
+
+    Map<String, Object> attributes = Map.of("sub", "115", "email", email, "name", "Chris Gaucho");
+    authorities = List.of(new OAuth2UserAuthority(attributes));
+  }
+
+  @Benchmark
+  public Collection<? extends GrantedAuthority> mapAuthorities() {
+    return mapper.mapAuthorities(authorities);
+  }
+}
@@ -0,0 +1,119 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Runs the benchmarks, writes the results as JSON, and optionally compares them with a
+ * stored baseline.
+ *
+ * Usage: {@code BenchmarkRunner <run|compare|save-baseline> <results.json> <baseline.json> <threshold> [include regex]}
+ * <ul>
+ * <li>{@code run} only writes the results file.</li>
+ * <li>{@code compare} also compares each result with the baseline, and exits with status 1
+ * if any benchmark is slower than the baseline by more than {@code threshold}
+ * (e.g. 0.10 for 10%) plus the combined measurement error.</li>
+ * <li>{@code save-baseline} copies the results over the baseline.</li>
+ * </ul>
+ */
+public class BenchmarkRunner {
+
+  public static void main(String[] args) throws Exception {
+    String mode = args[0];
+    Path results = Path.of(args[1]);
+    Path baseline = Path.of(args[2]);
+    double threshold = Double.parseDouble(args[3]);
+    String include = args.length > 4 && !args[4].isBlank() ? args[4] : BenchmarkRunner.class.getPackageName() + ".*";
+
+    if (mode.equals("compare") && !Files.exists(baseline)) {
+      System.err.println("No baseline at " + baseline + "; run with benchmark.mode=save-baseline first");
+      System.exit(2);
+    }
+
+    Files.createDirectories(results.toAbsolutePath().getParent());
+    Options options = new OptionsBuilder()
+        .include(include)
+        .resultFormat(ResultFormatType.JSON)
+        .result(results.toString())
+        .build();
+    new Runner(options).run();
+
+    switch (mode) {
+      case "compare" -> System.exit(compare(baseline, results, threshold) ? 0 : 1);
+      case "save-baseline" -> {
+        Files.createDirectories(baseline.toAbsolutePath().getParent());
+        Files.copy(results, baseline, StandardCopyOption.REPLACE_EXISTING);
+        System.out.println("Saved baseline to " + baseline);
+      }
+      default -> System.out.println("Results written to " + results);
+    }
+  }
+
+  /**
+   * Compares results with a baseline and prints one line per benchmark.
+   * @return true if no benchmark regressed
+   */
+  static boolean compare(Path baselineFile, Path resultsFile, double threshold) throws IOException {
+    Map<String, JsonNode> baseline = byKey(baselineFile);
+    Map<String, JsonNode> results = byKey(resultsFile);
+    boolean ok = true;
+
+    System.out.printf("%n%-70s %14s %14s %9s%n", "Benchmark", "Baseline", "Current", "Change");
+    for (Map.Entry<String, JsonNode> entry : results.entrySet()) {
+      JsonNode current = entry.getValue();
+      JsonNode before = baseline.get(entry.getKey());
+      JsonNode metric = current.get("primaryMetric");
+      String unit = metric.get("scoreUnit").asText();
+      if (before == null) {
+        System.out.printf("%-70s %14s %14.3f %9s  (new)%n", entry.getKey(), "-", metric.get("score").asDouble(), "");
+        continue;
+      }
+      JsonNode beforeMetric = before.get("primaryMetric");
+      double was = beforeMetric.get("score").asDouble();
+      double now = metric.get("score").asDouble();
+      double error = finite(beforeMetric.get("scoreError").asDouble()) + finite(metric.get("scoreError").asDouble());
+      // throughput is better when higher, every other mode when lower
+      boolean higherIsBetter = current.get("mode").asText().equals("thrpt");
+      double worseBy = higherIsBetter ? was - now : now - was;
+      double change = (now - was) / was;
+      boolean regressed = worseBy > was * threshold + error;
+      ok &= !regressed;
+      System.out.printf("%-70s %14.3f %14.3f %+8.1f%%  %s %s%n", entry.getKey(), was, now, change * 100, unit,
+          regressed ? "REGRESSION" : "");
+    }
+    System.out.println(ok ? "\nNo regressions beyond " + Math.round(threshold * 100) + "%"
+        : "\nRegressions beyond " + Math.round(threshold * 100) + "% found");
+    return ok;
+  }
+
+  private static double finite(double value) {
+    return Double.isFinite(value) ? value : 0.0;
+  }
+
+  private static Map<String, JsonNode> byKey(Path file) throws IOException {
+    Map<String, JsonNode> byKey = new LinkedHashMap<>();
+    for (JsonNode result : new ObjectMapper().readTree(file.toFile())) {
+      String benchmark = result.get("benchmark").asText();
+      StringBuilder key = new StringBuilder(benchmark.substring(benchmark.lastIndexOf('.', benchmark.lastIndexOf('.') - 1) + 1));
+      JsonNode params = result.get("params");
+      if (params != null) {
+        params.fields().forEachRemaining(param -> key.append(' ').append(param.getKey()).append('=')
+            .append(param.getValue().asText()));
+      }
+      byKey.put(key.toString(), result);
+    }
+    return byKey;
+  }
+}
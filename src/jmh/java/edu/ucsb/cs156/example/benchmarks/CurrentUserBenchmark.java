@@ -0,0 +1,80 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.services.CurrentUserServiceImpl;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.client.authentication.OAuth2AuthenticationToken;
+import org.springframework.security.oauth2.core.user.DefaultOAuth2User;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resolves the current user from a Google login, as {@code /api/currentUser} does on
+ * every page load, both from the cache and from the database.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CurrentUserBenchmark {
+
+  CurrentUserServiceImpl currentUserService;
+
+  SecurityContext securityContext;
+
+  OAuth2AuthenticationToken authentication;
+
+  @Setup(Level.Trial)
+  public void setUp(ApplicationState application) {
+    currentUserService = application.bean(CurrentUserServiceImpl.class);
+
+    Map<String, Object> attributes = new HashMap<>();
+    attributes.put("sub", "115");
+    attributes.put("email", "cgaucho@ucsb.edu");
+    attributes.put("picture", "https://example.org/cgaucho.jpg");
+    attributes.put("name", "Chris Gaucho");
+    attributes.put("given_name", "Chris");
+    attributes.put("family_name", "Gaucho");
+    attributes.put("email_verified", true);
+    attributes.put("locale", "en");
+    attributes.put("hd", "ucsb.edu");
+    List<SimpleGrantedAuthority> authorities = List.of(new SimpleGrantedAuthority("ROLE_USER"));
+    authentication = new OAuth2AuthenticationToken(new DefaultOAuth2User(authorities, attributes, "sub"),
+        authorities, "google");
+    securityContext = SecurityContextHolder.createEmptyContext();
+    securityContext.setAuthentication(authentication);
+
+    // the first call saves the user, so that both benchmarks measure an existing user
+    currentUserService.getOAuth2AuthenticatedUser(securityContext, authentication);
+  }
+
+  @Benchmark
+  public User cachedUser() {
+    return currentUserService.getOAuth2AuthenticatedUser(securityContext, authentication);
+  }
+
+  @Benchmark
+  public User uncachedUser() {
+    currentUserService.invalidateUser("115");
+    return currentUserService.getOAuth2AuthenticatedUser(securityContext, authentication);
+  }
+}
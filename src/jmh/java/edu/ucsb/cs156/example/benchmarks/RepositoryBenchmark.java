@@ -0,0 +1,75 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import edu.ucsb.cs156.example.entities.Restaurant;
+import edu.ucsb.cs156.example.entities.UCSBOrganization;
+import edu.ucsb.cs156.example.repositories.RestaurantRepository;
+import edu.ucsb.cs156.example.repositories.UCSBOrganizationRepository;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs {@code CrudRepository} findAll and save against the in-memory H2 database.
+ * Restaurants are not in the second-level cache, so findAll goes to the database every
+ * time; organizations are, so findAll is served from the query cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RepositoryBenchmark {
+
+  @Param({ "100", "1000" })
+  int rows;
+
+  RestaurantRepository restaurantRepository;
+
+  UCSBOrganizationRepository ucsbOrganizationRepository;
+
+  @Setup(Level.Trial)
+  public void setUp(ApplicationState application) {
+    restaurantRepository = application.bean(RestaurantRepository.class);
+    ucsbOrganizationRepository = application.bean(UCSBOrganizationRepository.class);
+
+    List<Restaurant> restaurants = new ArrayList<>(rows);
+    List<UCSBOrganization> organizations = new ArrayList<>(rows);
+    for (int i = 0; i < rows; i++) {
+      restaurants.add(Restaurant.builder().name("Restaurant " + i).description("Tacos and burritos").build());
+      organizations.add(UCSBOrganization.builder().orgCode("ORG" + i).orgTranslationShort("ORG " + i)
+          .orgTranslation("Organization " + i).inactive(false).build());
+    }
+    restaurantRepository.saveAll(restaurants);
+    ucsbOrganizationRepository.saveAll(organizations);
+  }
+
+  @Benchmark
+  public Iterable<Restaurant> findAllRestaurants() {
+    return restaurantRepository.findAll();
+  }
+
+  @Benchmark
+  public Iterable<UCSBOrganization> findAllOrganizations() {
+    return ucsbOrganizationRepository.findAll();
+  }
+
+  @Benchmark
+  public Restaurant saveRestaurant() {
+    return restaurantRepository.save(Restaurant.builder().name("New restaurant").description("Pizza").build());
+  }
+}
@@ -0,0 +1,108 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import edu.ucsb.cs156.example.entities.Articles;
+import edu.ucsb.cs156.example.entities.HelpRequest;
+import edu.ucsb.cs156.example.entities.MenuItemReview;
+import edu.ucsb.cs156.example.entities.RecommendationRequest;
+import edu.ucsb.cs156.example.entities.Restaurant;
+import edu.ucsb.cs156.example.entities.UCSBDate;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItem;
+import edu.ucsb.cs156.example.entities.UCSBOrganization;
+import edu.ucsb.cs156.example.entities.User;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+
+/**
+ * Serializes a list of each entity type to JSON, as the {@code /all} endpoints do.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+
+  @Param({ "Articles", "HelpRequest", "MenuItemReview", "RecommendationRequest", "Restaurant", "UCSBDate",
+      "UCSBDiningCommons", "UCSBDiningCommonsMenuItem", "UCSBOrganization", "User" })
+  String entity;
+
+  @Param({ "100" })
+  int size;
+
+  ObjectMapper mapper;
+
+  List<Object> rows;
+
+  private static final LocalDateTime WHEN = LocalDateTime.parse("2024-10-01T12:00:00");
+
+  private static IntFunction<Object> factory(String entity) {
+    return switch (entity) {
+      case "Articles" -> i -> Articles.builder().id(i).title("Article " + i).url("https://example.org/" + i)
+          .explanation("An article worth reading").email("cgaucho@ucsb.edu").dateAdded(WHEN).build();
+      case "HelpRequest" -> i -> HelpRequest.builder().id((long) i).requesterEmail("cgaucho@ucsb.edu")
+          .teamId("s24-5pm-" + i).tableOrBreakoutRoom("table " + i).requestTime(WHEN)
+          .explanation("Need help with merge conflicts").solved(i % 2 == 0).build();
+      case "MenuItemReview" -> i -> MenuItemReview.builder().id(i).itemId((long) i).reviewerEmail("cgaucho@ucsb.edu")
+          .stars(1 + i % 5).dateReviewed(WHEN).comments("Pretty good").build();
+      case "RecommendationRequest" -> i -> RecommendationRequest.builder().id(i).requesterEmail("cgaucho@ucsb.edu")
+          .professorEmail("phtcon@ucsb.edu").explanation("Grad school").dateRequested(WHEN)
+          .dateNeeded(WHEN.plusDays(30)).done(false).build();
+      case "Restaurant" -> i -> Restaurant.builder().id(i).name("Restaurant " + i)
+          .description("Tacos and burritos").build();
+      case "UCSBDate" -> i -> UCSBDate.builder().id(i).quarterYYYYQ("20244").name("Day " + i)
+          .localDateTime(WHEN.plusDays(i)).build();
+      case "UCSBDiningCommons" -> i -> UCSBDiningCommons.builder().code("dc" + i).name("Commons " + i)
+          .hasSackMeal(true).hasTakeOutMeal(false).hasDiningCam(true).latitude(34.41).longitude(-119.84).build();
+      case "UCSBDiningCommonsMenuItem" -> i -> UCSBDiningCommonsMenuItem.builder().id(i).diningCommonsCode("ortega")
+          .name("Item " + i).station("Grill").build();
+      case "UCSBOrganization" -> i -> UCSBOrganization.builder().orgCode("ORG" + i)
+          .orgTranslationShort("ORG " + i).orgTranslation("Organization " + i).inactive(false).build();
+      case "User" -> i -> User.builder().id(i).email("user" + i + "@ucsb.edu").googleSub("sub" + i)
+          .pictureUrl("https://example.org/" + i + ".jpg").fullName("User " + i).givenName("User")
+          .familyName(Integer.toString(i)).emailVerified(true).locale("en").hostedDomain("ucsb.edu").build();
+      default -> throw new IllegalArgumentException(entity);
+    };
+  }
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    // configured the way Spring Boot configures the application's ObjectMapper
+    mapper = Jackson2ObjectMapperBuilder.json()
+        .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+        .build();
+    IntFunction<Object> row = factory(entity);
+    rows = new ArrayList<>(size);
+    for (int i = 1; i <= size; i++) {
+      rows.add(row.apply(i));
+    }
+  }
+
+  @Benchmark
+  public byte[] serializeList() throws JsonProcessingException {
+    return mapper.writeValueAsBytes(rows);
+  }
+}
@@ -5,6 +5,8 @@ import lombok.extern.slf4j.Slf4j;
 import org.aspectj.lang.JoinPoint;
 import org.aspectj.lang.annotation.Aspect;
 import org.aspectj.lang.annotation.Before;
+import org.aspectj.lang.annotation.Pointcut;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.context.request.ServletRequestAttributes;
@@ -18,6 +20,9 @@ import java.util.Optional;
  * with {@code @RequestMapping}, {@code @GetMapping}, {@code @PostMapping}, {@code @PutMapping}, {@code @DeleteMapping},
  * or {@code @PatchMapping}.
  * 
+ * The log line can be turned off with {@code app.logging.requests=false}; per-endpoint
+ * timings are recorded by {@link TimingAspect} either way.
+ * 
  * For more information on Aspect Oriented Programming (AOP)
  * and AspectJ, including what a {@code JoinPoint} is, 
  * refer to <a href="https://www.baeldung.com/aspectj">https://www.baeldung.com/aspectj</a> 
@@ -38,6 +43,18 @@ public class LoggingAspect {
       @annotation(org.springframework.web.bind.annotation.PatchMapping)
       """;
 
+  @Value("${app.logging.requests:true}")
+  boolean logRequests;
+
+  /**
+   * This pointcut matches every controller method that is annotated with
+   * {@code @RequestMapping}, {@code @GetMapping}, {@code @PostMapping}, {@code @PutMapping}, {@code @DeleteMapping},
+   * or {@code @PatchMapping}.
+   */
+  @Pointcut(pointcut)
+  public void controllerMethods() {
+  }
+
   private ArrayList<String> stoplist = new ArrayList<String>(Arrays.asList(
       "edu.ucsb.cs156.example.controllers.FrontendProxyController"));
 
@@ -47,14 +64,17 @@ public class LoggingAspect {
    * or {@code @PatchMapping}.
    * @param joinPoint the join point (injected by Spring framework)
    */
-  @Before(pointcut)
+  @Before("controllerMethods()")
   public void logControllers(JoinPoint joinPoint) {
+    if (!logRequests) {
+      return;
+    }
     getCurrentHttpRequest().ifPresent(
         request -> {
           String declaringTypeName = joinPoint.getSignature().getDeclaringTypeName();
           if (!stoplist.contains(declaringTypeName)) {
-            log.info("===== %s %s handled by %s in %s".formatted(request.getMethod(), request.getRequestURI(),
-                joinPoint.getSignature().getName(), declaringTypeName));
+            log.info("===== {} {} handled by {} in {}", request.getMethod(), request.getRequestURI(),
+                joinPoint.getSignature().getName(), declaringTypeName);
           }
         });
   }
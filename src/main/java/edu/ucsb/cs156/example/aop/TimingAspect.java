@@ -0,0 +1,77 @@
+package edu.ucsb.cs156.example.aop;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * This class is an Aspect that times every controller method matched by
+ * {@link LoggingAspect#controllerMethods()} and records the result with Micrometer.
+ * 
+ * Each controller method gets a timer named {@value #TIMER}, tagged with the controller's
+ * simple class name and the method name, that publishes a latency histogram.  Calls that
+ * throw are also counted in {@value #ERRORS}, tagged with the exception's simple class name.
+ * Both are scraped by admins from {@code /actuator/prometheus}; p50/p95/p99 per endpoint come from e.g.
+ * {@code histogram_quantile(0.95, sum by (controller, method, le) (rate(app_controller_requests_seconds_bucket[5m])))}.
+ * 
+ * For streaming endpoints, only the time taken to set up the stream is recorded.
+ */
+
+@Aspect
+@Component
+public class TimingAspect {
+
+  /**
+   * Name of the per-method latency timer.
+   */
+  public static final String TIMER = "app.controller.requests";
+
+  /**
+   * Name of the per-method error counter.
+   */
+  public static final String ERRORS = "app.controller.errors";
+
+  @Autowired
+  MeterRegistry registry;
+
+  private final Map<Method, Timer> timers = new ConcurrentHashMap<>();
+
+  /**
+   * This method times a controller method, and counts it as an error if it throws.
+   * @param joinPoint the join point (injected by Spring framework)
+   * @return whatever the controller method returns
+   * @throws Throwable whatever the controller method throws
+   */
+  @Around("edu.ucsb.cs156.example.aop.LoggingAspect.controllerMethods()")
+  public Object timeControllers(ProceedingJoinPoint joinPoint) throws Throwable {
+    MethodSignature signature = (MethodSignature) joinPoint.getSignature();
+    Timer.Sample sample = Timer.start(registry);
+    try {
+      return joinPoint.proceed();
+    } catch (Throwable t) {
+      Counter.builder(ERRORS)
+          .tag("controller", signature.getDeclaringType().getSimpleName())
+          .tag("method", signature.getName())
+          .tag("exception", t.getClass().getSimpleName())
+          .register(registry)
+          .increment();
+      throw t;
+    } finally {
+      sample.stop(timers.computeIfAbsent(signature.getMethod(), method -> Timer.builder(TIMER)
+          .tag("controller", method.getDeclaringClass().getSimpleName())
+          .tag("method", method.getName())
+          .publishPercentileHistogram()
+          .register(registry)));
+    }
+  }
+}
@@ -0,0 +1,81 @@
+package edu.ucsb.cs156.example.config;
+
+import edu.ucsb.cs156.example.services.ConnectionPoolService;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * A DataSource that records every connection it hands out with
+ * {@link ConnectionPoolService}, from the moment it is borrowed until it is closed.
+ *
+ * Connections are wrapped in a proxy that intercepts {@code close()}, and answers
+ * {@code equals}, {@code hashCode} and {@code toString} by its own identity, so that
+ * two proxies of the same pooled connection are never equal; everything else is
+ * passed through. {@code unwrap} on the DataSource still reaches the underlying pool.
+ */
+public class BorrowTrackingDataSource extends DelegatingDataSource {
+
+  private final ObjectProvider<ConnectionPoolService> connectionPoolService;
+
+  private volatile ConnectionPoolService tracker;
+
+  public BorrowTrackingDataSource(DataSource target, ObjectProvider<ConnectionPoolService> connectionPoolService) {
+    super(target);
+    this.connectionPoolService = connectionPoolService;
+  }
+
+  @Override
+  public Connection getConnection() throws SQLException {
+    return track(super.getConnection());
+  }
+
+  @Override
+  public Connection getConnection(String username, String password) throws SQLException {
+    return track(super.getConnection(username, password));
+  }
+
+  private ConnectionPoolService tracker() {
+    if (tracker == null) {
+      // stays null in test slices that don't load services
+      tracker = connectionPoolService.getIfAvailable();
+    }
+    return tracker;
+  }
+
+  private Connection track(Connection connection) {
+    ConnectionPoolService borrows = tracker();
+    if (borrows == null) {
+      return connection;
+    }
+    ConnectionPoolService.Borrow borrow = borrows.borrowed();
+    return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] { Connection.class },
+        (proxy, method, args) -> {
+          switch (method.getName()) {
+            case "equals":
+              return proxy == args[0];
+            case "hashCode":
+              return System.identityHashCode(proxy);
+            case "toString":
+              return "tracked connection@%x (%s)".formatted(System.identityHashCode(proxy), connection);
+            case "close":
+              borrows.returned(borrow);
+              break;
+            default:
+              break;
+          }
+          try {
+            return method.invoke(connection, args);
+          } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+          }
+        });
+  }
+}
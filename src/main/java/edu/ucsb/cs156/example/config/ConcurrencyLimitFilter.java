@@ -0,0 +1,88 @@
+package edu.ucsb.cs156.example.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounds the number of {@code /api} requests that run at once when requests are
+ * handled on virtual threads ({@code spring.threads.virtual.enabled=true}).
+ *
+ * With platform threads the size of Tomcat's thread pool limits how many requests
+ * can block on JDBC at the same time. Virtual threads remove that limit, so without
+ * this filter every request would queue inside the connection pool and time out there
+ * with a 500. Instead, a request waits here for at most
+ * {@code app.concurrency.acquire-timeout} for one of {@code app.concurrency.max-requests}
+ * permits (by default the connection pool size) and is answered with 503 if none
+ * becomes free.
+ *
+ * The permit is held until the handler returns; the async part of a streaming
+ * response runs after it has been released.
+ */
+
+@Slf4j
+@Component
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+
+  private final Semaphore permits;
+  private final Duration acquireTimeout;
+
+  public ConcurrencyLimitFilter(
+      @Value("${app.concurrency.max-requests:10}") int maxRequests,
+      @Value("${app.concurrency.acquire-timeout:PT5S}") Duration acquireTimeout) {
+    this.permits = new Semaphore(maxRequests, true);
+    this.acquireTimeout = acquireTimeout;
+    log.info("limiting /api to {} concurrent requests", maxRequests);
+  }
+
+  @Override
+  protected boolean shouldNotFilter(HttpServletRequest request) {
+    return !request.getRequestURI().startsWith(request.getContextPath() + "/api/");
+  }
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+      throws ServletException, IOException {
+    boolean acquired;
+    try {
+      acquired = permits.tryAcquire(acquireTimeout.toMillis(), TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      acquired = false;
+    }
+    if (!acquired) {
+      response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+      response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value(), "Too many concurrent requests");
+      return;
+    }
+    try {
+      chain.doFilter(request, response);
+    } finally {
+      permits.release();
+    }
+  }
+
+  /**
+   * This method returns the number of permits currently free.
+   * @return the number of requests that could start without waiting
+   */
+  public int getAvailablePermits() {
+    return permits.availablePermits();
+  }
+}
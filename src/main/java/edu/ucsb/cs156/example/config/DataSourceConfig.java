@@ -0,0 +1,38 @@
+package edu.ucsb.cs156.example.config;
+
+import edu.ucsb.cs156.example.services.ConnectionPoolService;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+/**
+ * Wraps the application's DataSource so that connection borrows are tracked
+ * by {@link ConnectionPoolService} (see {@code /api/admin/pool}).
+ */
+@Configuration
+public class DataSourceConfig {
+
+  /**
+   * This method returns a post-processor that wraps each DataSource bean in a
+   * {@link BorrowTrackingDataSource}.
+   * @param connectionPoolService the service to record borrows with, looked up lazily
+   * @return the post-processor
+   */
+  @Bean
+  public static BeanPostProcessor borrowTrackingDataSourcePostProcessor(
+      ObjectProvider<ConnectionPoolService> connectionPoolService) {
+    return new BeanPostProcessor() {
+      @Override
+      public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof DataSource dataSource && !(bean instanceof BorrowTrackingDataSource)) {
+          return new BorrowTrackingDataSource(dataSource, connectionPoolService);
+        }
+        return bean;
+      }
+    };
+  }
+}
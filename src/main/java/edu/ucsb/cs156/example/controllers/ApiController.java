@@ -1,16 +1,38 @@
 package edu.ucsb.cs156.example.controllers;
 
+import edu.ucsb.cs156.example.errors.DuplicateEntityException;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.errors.InvalidPatchException;
+import edu.ucsb.cs156.example.errors.TooManyIdsException;
+import edu.ucsb.cs156.example.errors.VersionConflictException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 
+import edu.ucsb.cs156.example.models.BatchResult;
 import edu.ucsb.cs156.example.models.CurrentUser;
 import edu.ucsb.cs156.example.services.CurrentUserService;
+import edu.ucsb.cs156.example.services.TableVersionService;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.context.request.ServletWebRequest;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * This is an abstract class that provides common functionality for all API controllers.
@@ -18,9 +40,31 @@ import java.util.Map;
 
 @Slf4j
 public abstract class ApiController {
+  /**
+   * Response header that carries the cursor for the next page of a keyset-paginated listing.
+   */
+  public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+  private static final Pattern STRONG_TAG = Pattern.compile("\"([^\"]*)\"");
+
   @Autowired
   private CurrentUserService currentUserService;
 
+  @Autowired
+  private TableVersionService tableVersionService;
+
+  @Value("${app.pagination.default-limit:100}")
+  private int defaultPageLimit;
+
+  @Value("${app.pagination.max-limit:1000}")
+  private int maxPageLimit;
+
+  @Value("${app.batch.chunk-size:500}")
+  private int batchChunkSize;
+
+  @Value("${app.batch.max-ids:1000}")
+  private int maxBatchIds;
+
   /**
    * This method returns the current user.
    * @return the current user
@@ -38,6 +82,214 @@ public abstract class ApiController {
     return Map.of("message", message);
   }
 
+  /**
+   * This method handles a conditional GET of data read from an entity's table.
+   * It sets a strong ETag built from the table's version counter, and marks the
+   * response as cacheable by the browser only if revalidated on every use.
+   * Call it before reading from the repository.
+   * @param request the current request
+   * @param entity the entity class whose table the response is read from
+   * @return true if the client's copy is current; the response has been set to
+   *         304 Not Modified and the handler should return null
+   */
+  protected boolean notModified(ServletWebRequest request, Class<?> entity) {
+    request.getResponse().setHeader(HttpHeaders.CACHE_CONTROL,
+        CacheControl.noCache().cachePrivate().getHeaderValue());
+    return request.checkNotModified(tableVersionService.etag(entity));
+  }
+
+  /**
+   * This method returns the generation of the rows of an entity's table, which
+   * together with an entity's version makes up the entity's ETag. Call it before
+   * reading or writing the entity.
+   * @param entity the entity class
+   * @return the generation, to pass to notModified, tagVersion and expectedVersion
+   */
+  protected long rowGeneration(Class<?> entity) {
+    return tableVersionService.getGeneration(entity);
+  }
+
+  /**
+   * This method handles a conditional GET of a single entity. The ETag is built
+   * from the entity's version, the same tag that a write names in If-Match, and the
+   * response is cacheable by the browser only if revalidated on every use.
+   * Call it after reading the entity.
+   * @param request the current request
+   * @param generation the generation of the entity's table, read before the entity
+   * @param version the version of the entity that was read
+   * @return true if the client's copy is current; the response has been set to
+   *         304 Not Modified and the handler should return null
+   */
+  protected boolean notModified(ServletWebRequest request, long generation, long version) {
+    request.getResponse().setHeader(HttpHeaders.CACHE_CONTROL,
+        CacheControl.noCache().cachePrivate().getHeaderValue());
+    return request.checkNotModified(tableVersionService.etag(generation, version));
+  }
+
+  /**
+   * This method sets the ETag of a response that returns an entity just written,
+   * so that the client can make its next write conditional on it.
+   * @param request the current request
+   * @param generation the generation of the entity's table, read before the write
+   * @param version the version of the entity that was written
+   */
+  protected void tagVersion(ServletWebRequest request, long generation, long version) {
+    request.getResponse().setHeader(HttpHeaders.ETAG, "\"" + tableVersionService.etag(generation, version) + "\"");
+  }
+
+  /**
+   * This method returns the version that an If-Match header requires the entity
+   * to be at. A tag this server did not hand out in this run for the current
+   * generation of the table (a weak or malformed tag, a list of tags, or the tag
+   * of an entity since deleted and created again) cannot match any version, so -1
+   * is returned for it and the write is refused.
+   * @param generation the generation of the entity's table, read before the write
+   * @param ifMatch the If-Match header (may be null)
+   * @return the required version, or null if the write is unconditional
+   *         (no header, or "*")
+   */
+  protected Long expectedVersion(long generation, String ifMatch) {
+    if (ifMatch == null || ifMatch.trim().equals("*")) {
+      return null;
+    }
+    Matcher tag = STRONG_TAG.matcher(ifMatch.trim());
+    Long version = tag.matches() ? tableVersionService.version(generation, tag.group(1)) : null;
+    return (version != null) ? version : -1L;
+  }
+
+  /**
+   * This method explains why a conditional write changed no rows: either the
+   * entity does not exist, or it is no longer at the version the client expected.
+   * The existence check is only made in the second case, so an unconditional
+   * write that misses costs no extra query.
+   * @param <K> the type of the ids
+   * @param repository the repository the write was made through
+   * @param entity the entity class
+   * @param id the id of the entity written
+   * @param expectedVersion the version the write required (null if it was unconditional)
+   * @return the exception to throw
+   */
+  protected <K> RuntimeException writeFailed(CrudRepository<?, K> repository, Class<?> entity, K id,
+      Long expectedVersion) {
+    if (expectedVersion != null && repository.existsById(id)) {
+      return new VersionConflictException(entity, id);
+    }
+    return new EntityNotFoundException(entity, id);
+  }
+
+  /**
+   * This method records that an entity's table has been written, so that
+   * ETags handed out for it no longer match. Call it after the write.
+   * Inside a transaction the version is bumped only once it commits, so a read
+   * made before then can never be tagged with the new version.
+   * @param entity the entity class
+   */
+  protected void tableChanged(Class<?> entity) {
+    afterCommit(() -> tableVersionService.bump(entity));
+  }
+
+  /**
+   * This method records that rows have been deleted from a table whose ids are
+   * assigned by the client, so that the ETags of the deleted entities no longer
+   * match an entity later created with the same id. Call it after the delete;
+   * inside a transaction it takes effect once the transaction commits.
+   * @param entity the entity class
+   */
+  protected void rowsRemoved(Class<?> entity) {
+    afterCommit(() -> tableVersionService.removed(entity));
+  }
+
+  private void afterCommit(Runnable action) {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      action.run();
+      return;
+    }
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+      @Override
+      public void afterCommit() {
+        action.run();
+      }
+    });
+  }
+
+  /**
+   * This method returns the page size to use for a keyset-paginated listing,
+   * clamped to between 1 and the configured maximum.
+   * @param requested the limit requested by the client (may be null)
+   * @return the page size to use
+   */
+  protected int pageLimit(Integer requested) {
+    int limit = (requested == null) ? defaultPageLimit : requested;
+    return Math.max(1, Math.min(limit, maxPageLimit));
+  }
+
+  /**
+   * This method builds the response for one page of a keyset-paginated listing.
+   * The rows should have been fetched in key order with a limit of {@code limit + 1};
+   * when the extra row is present it is dropped and the key of the last row returned
+   * is sent back in the {@value #NEXT_CURSOR_HEADER} header.
+   * @param <T> the entity type
+   * @param rows the rows fetched from the repository (at most limit + 1)
+   * @param limit the page size
+   * @param key function that extracts the ordering key from a row
+   * @return the response, with the next-page cursor if there are more rows
+   */
+  protected <T> ResponseEntity<Iterable<T>> keysetPage(List<T> rows, int limit, Function<T, ?> key) {
+    if (rows.size() <= limit) {
+      return ResponseEntity.ok(rows);
+    }
+    List<T> page = rows.subList(0, limit);
+    String nextCursor = key.apply(page.get(limit - 1)).toString();
+    return ResponseEntity.ok()
+        .header(NEXT_CURSOR_HEADER, nextCursor)
+        .body(page);
+  }
+
+  /**
+   * This method looks up a batch of entities by id, so that a client resolving many
+   * references makes one request rather than one getById call per reference.
+   * The ids are looked up with one IN query per {@code app.batch.chunk-size} ids;
+   * ids that match no entity are reported as missing rather than as an error.
+   * A request naming more than {@code app.batch.max-ids} ids is refused with 400 Bad Request.
+   * @param <T> the entity type
+   * @param <K> the type of the ids
+   * @param repository the repository to read from
+   * @param ids the ids requested by the client (repeats are looked up once)
+   * @param key function that extracts the id from an entity
+   * @return the entities found, keyed by id, and the ids that were not found
+   */
+  protected <T, K> BatchResult<K, T> batch(CrudRepository<T, K> repository, List<K> ids, Function<T, K> key) {
+    checkIdCount(ids);
+    List<K> distinct = new ArrayList<>(new LinkedHashSet<>(ids));
+    Map<K, T> rows = new HashMap<>();
+    for (int from = 0; from < distinct.size(); from += batchChunkSize) {
+      List<K> chunk = distinct.subList(from, Math.min(from + batchChunkSize, distinct.size()));
+      repository.findAllById(chunk).forEach(row -> rows.put(key.apply(row), row));
+    }
+    BatchResult<K, T> result = new BatchResult<>();
+    for (K id : distinct) {
+      T row = rows.get(id);
+      if (row == null) {
+        result.getMissing().add(id);
+      } else {
+        result.getFound().put(id, row);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * This method refuses a request that names more than {@code app.batch.max-ids} ids,
+   * so that one request cannot build an unbounded IN list.
+   * @param ids the ids named by the client
+   * @throws TooManyIdsException if there are too many ids; answered with 400 Bad Request
+   */
+  protected void checkIdCount(List<?> ids) {
+    if (ids.size() > maxBatchIds) {
+      throw new TooManyIdsException(ids.size(), maxBatchIds);
+    }
+  }
+
   /**
    * This method handles the EntityNotFoundException.
    * @param e the exception
@@ -51,4 +303,48 @@ public abstract class ApiController {
       "message", e.getMessage()
     );
   }
+
+  /**
+   * This method handles the InvalidPatchException and the TooManyIdsException.
+   * @param e the exception
+   * @return a map with the type and message of the exception
+   */
+  @ExceptionHandler({ InvalidPatchException.class, TooManyIdsException.class })
+  @ResponseStatus(HttpStatus.BAD_REQUEST)
+  public Object handleInvalidPatchException(Throwable e) {
+    return Map.of(
+      "type", e.getClass().getSimpleName(),
+      "message", e.getMessage()
+    );
+  }
+
+  /**
+   * This method handles the DuplicateEntityException.
+   * @param e the exception
+   * @return a map with the type and message of the exception
+   */
+  @ExceptionHandler({ DuplicateEntityException.class })
+  @ResponseStatus(HttpStatus.CONFLICT)
+  public Object handleDuplicateEntityException(Throwable e) {
+    return Map.of(
+      "type", e.getClass().getSimpleName(),
+      "message", e.getMessage()
+    );
+  }
+
+  /**
+   * This method handles a write that found the entity at another version than
+   * the one the client read, whether that was detected by a conditional write or
+   * by Hibernate when flushing a versioned entity.
+   * @param e the exception
+   * @return a map with the type and message of the exception
+   */
+  @ExceptionHandler({ VersionConflictException.class, OptimisticLockingFailureException.class })
+  @ResponseStatus(HttpStatus.PRECONDITION_FAILED)
+  public Object handleVersionConflict(Throwable e) {
+    return Map.of(
+      "type", e.getClass().getSimpleName(),
+      "message", e.getMessage()
+    );
+  }
 }
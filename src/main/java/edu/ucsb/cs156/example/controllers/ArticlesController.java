@@ -5,6 +5,12 @@ import edu.ucsb.cs156.example.entities.UCSBDate;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
 import edu.ucsb.cs156.example.repositories.ArticlesRepository;
 import edu.ucsb.cs156.example.repositories.UCSBDateRepository;
+import edu.ucsb.cs156.example.models.ArticleSearchHit;
+import edu.ucsb.cs156.example.models.BatchResult;
+import edu.ucsb.cs156.example.models.ImportReport;
+import edu.ucsb.cs156.example.services.ArticleSearchService;
+import edu.ucsb.cs156.example.services.BulkImportService;
+import edu.ucsb.cs156.example.services.MergePatchService;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -12,22 +18,33 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.extern.slf4j.Slf4j;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
 
 import jakarta.validation.Valid;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.time.LocalDateTime;
+import java.util.List;
 
 /**
  * This is a REST controller for Articles
@@ -41,27 +58,92 @@ public class ArticlesController extends ApiController {
     @Autowired
     ArticlesRepository articlesRepository;
 
+    @Autowired
+    BulkImportService bulkImportService;
+
+    @Autowired
+    MergePatchService mergePatchService;
+
+    @Autowired
+    ArticleSearchService articleSearchService;
+
     @Operation(summary= "List all articles")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("/all")
-    public Iterable<Articles> allArticles() {
-        Iterable<Articles> articles = articlesRepository.findAll();
-        return articles;
+    public ResponseEntity<Iterable<Articles>> allArticles(
+            @Parameter(name="after", description="id of the last article on the previous page; omit both after and limit for the full list") @RequestParam(required = false) Long after,
+            @Parameter(name="limit", description="maximum number of articles to return") @RequestParam(required = false) Integer limit,
+            ServletWebRequest webRequest) {
+        if (notModified(webRequest, Articles.class)) {
+            return null;
+        }
+        if (after == null && limit == null) {
+            Iterable<Articles> articles = articlesRepository.findAll();
+            return ResponseEntity.ok(articles);
+        }
+        int pageLimit = pageLimit(limit);
+        List<Articles> articles = articlesRepository.findByIdGreaterThanOrderByIdAsc(
+                after == null ? 0 : after, Limit.of(pageLimit + 1));
+        return keysetPage(articles, pageLimit, Articles::getId);
+    }
+
+    /**
+     * Search the titles and explanations of articles.  Every word of the query must
+     * occur in an article; the last word also matches words that start with it.
+     * Results are ranked by TF-IDF, with words in the title counting double, and are
+     * answered from an in-memory index.
+     * 
+     * @param q the words to search for
+     * @param limit the maximum number of articles to return (optional)
+     * @return the matching articles, most relevant first
+     */
+    @Operation(summary= "Search articles by title and explanation")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/search")
+    public List<ArticleSearchHit> searchArticles(
+            @Parameter(name="q", description="words to search for; the last one may be a prefix") @RequestParam String q,
+            @Parameter(name="limit", description="maximum number of articles to return") @RequestParam(required = false) Integer limit) {
+        return articleSearchService.search(q, pageLimit(limit));
+    }
+
+    /**
+     * Get a batch of articles by id, with one query rather than one request per id
+     * 
+     * @param ids the ids of the articles to get
+     * @param webRequest the current request, used to answer conditional GETs
+     * @return the articles found, keyed by id, and the ids that were not found
+     */
+    @Operation(summary= "Get a batch of articles")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/batch")
+    public BatchResult<Long, Articles> getBatch(
+            @Parameter(name = "ids", description = "comma-separated ids, e.g. 1,2,3") @RequestParam List<Long> ids,
+            ServletWebRequest webRequest) {
+        if (notModified(webRequest, Articles.class)) {
+            return null;
+        }
+        return batch(articlesRepository, ids, Articles::getId);
     }
 
     /**
      * Get a single article by id
      * 
      * @param id the id of the article
+     * @param webRequest the current request, used to answer conditional GETs
      * @return a article
      */
     @Operation(summary= "Get a single article")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("")
     public Articles getById(
-            @Parameter(name="id") @RequestParam Long id) {
+            @Parameter(name="id") @RequestParam Long id,
+            ServletWebRequest webRequest) {
+        long generation = rowGeneration(Articles.class);
         Articles article = articlesRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException(Articles.class, id));
+        if (notModified(webRequest, generation, article.getVersion())) {
+            return null;
+        }
 
         return article;
     }
@@ -87,6 +169,8 @@ public class ArticlesController extends ApiController {
         article.setDateAdded(dateAdded);
 
         Articles savedArticles = articlesRepository.save(article);
+        articleSearchService.index(savedArticles);
+        tableChanged(Articles.class);
 
         return savedArticles;
     }
@@ -96,6 +180,8 @@ public class ArticlesController extends ApiController {
      * 
      * @param id       id of the article to update
      * @param incoming the new article
+     * @param ifMatch the ETag of the version the client read (optional); the update is refused if the article has changed since
+     * @param webRequest the current request, used to return the new version as the ETag
      * @return the updated article object
      */
 
@@ -104,18 +190,52 @@ public class ArticlesController extends ApiController {
     @PutMapping("")
     public Articles updateArticle(
             @Parameter(name="id") @RequestParam Long id,
-            @RequestBody @Valid Articles incoming) {
+            @RequestBody @Valid Articles incoming,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            ServletWebRequest webRequest) {
 
+        long generation = rowGeneration(Articles.class);
+        Long version = expectedVersion(generation, ifMatch);
+        if (articlesRepository.updateById(id, incoming, version) == 0) {
+            throw writeFailed(articlesRepository, Articles.class, id, version);
+        }
+        tableChanged(Articles.class);
         Articles article = articlesRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException(Articles.class, id));
+        tagVersion(webRequest, generation, article.getVersion());
+        articleSearchService.index(article);
 
-        article.setTitle(incoming.getTitle());
-        article.setUrl(incoming.getUrl());
-        article.setExplanation(incoming.getExplanation());
-        article.setEmail(incoming.getEmail());
-        article.setDateAdded(incoming.getDateAdded());
+        return article;
+    }
 
-        articlesRepository.save(article);
+    /**
+     * Patch a single article with a JSON merge patch (RFC 7396); only the fields named in the patch are changed
+     * 
+     * @param id id of the article to patch
+     * @param patch the fields to change, with null clearing a field
+     * @param ifMatch the ETag of the version the client read (optional); the patch is refused if the article has changed since
+     * @param webRequest the current request, used to return the new version as the ETag
+     * @return the patched article object
+     */
+    @Operation(summary= "Patch a single article")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PatchMapping(value = "", consumes = MergePatchService.APPLICATION_MERGE_PATCH_JSON_VALUE)
+    public Articles patchArticle(
+            @Parameter(name = "id") @RequestParam Long id,
+            @RequestBody JsonNode patch,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            ServletWebRequest webRequest) {
+
+        long generation = rowGeneration(Articles.class);
+        Long version = expectedVersion(generation, ifMatch);
+        if (mergePatchService.patch(Articles.class, id, patch, version) == 0) {
+            throw writeFailed(articlesRepository, Articles.class, id, version);
+        }
+        tableChanged(Articles.class);
+        Articles article = articlesRepository.findById(id)
+                .orElseThrow(() -> new EntityNotFoundException(Articles.class, id));
+        tagVersion(webRequest, generation, article.getVersion());
+        articleSearchService.index(article);
 
         return article;
     }
@@ -124,18 +244,42 @@ public class ArticlesController extends ApiController {
      * Delete an article
      * 
      * @param id the id of the article to delete
+     * @param ifMatch the ETag of the version the client read (optional); the delete is refused if the article has changed since
      * @return a message indicating the article was deleted
      */
     @Operation(summary = "Delete an article")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @DeleteMapping("")
     public Object deleteArticle(
-            @Parameter(name = "id") @RequestParam Long id) {
-        Articles article = articlesRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(Articles.class, id));
-
-        articlesRepository.delete(article);
+            @Parameter(name = "id") @RequestParam Long id,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        long generation = rowGeneration(Articles.class);
+        Long version = expectedVersion(generation, ifMatch);
+        if (articlesRepository.removeById(id, version) == 0) {
+            throw writeFailed(articlesRepository, Articles.class, id, version);
+        }
+        articleSearchService.remove(id);
+        tableChanged(Articles.class);
         return genericMessage("Article with id %s deleted".formatted(id));
     }
 
-}
\ No newline at end of file
+    /**
+     * Bulk import articles from an NDJSON or CSV upload. Accessible only to users with the role "ROLE_ADMIN".
+     * Each line holds an article; a CSV upload starts with a header line naming the fields.
+     * @param contentType application/x-ndjson or text/csv
+     * @param body the upload
+     * @return a report of how many rows were imported and which rows were rejected
+     * @throws IOException if the upload cannot be read
+     */
+    @Operation(summary= "Bulk import articles from NDJSON or CSV")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping(value = "/import", consumes = { MediaType.APPLICATION_NDJSON_VALUE, BulkImportService.TEXT_CSV_VALUE })
+    public ImportReport importArticles(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+            InputStream body) throws IOException {
+        ImportReport report = bulkImportService.importRows(body, contentType, Articles.class, articlesRepository,
+                articleSearchService::index);
+        tableChanged(Articles.class);
+        return report;
+    }
+}
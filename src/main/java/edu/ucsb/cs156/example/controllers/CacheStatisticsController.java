@@ -0,0 +1,41 @@
+package edu.ucsb.cs156.example.controllers;
+
+import edu.ucsb.cs156.example.models.CacheStatistics;
+import edu.ucsb.cs156.example.services.CacheStatisticsService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ * This is a REST controller for getting second-level cache statistics.
+ * 
+ * These endpoints are only accessible to users with the role "ROLE_ADMIN".
+ */
+
+@Tag(name = "Cache statistics (admin only)")
+@RequestMapping("/api/admin/cache")
+@RestController
+public class CacheStatisticsController extends ApiController {
+
+    @Autowired
+    CacheStatisticsService cacheStatisticsService;
+
+    /**
+     * This method returns the hit/miss statistics of each second-level cache region.
+     * Accessible only to users with the role "ROLE_ADMIN".
+     * @return the statistics of each region
+     */
+    @Operation(summary = "Get hit/miss statistics for the second-level cache")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @GetMapping("")
+    public List<CacheStatistics> cacheStatistics() {
+        return cacheStatisticsService.getCacheStatistics();
+    }
+}
@@ -0,0 +1,44 @@
+package edu.ucsb.cs156.example.controllers;
+
+import edu.ucsb.cs156.example.models.ConnectionPoolState;
+import edu.ucsb.cs156.example.services.ConnectionPoolService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * This is a REST controller for getting the state of the database connection pool.
+ * 
+ * These endpoints are only accessible to users with the role "ROLE_ADMIN".
+ */
+
+@Tag(name = "Connection pool (admin only)")
+@RequestMapping("/api/admin/pool")
+@RestController
+public class ConnectionPoolController extends ApiController {
+
+    @Autowired
+    ConnectionPoolService connectionPoolService;
+
+    /**
+     * This method returns the active, idle and pending connection counts of the pool,
+     * the connections held longer than the leak detection threshold, and the slowest
+     * recently returned borrows. Accessible only to users with the role "ROLE_ADMIN".
+     * @param limit the maximum number of borrows to list
+     * @return the state of the pool
+     */
+    @Operation(summary = "Get the state of the connection pool and its slowest recent borrowers")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @GetMapping("")
+    public ConnectionPoolState connectionPool(
+            @Parameter(name = "limit", description = "maximum number of borrows to list") @RequestParam(defaultValue = "10") int limit) {
+        return connectionPoolService.getState(Math.max(0, limit));
+    }
+}
@@ -2,7 +2,14 @@ package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.entities.HelpRequest;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.HelpRequestEvent;
 import edu.ucsb.cs156.example.repositories.HelpRequestRepository;
+import edu.ucsb.cs156.example.services.HelpRequestQueueService;
+import edu.ucsb.cs156.example.models.BatchResult;
+import edu.ucsb.cs156.example.models.BulkUpdateReport;
+import edu.ucsb.cs156.example.models.ImportReport;
+import edu.ucsb.cs156.example.services.BulkImportService;
+import edu.ucsb.cs156.example.services.MergePatchService;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -10,22 +17,34 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.extern.slf4j.Slf4j;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.MediaType;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import jakarta.validation.Valid;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.time.LocalDateTime;
+import java.util.List;
 
 /**
  * This is a REST controller for HelpRequest
@@ -40,32 +59,95 @@ public class HelpRequestController extends ApiController {
     @Autowired
     HelpRequestRepository helpRequestRepository;
 
+    @Autowired
+    BulkImportService bulkImportService;
+
+    @Autowired
+    HelpRequestQueueService helpRequestQueueService;
+
+    @Autowired
+    MergePatchService mergePatchService;
+
     /**
      * List all help requests
      * 
+     * @param after the id of the last help request on the previous page (optional)
+     * @param limit the maximum number of help requests to return (optional)
+     * @param webRequest the current request, used to answer conditional GETs
      * @return an iterable of HelpRequest
      */
     @Operation(summary = "List all help requests")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("/all")
-    public Iterable<HelpRequest> allHelpRequests() {
-        Iterable<HelpRequest> helpRequests = helpRequestRepository.findAll();
-        return helpRequests;
+    public ResponseEntity<Iterable<HelpRequest>> allHelpRequests(
+            @Parameter(name="after", description="id of the last help request on the previous page; omit both after and limit for the full list") @RequestParam(required = false) Long after,
+            @Parameter(name="limit", description="maximum number of help requests to return") @RequestParam(required = false) Integer limit,
+            ServletWebRequest webRequest) {
+        if (notModified(webRequest, HelpRequest.class)) {
+            return null;
+        }
+        if (after == null && limit == null) {
+            Iterable<HelpRequest> helpRequests = helpRequestRepository.findAll();
+            return ResponseEntity.ok(helpRequests);
+        }
+        int pageLimit = pageLimit(limit);
+        List<HelpRequest> helpRequests = helpRequestRepository.findByIdGreaterThanOrderByIdAsc(
+                after == null ? 0 : after, Limit.of(pageLimit + 1));
+        return keysetPage(helpRequests, pageLimit, HelpRequest::getId);
+    }
+
+    /**
+     * Subscribe to the live queue of unsolved help requests (Server-Sent Events).
+     * The stream starts with a "snapshot" event listing every unsolved request,
+     * followed by "created", "updated", "solved" and "deleted" events.
+     * 
+     * @return the event stream
+     */
+    @Operation(summary = "Subscribe to the live queue of unsolved help requests")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping(value = "/queue", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter helpRequestQueue() {
+        return helpRequestQueueService.subscribe();
+    }
+
+    /**
+     * Get a batch of help requests by id, with one query rather than one request per id
+     * 
+     * @param ids the ids of the help requests to get
+     * @param webRequest the current request, used to answer conditional GETs
+     * @return the help requests found, keyed by id, and the ids that were not found
+     */
+    @Operation(summary = "Get a batch of help requests")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/batch")
+    public BatchResult<Long, HelpRequest> getBatch(
+            @Parameter(name = "ids", description = "comma-separated ids, e.g. 1,2,3") @RequestParam List<Long> ids,
+            ServletWebRequest webRequest) {
+        if (notModified(webRequest, HelpRequest.class)) {
+            return null;
+        }
+        return batch(helpRequestRepository, ids, HelpRequest::getId);
     }
 
     /**
      * Get a single help request by id
      * 
      * @param id the id of the help request
+     * @param webRequest the current request, used to answer conditional GETs
      * @return a HelpRequest
      */
     @Operation(summary = "Get a single help request")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("")
     public HelpRequest getById(
-            @Parameter(name = "id") @RequestParam Long id) {
+            @Parameter(name = "id") @RequestParam Long id,
+            ServletWebRequest webRequest) {
+        long generation = rowGeneration(HelpRequest.class);
         HelpRequest helpRequest = helpRequestRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException(HelpRequest.class, id));
+        if (notModified(webRequest, generation, helpRequest.getVersion())) {
+            return null;
+        }
 
         return helpRequest;
     }
@@ -105,6 +187,13 @@ public class HelpRequestController extends ApiController {
                 .build();
 
         HelpRequest savedHelpRequest = helpRequestRepository.save(helpRequest);
+        tableChanged(HelpRequest.class);
+
+        helpRequestQueueService.publish(HelpRequestEvent.builder()
+                .type(HelpRequestEvent.Type.CREATED)
+                .id(savedHelpRequest.getId())
+                .helpRequest(savedHelpRequest)
+                .build());
 
         return savedHelpRequest;
     }
@@ -114,6 +203,8 @@ public class HelpRequestController extends ApiController {
      * 
      * @param id       id of the help request to update
      * @param incoming the new help request data
+     * @param ifMatch  the ETag of the version the client read (optional); the update is refused if the help request has changed since
+     * @param webRequest the current request, used to return the new version as the ETag
      * @return the updated help request object
      */
     @Operation(summary = "Update a single help request")
@@ -121,38 +212,158 @@ public class HelpRequestController extends ApiController {
     @PutMapping("")
     public HelpRequest updateHelpRequest(
             @Parameter(name = "id") @RequestParam Long id,
-            @RequestBody @Valid HelpRequest incoming) {
+            @RequestBody @Valid HelpRequest incoming,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            ServletWebRequest webRequest) {
 
+        long generation = rowGeneration(HelpRequest.class);
+        Long version = expectedVersion(generation, ifMatch);
+        // a solving update first tries to claim the unsolved row, which tells us whether it was newly solved
+        boolean newlySolved = incoming.getSolved()
+                && helpRequestRepository.updateUnsolvedById(id, incoming, version) == 1;
+        if (!newlySolved && helpRequestRepository.updateById(id, incoming, version) == 0) {
+            throw writeFailed(helpRequestRepository, HelpRequest.class, id, version);
+        }
+        tableChanged(HelpRequest.class);
         HelpRequest helpRequest = helpRequestRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException(HelpRequest.class, id));
+        tagVersion(webRequest, generation, helpRequest.getVersion());
+
+        helpRequestQueueService.publish(HelpRequestEvent.builder()
+                .type(newlySolved ? HelpRequestEvent.Type.SOLVED : HelpRequestEvent.Type.UPDATED)
+                .id(id)
+                .helpRequest(helpRequest)
+                .build());
 
-        helpRequest.setRequesterEmail(incoming.getRequesterEmail());
-        helpRequest.setTeamId(incoming.getTeamId());
-        helpRequest.setTableOrBreakoutRoom(incoming.getTableOrBreakoutRoom());
-        helpRequest.setRequestTime(incoming.getRequestTime());
-        helpRequest.setExplanation(incoming.getExplanation());
-        helpRequest.setSolved(incoming.getSolved());
+        return helpRequest;
+    }
 
-        helpRequestRepository.save(helpRequest);
+    /**
+     * Patch a single help request with a JSON merge patch (RFC 7396); only the fields named in the patch are changed,
+     * so marking a request solved is just {"solved": true}
+     * 
+     * @param id    id of the help request to patch
+     * @param patch the fields to change, with null clearing a field
+     * @param ifMatch the ETag of the version the client read (optional); the patch is refused if the help request has changed since
+     * @param webRequest the current request, used to return the new version as the ETag
+     * @return the patched help request object
+     */
+    @Operation(summary = "Patch a single help request")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PatchMapping(value = "", consumes = MergePatchService.APPLICATION_MERGE_PATCH_JSON_VALUE)
+    public HelpRequest patchHelpRequest(
+            @Parameter(name = "id") @RequestParam Long id,
+            @RequestBody JsonNode patch,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            ServletWebRequest webRequest) {
+
+        long generation = rowGeneration(HelpRequest.class);
+        Long version = expectedVersion(generation, ifMatch);
+        // as for PUT, a solving patch first tries to claim the unsolved row
+        boolean newlySolved = patch.path("solved").asBoolean(false)
+                && mergePatchService.patchIf(HelpRequest.class, id, patch, "solved", false, version) == 1;
+        if (!newlySolved && mergePatchService.patch(HelpRequest.class, id, patch, version) == 0) {
+            throw writeFailed(helpRequestRepository, HelpRequest.class, id, version);
+        }
+        tableChanged(HelpRequest.class);
+        HelpRequest helpRequest = helpRequestRepository.findById(id)
+                .orElseThrow(() -> new EntityNotFoundException(HelpRequest.class, id));
+        tagVersion(webRequest, generation, helpRequest.getVersion());
+
+        helpRequestQueueService.publish(HelpRequestEvent.builder()
+                .type(newlySolved ? HelpRequestEvent.Type.SOLVED : HelpRequestEvent.Type.UPDATED)
+                .id(id)
+                .helpRequest(helpRequest)
+                .build());
 
         return helpRequest;
     }
 
+    /**
+     * Mark help requests solved in bulk, with a single update
+     * 
+     * @param ids the ids of the help requests to mark solved (at most {@code app.batch.max-ids})
+     * @return the number of help requests that were newly solved
+     */
+    @Operation(summary = "Mark help requests solved in bulk")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PutMapping("/solve")
+    public BulkUpdateReport solveHelpRequests(
+            @Parameter(name = "ids", description = "comma-separated ids, e.g. 1,2,3") @RequestParam List<Long> ids) {
+        checkIdCount(ids);
+        return solved(helpRequestRepository.solveByIdIn(ids));
+    }
+
+    /**
+     * Mark every unsolved help request of a team solved, with a single update
+     * 
+     * @param teamId the team whose help requests to mark solved
+     * @return the number of help requests that were newly solved
+     */
+    @Operation(summary = "Mark all unsolved help requests of a team solved")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PutMapping("/solve/team")
+    public BulkUpdateReport solveTeamHelpRequests(
+            @Parameter(name = "teamId") @RequestParam String teamId) {
+        return solved(helpRequestRepository.solveByTeamId(teamId));
+    }
+
+    private BulkUpdateReport solved(int count) {
+        if (count > 0) {
+            tableChanged(HelpRequest.class);
+            // one snapshot to each subscriber rather than a solved event per request
+            helpRequestQueueService.publishSnapshot();
+        }
+        return new BulkUpdateReport(count);
+    }
+
     /**
      * Delete a HelpRequest
      * 
      * @param id the id of the help request to delete
+     * @param ifMatch the ETag of the version the client read (optional); the delete is refused if the help request has changed since
      * @return a message indicating the help request was deleted
      */
     @Operation(summary = "Delete a HelpRequest")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @DeleteMapping("")
     public Object deleteHelpRequest(
-            @Parameter(name = "id") @RequestParam Long id) {
-        HelpRequest helpRequest = helpRequestRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(HelpRequest.class, id));
-
-        helpRequestRepository.delete(helpRequest);
+            @Parameter(name = "id") @RequestParam Long id,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        long generation = rowGeneration(HelpRequest.class);
+        Long version = expectedVersion(generation, ifMatch);
+        if (helpRequestRepository.removeById(id, version) == 0) {
+            throw writeFailed(helpRequestRepository, HelpRequest.class, id, version);
+        }
+        tableChanged(HelpRequest.class);
+        helpRequestQueueService.publish(HelpRequestEvent.builder()
+                .type(HelpRequestEvent.Type.DELETED)
+                .id(id)
+                .build());
         return genericMessage("HelpRequest with id %s deleted".formatted(id));
     }
+
+    /**
+     * Bulk import help requests from an NDJSON or CSV upload. Accessible only to users with the role "ROLE_ADMIN".
+     * Each line holds a help request; a CSV upload starts with a header line naming the fields.
+     * @param contentType application/x-ndjson or text/csv
+     * @param body the upload
+     * @return a report of how many rows were imported and which rows were rejected
+     * @throws IOException if the upload cannot be read
+     */
+    @Operation(summary= "Bulk import help requests from NDJSON or CSV")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping(value = "/import", consumes = { MediaType.APPLICATION_NDJSON_VALUE, BulkImportService.TEXT_CSV_VALUE })
+    public ImportReport importHelpRequests(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+            InputStream body) throws IOException {
+        ImportReport report = bulkImportService.importRows(body, contentType, HelpRequest.class, helpRequestRepository,
+                saved -> helpRequestQueueService.publish(HelpRequestEvent.builder()
+                        .type(HelpRequestEvent.Type.CREATED)
+                        .id(saved.getId())
+                        .helpRequest(saved)
+                        .build()));
+        tableChanged(HelpRequest.class);
+        return report;
+    }
 }
@@ -1,8 +1,18 @@
 package edu.ucsb.cs156.example.controllers;
 
+import edu.ucsb.cs156.example.entities.MenuItemRating;
 import edu.ucsb.cs156.example.entities.MenuItemReview;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.errors.VersionConflictException;
 import edu.ucsb.cs156.example.repositories.MenuItemReviewRepository;
+import edu.ucsb.cs156.example.services.MenuItemLeaderboardService;
+import edu.ucsb.cs156.example.services.MenuItemRatingService;
+import edu.ucsb.cs156.example.services.MenuItemReviewExportService;
+import edu.ucsb.cs156.example.models.MenuItemRanking;
+import edu.ucsb.cs156.example.models.RatingRebuildReport;
+import edu.ucsb.cs156.example.models.BatchResult;
+import edu.ucsb.cs156.example.models.ImportReport;
+import edu.ucsb.cs156.example.services.BulkImportService;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -13,19 +23,32 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.MediaType;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import jakarta.validation.Valid;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 /**
  * This is a REST controller for UCSBMenuItemReview
@@ -40,33 +63,157 @@ public class MenuItemReviewController extends ApiController {
     @Autowired
     MenuItemReviewRepository menuItemReviewRepository;
 
+    @Autowired
+    BulkImportService bulkImportService;
+
+    @Autowired
+    MenuItemReviewExportService menuItemReviewExportService;
+
+    @Autowired
+    MenuItemRatingService menuItemRatingService;
+
+    @Autowired
+    MenuItemLeaderboardService menuItemLeaderboardService;
+
     /**
      * List all menu item reviews
      * 
+     * @param after the id of the last review on the previous page (optional)
+     * @param limit the maximum number of reviews to return (optional)
+     * @param webRequest the current request, used to answer conditional GETs
      * @return an iterable of MenuItemReview
      */
     @Operation(summary= "List all menu item reviews")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("/all")
-    public Iterable<MenuItemReview> allMenuItemReviews() {
-        Iterable<MenuItemReview> reviews = menuItemReviewRepository.findAll();
-        return reviews;
+    public ResponseEntity<Iterable<MenuItemReview>> allMenuItemReviews(
+            @Parameter(name="after", description="id of the last review on the previous page; omit both after and limit for the full list") @RequestParam(required = false) Long after,
+            @Parameter(name="limit", description="maximum number of reviews to return") @RequestParam(required = false) Integer limit,
+            ServletWebRequest webRequest) {
+        if (notModified(webRequest, MenuItemReview.class)) {
+            return null;
+        }
+        if (after == null && limit == null) {
+            Iterable<MenuItemReview> reviews = menuItemReviewRepository.findAll();
+            return ResponseEntity.ok(reviews);
+        }
+        int pageLimit = pageLimit(limit);
+        List<MenuItemReview> reviews = menuItemReviewRepository.findByIdGreaterThanOrderByIdAsc(
+                after == null ? 0 : after, Limit.of(pageLimit + 1));
+        return keysetPage(reviews, pageLimit, MenuItemReview::getId);
     }
 
+    /**
+     * Export all menu item reviews as newline-delimited JSON (one review per line).
+     * The reviews are streamed from the database as they are written, so the
+     * response is never held in memory as a whole.
+     * 
+     * @return a streaming response body of MenuItemReview lines
+     */
+    @Operation(summary= "Export all menu item reviews as newline-delimited JSON")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportMenuItemReviews() {
+        StreamingResponseBody body = out -> menuItemReviewExportService.writeNdjson(out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
     
+    /**
+     * Get the rating summary of a menu item: the number of reviews, the sum and
+     * average of their stars, how many reviews gave each number of stars, and
+     * when the item was last reviewed.  The summary is maintained as reviews are
+     * written, so this does not read the reviews themselves.
+     * 
+     * @param itemId the id of the menu item
+     * @param webRequest the current request, used to answer conditional GETs
+     * @return the item's rating summary (all counts zero if it has no reviews)
+     */
+    @Operation(summary= "Get the rating summary of a menu item")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/summary")
+    public MenuItemRating getSummary(
+            @Parameter(name="itemId") @RequestParam long itemId,
+            ServletWebRequest webRequest) {
+        if (notModified(webRequest, MenuItemReview.class)) {
+            return null;
+        }
+        return menuItemRatingService.getRating(itemId);
+    }
+
+    /**
+     * Recompute the rating summary of every menu item from its reviews. Accessible only to
+     * users with the role "ROLE_ADMIN".
+     * 
+     * @return a report of how many items and reviews were summarized
+     */
+    @Operation(summary= "Rebuild the rating summaries of all menu items from their reviews")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping("/summary/rebuild")
+    public RatingRebuildReport rebuildSummaries() {
+        RatingRebuildReport report = menuItemRatingService.rebuildAll();
+        tableChanged(MenuItemReview.class);
+        return report;
+    }
+
+    /**
+     * List the best rated menu items, best first.  Items are ranked by the Bayesian
+     * average of their stars, so an item with a few five star reviews does not outrank
+     * one with many good ones.  The ranking is kept in memory and updated as reviews
+     * are written.
+     * 
+     * @param n the number of items to list
+     * @param diningCommonsCode the dining commons whose items to rank (optional; all items if omitted)
+     * @return up to n ranked menu items
+     */
+    @Operation(summary= "List the best rated menu items")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/top")
+    public List<MenuItemRanking> getTop(
+            @Parameter(name="n", description="number of items to list") @RequestParam(defaultValue = "10") int n,
+            @Parameter(name="diningCommonsCode", description="dining commons to rank the items of; omit to rank all items") @RequestParam(required = false) String diningCommonsCode) {
+        return menuItemLeaderboardService.getTop(Math.max(0, n), diningCommonsCode);
+    }
+
+    /**
+     * Get a batch of reviews by id, with one query rather than one request per id
+     * 
+     * @param ids the ids of the reviews to get
+     * @param webRequest the current request, used to answer conditional GETs
+     * @return the reviews found, keyed by id, and the ids that were not found
+     */
+    @Operation(summary= "Get a batch of reviews")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/batch")
+    public BatchResult<Long, MenuItemReview> getBatch(
+            @Parameter(name = "ids", description = "comma-separated ids, e.g. 1,2,3") @RequestParam List<Long> ids,
+            ServletWebRequest webRequest) {
+        if (notModified(webRequest, MenuItemReview.class)) {
+            return null;
+        }
+        return batch(menuItemReviewRepository, ids, MenuItemReview::getId);
+    }
+
     /**
      * Get a single review by id
      * 
      * @param id the id of the review
+     * @param webRequest the current request, used to answer conditional GETs
      * @return a MenuItemReview
      */
     @Operation(summary= "Get a single review")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("")
     public MenuItemReview getById(
-            @Parameter(name="id") @RequestParam Long id) {
+            @Parameter(name="id") @RequestParam Long id,
+            ServletWebRequest webRequest) {
+        long generation = rowGeneration(MenuItemReview.class);
         MenuItemReview menuItemReview = menuItemReviewRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException(MenuItemReview.class, id));
+        if (notModified(webRequest, generation, menuItemReview.getVersion())) {
+            return null;
+        }
 
         return menuItemReview;
     }
@@ -85,6 +232,7 @@ public class MenuItemReviewController extends ApiController {
     @Operation(summary= "Create a new review")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PostMapping("/post")
+    @Transactional
     public MenuItemReview postMenuItemReview(
             @Parameter(name="itemId") @RequestParam Long itemId,
             @Parameter(name="reviewerEmail") @RequestParam String reviewerEmail,
@@ -106,7 +254,9 @@ public class MenuItemReviewController extends ApiController {
         menuItemReview.setDateReviewed(dateReviewed);
         menuItemReview.setComments(comments);
 
+        menuItemRatingService.reviewAdded(menuItemReview);
         MenuItemReview savedMenuItemReview = menuItemReviewRepository.save(menuItemReview);
+        tableChanged(MenuItemReview.class);
 
         return savedMenuItemReview;
     }
@@ -115,17 +265,28 @@ public class MenuItemReviewController extends ApiController {
      * Delete a MenuItemReview
      * 
      * @param id the id of the review to delete
+     * @param ifMatch the ETag of the version the client read (optional); the delete is refused if the review has changed since
      * @return a message indicating the date was deleted
      */
     @Operation(summary= "Delete a MenuItemReview")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @DeleteMapping("")
+    @Transactional
     public Object deleteMenuItemReview(
-            @Parameter(name="id") @RequestParam Long id) {
+            @Parameter(name="id") @RequestParam Long id,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        long generation = rowGeneration(MenuItemReview.class);
+        Long version = expectedVersion(generation, ifMatch);
         MenuItemReview menuItemReview = menuItemReviewRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException(MenuItemReview.class, id));
+        if (version != null && !version.equals(menuItemReview.getVersion())) {
+            throw new VersionConflictException(MenuItemReview.class, id);
+        }
 
+        // the delete is made at the version read, so it fails on flush if the review has changed since
         menuItemReviewRepository.delete(menuItemReview);
+        menuItemRatingService.reviewRemoved(menuItemReview);
+        tableChanged(MenuItemReview.class);
         return genericMessage("MenuItemReview with id %s deleted".formatted(id));
     }
 
@@ -134,28 +295,62 @@ public class MenuItemReviewController extends ApiController {
      * 
      * @param id       id of the review to update
      * @param incoming the new review
+     * @param ifMatch  the ETag of the version the client read (optional); the update is refused if the review has changed since
+     * @param webRequest the current request, used to return the new version as the ETag
      * @return the updated review object
      */
     @Operation(summary= "Update a single review")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PutMapping("")
+    @Transactional
     public MenuItemReview updateMenuItemReview(
             @Parameter(name="id") @RequestParam Long id,
-            @RequestBody @Valid MenuItemReview incoming) {
+            @RequestBody @Valid MenuItemReview incoming,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            ServletWebRequest webRequest) {
 
-        MenuItemReview menuItemReview = menuItemReviewRepository.findById(id)
+        long generation = rowGeneration(MenuItemReview.class);
+        Long version = expectedVersion(generation, ifMatch);
+        // the rating summary is adjusted by the difference from the review as read, so the
+        // review is locked from being read until the transaction ends
+        MenuItemReview before = menuItemReviewRepository.findForUpdateById(id)
                 .orElseThrow(() -> new EntityNotFoundException(MenuItemReview.class, id));
+        if (version != null && !version.equals(before.getVersion())) {
+            throw new VersionConflictException(MenuItemReview.class, id);
+        }
+        if (menuItemReviewRepository.updateById(id, incoming, version) == 0) {
+            throw writeFailed(menuItemReviewRepository, MenuItemReview.class, id, version);
+        }
+        incoming.setId(id);
+        incoming.setVersion(before.getVersion() + 1);
 
-        menuItemReview.setItemId(incoming.getItemId());
-        menuItemReview.setReviewerEmail(incoming.getReviewerEmail());
-        menuItemReview.setStars(incoming.getStars());
-        menuItemReview.setDateReviewed(incoming.getDateReviewed());
-        menuItemReview.setComments(incoming.getComments());
-
-
-        menuItemReviewRepository.save(menuItemReview);
+        menuItemRatingService.reviewChanged(before, incoming);
+        tableChanged(MenuItemReview.class);
+        tagVersion(webRequest, generation, incoming.getVersion());
 
-        return menuItemReview;
+        return incoming;
     }
 
+    /**
+     * Bulk import menu item reviews from an NDJSON or CSV upload. Accessible only to users with the role "ROLE_ADMIN".
+     * Each line holds a review; a CSV upload starts with a header line naming the fields.
+     * The rating summaries of the reviewed items are rebuilt once the import is done.
+     * @param contentType application/x-ndjson or text/csv
+     * @param body the upload
+     * @return a report of how many rows were imported and which rows were rejected
+     * @throws IOException if the upload cannot be read
+     */
+    @Operation(summary= "Bulk import menu item reviews from NDJSON or CSV")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping(value = "/import", consumes = { MediaType.APPLICATION_NDJSON_VALUE, BulkImportService.TEXT_CSV_VALUE })
+    public ImportReport importMenuItemReviews(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+            InputStream body) throws IOException {
+        Set<Long> itemIds = new HashSet<>();
+        ImportReport report = bulkImportService.importRows(body, contentType, MenuItemReview.class, menuItemReviewRepository,
+                saved -> itemIds.add(saved.getItemId()));
+        menuItemRatingService.rebuild(itemIds);
+        tableChanged(MenuItemReview.class);
+        return report;
+    }
 }
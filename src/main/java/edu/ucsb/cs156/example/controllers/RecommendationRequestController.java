@@ -4,6 +4,11 @@ import edu.ucsb.cs156.example.entities.RecommendationRequest;
 import edu.ucsb.cs156.example.entities.UCSBDate;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
 import edu.ucsb.cs156.example.repositories.RecommendationRequestRepository;
+import edu.ucsb.cs156.example.models.BatchResult;
+import edu.ucsb.cs156.example.models.BulkUpdateReport;
+import edu.ucsb.cs156.example.models.ImportReport;
+import edu.ucsb.cs156.example.services.BulkImportService;
+import edu.ucsb.cs156.example.services.MergePatchService;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -11,22 +16,33 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.extern.slf4j.Slf4j;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
 
 import jakarta.validation.Valid;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.time.LocalDateTime;
+import java.util.List;
 @Tag(name = "RecommendationRequest")
 @RequestMapping("/api/recommendationrequest")
 @RestController
@@ -35,13 +51,31 @@ public class RecommendationRequestController extends ApiController {
     @Autowired
     RecommendationRequestRepository recommendationRequestRepository;
 
+    @Autowired
+    BulkImportService bulkImportService;
+
+    @Autowired
+    MergePatchService mergePatchService;
+
     // GET ALL 
     @Operation(summary= "List all recommendation requests")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("/all")
-    public Iterable<RecommendationRequest> allRecommendationRequest() {
-        Iterable<RecommendationRequest> dates = recommendationRequestRepository.findAll();
-        return dates;
+    public ResponseEntity<Iterable<RecommendationRequest>> allRecommendationRequest(
+            @Parameter(name="after", description="id of the last request on the previous page; omit both after and limit for the full list") @RequestParam(required = false) Long after,
+            @Parameter(name="limit", description="maximum number of requests to return") @RequestParam(required = false) Integer limit,
+            ServletWebRequest webRequest) {
+        if (notModified(webRequest, RecommendationRequest.class)) {
+            return null;
+        }
+        if (after == null && limit == null) {
+            Iterable<RecommendationRequest> dates = recommendationRequestRepository.findAll();
+            return ResponseEntity.ok(dates);
+        }
+        int pageLimit = pageLimit(limit);
+        List<RecommendationRequest> dates = recommendationRequestRepository.findByIdGreaterThanOrderByIdAsc(
+                after == null ? 0 : after, Limit.of(pageLimit + 1));
+        return keysetPage(dates, pageLimit, RecommendationRequest::getId);
     }
 
     // POST
@@ -71,18 +105,37 @@ public class RecommendationRequestController extends ApiController {
         recommendationRequest.setDone(done);
 
         RecommendationRequest savedRecommendationRequest = recommendationRequestRepository.save(recommendationRequest);
+        tableChanged(RecommendationRequest.class);
 
         return savedRecommendationRequest;
     }
 
+    // GET BATCH OF RECORDS
+    @Operation(summary= "Get a batch of recommendation requests")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/batch")
+    public BatchResult<Long, RecommendationRequest> getBatch(
+            @Parameter(name = "ids", description = "comma-separated ids, e.g. 1,2,3") @RequestParam List<Long> ids,
+            ServletWebRequest webRequest) {
+        if (notModified(webRequest, RecommendationRequest.class)) {
+            return null;
+        }
+        return batch(recommendationRequestRepository, ids, RecommendationRequest::getId);
+    }
+
     // GET SINGLE RECORD
     @Operation(summary= "Get a recommendation request")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("")
     public RecommendationRequest getById(
-            @Parameter(name="id") @RequestParam Long id) {
+            @Parameter(name="id") @RequestParam Long id,
+            ServletWebRequest webRequest) {
+        long generation = rowGeneration(RecommendationRequest.class);
         RecommendationRequest recommendationRequest = recommendationRequestRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException(RecommendationRequest.class, id));
+        if (notModified(webRequest, generation, recommendationRequest.getVersion())) {
+            return null;
+        }
 
         return recommendationRequest;
     }
@@ -93,32 +146,121 @@ public class RecommendationRequestController extends ApiController {
     @PutMapping("")
     public RecommendationRequest recommendationRequest(
             @Parameter(name = "id") @RequestParam Long id,
-            @RequestBody @Valid RecommendationRequest incoming) {
+            @RequestBody @Valid RecommendationRequest incoming,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            ServletWebRequest webRequest) {
 
+        long generation = rowGeneration(RecommendationRequest.class);
+        Long version = expectedVersion(generation, ifMatch);
+        if (recommendationRequestRepository.updateById(id, incoming, version) == 0) {
+            throw writeFailed(recommendationRequestRepository, RecommendationRequest.class, id, version);
+        }
+        tableChanged(RecommendationRequest.class);
         RecommendationRequest recommendationRequest = recommendationRequestRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException(RecommendationRequest.class, id));
+        tagVersion(webRequest, generation, recommendationRequest.getVersion());
 
-                recommendationRequest.setRequesterEmail(incoming.getRequesterEmail());
-                recommendationRequest.setProfessorEmail(incoming.getProfessorEmail());
-                recommendationRequest.setExplanation(incoming.getExplanation());
-                recommendationRequest.setDateRequested(incoming.getDateRequested());
-                recommendationRequest.setDateNeeded(incoming.getDateNeeded());
-                recommendationRequest.setDone(incoming.getDone());
+        return recommendationRequest;
+    }
 
-        recommendationRequestRepository.save(recommendationRequest);
+    /**
+     * Patch a single request with a JSON merge patch (RFC 7396); only the fields named in the patch are changed
+     * 
+     * @param id id of the request to patch
+     * @param patch the fields to change, with null clearing a field
+     * @param ifMatch the ETag of the version the client read (optional); the patch is refused if the recommendation request has changed since
+     * @param webRequest the current request, used to return the new version as the ETag
+     * @return the patched request object
+     */
+    @Operation(summary = "Patch a single request")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PatchMapping(value = "", consumes = MergePatchService.APPLICATION_MERGE_PATCH_JSON_VALUE)
+    public RecommendationRequest patchRecommendationRequest(
+            @Parameter(name = "id") @RequestParam Long id,
+            @RequestBody JsonNode patch,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            ServletWebRequest webRequest) {
+
+        long generation = rowGeneration(RecommendationRequest.class);
+        Long version = expectedVersion(generation, ifMatch);
+        if (mergePatchService.patch(RecommendationRequest.class, id, patch, version) == 0) {
+            throw writeFailed(recommendationRequestRepository, RecommendationRequest.class, id, version);
+        }
+        tableChanged(RecommendationRequest.class);
+        RecommendationRequest recommendationRequest = recommendationRequestRepository.findById(id)
+                .orElseThrow(() -> new EntityNotFoundException(RecommendationRequest.class, id));
+        tagVersion(webRequest, generation, recommendationRequest.getVersion());
 
         return recommendationRequest;
     }
 
+    /**
+     * Mark recommendation requests done in bulk, with a single update
+     * 
+     * @param ids the ids of the recommendation requests to mark done (at most {@code app.batch.max-ids})
+     * @return the number of recommendation requests that were newly marked done
+     */
+    @Operation(summary = "Mark recommendation requests done in bulk")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PutMapping("/done")
+    public BulkUpdateReport markRecommendationRequestsDone(
+            @Parameter(name = "ids", description = "comma-separated ids, e.g. 1,2,3") @RequestParam List<Long> ids) {
+        checkIdCount(ids);
+        return markedDone(recommendationRequestRepository.markDoneByIdIn(ids));
+    }
+
+    /**
+     * Mark every open recommendation request to a professor done, with a single update
+     * 
+     * @param professorEmail the professor whose recommendation requests to mark done
+     * @return the number of recommendation requests that were newly marked done
+     */
+    @Operation(summary = "Mark all open recommendation requests to a professor done")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PutMapping("/done/professor")
+    public BulkUpdateReport markProfessorRecommendationRequestsDone(
+            @Parameter(name = "professorEmail") @RequestParam String professorEmail) {
+        return markedDone(recommendationRequestRepository.markDoneByProfessorEmail(professorEmail));
+    }
+
+    private BulkUpdateReport markedDone(int count) {
+        if (count > 0) {
+            tableChanged(RecommendationRequest.class);
+        }
+        return new BulkUpdateReport(count);
+    }
+
     @Operation(summary = "Delete a RecommendationRequest")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @DeleteMapping("")
     public Object deleteRecommendationRequest(
-            @Parameter(name = "id") @RequestParam Long id) {
-        RecommendationRequest recommendationRequest = recommendationRequestRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(RecommendationRequest.class, id));
-
-        recommendationRequestRepository.delete(recommendationRequest);
+            @Parameter(name = "id") @RequestParam Long id,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        long generation = rowGeneration(RecommendationRequest.class);
+        Long version = expectedVersion(generation, ifMatch);
+        if (recommendationRequestRepository.removeById(id, version) == 0) {
+            throw writeFailed(recommendationRequestRepository, RecommendationRequest.class, id, version);
+        }
+        tableChanged(RecommendationRequest.class);
         return genericMessage("Recommendation Request with id %s deleted".formatted(id));
     }
+
+    /**
+     * Bulk import recommendation requests from an NDJSON or CSV upload. Accessible only to users with the role "ROLE_ADMIN".
+     * Each line holds a recommendation request; a CSV upload starts with a header line naming the fields.
+     * @param contentType application/x-ndjson or text/csv
+     * @param body the upload
+     * @return a report of how many rows were imported and which rows were rejected
+     * @throws IOException if the upload cannot be read
+     */
+    @Operation(summary= "Bulk import recommendation requests from NDJSON or CSV")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping(value = "/import", consumes = { MediaType.APPLICATION_NDJSON_VALUE, BulkImportService.TEXT_CSV_VALUE })
+    public ImportReport importRecommendationRequests(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+            InputStream body) throws IOException {
+        ImportReport report = bulkImportService.importRows(body, contentType, RecommendationRequest.class, recommendationRequestRepository);
+        tableChanged(RecommendationRequest.class);
+        return report;
+    }
 }
@@ -4,24 +4,42 @@ import edu.ucsb.cs156.example.entities.HelpRequest;
 import edu.ucsb.cs156.example.entities.Restaurant;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
 import edu.ucsb.cs156.example.repositories.RestaurantRepository;
+import edu.ucsb.cs156.example.models.BatchResult;
+import edu.ucsb.cs156.example.models.ImportReport;
+import edu.ucsb.cs156.example.services.BulkImportService;
+import edu.ucsb.cs156.example.services.MergePatchService;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.extern.slf4j.Slf4j;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
 
 import jakarta.validation.Valid;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
 /**
  * This is a REST controller for Restaurants
  */
@@ -34,30 +52,76 @@ public class RestaurantsController extends ApiController {
     @Autowired
     RestaurantRepository restaurantRepository;
 
+    @Autowired
+    BulkImportService bulkImportService;
+
+    @Autowired
+    MergePatchService mergePatchService;
+
     /**
      * This method returns a list of all restaurants.
+     * @param after the id of the last restaurant on the previous page (optional)
+     * @param limit the maximum number of restaurants to return (optional)
+     * @param webRequest the current request, used to answer conditional GETs
      * @return a list of all restaurants
      */
     @Operation(summary = "List all restaurants")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("/all")
-    public Iterable<Restaurant> allRestaurants() {
-        Iterable<Restaurant> restaurants = restaurantRepository.findAll();
-        return restaurants;
+    public ResponseEntity<Iterable<Restaurant>> allRestaurants(
+            @Parameter(name="after", description="id of the last restaurant on the previous page; omit both after and limit for the full list") @RequestParam(required = false) Long after,
+            @Parameter(name="limit", description="maximum number of restaurants to return") @RequestParam(required = false) Integer limit,
+            ServletWebRequest webRequest) {
+        if (notModified(webRequest, Restaurant.class)) {
+            return null;
+        }
+        if (after == null && limit == null) {
+            Iterable<Restaurant> restaurants = restaurantRepository.findAll();
+            return ResponseEntity.ok(restaurants);
+        }
+        int pageLimit = pageLimit(limit);
+        List<Restaurant> restaurants = restaurantRepository.findByIdGreaterThanOrderByIdAsc(
+                after == null ? 0 : after, Limit.of(pageLimit + 1));
+        return keysetPage(restaurants, pageLimit, Restaurant::getId);
+    }
+
+    /**
+     * Get a batch of restaurants by id, with one query rather than one request per id
+     * 
+     * @param ids the ids of the restaurants to get
+     * @param webRequest the current request, used to answer conditional GETs
+     * @return the restaurants found, keyed by id, and the ids that were not found
+     */
+    @Operation(summary = "Get a batch of restaurants")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/batch")
+    public BatchResult<Long, Restaurant> getBatch(
+            @Parameter(name = "ids", description = "comma-separated ids, e.g. 1,2,3") @RequestParam List<Long> ids,
+            ServletWebRequest webRequest) {
+        if (notModified(webRequest, Restaurant.class)) {
+            return null;
+        }
+        return batch(restaurantRepository, ids, Restaurant::getId);
     }
 
     /**
      * This method returns a single restaurant.
      * @param id id of the restaurant to get
+     * @param webRequest the current request, used to answer conditional GETs
      * @return a single restaurant
      */
     @Operation(summary = "Get a single restaurant")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("")
     public Restaurant getById(
-            @Parameter(name = "id") @RequestParam Long id) {
+            @Parameter(name = "id") @RequestParam Long id,
+            ServletWebRequest webRequest) {
+        long generation = rowGeneration(Restaurant.class);
         Restaurant restaurant = restaurantRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException(Restaurant.class, id));
+        if (notModified(webRequest, generation, restaurant.getVersion())) {
+            return null;
+        }
 
         return restaurant;
     }
@@ -80,23 +144,28 @@ public class RestaurantsController extends ApiController {
         restaurant.setDescription(description);
         
         Restaurant savedrestaurant = restaurantRepository.save(restaurant);
+        tableChanged(Restaurant.class);
         return savedrestaurant;
     }
 
     /**
      * Deletes a restaurant. Accessible only to users with the role "ROLE_ADMIN".
      * @param id id of the restaurant to delete
+     * @param ifMatch the ETag of the version the client read (optional); the delete is refused if the restaurant has changed since
      * @return a message indicating that the restaurant was deleted
      */
     @Operation(summary = "Delete a Restaurant")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @DeleteMapping("")
     public Object deleteRestaurant(
-            @Parameter(name = "id") @RequestParam Long id) {
-        Restaurant restaurant = restaurantRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(Restaurant.class, id));
-
-        restaurantRepository.delete(restaurant);
+            @Parameter(name = "id") @RequestParam Long id,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        long generation = rowGeneration(Restaurant.class);
+        Long version = expectedVersion(generation, ifMatch);
+        if (restaurantRepository.removeById(id, version) == 0) {
+            throw writeFailed(restaurantRepository, Restaurant.class, id, version);
+        }
+        tableChanged(Restaurant.class);
         return genericMessage("Restaurant with id %s deleted".formatted(id));
     }
 
@@ -104,6 +173,8 @@ public class RestaurantsController extends ApiController {
      * Update a single restaurant. Accessible only to users with the role "ROLE_ADMIN".
      * @param id id of the restaurant to update
      * @param incoming the new restaurant contents
+     * @param ifMatch the ETag of the version the client read (optional); the update is refused if the restaurant has changed since
+     * @param webRequest the current request, used to return the new version as the ETag
      * @return the updated restaurant object
      */
     @Operation(summary = "Update a single restaurant")
@@ -111,18 +182,70 @@ public class RestaurantsController extends ApiController {
     @PutMapping("")
     public Restaurant updateRestaurant(
             @Parameter(name = "id") @RequestParam Long id,
-            @RequestBody @Valid Restaurant incoming) {
-
+            @RequestBody @Valid Restaurant incoming,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            ServletWebRequest webRequest) {
+
+        long generation = rowGeneration(Restaurant.class);
+        Long version = expectedVersion(generation, ifMatch);
+        if (restaurantRepository.updateById(id, incoming, version) == 0) {
+            throw writeFailed(restaurantRepository, Restaurant.class, id, version);
+        }
+        tableChanged(Restaurant.class);
         Restaurant restaurant = restaurantRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException(Restaurant.class, id));
+        tagVersion(webRequest, generation, restaurant.getVersion());
 
-        restaurant.setName(incoming.getName());
-        restaurant.setDescription(incoming.getDescription());
+        return restaurant;
+    }
 
-        restaurantRepository.save(restaurant);
+    /**
+     * Patch a single restaurant with a JSON merge patch (RFC 7396); only the fields named in the patch are changed
+     * 
+     * @param id id of the restaurant to patch
+     * @param patch the fields to change, with null clearing a field
+     * @param ifMatch the ETag of the version the client read (optional); the patch is refused if the restaurant has changed since
+     * @param webRequest the current request, used to return the new version as the ETag
+     * @return the patched restaurant object
+     */
+    @Operation(summary = "Patch a single restaurant")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PatchMapping(value = "", consumes = MergePatchService.APPLICATION_MERGE_PATCH_JSON_VALUE)
+    public Restaurant patchRestaurant(
+            @Parameter(name = "id") @RequestParam Long id,
+            @RequestBody JsonNode patch,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            ServletWebRequest webRequest) {
+
+        long generation = rowGeneration(Restaurant.class);
+        Long version = expectedVersion(generation, ifMatch);
+        if (mergePatchService.patch(Restaurant.class, id, patch, version) == 0) {
+            throw writeFailed(restaurantRepository, Restaurant.class, id, version);
+        }
+        tableChanged(Restaurant.class);
+        Restaurant restaurant = restaurantRepository.findById(id)
+                .orElseThrow(() -> new EntityNotFoundException(Restaurant.class, id));
+        tagVersion(webRequest, generation, restaurant.getVersion());
 
         return restaurant;
     }
 
-    
-}
\ No newline at end of file
+    /**
+     * Bulk import restaurants from an NDJSON or CSV upload. Accessible only to users with the role "ROLE_ADMIN".
+     * Each line holds a restaurant; a CSV upload starts with a header line naming the fields.
+     * @param contentType application/x-ndjson or text/csv
+     * @param body the upload
+     * @return a report of how many rows were imported and which rows were rejected
+     * @throws IOException if the upload cannot be read
+     */
+    @Operation(summary= "Bulk import restaurants from NDJSON or CSV")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping(value = "/import", consumes = { MediaType.APPLICATION_NDJSON_VALUE, BulkImportService.TEXT_CSV_VALUE })
+    public ImportReport importRestaurants(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+            InputStream body) throws IOException {
+        ImportReport report = bulkImportService.importRows(body, contentType, Restaurant.class, restaurantRepository);
+        tableChanged(Restaurant.class);
+        return report;
+    }
+}
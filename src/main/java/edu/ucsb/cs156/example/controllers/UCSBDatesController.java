@@ -3,6 +3,12 @@ package edu.ucsb.cs156.example.controllers;
 import edu.ucsb.cs156.example.entities.UCSBDate;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
 import edu.ucsb.cs156.example.repositories.UCSBDateRepository;
+import edu.ucsb.cs156.example.models.BatchResult;
+import edu.ucsb.cs156.example.models.ImportReport;
+import edu.ucsb.cs156.example.models.QuarterSpan;
+import edu.ucsb.cs156.example.services.BulkImportService;
+import edu.ucsb.cs156.example.services.MergePatchService;
+import edu.ucsb.cs156.example.services.QuarterIndexService;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -10,22 +16,33 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.extern.slf4j.Slf4j;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
 
 import jakarta.validation.Valid;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.time.LocalDateTime;
+import java.util.List;
 
 /**
  * This is a REST controller for UCSBDates
@@ -40,32 +57,149 @@ public class UCSBDatesController extends ApiController {
     @Autowired
     UCSBDateRepository ucsbDateRepository;
 
+    @Autowired
+    BulkImportService bulkImportService;
+
+    @Autowired
+    MergePatchService mergePatchService;
+
+    @Autowired
+    QuarterIndexService quarterIndexService;
+
     /**
      * List all UCSB dates
      * 
+     * @param after the id of the last date on the previous page (optional)
+     * @param limit the maximum number of dates to return (optional)
+     * @param webRequest the current request, used to answer conditional GETs
      * @return an iterable of UCSBDate
      */
     @Operation(summary = "List all ucsb dates")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("/all")
-    public Iterable<UCSBDate> allUCSBDates() {
-        Iterable<UCSBDate> dates = ucsbDateRepository.findAll();
-        return dates;
+    public ResponseEntity<Iterable<UCSBDate>> allUCSBDates(
+            @Parameter(name="after", description="id of the last date on the previous page; omit both after and limit for the full list") @RequestParam(required = false) Long after,
+            @Parameter(name="limit", description="maximum number of dates to return") @RequestParam(required = false) Integer limit,
+            ServletWebRequest webRequest) {
+        if (notModified(webRequest, UCSBDate.class)) {
+            return null;
+        }
+        if (after == null && limit == null) {
+            Iterable<UCSBDate> dates = ucsbDateRepository.findAll();
+            return ResponseEntity.ok(dates);
+        }
+        int pageLimit = pageLimit(limit);
+        List<UCSBDate> dates = ucsbDateRepository.findByIdGreaterThanOrderByIdAsc(
+                after == null ? 0 : after, Limit.of(pageLimit + 1));
+        return keysetPage(dates, pageLimit, UCSBDate::getId);
+    }
+
+    /**
+     * List the dates of a quarter, earliest first
+     * 
+     * @param quarterYYYYQ the quarter in the format YYYYQ
+     * @param webRequest the current request, used to answer conditional GETs
+     * @return the dates of the quarter
+     */
+    @Operation(summary = "List the dates of a quarter")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/quarter")
+    public List<UCSBDate> datesInQuarter(
+            @Parameter(name="quarterYYYYQ", description="quarter in the format YYYYQ, e.g. 20244 for Fall 2024") @RequestParam String quarterYYYYQ,
+            ServletWebRequest webRequest) {
+        if (notModified(webRequest, UCSBDate.class)) {
+            return null;
+        }
+        return ucsbDateRepository.findAllByQuarterYYYYQOrderByLocalDateTimeAscIdAsc(quarterYYYYQ);
+    }
+
+    /**
+     * List the dates in a range, earliest first
+     * 
+     * @param from the start of the range (inclusive)
+     * @param to the end of the range (inclusive)
+     * @param limit the maximum number of dates to return (optional)
+     * @param webRequest the current request, used to answer conditional GETs
+     * @return up to limit dates in the range
+     */
+    @Operation(summary = "List the dates in a range")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/range")
+    public List<UCSBDate> datesInRange(
+            @Parameter(name="from", description="start of the range, inclusive, in iso format") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @Parameter(name="to", description="end of the range, inclusive, in iso format") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @Parameter(name="limit", description="maximum number of dates to return") @RequestParam(required = false) Integer limit,
+            ServletWebRequest webRequest) {
+        if (notModified(webRequest, UCSBDate.class)) {
+            return null;
+        }
+        return ucsbDateRepository.findByLocalDateTimeBetweenOrderByLocalDateTimeAscIdAsc(from, to, Limit.of(pageLimit(limit)));
+    }
+
+    /**
+     * List every quarter with its first and last date
+     * 
+     * @return the span of every quarter, in quarter order
+     */
+    @Operation(summary = "List every quarter with its first and last date")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/quarters")
+    public List<QuarterSpan> quarters() {
+        return quarterIndexService.getQuarters();
+    }
+
+    /**
+     * List the quarters whose first and last date enclose an instant
+     * 
+     * @param at the instant
+     * @return the spans of those quarters, in quarter order (usually none or one)
+     */
+    @Operation(summary = "Find the quarter containing an instant")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/quarters/containing")
+    public List<QuarterSpan> quartersContaining(
+            @Parameter(name="at", description="the instant, in iso format") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime at) {
+        return quarterIndexService.containing(at);
+    }
+
+    /**
+     * Get a batch of dates by id, with one query rather than one request per id
+     * 
+     * @param ids the ids of the dates to get
+     * @param webRequest the current request, used to answer conditional GETs
+     * @return the dates found, keyed by id, and the ids that were not found
+     */
+    @Operation(summary = "Get a batch of dates")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/batch")
+    public BatchResult<Long, UCSBDate> getBatch(
+            @Parameter(name = "ids", description = "comma-separated ids, e.g. 1,2,3") @RequestParam List<Long> ids,
+            ServletWebRequest webRequest) {
+        if (notModified(webRequest, UCSBDate.class)) {
+            return null;
+        }
+        return batch(ucsbDateRepository, ids, UCSBDate::getId);
     }
 
     /**
      * Get a single date by id
      * 
      * @param id the id of the date
+     * @param webRequest the current request, used to answer conditional GETs
      * @return a UCSBDate
      */
     @Operation(summary = "Get a single date")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("")
     public UCSBDate getById(
-            @Parameter(name = "id") @RequestParam Long id) {
+            @Parameter(name = "id") @RequestParam Long id,
+            ServletWebRequest webRequest) {
+        long generation = rowGeneration(UCSBDate.class);
         UCSBDate ucsbDate = ucsbDateRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException(UCSBDate.class, id));
+        if (notModified(webRequest, generation, ucsbDate.getVersion())) {
+            return null;
+        }
 
         return ucsbDate;
     }
@@ -98,6 +232,8 @@ public class UCSBDatesController extends ApiController {
         ucsbDate.setLocalDateTime(localDateTime);
 
         UCSBDate savedUcsbDate = ucsbDateRepository.save(ucsbDate);
+        tableChanged(UCSBDate.class);
+        quarterIndexService.rebuild();
 
         return savedUcsbDate;
     }
@@ -106,17 +242,22 @@ public class UCSBDatesController extends ApiController {
      * Delete a UCSBDate
      * 
      * @param id the id of the date to delete
+     * @param ifMatch the ETag of the version the client read (optional); the delete is refused if the date has changed since
      * @return a message indicating the date was deleted
      */
     @Operation(summary = "Delete a UCSBDate")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @DeleteMapping("")
     public Object deleteUCSBDate(
-            @Parameter(name = "id") @RequestParam Long id) {
-        UCSBDate ucsbDate = ucsbDateRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(UCSBDate.class, id));
-
-        ucsbDateRepository.delete(ucsbDate);
+            @Parameter(name = "id") @RequestParam Long id,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        long generation = rowGeneration(UCSBDate.class);
+        Long version = expectedVersion(generation, ifMatch);
+        if (ucsbDateRepository.removeById(id, version) == 0) {
+            throw writeFailed(ucsbDateRepository, UCSBDate.class, id, version);
+        }
+        tableChanged(UCSBDate.class);
+        quarterIndexService.rebuild();
         return genericMessage("UCSBDate with id %s deleted".formatted(id));
     }
 
@@ -125,6 +266,8 @@ public class UCSBDatesController extends ApiController {
      * 
      * @param id       id of the date to update
      * @param incoming the new date
+     * @param ifMatch the ETag of the version the client read (optional); the update is refused if the date has changed since
+     * @param webRequest the current request, used to return the new version as the ETag
      * @return the updated date object
      */
     @Operation(summary = "Update a single date")
@@ -132,17 +275,73 @@ public class UCSBDatesController extends ApiController {
     @PutMapping("")
     public UCSBDate updateUCSBDate(
             @Parameter(name = "id") @RequestParam Long id,
-            @RequestBody @Valid UCSBDate incoming) {
+            @RequestBody @Valid UCSBDate incoming,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            ServletWebRequest webRequest) {
 
+        long generation = rowGeneration(UCSBDate.class);
+        Long version = expectedVersion(generation, ifMatch);
+        if (ucsbDateRepository.updateById(id, incoming, version) == 0) {
+            throw writeFailed(ucsbDateRepository, UCSBDate.class, id, version);
+        }
+        tableChanged(UCSBDate.class);
         UCSBDate ucsbDate = ucsbDateRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException(UCSBDate.class, id));
+        tagVersion(webRequest, generation, ucsbDate.getVersion());
+        quarterIndexService.rebuild();
+
+        return ucsbDate;
+    }
 
-        ucsbDate.setQuarterYYYYQ(incoming.getQuarterYYYYQ());
-        ucsbDate.setName(incoming.getName());
-        ucsbDate.setLocalDateTime(incoming.getLocalDateTime());
+    /**
+     * Patch a single date with a JSON merge patch (RFC 7396); only the fields named in the patch are changed
+     * 
+     * @param id id of the date to patch
+     * @param patch the fields to change, with null clearing a field
+     * @param ifMatch the ETag of the version the client read (optional); the patch is refused if the date has changed since
+     * @param webRequest the current request, used to return the new version as the ETag
+     * @return the patched date object
+     */
+    @Operation(summary = "Patch a single date")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PatchMapping(value = "", consumes = MergePatchService.APPLICATION_MERGE_PATCH_JSON_VALUE)
+    public UCSBDate patchUCSBDate(
+            @Parameter(name = "id") @RequestParam Long id,
+            @RequestBody JsonNode patch,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            ServletWebRequest webRequest) {
 
-        ucsbDateRepository.save(ucsbDate);
+        long generation = rowGeneration(UCSBDate.class);
+        Long version = expectedVersion(generation, ifMatch);
+        if (mergePatchService.patch(UCSBDate.class, id, patch, version) == 0) {
+            throw writeFailed(ucsbDateRepository, UCSBDate.class, id, version);
+        }
+        tableChanged(UCSBDate.class);
+        UCSBDate ucsbDate = ucsbDateRepository.findById(id)
+                .orElseThrow(() -> new EntityNotFoundException(UCSBDate.class, id));
+        tagVersion(webRequest, generation, ucsbDate.getVersion());
+        quarterIndexService.rebuild();
 
         return ucsbDate;
     }
-}
\ No newline at end of file
+
+    /**
+     * Bulk import ucsb dates from an NDJSON or CSV upload. Accessible only to users with the role "ROLE_ADMIN".
+     * Each line holds a date; a CSV upload starts with a header line naming the fields.
+     * @param contentType application/x-ndjson or text/csv
+     * @param body the upload
+     * @return a report of how many rows were imported and which rows were rejected
+     * @throws IOException if the upload cannot be read
+     */
+    @Operation(summary= "Bulk import ucsb dates from NDJSON or CSV")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping(value = "/import", consumes = { MediaType.APPLICATION_NDJSON_VALUE, BulkImportService.TEXT_CSV_VALUE })
+    public ImportReport importUCSBDates(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+            InputStream body) throws IOException {
+        ImportReport report = bulkImportService.importRows(body, contentType, UCSBDate.class, ucsbDateRepository);
+        tableChanged(UCSBDate.class);
+        quarterIndexService.rebuild();
+        return report;
+    }
+}
@@ -1,8 +1,17 @@
 package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.errors.DuplicateEntityException;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
 import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
+import edu.ucsb.cs156.example.models.BatchResult;
+import edu.ucsb.cs156.example.models.ImportReport;
+import edu.ucsb.cs156.example.models.NearbyDiningCommons;
+import edu.ucsb.cs156.example.services.BulkImportService;
+import edu.ucsb.cs156.example.services.DiningCommonsLocationService;
+import edu.ucsb.cs156.example.services.MergePatchService;
+
+import com.fasterxml.jackson.databind.JsonNode;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -10,18 +19,30 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.extern.slf4j.Slf4j;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
 
 import jakarta.validation.Valid;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
 /**
  * This is a REST controller for UCSBDiningCommons
  */
@@ -35,36 +56,110 @@ public class UCSBDiningCommonsController extends ApiController {
     @Autowired
     UCSBDiningCommonsRepository ucsbDiningCommonsRepository;
 
+    @Autowired
+    BulkImportService bulkImportService;
+
+    @Autowired
+    MergePatchService mergePatchService;
+
+    @Autowired
+    DiningCommonsLocationService diningCommonsLocationService;
+
     /**
      * THis method returns a list of all ucsbdiningcommons.
+     * @param after the code of the last commons on the previous page (optional)
+     * @param limit the maximum number of commons to return (optional)
+     * @param webRequest the current request, used to answer conditional GETs
      * @return a list of all ucsbdiningcommons
      */
     @Operation(summary= "List all ucsb dining commons")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("/all")
-    public Iterable<UCSBDiningCommons> allCommonss() {
-        Iterable<UCSBDiningCommons> commons = ucsbDiningCommonsRepository.findAll();
-        return commons;
+    public ResponseEntity<Iterable<UCSBDiningCommons>> allCommonss(
+            @Parameter(name="after", description="code of the last commons on the previous page; omit both after and limit for the full list") @RequestParam(required = false) String after,
+            @Parameter(name="limit", description="maximum number of commons to return") @RequestParam(required = false) Integer limit,
+            ServletWebRequest webRequest) {
+        if (notModified(webRequest, UCSBDiningCommons.class)) {
+            return null;
+        }
+        if (after == null && limit == null) {
+            Iterable<UCSBDiningCommons> commons = ucsbDiningCommonsRepository.findAll();
+            return ResponseEntity.ok(commons);
+        }
+        int pageLimit = pageLimit(limit);
+        List<UCSBDiningCommons> commons = ucsbDiningCommonsRepository.findByCodeGreaterThanOrderByCodeAsc(
+                after == null ? "" : after, Limit.of(pageLimit + 1));
+        return keysetPage(commons, pageLimit, UCSBDiningCommons::getCode);
+    }
+
+    /**
+     * This method returns the dining commons nearest to a point, optionally only those
+     * with (or without) given amenities.  Commons without a location are never returned.
+     * @param lat latitude of the point, in degrees
+     * @param lon longitude of the point, in degrees
+     * @param k the maximum number of commons to return
+     * @param hasSackMeal if given, only commons whose hasSackMeal is this value
+     * @param hasTakeOutMeal if given, only commons whose hasTakeOutMeal is this value
+     * @param hasDiningCam if given, only commons whose hasDiningCam is this value
+     * @return up to k commons with their distance in meters, nearest first
+     */
+    @Operation(summary= "List the dining commons nearest to a point")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/nearest")
+    public List<NearbyDiningCommons> nearestCommons(
+            @Parameter(name="lat", description="latitude in degrees") @RequestParam double lat,
+            @Parameter(name="lon", description="longitude in degrees") @RequestParam double lon,
+            @Parameter(name="k", description="maximum number of commons to return") @RequestParam(defaultValue = "5") int k,
+            @Parameter(name="hasSackMeal") @RequestParam(required = false) Boolean hasSackMeal,
+            @Parameter(name="hasTakeOutMeal") @RequestParam(required = false) Boolean hasTakeOutMeal,
+            @Parameter(name="hasDiningCam") @RequestParam(required = false) Boolean hasDiningCam) {
+        return diningCommonsLocationService.nearest(lat, lon, Math.max(0, k), hasSackMeal, hasTakeOutMeal, hasDiningCam);
+    }
+
+    /**
+     * Get a batch of commons by code, with one query rather than one request per code
+     * 
+     * @param ids the codes of the commons to get
+     * @param webRequest the current request, used to answer conditional GETs
+     * @return the commons found, keyed by code, and the codes that were not found
+     */
+    @Operation(summary= "Get a batch of commons")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/batch")
+    public BatchResult<String, UCSBDiningCommons> getBatch(
+            @Parameter(name = "ids", description = "comma-separated codes, e.g. ortega,carrillo") @RequestParam List<String> ids,
+            ServletWebRequest webRequest) {
+        if (notModified(webRequest, UCSBDiningCommons.class)) {
+            return null;
+        }
+        return batch(ucsbDiningCommonsRepository, ids, UCSBDiningCommons::getCode);
     }
 
     /**
      * This method returns a single diningcommons.
      * @param code code of the diningcommons
+     * @param webRequest the current request, used to answer conditional GETs
      * @return a single diningcommons
      */
     @Operation(summary= "Get a single commons")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("")
     public UCSBDiningCommons getById(
-            @Parameter(name="code") @RequestParam String code) {
+            @Parameter(name="code") @RequestParam String code,
+            ServletWebRequest webRequest) {
+        long generation = rowGeneration(UCSBDiningCommons.class);
         UCSBDiningCommons commons = ucsbDiningCommonsRepository.findById(code)
                 .orElseThrow(() -> new EntityNotFoundException(UCSBDiningCommons.class, code));
+        if (notModified(webRequest, generation, commons.getVersion())) {
+            return null;
+        }
 
         return commons;
     }
 
     /**
      * This method creates a new diningcommons. Accessible only to users with the role "ROLE_ADMIN".
+     * It never replaces an existing commons: posting a code that is already taken gives 409 Conflict.
      * @param code code of the diningcommons
      * @param name name of the diningcommons
      * @param hasSackMeal whether or not the commons has sack meals
@@ -97,7 +192,15 @@ public class UCSBDiningCommonsController extends ApiController {
         commons.setLatitude(latitude);
         commons.setLongitude(longitude);
 
-        UCSBDiningCommons savedCommons = ucsbDiningCommonsRepository.save(commons);
+        // the code is assigned rather than generated, so save() inserts and an existing code is refused
+        UCSBDiningCommons savedCommons;
+        try {
+            savedCommons = ucsbDiningCommonsRepository.save(commons);
+        } catch (DataIntegrityViolationException e) {
+            throw new DuplicateEntityException(UCSBDiningCommons.class, code);
+        }
+        tableChanged(UCSBDiningCommons.class);
+        diningCommonsLocationService.rebuild();
 
         return savedCommons;
     }
@@ -105,17 +208,24 @@ public class UCSBDiningCommonsController extends ApiController {
     /**
      * Delete a diningcommons. Accessible only to users with the role "ROLE_ADMIN".
      * @param code code of the commons
+     * @param ifMatch the ETag of the version the client read (optional); the delete is refused if the dining commons has changed since
      * @return a message indiciating the commons was deleted
      */
     @Operation(summary= "Delete a UCSBDiningCommons")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @DeleteMapping("")
     public Object deleteCommons(
-            @Parameter(name="code") @RequestParam String code) {
-        UCSBDiningCommons commons = ucsbDiningCommonsRepository.findById(code)
-                .orElseThrow(() -> new EntityNotFoundException(UCSBDiningCommons.class, code));
-
-        ucsbDiningCommonsRepository.delete(commons);
+            @Parameter(name="code") @RequestParam String code,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        long generation = rowGeneration(UCSBDiningCommons.class);
+        Long version = expectedVersion(generation, ifMatch);
+        if (ucsbDiningCommonsRepository.removeById(code, version) == 0) {
+            throw writeFailed(ucsbDiningCommonsRepository, UCSBDiningCommons.class, code, version);
+        }
+        tableChanged(UCSBDiningCommons.class);
+        // the code can be posted again, starting a new dining commons back at version 0
+        rowsRemoved(UCSBDiningCommons.class);
+        diningCommonsLocationService.rebuild();
         return genericMessage("UCSBDiningCommons with id %s deleted".formatted(code));
     }
 
@@ -123,6 +233,8 @@ public class UCSBDiningCommonsController extends ApiController {
      * Update a single diningcommons. Accessible only to users with the role "ROLE_ADMIN".
      * @param code code of the diningcommons
      * @param incoming the new commons contents
+     * @param ifMatch the ETag of the version the client read (optional); the update is refused if the dining commons has changed since
+     * @param webRequest the current request, used to return the new version as the ETag
      * @return the updated commons object
      */
     @Operation(summary= "Update a single commons")
@@ -130,21 +242,73 @@ public class UCSBDiningCommonsController extends ApiController {
     @PutMapping("")
     public UCSBDiningCommons updateCommons(
             @Parameter(name="code") @RequestParam String code,
-            @RequestBody @Valid UCSBDiningCommons incoming) {
+            @RequestBody @Valid UCSBDiningCommons incoming,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            ServletWebRequest webRequest) {
 
+        long generation = rowGeneration(UCSBDiningCommons.class);
+        Long version = expectedVersion(generation, ifMatch);
+        if (ucsbDiningCommonsRepository.updateById(code, incoming, version) == 0) {
+            throw writeFailed(ucsbDiningCommonsRepository, UCSBDiningCommons.class, code, version);
+        }
+        tableChanged(UCSBDiningCommons.class);
         UCSBDiningCommons commons = ucsbDiningCommonsRepository.findById(code)
                 .orElseThrow(() -> new EntityNotFoundException(UCSBDiningCommons.class, code));
+        tagVersion(webRequest, generation, commons.getVersion());
+        diningCommonsLocationService.rebuild();
 
+        return commons;
+    }
 
-        commons.setName(incoming.getName());  
-        commons.setHasSackMeal(incoming.getHasSackMeal());
-        commons.setHasTakeOutMeal(incoming.getHasTakeOutMeal());
-        commons.setHasDiningCam(incoming.getHasDiningCam());
-        commons.setLatitude(incoming.getLatitude());
-        commons.setLongitude(incoming.getLongitude());
+    /**
+     * Patch a single commons with a JSON merge patch (RFC 7396); only the fields named in the patch are changed
+     * 
+     * @param code the code of the commons to patch
+     * @param patch the fields to change, with null clearing a field
+     * @param ifMatch the ETag of the version the client read (optional); the patch is refused if the dining commons has changed since
+     * @param webRequest the current request, used to return the new version as the ETag
+     * @return the patched commons object
+     */
+    @Operation(summary= "Patch a single commons")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PatchMapping(value = "", consumes = MergePatchService.APPLICATION_MERGE_PATCH_JSON_VALUE)
+    public UCSBDiningCommons patchCommons(
+            @Parameter(name = "code") @RequestParam String code,
+            @RequestBody JsonNode patch,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            ServletWebRequest webRequest) {
 
-        ucsbDiningCommonsRepository.save(commons);
+        long generation = rowGeneration(UCSBDiningCommons.class);
+        Long version = expectedVersion(generation, ifMatch);
+        if (mergePatchService.patch(UCSBDiningCommons.class, code, patch, version) == 0) {
+            throw writeFailed(ucsbDiningCommonsRepository, UCSBDiningCommons.class, code, version);
+        }
+        tableChanged(UCSBDiningCommons.class);
+        UCSBDiningCommons commons = ucsbDiningCommonsRepository.findById(code)
+                .orElseThrow(() -> new EntityNotFoundException(UCSBDiningCommons.class, code));
+        tagVersion(webRequest, generation, commons.getVersion());
+        diningCommonsLocationService.rebuild();
 
         return commons;
     }
+
+    /**
+     * Bulk import ucsb dining commons from an NDJSON or CSV upload. Accessible only to users with the role "ROLE_ADMIN".
+     * Each line holds a commons; a CSV upload starts with a header line naming the fields.
+     * @param contentType application/x-ndjson or text/csv
+     * @param body the upload
+     * @return a report of how many rows were imported and which rows were rejected
+     * @throws IOException if the upload cannot be read
+     */
+    @Operation(summary= "Bulk import ucsb dining commons from NDJSON or CSV")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping(value = "/import", consumes = { MediaType.APPLICATION_NDJSON_VALUE, BulkImportService.TEXT_CSV_VALUE })
+    public ImportReport importCommons(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+            InputStream body) throws IOException {
+        ImportReport report = bulkImportService.importRows(body, contentType, UCSBDiningCommons.class, ucsbDiningCommonsRepository);
+        tableChanged(UCSBDiningCommons.class);
+        diningCommonsLocationService.rebuild();
+        return report;
+    }
 }
@@ -3,6 +3,13 @@ package edu.ucsb.cs156.example.controllers;
 import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItem;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
 import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsMenuItemRepository;
+import edu.ucsb.cs156.example.models.BatchResult;
+import edu.ucsb.cs156.example.models.ImportReport;
+import edu.ucsb.cs156.example.services.BulkImportService;
+import edu.ucsb.cs156.example.services.MenuItemLeaderboardService;
+import edu.ucsb.cs156.example.services.MergePatchService;
+
+import com.fasterxml.jackson.databind.JsonNode;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -10,18 +17,29 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.extern.slf4j.Slf4j;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
 
 import jakarta.validation.Valid;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
 /**
  * This is a REST controller for UCSBDiningCommonsMenuItem
  */
@@ -35,32 +53,81 @@ public class UCSBDiningCommonsMenuItemController extends ApiController {
     @Autowired
     UCSBDiningCommonsMenuItemRepository ucsbDiningCommonsMenuItemRepository;
 
+    @Autowired
+    BulkImportService bulkImportService;
+
+    @Autowired
+    MergePatchService mergePatchService;
+
+    @Autowired
+    MenuItemLeaderboardService menuItemLeaderboardService;
+
     /**
      * List all UCSB Dining Commons Menu Items
      * 
+     * @param after the id of the last menu item on the previous page (optional)
+     * @param limit the maximum number of menu items to return (optional)
+     * @param webRequest the current request, used to answer conditional GETs
      * @return an iterable of UCSBDiningCommonsMenuItem
      */
     @Operation(summary= "List all Dining Commons Menu Items")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("/all")
-    public Iterable<UCSBDiningCommonsMenuItem> allUCSBDiningCommonsMenuItem() {
-        Iterable<UCSBDiningCommonsMenuItem> ucsbdiningcommonmenuitem = ucsbDiningCommonsMenuItemRepository.findAll();
-        return ucsbdiningcommonmenuitem;
+    public ResponseEntity<Iterable<UCSBDiningCommonsMenuItem>> allUCSBDiningCommonsMenuItem(
+            @Parameter(name="after", description="id of the last menu item on the previous page; omit both after and limit for the full list") @RequestParam(required = false) Long after,
+            @Parameter(name="limit", description="maximum number of menu items to return") @RequestParam(required = false) Integer limit,
+            ServletWebRequest webRequest) {
+        if (notModified(webRequest, UCSBDiningCommonsMenuItem.class)) {
+            return null;
+        }
+        if (after == null && limit == null) {
+            Iterable<UCSBDiningCommonsMenuItem> ucsbdiningcommonmenuitem = ucsbDiningCommonsMenuItemRepository.findAll();
+            return ResponseEntity.ok(ucsbdiningcommonmenuitem);
+        }
+        int pageLimit = pageLimit(limit);
+        List<UCSBDiningCommonsMenuItem> ucsbdiningcommonmenuitem = ucsbDiningCommonsMenuItemRepository.findByIdGreaterThanOrderByIdAsc(
+                after == null ? 0 : after, Limit.of(pageLimit + 1));
+        return keysetPage(ucsbdiningcommonmenuitem, pageLimit, UCSBDiningCommonsMenuItem::getId);
+    }
+
+    /**
+     * Get a batch of menu items by id, with one query rather than one request per id
+     * 
+     * @param ids the ids of the menu items to get
+     * @param webRequest the current request, used to answer conditional GETs
+     * @return the menu items found, keyed by id, and the ids that were not found
+     */
+    @Operation(summary= "Get a batch of menu items")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/batch")
+    public BatchResult<Long, UCSBDiningCommonsMenuItem> getBatch(
+            @Parameter(name = "ids", description = "comma-separated ids, e.g. 1,2,3") @RequestParam List<Long> ids,
+            ServletWebRequest webRequest) {
+        if (notModified(webRequest, UCSBDiningCommonsMenuItem.class)) {
+            return null;
+        }
+        return batch(ucsbDiningCommonsMenuItemRepository, ids, UCSBDiningCommonsMenuItem::getId);
     }
 
     /**
      * Get a menu item by id
      * 
      * @param id the id of the menu item
+     * @param webRequest the current request, used to answer conditional GETs
      * @return a UCSBDiningCommonMenuItem
      */
     @Operation(summary= "Get a menu item")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("")
     public UCSBDiningCommonsMenuItem getById(
-            @Parameter(name="id") @RequestParam Long id) {
+            @Parameter(name="id") @RequestParam Long id,
+            ServletWebRequest webRequest) {
+                long generation = rowGeneration(UCSBDiningCommonsMenuItem.class);
                 UCSBDiningCommonsMenuItem ucsbdiningcommonmenuitem = ucsbDiningCommonsMenuItemRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException(UCSBDiningCommonsMenuItem.class, id));
+        if (notModified(webRequest, generation, ucsbdiningcommonmenuitem.getVersion())) {
+            return null;
+        }
 
         return ucsbdiningcommonmenuitem;
     }
@@ -87,6 +154,8 @@ public class UCSBDiningCommonsMenuItemController extends ApiController {
         item.setStation(station);
 
         UCSBDiningCommonsMenuItem savedItem = ucsbDiningCommonsMenuItemRepository.save(item);
+        menuItemLeaderboardService.itemSaved(savedItem);
+        tableChanged(UCSBDiningCommonsMenuItem.class);
 
         return savedItem;
     }
@@ -96,17 +165,22 @@ public class UCSBDiningCommonsMenuItemController extends ApiController {
      * Delete a UCSBDiningCommonsMenuItem
      * 
      * @param id the id of the item to delete
+     * @param ifMatch the ETag of the version the client read (optional); the delete is refused if the menu item has changed since
      * @return a message indicating the date was deleted
      */
     @Operation(summary= "Delete a UCSBDiningCommonsMenuItem")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @DeleteMapping("")
     public Object deleteUCSBDiningCommonsMenuItem(
-            @Parameter(name="id") @RequestParam Long id) {
-                UCSBDiningCommonsMenuItem ucsbdiningcommonmenuitem = ucsbDiningCommonsMenuItemRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(UCSBDiningCommonsMenuItem.class, id));
-
-                ucsbDiningCommonsMenuItemRepository.delete(ucsbdiningcommonmenuitem);
+            @Parameter(name="id") @RequestParam Long id,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+                long generation = rowGeneration(UCSBDiningCommonsMenuItem.class);
+                Long version = expectedVersion(generation, ifMatch);
+                if (ucsbDiningCommonsMenuItemRepository.removeById(id, version) == 0) {
+                    throw writeFailed(ucsbDiningCommonsMenuItemRepository, UCSBDiningCommonsMenuItem.class, id, version);
+                }
+                menuItemLeaderboardService.itemRemoved(id);
+                tableChanged(UCSBDiningCommonsMenuItem.class);
         return genericMessage("UCSBDiningCommonsMenuItem with id %s deleted".formatted(id));
     }
 
@@ -115,6 +189,8 @@ public class UCSBDiningCommonsMenuItemController extends ApiController {
      * 
      * @param id id of the item to update
      * @param incoming the new item
+     * @param ifMatch the ETag of the version the client read (optional); the update is refused if the menu item has changed since
+     * @param webRequest the current request, used to return the new version as the ETag
      * @return the updated item object
      */
     @Operation(summary= "Update a single item")
@@ -122,17 +198,73 @@ public class UCSBDiningCommonsMenuItemController extends ApiController {
     @PutMapping("")
     public UCSBDiningCommonsMenuItem updateUCSBDiningCommonsMenuItem(
             @Parameter(name="id") @RequestParam Long id,
-            @RequestBody @Valid UCSBDiningCommonsMenuItem incoming) {
+            @RequestBody @Valid UCSBDiningCommonsMenuItem incoming,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            ServletWebRequest webRequest) {
 
-                UCSBDiningCommonsMenuItem ucsbdiningcommonmenuitem = ucsbDiningCommonsMenuItemRepository.findById(id)
+        long generation = rowGeneration(UCSBDiningCommonsMenuItem.class);
+        Long version = expectedVersion(generation, ifMatch);
+        if (ucsbDiningCommonsMenuItemRepository.updateById(id, incoming, version) == 0) {
+            throw writeFailed(ucsbDiningCommonsMenuItemRepository, UCSBDiningCommonsMenuItem.class, id, version);
+        }
+        tableChanged(UCSBDiningCommonsMenuItem.class);
+        UCSBDiningCommonsMenuItem item = ucsbDiningCommonsMenuItemRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException(UCSBDiningCommonsMenuItem.class, id));
+        tagVersion(webRequest, generation, item.getVersion());
+        menuItemLeaderboardService.itemSaved(item);
 
-                ucsbdiningcommonmenuitem.setDiningCommonsCode(incoming.getDiningCommonsCode());
-                ucsbdiningcommonmenuitem.setName(incoming.getName());
-                ucsbdiningcommonmenuitem.setStation(incoming.getStation());
+        return item;
+    }
 
-        ucsbDiningCommonsMenuItemRepository.save(ucsbdiningcommonmenuitem);
+    /**
+     * Patch a single item with a JSON merge patch (RFC 7396); only the fields named in the patch are changed
+     * 
+     * @param id id of the item to patch
+     * @param patch the fields to change, with null clearing a field
+     * @param ifMatch the ETag of the version the client read (optional); the patch is refused if the menu item has changed since
+     * @param webRequest the current request, used to return the new version as the ETag
+     * @return the patched item object
+     */
+    @Operation(summary= "Patch a single item")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PatchMapping(value = "", consumes = MergePatchService.APPLICATION_MERGE_PATCH_JSON_VALUE)
+    public UCSBDiningCommonsMenuItem patchUCSBDiningCommonsMenuItem(
+            @Parameter(name = "id") @RequestParam Long id,
+            @RequestBody JsonNode patch,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            ServletWebRequest webRequest) {
 
-        return ucsbdiningcommonmenuitem;
+        long generation = rowGeneration(UCSBDiningCommonsMenuItem.class);
+        Long version = expectedVersion(generation, ifMatch);
+        if (mergePatchService.patch(UCSBDiningCommonsMenuItem.class, id, patch, version) == 0) {
+            throw writeFailed(ucsbDiningCommonsMenuItemRepository, UCSBDiningCommonsMenuItem.class, id, version);
+        }
+        tableChanged(UCSBDiningCommonsMenuItem.class);
+        UCSBDiningCommonsMenuItem item = ucsbDiningCommonsMenuItemRepository.findById(id)
+                .orElseThrow(() -> new EntityNotFoundException(UCSBDiningCommonsMenuItem.class, id));
+        tagVersion(webRequest, generation, item.getVersion());
+        menuItemLeaderboardService.itemSaved(item);
+
+        return item;
+    }
+
+    /**
+     * Bulk import menu items from an NDJSON or CSV upload. Accessible only to users with the role "ROLE_ADMIN".
+     * Each line holds a menu item; a CSV upload starts with a header line naming the fields.
+     * @param contentType application/x-ndjson or text/csv
+     * @param body the upload
+     * @return a report of how many rows were imported and which rows were rejected
+     * @throws IOException if the upload cannot be read
+     */
+    @Operation(summary= "Bulk import menu items from NDJSON or CSV")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping(value = "/import", consumes = { MediaType.APPLICATION_NDJSON_VALUE, BulkImportService.TEXT_CSV_VALUE })
+    public ImportReport importMenuItems(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+            InputStream body) throws IOException {
+        ImportReport report = bulkImportService.importRows(body, contentType, UCSBDiningCommonsMenuItem.class, ucsbDiningCommonsMenuItemRepository,
+                menuItemLeaderboardService::itemSaved);
+        tableChanged(UCSBDiningCommonsMenuItem.class);
+        return report;
     }
 }
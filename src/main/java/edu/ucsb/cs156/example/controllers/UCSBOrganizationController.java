@@ -1,8 +1,15 @@
 package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.entities.UCSBOrganization;
+import edu.ucsb.cs156.example.errors.DuplicateEntityException;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
 import edu.ucsb.cs156.example.repositories.UCSBOrganizationRepository;
+import edu.ucsb.cs156.example.models.BatchResult;
+import edu.ucsb.cs156.example.models.ImportReport;
+import edu.ucsb.cs156.example.services.BulkImportService;
+import edu.ucsb.cs156.example.services.MergePatchService;
+
+import com.fasterxml.jackson.databind.JsonNode;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -10,18 +17,30 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.extern.slf4j.Slf4j;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
 
 import jakarta.validation.Valid;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
 @Tag(name = "UCSBOrganization")
 @RequestMapping("/api/ucsborganization")
 @RestController
@@ -32,37 +51,84 @@ public class UCSBOrganizationController extends ApiController {
     @Autowired
     UCSBOrganizationRepository ucsbOrganizationRepository;
 
+    @Autowired
+    BulkImportService bulkImportService;
+
+    @Autowired
+    MergePatchService mergePatchService;
+
     /**
      * THis method returns a list of all ucsborganizations.
+     * @param after the orgCode of the last organization on the previous page (optional)
+     * @param limit the maximum number of organizations to return (optional)
+     * @param webRequest the current request, used to answer conditional GETs
      * @return a list of all ucsborganizations
      */
     @Operation(summary= "List all ucsb organizations")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("/all")
-    public Iterable<UCSBOrganization> allOrgs() {
-        Iterable<UCSBOrganization> orgs = ucsbOrganizationRepository.findAll();
-        return orgs;
+    public ResponseEntity<Iterable<UCSBOrganization>> allOrgs(
+            @Parameter(name="after", description="orgCode of the last organization on the previous page; omit both after and limit for the full list") @RequestParam(required = false) String after,
+            @Parameter(name="limit", description="maximum number of organizations to return") @RequestParam(required = false) Integer limit,
+            ServletWebRequest webRequest) {
+        if (notModified(webRequest, UCSBOrganization.class)) {
+            return null;
+        }
+        if (after == null && limit == null) {
+            Iterable<UCSBOrganization> orgs = ucsbOrganizationRepository.findAll();
+            return ResponseEntity.ok(orgs);
+        }
+        int pageLimit = pageLimit(limit);
+        List<UCSBOrganization> orgs = ucsbOrganizationRepository.findByOrgCodeGreaterThanOrderByOrgCodeAsc(
+                after == null ? "" : after, Limit.of(pageLimit + 1));
+        return keysetPage(orgs, pageLimit, UCSBOrganization::getOrgCode);
     }
 
 
+    /**
+     * Get a batch of organizations by code, with one query rather than one request per code
+     * 
+     * @param ids the codes of the organizations to get
+     * @param webRequest the current request, used to answer conditional GETs
+     * @return the organizations found, keyed by code, and the codes that were not found
+     */
+    @Operation(summary= "Get a batch of organizations")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/batch")
+    public BatchResult<String, UCSBOrganization> getBatch(
+            @Parameter(name = "ids", description = "comma-separated codes, e.g. KSIG,OSLI") @RequestParam List<String> ids,
+            ServletWebRequest webRequest) {
+        if (notModified(webRequest, UCSBOrganization.class)) {
+            return null;
+        }
+        return batch(ucsbOrganizationRepository, ids, UCSBOrganization::getOrgCode);
+    }
+
     /**
      * This method returns a single diningcommons.
      * @param orgCode orgCode of the diningcommons
+     * @param webRequest the current request, used to answer conditional GETs
      * @return a single diningcommons
      */
     @Operation(summary= "Get a single organization")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("")
     public UCSBOrganization getById(
-            @Parameter(name="orgCode") @RequestParam String orgCode) {
+            @Parameter(name="orgCode") @RequestParam String orgCode,
+            ServletWebRequest webRequest) {
+        long generation = rowGeneration(UCSBOrganization.class);
         UCSBOrganization org = ucsbOrganizationRepository.findById(orgCode)
                 .orElseThrow(() -> new EntityNotFoundException(UCSBOrganization.class, orgCode));
+        if (notModified(webRequest, generation, org.getVersion())) {
+            return null;
+        }
 
         return org;
     }
 
     /**
      * This method creates a new organization. Accessible only to users with the role "ROLE_ADMIN".
+     * It never replaces an existing organization: posting a code that is already taken gives 409 Conflict.
      * @param orgCode code of the organization
      * @param orgTranslationShort shortened translation of org name
      * @param orgTranslation full org name
@@ -86,7 +152,14 @@ public class UCSBOrganizationController extends ApiController {
         org.setOrgTranslation(orgTranslation);
         org.setInactive(inactive);
 
-        UCSBOrganization savedOrg = ucsbOrganizationRepository.save(org);
+        // the code is assigned rather than generated, so save() inserts and an existing code is refused
+        UCSBOrganization savedOrg;
+        try {
+            savedOrg = ucsbOrganizationRepository.save(org);
+        } catch (DataIntegrityViolationException e) {
+            throw new DuplicateEntityException(UCSBOrganization.class, orgCode);
+        }
+        tableChanged(UCSBOrganization.class);
 
         return savedOrg;
     }
@@ -94,17 +167,23 @@ public class UCSBOrganizationController extends ApiController {
     /**
      * Delete a organization. Accessible only to users with the role "ROLE_ADMIN".
      * @param orgCode orgCode of the commons
+     * @param ifMatch the ETag of the version the client read (optional); the delete is refused if the organization has changed since
      * @return a message indiciating the organization was deleted
      */
     @Operation(summary= "Delete a UCSBOrganization")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @DeleteMapping("")
     public Object deleteOrganization(
-            @Parameter(name="orgCode") @RequestParam String orgCode) {
-        UCSBOrganization org = ucsbOrganizationRepository.findById(orgCode)
-                .orElseThrow(() -> new EntityNotFoundException(UCSBOrganization.class, orgCode));
-
-        ucsbOrganizationRepository.delete(org);
+            @Parameter(name="orgCode") @RequestParam String orgCode,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        long generation = rowGeneration(UCSBOrganization.class);
+        Long version = expectedVersion(generation, ifMatch);
+        if (ucsbOrganizationRepository.removeById(orgCode, version) == 0) {
+            throw writeFailed(ucsbOrganizationRepository, UCSBOrganization.class, orgCode, version);
+        }
+        tableChanged(UCSBOrganization.class);
+        // the code can be posted again, starting a new organization back at version 0
+        rowsRemoved(UCSBOrganization.class);
         return genericMessage("UCSBOrganization with id %s deleted".formatted(orgCode));
     }
 
@@ -112,6 +191,8 @@ public class UCSBOrganizationController extends ApiController {
      * Update a single organization. Accessible only to users with the role "ROLE_ADMIN".
      * @param orgCode code of the organization
      * @param incoming the new organization contents
+     * @param ifMatch the ETag of the version the client read (optional); the update is refused if the organization has changed since
+     * @param webRequest the current request, used to return the new version as the ETag
      * @return the updated organization object
      */
     @Operation(summary= "Update a single organization")
@@ -119,20 +200,70 @@ public class UCSBOrganizationController extends ApiController {
     @PutMapping("")
     public UCSBOrganization updateOrganization(
             @Parameter(name="orgCode") @RequestParam String orgCode,
-            @RequestBody @Valid UCSBOrganization incoming) {
+            @RequestBody @Valid UCSBOrganization incoming,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            ServletWebRequest webRequest) {
 
-        UCSBOrganization org = ucsbOrganizationRepository.findById(orgCode)
+        long generation = rowGeneration(UCSBOrganization.class);
+        Long version = expectedVersion(generation, ifMatch);
+        if (ucsbOrganizationRepository.updateById(orgCode, incoming, version) == 0) {
+            throw writeFailed(ucsbOrganizationRepository, UCSBOrganization.class, orgCode, version);
+        }
+        tableChanged(UCSBOrganization.class);
+        UCSBOrganization organization = ucsbOrganizationRepository.findById(orgCode)
                 .orElseThrow(() -> new EntityNotFoundException(UCSBOrganization.class, orgCode));
+        tagVersion(webRequest, generation, organization.getVersion());
 
+        return organization;
+    }
 
-        org.setOrgCode(incoming.getOrgCode());
-        org.setOrgTranslationShort(incoming.getOrgTranslationShort());
-        org.setOrgTranslation(incoming.getOrgTranslation());
-        org.setInactive(incoming.getInactive());
+    /**
+     * Patch a single organization with a JSON merge patch (RFC 7396); only the fields named in the patch are changed
+     * 
+     * @param orgCode the code of the organization to patch
+     * @param patch the fields to change, with null clearing a field
+     * @param ifMatch the ETag of the version the client read (optional); the patch is refused if the organization has changed since
+     * @param webRequest the current request, used to return the new version as the ETag
+     * @return the patched organization object
+     */
+    @Operation(summary= "Patch a single organization")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PatchMapping(value = "", consumes = MergePatchService.APPLICATION_MERGE_PATCH_JSON_VALUE)
+    public UCSBOrganization patchOrganization(
+            @Parameter(name = "orgCode") @RequestParam String orgCode,
+            @RequestBody JsonNode patch,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            ServletWebRequest webRequest) {
 
-        ucsbOrganizationRepository.save(org);
+        long generation = rowGeneration(UCSBOrganization.class);
+        Long version = expectedVersion(generation, ifMatch);
+        if (mergePatchService.patch(UCSBOrganization.class, orgCode, patch, version) == 0) {
+            throw writeFailed(ucsbOrganizationRepository, UCSBOrganization.class, orgCode, version);
+        }
+        tableChanged(UCSBOrganization.class);
+        UCSBOrganization organization = ucsbOrganizationRepository.findById(orgCode)
+                .orElseThrow(() -> new EntityNotFoundException(UCSBOrganization.class, orgCode));
+        tagVersion(webRequest, generation, organization.getVersion());
 
-        return org;
+        return organization;
     }
 
+    /**
+     * Bulk import organizations from an NDJSON or CSV upload. Accessible only to users with the role "ROLE_ADMIN".
+     * Each line holds an organization; a CSV upload starts with a header line naming the fields.
+     * @param contentType application/x-ndjson or text/csv
+     * @param body the upload
+     * @return a report of how many rows were imported and which rows were rejected
+     * @throws IOException if the upload cannot be read
+     */
+    @Operation(summary= "Bulk import organizations from NDJSON or CSV")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping(value = "/import", consumes = { MediaType.APPLICATION_NDJSON_VALUE, BulkImportService.TEXT_CSV_VALUE })
+    public ImportReport importOrganizations(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+            InputStream body) throws IOException {
+        ImportReport report = bulkImportService.importRows(body, contentType, UCSBOrganization.class, ucsbOrganizationRepository);
+        tableChanged(UCSBOrganization.class);
+        return report;
+    }
 }
@@ -9,6 +9,7 @@ import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
 
 import edu.ucsb.cs156.example.entities.User;
 import edu.ucsb.cs156.example.repositories.UserRepository;
@@ -33,14 +34,18 @@ public class UsersController extends ApiController {
 
     /**
      * This method returns a list of all users.  Accessible only to users with the role "ROLE_ADMIN".
+     * @param webRequest the current request, used to answer conditional GETs
      * @return a list of all users
      * @throws JsonProcessingException if there is an error processing the JSON
      */
     @Operation(summary= "Get a list of all users")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @GetMapping("")
-    public ResponseEntity<String> users()
+    public ResponseEntity<String> users(ServletWebRequest webRequest)
             throws JsonProcessingException {
+        if (notModified(webRequest, User.class)) {
+            return null;
+        }
         Iterable<User> users = userRepository.findAll();
         String body = mapper.writeValueAsString(users);
         return ResponseEntity.ok().body(body);
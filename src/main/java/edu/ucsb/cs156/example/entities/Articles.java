@@ -4,6 +4,8 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Version;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -18,7 +20,8 @@ import java.time.LocalDateTime;
 @Entity(name = "articles")
 public class Articles {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "articles_seq")
+    @SequenceGenerator(name = "articles_seq", sequenceName = "ARTICLES_SEQ", allocationSize = 50)
     private long id;
 
     private String title;
@@ -26,4 +29,7 @@ public class Articles {
     private String explanation;
     private String email; /* (of person that submitted it)*/
     private LocalDateTime dateAdded;
+
+    @Version
+    private Long version;
 }
@@ -4,6 +4,8 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Version;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -22,7 +24,8 @@ import java.time.LocalDateTime;
 @Entity(name = "helprequest")
 public class HelpRequest {
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "helprequest_seq")
+  @SequenceGenerator(name = "helprequest_seq", sequenceName = "HELPREQUEST_SEQ", allocationSize = 50)
   private Long id;
 
   private String requesterEmail;
@@ -31,4 +34,7 @@ public class HelpRequest {
   private LocalDateTime requestTime;
   private String explanation;
   private boolean solved;
+
+  @Version
+  private Long version;
 }
\ No newline at end of file
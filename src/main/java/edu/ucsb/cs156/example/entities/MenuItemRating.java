@@ -0,0 +1,47 @@
+package edu.ucsb.cs156.example.entities;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/** 
+ * This is a JPA entity that represents the rating summary of one menu item:
+ * how many reviews it has, the sum of their stars, how many reviews gave each
+ * number of stars from 1 to 5, and when it was last reviewed.
+ * 
+ * It is maintained from the MenuItemReview table by MenuItemRatingService and
+ * is keyed by the reviews' itemId. Reviews with a number of stars outside 1-5
+ * count towards reviewCount and starsSum but not towards any star column.
+ */
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Entity(name = "menuitemrating")
+public class MenuItemRating {
+  @Id
+  private long itemId;
+
+  private long reviewCount;
+  private long starsSum;
+  private long oneStar;
+  private long twoStars;
+  private long threeStars;
+  private long fourStars;
+  private long fiveStars;
+  private LocalDateTime lastReviewed;
+
+  /**
+   * This method returns the average number of stars.
+   * @return the mean of the reviews' stars, or null if the item has no reviews
+   */
+  public Double getAverageStars() {
+    return reviewCount == 0 ? null : (double) starsSum / reviewCount;
+  }
+}
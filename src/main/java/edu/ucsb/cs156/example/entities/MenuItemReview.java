@@ -4,6 +4,8 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Version;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -24,7 +26,8 @@ import java.time.LocalDateTime;
 @Entity(name = "menuitemreview")
 public class MenuItemReview {
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "menuitemreview_seq")
+  @SequenceGenerator(name = "menuitemreview_seq", sequenceName = "MENUITEMREVIEW_SEQ", allocationSize = 50)
   private long id;
 
   private Long itemId;
@@ -32,4 +35,7 @@ public class MenuItemReview {
   private int stars;
   private LocalDateTime dateReviewed;
   private String comments;
+
+  @Version
+  private Long version;
 }
\ No newline at end of file
@@ -4,6 +4,8 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Version;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -18,7 +20,8 @@ import java.time.LocalDateTime;
 @Entity(name = "recommendationrequest")
 public class RecommendationRequest{
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "recommendationrequest_seq")
+    @SequenceGenerator(name = "recommendationrequest_seq", sequenceName = "RECOMMENDATIONREQUEST_SEQ", allocationSize = 50)
     private long id;
 
     private String requesterEmail;
@@ -27,4 +30,7 @@ public class RecommendationRequest{
     private LocalDateTime dateRequested;
     private LocalDateTime dateNeeded;
     private boolean done;
+
+    @Version
+    private Long version;
 }
\ No newline at end of file
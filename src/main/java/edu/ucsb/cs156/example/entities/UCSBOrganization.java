@@ -1,11 +1,15 @@
 package edu.ucsb.cs156.example.entities;
 
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
+import jakarta.persistence.Version;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 /** 
  * This is a JPA entity that represents a UCSBOrganization
@@ -18,10 +22,15 @@ import lombok.NoArgsConstructor;
 @NoArgsConstructor
 @Builder
 @Entity(name = "ucsborganization")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public class UCSBOrganization {
   @Id //ID asigned to orgCode?
   private String orgCode;
   private String orgTranslationShort;
   private String orgTranslation;
   private boolean inactive;
+
+  @Version
+  private Long version;
 }
\ No newline at end of file
@@ -0,0 +1,18 @@
+package edu.ucsb.cs156.example.errors;
+
+/**
+ * This is an error class for a custom RuntimeException in Java that is used to indicate
+ * that an entity could not be created because one with the same id already exists.
+ */
+public class DuplicateEntityException extends RuntimeException {
+  /**
+   * Constructor for the exception
+   *
+   * @param entityType The class of the entity being created, e.g. UCSBOrganization.class
+   * @param id the id of the entity being created
+   */
+  public DuplicateEntityException(Class<?> entityType, Object id) {
+    super("%s with id %s already exists"
+      .formatted(entityType.getSimpleName(), id.toString()));
+  }
+}
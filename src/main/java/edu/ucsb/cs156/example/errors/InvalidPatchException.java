@@ -0,0 +1,19 @@
+package edu.ucsb.cs156.example.errors;
+
+/**
+ * This is an error class for a custom RuntimeException in Java that is used to indicate
+ * that a merge patch cannot be applied to an entity, e.g. because it names a field
+ * the entity does not have or gives a field a value of the wrong type.
+ */
+public class InvalidPatchException extends RuntimeException {
+  /**
+   * Constructor for the exception
+   *
+   * @param entityType The class of the entity being patched, e.g. HelpRequest.class
+   * @param problem what is wrong with the patch
+   */
+  public InvalidPatchException(Class<?> entityType, String problem) {
+    super("Cannot patch %s: %s"
+      .formatted(entityType.getSimpleName(), problem));
+  }
+}
@@ -0,0 +1,18 @@
+package edu.ucsb.cs156.example.errors;
+
+/**
+ * This is an error class for a custom RuntimeException in Java that is used to indicate
+ * that a batch lookup or bulk update named more ids than one request may name.
+ */
+public class TooManyIdsException extends RuntimeException {
+  /**
+   * Constructor for the exception
+   *
+   * @param requested the number of ids the client asked for
+   * @param max the most ids one request may name
+   */
+  public TooManyIdsException(int requested, int max) {
+    super("%d ids were requested, but at most %d may be named in one request"
+      .formatted(requested, max));
+  }
+}
@@ -0,0 +1,19 @@
+package edu.ucsb.cs156.example.errors;
+
+/**
+ * This is an error class for a custom RuntimeException in Java that is used to indicate
+ * that a conditional write was refused because the entity is no longer at the version
+ * the client named in its If-Match header, i.e. someone else has changed it since.
+ */
+public class VersionConflictException extends RuntimeException {
+  /**
+   * Constructor for the exception
+   *
+   * @param entityType The class of the entity being written, e.g. HelpRequest.class
+   * @param id the id of the entity being written
+   */
+  public VersionConflictException(Class<?> entityType, Object id) {
+    super("%s with id %s has been changed since it was read"
+      .formatted(entityType.getSimpleName(), id.toString()));
+  }
+}
@@ -0,0 +1,28 @@
+package edu.ucsb.cs156.example.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This is a model class that holds the outcome of looking up a batch of entities by id.
+ *
+ * Both the found entities and the missing ids are in the order the ids were requested;
+ * an id requested more than once appears once.
+ *
+ * @param <K> the type of the ids
+ * @param <T> the entity type
+ */
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BatchResult<K, T> {
+  private Map<K, T> found = new LinkedHashMap<>();
+  private List<K> missing = new ArrayList<>();
+}
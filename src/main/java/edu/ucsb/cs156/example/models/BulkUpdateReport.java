@@ -0,0 +1,20 @@
+package edu.ucsb.cs156.example.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * This is a model class that reports the outcome of a bulk status change,
+ * such as marking many help requests solved with a single update.
+ */
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BulkUpdateReport {
+  /**
+   * The number of rows whose status changed; rows that already had the new status are not counted.
+   */
+  private int updated;
+}
@@ -0,0 +1,29 @@
+package edu.ucsb.cs156.example.models;
+
+import lombok.Data;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+import lombok.Builder;
+import lombok.AccessLevel;
+
+import java.time.Instant;
+
+/**
+ * This is a model class that represents one borrow of a pooled database
+ * connection: who borrowed it, when, and how long it was (or has been) held.
+ *
+ * The borrower is the controller method handling the request that borrowed the
+ * connection, e.g. {@code UCSBDatesController.allUCSBDates}, or
+ * {@code (background)} for work done outside of a request.
+ */
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class ConnectionBorrow {
+  private String borrower;
+  private String thread;
+  private Instant borrowedAt;
+  private double heldMillis;
+}
@@ -0,0 +1,34 @@
+package edu.ucsb.cs156.example.models;
+
+import lombok.Data;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+import lombok.Builder;
+import lombok.AccessLevel;
+
+import java.util.List;
+
+/**
+ * This is a model class that represents the current state of the database
+ * connection pool, together with the borrows that held a connection longest.
+ *
+ * {@code heldTooLong} lists connections that are still borrowed and have been held
+ * for longer than the leak detection threshold; {@code slowestRecent} lists the
+ * longest of the most recently returned borrows.
+ */
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class ConnectionPoolState {
+  private int maximumPoolSize;
+  private int minimumIdle;
+  private int active;
+  private int idle;
+  private int total;
+  private int pending;
+  private long leakThresholdMillis;
+  private List<ConnectionBorrow> heldTooLong;
+  private List<ConnectionBorrow> slowestRecent;
+}
@@ -0,0 +1,35 @@
+package edu.ucsb.cs156.example.models;
+
+import lombok.Data;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+import lombok.Builder;
+import lombok.AccessLevel;
+
+import edu.ucsb.cs156.example.entities.HelpRequest;
+
+/**
+ * This is a model class that represents a change to the help request queue.
+ *
+ * Events are pushed to subscribers of the live queue. Pending events for the
+ * same id are coalesced, so clients should treat CREATED, UPDATED and SOLVED
+ * as "upsert this help request" and DELETED as "remove it".
+ */
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class HelpRequestEvent {
+
+  /**
+   * The kind of change that happened to a help request.
+   */
+  public enum Type {
+    CREATED, UPDATED, SOLVED, DELETED
+  }
+
+  private Type type;
+  private Long id;
+  private HelpRequest helpRequest;
+}
@@ -0,0 +1,61 @@
+package edu.ucsb.cs156.example.models;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * This is a model class that reports the outcome of a bulk import.
+ *
+ * Rows are numbered from 1 in the order they appear in the upload
+ * (for CSV the header line is not counted). Every rejected row is counted in
+ * errorCount, but only the maxErrors lowest-numbered ones are listed in errors,
+ * so that an upload of bad rows cannot make the report as large as the upload.
+ */
+
+@Data
+@NoArgsConstructor
+public class ImportReport {
+  private long received;
+  private long imported;
+  private long errorCount;
+  private List<RowError> errors = new ArrayList<>();
+
+  @JsonIgnore
+  private int maxErrors = Integer.MAX_VALUE;
+
+  /**
+   * This method records a row that was rejected. Once maxErrors rows are listed,
+   * a row replaces the highest-numbered one listed only if it comes before it.
+   * @param row the number of the row
+   * @param message why the row was rejected
+   */
+  public void reject(long row, String message) {
+    errorCount++;
+    if (errors.size() < maxErrors) {
+      errors.add(new RowError(row, message));
+      return;
+    }
+    errors.stream()
+        .max(Comparator.comparingLong(RowError::getRow))
+        .filter(highest -> row < highest.getRow())
+        .ifPresent(highest -> errors.set(errors.indexOf(highest), new RowError(row, message)));
+  }
+
+  /**
+   * A single rejected row.
+   */
+  @Data
+  @AllArgsConstructor
+  @NoArgsConstructor
+  public static class RowError {
+    private long row;
+    private String message;
+  }
+}
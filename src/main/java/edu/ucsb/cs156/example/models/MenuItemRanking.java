@@ -0,0 +1,28 @@
+package edu.ucsb.cs156.example.models;
+
+import lombok.Data;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+import lombok.Builder;
+import lombok.AccessLevel;
+
+/**
+ * This is a model class that represents one place in the menu item leaderboard:
+ * the menu item, how many reviews it has and their average stars, and the
+ * Bayesian-averaged score it is ranked by.
+ */
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class MenuItemRanking {
+  private int rank;
+  private long itemId;
+  private String diningCommonsCode;
+  private String name;
+  private String station;
+  private long reviewCount;
+  private double averageStars;
+  private double score;
+}
@@ -0,0 +1,27 @@
+package edu.ucsb.cs156.example.models;
+
+import lombok.Data;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+import lombok.Builder;
+import lombok.AccessLevel;
+
+/**
+ * This is a model class that represents a dining commons found near a point,
+ * with its great-circle distance from that point in meters.
+ */
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class NearbyDiningCommons {
+  private String code;
+  private String name;
+  private boolean hasSackMeal;
+  private boolean hasTakeOutMeal;
+  private boolean hasDiningCam;
+  private double latitude;
+  private double longitude;
+  private double distanceMeters;
+}
@@ -0,0 +1,25 @@
+package edu.ucsb.cs156.example.models;
+
+import lombok.Data;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+import lombok.Builder;
+import lombok.AccessLevel;
+
+import java.time.LocalDateTime;
+
+/**
+ * This is a model class that represents the span of one quarter: its first
+ * and last UCSB dates, and how many dates it has.
+ */
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class QuarterSpan {
+  private String quarterYYYYQ;
+  private LocalDateTime start;
+  private LocalDateTime end;
+  private long dates;
+}
@@ -0,0 +1,27 @@
+package edu.ucsb.cs156.example.models;
+
+import lombok.Data;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+import lombok.Builder;
+import lombok.AccessLevel;
+
+/**
+ * This is a model class that reports the outcome of rebuilding menu item
+ * ratings from their reviews.
+ *
+ * {@code removed} counts the ratings deleted because their item no longer has
+ * any reviews (only a full rebuild looks for those).
+ */
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class RatingRebuildReport {
+  private long items;
+  private long reviews;
+  private long chunks;
+  private long removed;
+  private long millis;
+}
@@ -2,10 +2,66 @@ package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.Articles;
 
+import jakarta.persistence.QueryHint;
+
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface ArticlesRepository extends CrudRepository<Articles, Long> {
-    
+  /**
+   * This method returns the next page of articles in id order, for keyset pagination.
+   * @param id the id of the last row of the previous page (rows with a greater id are returned)
+   * @param limit the maximum number of rows to return
+   * @return up to limit articles with id greater than the given one, in ascending id order
+   */
+  List<Articles> findByIdGreaterThanOrderByIdAsc(long id, Limit limit);
+
+  /**
+   * This method streams every article in id order from a database cursor.
+   * Rows are fetched from the driver in batches of 500 and loaded read-only,
+   * so the caller must consume the stream inside a transaction and close it.
+   * @return a stream of all articles, in ascending id order
+   */
+  @QueryHints({
+    @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+    @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+  })
+  Stream<Articles> streamAllByOrderByIdAsc();
+
+  /**
+   * This method overwrites the fields of an article in a single update, without reading it first.
+   * @param id the id of the article to update
+   * @param article the new contents (its id is ignored)
+   * @param version the version the article must be at (null to update it at any version)
+   * @return the number of rows changed (0 if there is no article with that id at that version)
+   */
+  @Modifying
+  @Transactional
+  @Query("update articles a set a.title = :#{#article.title}, a.url = :#{#article.url}, "
+      + "a.explanation = :#{#article.explanation}, a.email = :#{#article.email}, "
+      + "a.dateAdded = :#{#article.dateAdded}, "
+      + "a.version = a.version + 1 where a.id = :id and (:version is null or a.version = :version)")
+  int updateById(@Param("id") long id, @Param("article") Articles article, @Param("version") Long version);
+
+  /**
+   * This method deletes an article in a single statement, without reading it first.
+   * @param id the id of the article to delete
+   * @param version the version the article must be at (null to delete it at any version)
+   * @return the number of rows deleted (0 if there is no article with that id at that version)
+   */
+  @Modifying
+  @Transactional
+  @Query("delete from articles a where a.id = :id and (:version is null or a.version = :version)")
+  int removeById(@Param("id") long id, @Param("version") Long version);
 }
@@ -1,8 +1,16 @@
 package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.HelpRequest;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
 
 /**
  * The HelpRequestRepository is a repository for HelpRequest entities.
@@ -10,4 +18,85 @@ import org.springframework.stereotype.Repository;
 
 @Repository
 public interface HelpRequestRepository extends CrudRepository<HelpRequest, Long> {
-}
\ No newline at end of file
+  /**
+   * This method returns the next page of help requests in id order, for keyset pagination.
+   * @param id the id of the last row of the previous page (rows with a greater id are returned)
+   * @param limit the maximum number of rows to return
+   * @return up to limit help requests with id greater than the given one, in ascending id order
+   */
+  List<HelpRequest> findByIdGreaterThanOrderByIdAsc(long id, Limit limit);
+
+  /**
+   * This method returns the unsolved help requests, oldest first.
+   * @return all help requests with solved == false, in request time order
+   */
+  List<HelpRequest> findBySolvedFalseOrderByRequestTimeAsc();
+
+  /**
+   * This method overwrites the fields of a help request in a single update, without reading it first.
+   * @param id the id of the help request to update
+   * @param helpRequest the new contents (its id is ignored)
+   * @param version the version the help request must be at (null to update it at any version)
+   * @return the number of rows changed (0 if there is no help request with that id at that version)
+   */
+  @Modifying
+  @Transactional
+  @Query("update helprequest h set h.requesterEmail = :#{#helpRequest.requesterEmail}, "
+      + "h.teamId = :#{#helpRequest.teamId}, "
+      + "h.tableOrBreakoutRoom = :#{#helpRequest.tableOrBreakoutRoom}, "
+      + "h.requestTime = :#{#helpRequest.requestTime}, h.explanation = :#{#helpRequest.explanation}, "
+      + "h.solved = :#{#helpRequest.solved}, "
+      + "h.version = h.version + 1 where h.id = :id and (:version is null or h.version = :version)")
+  int updateById(@Param("id") long id, @Param("helpRequest") HelpRequest helpRequest, @Param("version") Long version);
+
+  /**
+   * This method overwrites the fields of a help request in a single update, but only if it is not yet solved,
+   * so that the caller learns whether this update is the one that solved it.
+   * @param id the id of the help request to update
+   * @param helpRequest the new contents (its id is ignored)
+   * @param version the version the help request must be at (null to update it at any version)
+   * @return the number of rows changed (0 if there is no unsolved help request with that id at that version)
+   */
+  @Modifying
+  @Transactional
+  @Query("update helprequest h set h.requesterEmail = :#{#helpRequest.requesterEmail}, "
+      + "h.teamId = :#{#helpRequest.teamId}, "
+      + "h.tableOrBreakoutRoom = :#{#helpRequest.tableOrBreakoutRoom}, "
+      + "h.requestTime = :#{#helpRequest.requestTime}, h.explanation = :#{#helpRequest.explanation}, "
+      + "h.solved = :#{#helpRequest.solved}, "
+      + "h.version = h.version + 1 where h.id = :id and h.solved = false and (:version is null or h.version = :version)")
+  int updateUnsolvedById(@Param("id") long id, @Param("helpRequest") HelpRequest helpRequest, @Param("version") Long version);
+
+  /**
+   * This method deletes a help request in a single statement, without reading it first.
+   * @param id the id of the help request to delete
+   * @param version the version the help request must be at (null to delete it at any version)
+   * @return the number of rows deleted (0 if there is no help request with that id at that version)
+   */
+  @Modifying
+  @Transactional
+  @Query("delete from helprequest h where h.id = :id and (:version is null or h.version = :version)")
+  int removeById(@Param("id") long id, @Param("version") Long version);
+
+  /**
+   * This method marks the given help requests solved in a single update.
+   * @param ids the ids of the help requests to mark solved
+   * @return the number of help requests that were unsolved and are now solved
+   */
+  @Modifying
+  @Transactional
+  @Query("update helprequest h set h.solved = true, h.version = h.version + 1 "
+      + "where h.id in :ids and h.solved = false")
+  int solveByIdIn(@Param("ids") Collection<Long> ids);
+
+  /**
+   * This method marks every unsolved help request of a team solved in a single update.
+   * @param teamId the team whose help requests to mark solved
+   * @return the number of help requests that were unsolved and are now solved
+   */
+  @Modifying
+  @Transactional
+  @Query("update helprequest h set h.solved = true, h.version = h.version + 1 "
+      + "where h.teamId = :teamId and h.solved = false")
+  int solveByTeamId(@Param("teamId") String teamId);
+}
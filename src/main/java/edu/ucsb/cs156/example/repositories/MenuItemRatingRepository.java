@@ -0,0 +1,119 @@
+package edu.ucsb.cs156.example.repositories;
+
+import edu.ucsb.cs156.example.entities.MenuItemRating;
+
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * The MenuItemRatingRepository is a repository for MenuItemRating entities.
+ */
+
+@Repository
+public interface MenuItemRatingRepository extends CrudRepository<MenuItemRating, Long> {
+  /**
+   * This method creates an item's rating, with every count zero, unless it already exists.
+   * An existing rating is left as it is, and concurrent calls for the same item do not fail,
+   * so it can run in the caller's transaction.
+   * @param itemId the item id
+   */
+  @Modifying
+  @Transactional
+  @Query("insert into menuitemrating (itemId, reviewCount, starsSum, oneStar, twoStars, threeStars, fourStars, fiveStars) "
+      + "values (:itemId, 0, 0, 0, 0, 0, 0, 0) on conflict(itemId) do update set reviewCount = reviewCount")
+  void createIfMissing(@Param("itemId") long itemId);
+
+  /**
+   * This method adds the counts of a delta to an item's rating in a single update, so that
+   * concurrent changes to the same item are not lost. Negative counts remove reviews.
+   * @param delta the item id and the amounts to add to each count (lastReviewed is ignored)
+   * @return the number of ratings changed (0 if the item has no rating row)
+   */
+  @Modifying
+  @Transactional
+  @Query("update menuitemrating m set "
+      + "m.reviewCount = m.reviewCount + :#{#delta.reviewCount}, "
+      + "m.starsSum = m.starsSum + :#{#delta.starsSum}, "
+      + "m.oneStar = m.oneStar + :#{#delta.oneStar}, "
+      + "m.twoStars = m.twoStars + :#{#delta.twoStars}, "
+      + "m.threeStars = m.threeStars + :#{#delta.threeStars}, "
+      + "m.fourStars = m.fourStars + :#{#delta.fourStars}, "
+      + "m.fiveStars = m.fiveStars + :#{#delta.fiveStars} "
+      + "where m.itemId = :#{#delta.itemId}")
+  int addToCounts(@Param("delta") MenuItemRating delta);
+
+  /**
+   * This method moves an item's last review time forward to the given time, if it is later.
+   * @param itemId the item id
+   * @param reviewed the time of a review of the item
+   * @return the number of ratings changed
+   */
+  @Modifying
+  @Transactional
+  @Query("update menuitemrating m set m.lastReviewed = :reviewed "
+      + "where m.itemId = :itemId and (m.lastReviewed is null or m.lastReviewed < :reviewed)")
+  int advanceLastReviewed(@Param("itemId") long itemId, @Param("reviewed") LocalDateTime reviewed);
+
+  /**
+   * This method recomputes an item's last review time from its remaining reviews.
+   * @param itemId the item id
+   * @return the number of ratings changed
+   */
+  @Modifying(flushAutomatically = true)
+  @Transactional
+  @Query("update menuitemrating m set m.lastReviewed = "
+      + "(select max(r.dateReviewed) from menuitemreview r where r.itemId = m.itemId) "
+      + "where m.itemId = :itemId")
+  int recomputeLastReviewed(@Param("itemId") long itemId);
+
+  /**
+   * This method computes the ratings of the given items from scratch, with one grouped query
+   * over their reviews. Items without reviews are not returned.
+   * @param itemIds the item ids
+   * @return a new (unsaved) rating for each item that has reviews
+   */
+  @Query("select new edu.ucsb.cs156.example.entities.MenuItemRating(r.itemId, count(r), sum(r.stars), "
+      + "sum(case when r.stars = 1 then 1 else 0 end), "
+      + "sum(case when r.stars = 2 then 1 else 0 end), "
+      + "sum(case when r.stars = 3 then 1 else 0 end), "
+      + "sum(case when r.stars = 4 then 1 else 0 end), "
+      + "sum(case when r.stars = 5 then 1 else 0 end), "
+      + "max(r.dateReviewed)) "
+      + "from menuitemreview r where r.itemId in :itemIds group by r.itemId")
+  List<MenuItemRating> computeRatings(@Param("itemIds") Collection<Long> itemIds);
+
+  /**
+   * This method returns the id of every item that has at least one review.
+   * @return the reviewed item ids, in ascending order
+   */
+  @Query("select distinct r.itemId from menuitemreview r where r.itemId is not null order by r.itemId")
+  List<Long> findReviewedItemIds();
+
+  /**
+   * This method deletes the ratings of the given items in a single statement.
+   * @param itemIds the item ids
+   * @return the number of ratings deleted
+   */
+  @Modifying
+  @Transactional
+  @Query("delete from menuitemrating m where m.itemId in :itemIds")
+  int deleteByItemIds(@Param("itemIds") Collection<Long> itemIds);
+
+  /**
+   * This method deletes the ratings of items that no longer have any reviews.
+   * @return the number of ratings deleted
+   */
+  @Modifying
+  @Transactional
+  @Query("delete from menuitemrating m where m.itemId not in "
+      + "(select r.itemId from menuitemreview r where r.itemId is not null)")
+  int deleteUnreviewed();
+}
@@ -2,8 +2,23 @@ package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.MenuItemReview;
 
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * The UCSBMenuItemReviewRepository is a repository for MenuItemReview entities.
@@ -11,5 +26,46 @@ import org.springframework.stereotype.Repository;
 
 @Repository
 public interface MenuItemReviewRepository extends CrudRepository<MenuItemReview, Long> {
+  /**
+   * This method returns the next page of menu item reviews in id order, for keyset pagination.
+   * @param id the id of the last row of the previous page (rows with a greater id are returned)
+   * @param limit the maximum number of rows to return
+   * @return up to limit menu item reviews with id greater than the given one, in ascending id order
+   */
+  List<MenuItemReview> findByIdGreaterThanOrderByIdAsc(long id, Limit limit);
+
+  /**
+   * This method streams every review in id order from a database cursor.
+   * Rows are fetched from the driver in batches of 500 and loaded read-only,
+   * so the caller must consume the stream inside a transaction and close it.
+   * @return a stream of all reviews, in ascending id order
+   */
+  @QueryHints({
+    @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+    @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+  })
+  Stream<MenuItemReview> streamAllByOrderByIdAsc();
+
+  /**
+   * This method reads a review and locks its row until the calling transaction ends,
+   * so that it cannot change between being read and being written.
+   * @param id the id of the review
+   * @return the review, if there is one with that id
+   */
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  Optional<MenuItemReview> findForUpdateById(long id);
 
-}
\ No newline at end of file
+  /**
+   * This method overwrites the fields of a review in a single update, without locking it.
+   * @param id the id of the review to update
+   * @param review the new contents (its id is ignored)
+   * @param version the version the review must be at (null to update it at any version)
+   * @return the number of rows changed (0 if there is no review with that id at that version)
+   */
+  @Modifying
+  @Transactional
+  @Query("update menuitemreview r set r.itemId = :#{#review.itemId}, r.reviewerEmail = :#{#review.reviewerEmail}, "
+      + "r.stars = :#{#review.stars}, r.dateReviewed = :#{#review.dateReviewed}, r.comments = :#{#review.comments}, "
+      + "r.version = r.version + 1 where r.id = :id and (:version is null or r.version = :version)")
+  int updateById(@Param("id") long id, @Param("review") MenuItemReview review, @Param("version") Long version);
+}
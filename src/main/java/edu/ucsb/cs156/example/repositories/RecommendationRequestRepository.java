@@ -2,11 +2,74 @@ package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.RecommendationRequest;
 
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
 
 
  @Repository
  public interface RecommendationRequestRepository extends CrudRepository<RecommendationRequest, Long> {
-   
- }
\ No newline at end of file
+  /**
+   * This method returns the next page of recommendation requests in id order, for keyset pagination.
+   * @param id the id of the last row of the previous page (rows with a greater id are returned)
+   * @param limit the maximum number of rows to return
+   * @return up to limit recommendation requests with id greater than the given one, in ascending id order
+   */
+  List<RecommendationRequest> findByIdGreaterThanOrderByIdAsc(long id, Limit limit);
+
+  /**
+   * This method overwrites the fields of a recommendation request in a single update, without reading it first.
+   * @param id the id of the recommendation request to update
+   * @param request the new contents (its id is ignored)
+   * @param version the version the recommendation request must be at (null to update it at any version)
+   * @return the number of rows changed (0 if there is no recommendation request with that id at that version)
+   */
+  @Modifying
+  @Transactional
+  @Query("update recommendationrequest r set r.requesterEmail = :#{#request.requesterEmail}, "
+      + "r.professorEmail = :#{#request.professorEmail}, r.explanation = :#{#request.explanation}, "
+      + "r.dateRequested = :#{#request.dateRequested}, r.dateNeeded = :#{#request.dateNeeded}, "
+      + "r.done = :#{#request.done}, "
+      + "r.version = r.version + 1 where r.id = :id and (:version is null or r.version = :version)")
+  int updateById(@Param("id") long id, @Param("request") RecommendationRequest request, @Param("version") Long version);
+
+  /**
+   * This method deletes a recommendation request in a single statement, without reading it first.
+   * @param id the id of the recommendation request to delete
+   * @param version the version the recommendation request must be at (null to delete it at any version)
+   * @return the number of rows deleted (0 if there is no recommendation request with that id at that version)
+   */
+  @Modifying
+  @Transactional
+  @Query("delete from recommendationrequest r where r.id = :id and (:version is null or r.version = :version)")
+  int removeById(@Param("id") long id, @Param("version") Long version);
+
+  /**
+   * This method marks the given recommendation requests done in a single update.
+   * @param ids the ids of the recommendation requests to mark done
+   * @return the number of recommendation requests that were open and are now done
+   */
+  @Modifying
+  @Transactional
+  @Query("update recommendationrequest r set r.done = true, r.version = r.version + 1 "
+      + "where r.id in :ids and r.done = false")
+  int markDoneByIdIn(@Param("ids") Collection<Long> ids);
+
+  /**
+   * This method marks every open recommendation request to a professor done in a single update.
+   * @param professorEmail the professor whose recommendation requests to mark done
+   * @return the number of recommendation requests that were open and are now done
+   */
+  @Modifying
+  @Transactional
+  @Query("update recommendationrequest r set r.done = true, r.version = r.version + 1 "
+      + "where r.professorEmail = :professorEmail and r.done = false")
+  int markDoneByProfessorEmail(@Param("professorEmail") String professorEmail);
+}
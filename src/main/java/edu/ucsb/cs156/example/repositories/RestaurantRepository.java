@@ -2,12 +2,51 @@ package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.Restaurant;
 
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
 
 /**
  * The RestaurantRepository is a repository for Restaurant entities
  */
 @Repository
 public interface RestaurantRepository extends CrudRepository<Restaurant, Long> {
+  /**
+   * This method returns the next page of restaurants in id order, for keyset pagination.
+   * @param id the id of the last row of the previous page (rows with a greater id are returned)
+   * @param limit the maximum number of rows to return
+   * @return up to limit restaurants with id greater than the given one, in ascending id order
+   */
+  List<Restaurant> findByIdGreaterThanOrderByIdAsc(long id, Limit limit);
+
+  /**
+   * This method overwrites the fields of a restaurant in a single update, without reading it first.
+   * @param id the id of the restaurant to update
+   * @param restaurant the new contents (its id is ignored)
+   * @param version the version the restaurant must be at (null to update it at any version)
+   * @return the number of rows changed (0 if there is no restaurant with that id at that version)
+   */
+  @Modifying
+  @Transactional
+  @Query("update restaurants r set r.name = :#{#restaurant.name}, "
+      + "r.description = :#{#restaurant.description}, "
+      + "r.version = r.version + 1 where r.id = :id and (:version is null or r.version = :version)")
+  int updateById(@Param("id") long id, @Param("restaurant") Restaurant restaurant, @Param("version") Long version);
+
+  /**
+   * This method deletes a restaurant in a single statement, without reading it first.
+   * @param id the id of the restaurant to delete
+   * @param version the version the restaurant must be at (null to delete it at any version)
+   * @return the number of rows deleted (0 if there is no restaurant with that id at that version)
+   */
+  @Modifying
+  @Transactional
+  @Query("delete from restaurants r where r.id = :id and (:version is null or r.version = :version)")
+  int removeById(@Param("id") long id, @Param("version") Long version);
 }
@@ -1,9 +1,18 @@
 package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.UCSBDate;
+import edu.ucsb.cs156.example.models.QuarterSpan;
 
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
 
 /**
  * The UCSBDateRepository is a repository for UCSBDate entities.
@@ -17,4 +26,65 @@ public interface UCSBDateRepository extends CrudRepository<UCSBDate, Long> {
    * @return all UCSBDate entities with a given quarterYYYYQ
    */
   Iterable<UCSBDate> findAllByQuarterYYYYQ(String quarterYYYYQ);
-}
\ No newline at end of file
+
+  /**
+   * This method returns the next page of dates in id order, for keyset pagination.
+   * @param id the id of the last row of the previous page (rows with a greater id are returned)
+   * @param limit the maximum number of rows to return
+   * @return up to limit dates with id greater than the given one, in ascending id order
+   */
+  List<UCSBDate> findByIdGreaterThanOrderByIdAsc(long id, Limit limit);
+
+  /**
+   * This method returns the dates of a quarter in date order, using the
+   * (quarterYYYYQ, localDateTime) index.
+   * @param quarterYYYYQ quarter in the format YYYYQ
+   * @return the dates of the quarter, earliest first
+   */
+  List<UCSBDate> findAllByQuarterYYYYQOrderByLocalDateTimeAscIdAsc(String quarterYYYYQ);
+
+  /**
+   * This method returns the dates in a range, in date order, using the localDateTime index.
+   * @param from the start of the range (inclusive)
+   * @param to the end of the range (inclusive)
+   * @param limit the maximum number of rows to return
+   * @return up to limit dates in the range, earliest first
+   */
+  List<UCSBDate> findByLocalDateTimeBetweenOrderByLocalDateTimeAscIdAsc(LocalDateTime from, LocalDateTime to,
+      Limit limit);
+
+  /**
+   * This method returns the first and last date of every quarter, and how many dates it has.
+   * Dates without a quarter or a date are left out.
+   * @return one span per quarter, in no particular order
+   */
+  @Query("select new edu.ucsb.cs156.example.models.QuarterSpan(d.quarterYYYYQ, min(d.localDateTime), "
+      + "max(d.localDateTime), count(d)) from ucsbdates d "
+      + "where d.quarterYYYYQ is not null and d.localDateTime is not null group by d.quarterYYYYQ")
+  List<QuarterSpan> findQuarterSpans();
+
+  /**
+   * This method overwrites the fields of a date in a single update, without reading it first.
+   * @param id the id of the date to update
+   * @param date the new contents (its id is ignored)
+   * @param version the version the date must be at (null to update it at any version)
+   * @return the number of rows changed (0 if there is no date with that id at that version)
+   */
+  @Modifying
+  @Transactional
+  @Query("update ucsbdates d set d.quarterYYYYQ = :#{#date.quarterYYYYQ}, d.name = :#{#date.name}, "
+      + "d.localDateTime = :#{#date.localDateTime}, "
+      + "d.version = d.version + 1 where d.id = :id and (:version is null or d.version = :version)")
+  int updateById(@Param("id") long id, @Param("date") UCSBDate date, @Param("version") Long version);
+
+  /**
+   * This method deletes a date in a single statement, without reading it first.
+   * @param id the id of the date to delete
+   * @param version the version the date must be at (null to delete it at any version)
+   * @return the number of rows deleted (0 if there is no date with that id at that version)
+   */
+  @Modifying
+  @Transactional
+  @Query("delete from ucsbdates d where d.id = :id and (:version is null or d.version = :version)")
+  int removeById(@Param("id") long id, @Param("version") Long version);
+}
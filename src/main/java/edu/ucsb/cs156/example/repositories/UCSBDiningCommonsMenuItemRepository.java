@@ -2,13 +2,51 @@ package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItem;
 
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
 
 /**
  * The UCSBDiningCommonsMenuItem is a repository for UCSBDiningCommonsMenuItem entities
  */
 @Repository
 public interface UCSBDiningCommonsMenuItemRepository extends CrudRepository<UCSBDiningCommonsMenuItem, Long> {
- 
-}
\ No newline at end of file
+  /**
+   * This method returns the next page of menu items in id order, for keyset pagination.
+   * @param id the id of the last row of the previous page (rows with a greater id are returned)
+   * @param limit the maximum number of rows to return
+   * @return up to limit menu items with id greater than the given one, in ascending id order
+   */
+  List<UCSBDiningCommonsMenuItem> findByIdGreaterThanOrderByIdAsc(long id, Limit limit);
+
+  /**
+   * This method overwrites the fields of a menu item in a single update, without reading it first.
+   * @param id the id of the menu item to update
+   * @param item the new contents (its id is ignored)
+   * @param version the version the menu item must be at (null to update it at any version)
+   * @return the number of rows changed (0 if there is no menu item with that id at that version)
+   */
+  @Modifying
+  @Transactional
+  @Query("update ucsbdiningcommonsmenuitem m set m.diningCommonsCode = :#{#item.diningCommonsCode}, "
+      + "m.name = :#{#item.name}, m.station = :#{#item.station}, "
+      + "m.version = m.version + 1 where m.id = :id and (:version is null or m.version = :version)")
+  int updateById(@Param("id") long id, @Param("item") UCSBDiningCommonsMenuItem item, @Param("version") Long version);
+
+  /**
+   * This method deletes a menu item in a single statement, without reading it first.
+   * @param id the id of the menu item to delete
+   * @param version the version the menu item must be at (null to delete it at any version)
+   * @return the number of rows deleted (0 if there is no menu item with that id at that version)
+   */
+  @Modifying
+  @Transactional
+  @Query("delete from ucsbdiningcommonsmenuitem m where m.id = :id and (:version is null or m.version = :version)")
+  int removeById(@Param("id") long id, @Param("version") Long version);
+}
@@ -2,14 +2,68 @@ package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
 
+import jakarta.persistence.QueryHint;
+
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.beans.propertyeditors.StringArrayPropertyEditor;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
 
 /**
  * The UCSBDiningCommonsRepository is a repository for UCSBDiningCommons entities
  */
 @Repository
 public interface UCSBDiningCommonsRepository extends CrudRepository<UCSBDiningCommons, String> {
- 
-}
\ No newline at end of file
+  /**
+   * This method returns the next page of dining commons in code order, for keyset pagination.
+   * @param code the code of the last row of the previous page (rows with a greater code are returned)
+   * @param limit the maximum number of rows to return
+   * @return up to limit dining commons with code greater than the given one, in ascending code order
+   */
+  @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+  List<UCSBDiningCommons> findByCodeGreaterThanOrderByCodeAsc(String code, Limit limit);
+
+  /**
+   * This method returns every dining commons. The result is kept in the query cache and
+   * the rows in the second-level cache until the table is next written.
+   * @return all dining commons
+   */
+  @Override
+  @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+  Iterable<UCSBDiningCommons> findAll();
+
+  /**
+   * This method overwrites the fields of a dining commons in a single update, without reading it first.
+   * @param code the code of the dining commons to update
+   * @param commons the new contents (its code is ignored)
+   * @param version the version the dining commons must be at (null to update it at any version)
+   * @return the number of rows changed (0 if there is no dining commons with that code at that version)
+   */
+  @Modifying
+  @Transactional
+  @Query("update ucsbdiningcommons c set c.name = :#{#commons.name}, "
+      + "c.hasSackMeal = :#{#commons.hasSackMeal}, c.hasTakeOutMeal = :#{#commons.hasTakeOutMeal}, "
+      + "c.hasDiningCam = :#{#commons.hasDiningCam}, c.latitude = :#{#commons.latitude}, "
+      + "c.longitude = :#{#commons.longitude}, "
+      + "c.version = c.version + 1 where c.code = :code and (:version is null or c.version = :version)")
+  int updateById(@Param("code") String code, @Param("commons") UCSBDiningCommons commons, @Param("version") Long version);
+
+  /**
+   * This method deletes a dining commons in a single statement, without reading it first.
+   * @param code the code of the dining commons to delete
+   * @param version the version the dining commons must be at (null to delete it at any version)
+   * @return the number of rows deleted (0 if there is no dining commons with that code at that version)
+   */
+  @Modifying
+  @Transactional
+  @Query("delete from ucsbdiningcommons c where c.code = :code and (:version is null or c.version = :version)")
+  int removeById(@Param("code") String code, @Param("version") Long version);
+}
@@ -2,14 +2,66 @@ package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.UCSBOrganization;
 
+import jakarta.persistence.QueryHint;
+
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.beans.propertyeditors.StringArrayPropertyEditor;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
 
 /**
  * The UCSBOrganizationRepository is a repository for UCSBOrganization entities
  */
 @Repository
 public interface UCSBOrganizationRepository extends CrudRepository<UCSBOrganization, String> {
- 
-}
\ No newline at end of file
+  /**
+   * This method returns the next page of organizations in orgCode order, for keyset pagination.
+   * @param orgCode the orgCode of the last row of the previous page (rows with a greater orgCode are returned)
+   * @param limit the maximum number of rows to return
+   * @return up to limit organizations with orgCode greater than the given one, in ascending orgCode order
+   */
+  @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+  List<UCSBOrganization> findByOrgCodeGreaterThanOrderByOrgCodeAsc(String orgCode, Limit limit);
+
+  /**
+   * This method returns every organization. The result is kept in the query cache and
+   * the rows in the second-level cache until the table is next written.
+   * @return all organizations
+   */
+  @Override
+  @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+  Iterable<UCSBOrganization> findAll();
+
+  /**
+   * This method overwrites the fields of an organization in a single update, without reading it first.
+   * @param orgCode the code of the organization to update
+   * @param organization the new contents (its orgCode is ignored)
+   * @param version the version the organization must be at (null to update it at any version)
+   * @return the number of rows changed (0 if there is no organization with that code at that version)
+   */
+  @Modifying
+  @Transactional
+  @Query("update ucsborganization o set o.orgTranslationShort = :#{#organization.orgTranslationShort}, "
+      + "o.orgTranslation = :#{#organization.orgTranslation}, o.inactive = :#{#organization.inactive}, "
+      + "o.version = o.version + 1 where o.orgCode = :orgCode and (:version is null or o.version = :version)")
+  int updateById(@Param("orgCode") String orgCode, @Param("organization") UCSBOrganization organization, @Param("version") Long version);
+
+  /**
+   * This method deletes an organization in a single statement, without reading it first.
+   * @param orgCode the code of the organization to delete
+   * @param version the version the organization must be at (null to delete it at any version)
+   * @return the number of rows deleted (0 if there is no organization with that code at that version)
+   */
+  @Modifying
+  @Transactional
+  @Query("delete from ucsborganization o where o.orgCode = :orgCode and (:version is null or o.version = :version)")
+  int removeById(@Param("orgCode") String orgCode, @Param("version") Long version);
+}
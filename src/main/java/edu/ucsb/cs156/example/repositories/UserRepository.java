@@ -1,9 +1,15 @@
 package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.User;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -17,4 +23,21 @@ public interface UserRepository extends CrudRepository<User, Long> {
    * @return Optional of User (empty if not found)
    */
   Optional<User> findByEmail(String email);
+
+  /**
+   * This method returns the email addresses of all users marked as admin.
+   * @return list of email addresses
+   */
+  @Query("select u.email from users u where u.admin = true")
+  List<String> findAdminEmails();
+
+  /**
+   * This method marks every user with one of the given email addresses as an admin, in a single update.
+   * @param emails email addresses of the users to promote
+   * @return the number of users that were changed
+   */
+  @Modifying
+  @Transactional
+  @Query("update users u set u.admin = true where u.email in :emails and u.admin = false")
+  int promoteToAdmin(@Param("emails") Collection<String> emails);
 }
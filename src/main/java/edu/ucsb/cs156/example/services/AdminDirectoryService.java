@@ -0,0 +1,97 @@
+package edu.ucsb.cs156.example.services;
+
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * This is a service that answers whether an email address belongs to an admin,
+ * without going to the database.
+ *
+ * The admins are the addresses in {@code app.admin.emails} plus every user marked as admin
+ * in the users table. They are held in an immutable set that is replaced as a whole when it
+ * is rebuilt, so lookups never lock and never see a half-built set.
+ *
+ * When the service is created, before any request is served, the users table is reconciled
+ * with {@code app.admin.emails} in a single update and the set is built from the result.
+ * Admin flags set directly in the database after that are picked up by {@link #refresh()},
+ * which runs every {@code app.admin.refresh-interval}.  When the set changes, the cache of
+ * resolved users is cleared so that their admin flags are read again.
+ */
+
+@Slf4j
+@Service("adminDirectory")
+public class AdminDirectoryService {
+
+  @Autowired
+  UserRepository userRepository;
+
+  // looked up lazily, since the current user service depends on this one
+  @Autowired
+  ObjectProvider<CurrentUserServiceImpl> currentUserService;
+
+  @Value("${app.admin.emails}")
+  final private List<String> adminEmails = new ArrayList<String>();
+
+  private volatile Set<String> admins;
+
+  /**
+   * This method returns whether the given email address belongs to an admin.
+   * @param email email address of the user
+   * @return whether the user with the given email is an admin
+   */
+  public boolean isAdmin(String email) {
+    return email != null && admins.contains(email);
+  }
+
+  /**
+   * This method returns the current set of admin email addresses.
+   * @return an immutable set of email addresses
+   */
+  public Set<String> getAdmins() {
+    return admins;
+  }
+
+  /**
+   * This method marks every existing user listed in {@code app.admin.emails} as an admin,
+   * in one update, and then builds the set of admins.  It runs when the service is created,
+   * so that no login is resolved against an empty set.
+   */
+  @PostConstruct
+  public void reconcile() {
+    if (!adminEmails.isEmpty()) {
+      int promoted = userRepository.promoteToAdmin(adminEmails);
+      log.info("marked {} existing users from app.admin.emails as admin", promoted);
+    }
+    refresh();
+  }
+
+  /**
+   * This method rebuilds the set of admins from {@code app.admin.emails} and the users table.
+   * It runs every {@code app.admin.refresh-interval}, and evicts every cached user if the
+   * set has changed.
+   */
+  @Scheduled(fixedDelayString = "${app.admin.refresh-interval:PT1M}",
+      initialDelayString = "${app.admin.refresh-interval:PT1M}")
+  public void refresh() {
+    Set<String> rebuilt = new HashSet<>(adminEmails);
+    rebuilt.addAll(userRepository.findAdminEmails());
+    Set<String> previous = admins;
+    admins = Set.copyOf(rebuilt);
+    log.info("admin directory has {} entries", admins.size());
+    if (previous != null && !previous.equals(admins)) {
+      currentUserService.ifAvailable(CurrentUserServiceImpl::invalidateAllUsers);
+    }
+  }
+}
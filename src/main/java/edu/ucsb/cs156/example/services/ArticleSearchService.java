@@ -0,0 +1,415 @@
+package edu.ucsb.cs156.example.services;
+
+import edu.ucsb.cs156.example.entities.Articles;
+import edu.ucsb.cs156.example.models.ArticleSearchHit;
+import edu.ucsb.cs156.example.repositories.ArticlesRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * This is a service that searches the title and explanation of articles with
+ * an in-memory inverted index.
+ *
+ * Text is split into lower-case words of letters and digits, with accents
+ * removed. Every word of a query must occur in an article for it to match; the
+ * last word also matches words that start with it, so results can be shown as
+ * the user types. Matches are ranked by TF-IDF: each query word contributes
+ * (1 + ln tf) * ln(1 + N / df), where a word in the title counts
+ * {@value #TITLE_WEIGHT} times, and the sum is divided by the square root of the
+ * article's length. Words matched only as a prefix count half, and a query word
+ * that matches several words of an article counts the best of them.
+ *
+ * The index is built by streaming the articles table once the application has
+ * started, and is then kept current by ArticlesController. Indexing an article
+ * replaces whatever was indexed for it before, under that article's slot in a
+ * ConcurrentHashMap; searches never lock. Requests are served while the index
+ * is being built, so the build skips any article that ArticlesController has
+ * indexed or removed since it began, rather than overwrite it with an older row.
+ * Posting lists are kept sorted by
+ * impact, so a search can usually stop after reading the first few postings of
+ * each word rather than every article that contains it. Words that no longer
+ * occur in any article keep an empty posting list until the next restart.
+ */
+
+@Slf4j
+@Service
+public class ArticleSearchService {
+
+  /**
+   * How many times a word in an article's title counts, relative to one in its explanation.
+   */
+  public static final int TITLE_WEIGHT = 2;
+
+  private static final double PREFIX_WEIGHT = 0.5;
+
+  private static final Pattern ACCENTS = Pattern.compile("\\p{M}+");
+
+  private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+  @Autowired
+  ArticlesRepository articlesRepository;
+
+  @PersistenceContext
+  EntityManager entityManager;
+
+  @Value("${app.articles.search.max-prefix-terms:50}")
+  int maxPrefixTerms;
+
+  private final ConcurrentSkipListMap<String, Term> terms = new ConcurrentSkipListMap<>();
+
+  private final ConcurrentHashMap<Long, Document> documents = new ConcurrentHashMap<>();
+
+  // ids indexed or removed while a rebuild is running, which the rebuild must leave alone
+  private volatile Set<Long> touchedDuringRebuild;
+
+  /**
+   * What is indexed for one article: the fields returned in hits, and its
+   * words in sorted order with the impact of each.
+   */
+  private record Document(long id, String title, String url, String[] words, double[] impacts) {
+
+    double impact(String word) {
+      int i = Arrays.binarySearch(words, word);
+      return i >= 0 ? impacts[i] : 0;
+    }
+  }
+
+  /**
+   * One article in a word's posting list.  The impact is (1 + ln tf) divided by
+   * the square root of the article's length, so a query word contributes its
+   * idf times the impact.
+   */
+  private record Posting(double impact, long id, Document document) {
+
+    static final Comparator<Posting> BY_IMPACT = Comparator.comparingDouble(Posting::impact).reversed()
+        .thenComparingLong(Posting::id);
+  }
+
+  /**
+   * The posting list of one word, highest impact first, and the number of articles in it.
+   */
+  private static final class Term {
+    final NavigableSet<Posting> postings = new ConcurrentSkipListSet<>(Posting.BY_IMPACT);
+    final AtomicInteger articles = new AtomicInteger();
+  }
+
+  /**
+   * A position in the posting list of one indexed word matched by a query word.
+   */
+  private static final class Cursor {
+    final Iterator<Posting> postings;
+    final String word;
+    final double weight;
+    Posting current;
+
+    Cursor(Term term, String word, double weight) {
+      this.postings = term.postings.iterator();
+      this.word = word;
+      this.weight = weight;
+    }
+
+    boolean advance() {
+      current = postings.hasNext() ? postings.next() : null;
+      return current != null;
+    }
+
+    double value() {
+      return weight * current.impact();
+    }
+  }
+
+  /**
+   * One query word: the indexed words it matches, read together from the
+   * highest contribution down.  An article that matches several indexed words
+   * scores the best of them.
+   */
+  private static final class Clause {
+    final List<Cursor> matches = new ArrayList<>();
+    final PriorityQueue<Cursor> heads = new PriorityQueue<>(Comparator.comparingDouble(Cursor::value).reversed()
+        .thenComparingLong(cursor -> cursor.current.id()));
+
+    void add(Cursor cursor) {
+      matches.add(cursor);
+      heads.add(cursor);
+    }
+
+    /** The most any article not yet read from this clause can score on it. */
+    double bound() {
+      return heads.peek().value();
+    }
+
+    Posting next() {
+      Cursor cursor = heads.poll();
+      Posting posting = cursor.current;
+      if (cursor.advance()) {
+        heads.add(cursor);
+      }
+      return posting;
+    }
+
+    double score(Document document) {
+      double score = 0;
+      for (Cursor cursor : matches) {
+        score = Math.max(score, cursor.weight * document.impact(cursor.word));
+      }
+      return score;
+    }
+  }
+
+  /**
+   * This method indexes every article, streaming them from the database.  It runs once the
+   * application has started.  Articles indexed or removed by other requests after it began
+   * are skipped, since what they were given is at least as new as the row streamed here.
+   */
+  @EventListener(ApplicationReadyEvent.class)
+  @Transactional(readOnly = true)
+  public void rebuild() {
+    Set<Long> touched = ConcurrentHashMap.newKeySet();
+    touchedDuringRebuild = touched;
+    long count = 0;
+    try (Stream<Articles> articles = articlesRepository.streamAllByOrderByIdAsc()) {
+      Iterator<Articles> it = articles.iterator();
+      while (it.hasNext()) {
+        Articles article = it.next();
+        Document document = document(article);
+        documents.compute(document.id(), (id, old) -> touched.contains(id) ? old : repost(old, document));
+        entityManager.detach(article);
+        count++;
+      }
+    } finally {
+      touchedDuringRebuild = null;
+    }
+    log.info("indexed {} articles with {} distinct words", count, terms.size());
+  }
+
+  /**
+   * This method adds an article to the index, or re-indexes it if it was already there.
+   * @param article the saved article
+   */
+  public void index(Articles article) {
+    touch(article.getId());
+    Document document = document(article);
+    documents.compute(document.id(), (id, old) -> repost(old, document));
+  }
+
+  /**
+   * This method removes a deleted article from the index.
+   * @param id the id of the deleted article
+   */
+  public void remove(long id) {
+    touch(id);
+    documents.computeIfPresent(id, (key, old) -> {
+      unpost(old);
+      return null;
+    });
+  }
+
+  private void touch(long id) {
+    Set<Long> touched = touchedDuringRebuild;
+    if (touched != null) {
+      touched.add(id);
+    }
+  }
+
+  private static Document document(Articles article) {
+    Map<String, Integer> frequencies = new TreeMap<>();
+    for (String word : tokenize(article.getTitle())) {
+      frequencies.merge(word, TITLE_WEIGHT, Integer::sum);
+    }
+    for (String word : tokenize(article.getExplanation())) {
+      frequencies.merge(word, 1, Integer::sum);
+    }
+    int length = frequencies.values().stream().mapToInt(Integer::intValue).sum();
+    double norm = Math.sqrt(Math.max(1, length));
+    String[] words = frequencies.keySet().toArray(String[]::new);
+    double[] impacts = new double[words.length];
+    for (int i = 0; i < words.length; i++) {
+      impacts[i] = (1 + Math.log(frequencies.get(words[i]))) / norm;
+    }
+    return new Document(article.getId(), article.getTitle(), article.getUrl(), words, impacts);
+  }
+
+  /** Replaces what was posted for an article; call it inside the article's slot in documents. */
+  private Document repost(Document old, Document document) {
+    unpost(old);
+    for (int i = 0; i < document.words().length; i++) {
+      Term term = terms.computeIfAbsent(document.words()[i], w -> new Term());
+      term.postings.add(new Posting(document.impacts()[i], document.id(), document));
+      term.articles.incrementAndGet();
+    }
+    return document;
+  }
+
+  /**
+   * This method returns the articles that best match a query.
+   *
+   * Posting lists are read highest contribution first, a step at a time from
+   * whichever query word could still add the most, and each new article is
+   * scored in full.  The search stops once the worst of the best {@code limit}
+   * articles scores at least the sum of what the next unread posting of each
+   * word could add, or when a word has no postings left, as every article
+   * matching all words has then been seen.
+   *
+   * @param query the words to search for
+   * @param limit the maximum number of articles to return
+   * @return up to limit matching articles, most relevant first
+   */
+  public List<ArticleSearchHit> search(String query, int limit) {
+    List<String> words = tokenize(query);
+    if (words.isEmpty() || limit <= 0) {
+      return List.of();
+    }
+    int articleCount = documents.size();
+    List<Clause> clauses = new ArrayList<>();
+    for (int i = 0; i < words.size(); i++) {
+      Clause clause = clause(words.get(i), i == words.size() - 1, articleCount);
+      if (clause.heads.isEmpty()) {
+        return List.of();
+      }
+      clauses.add(clause);
+    }
+
+    Comparator<ArticleSearchHit> ranking = Comparator.comparingDouble(ArticleSearchHit::getScore).reversed()
+        .thenComparingLong(ArticleSearchHit::getId);
+    PriorityQueue<ArticleSearchHit> best = new PriorityQueue<>(limit + 1, ranking.reversed());
+    Set<Long> seen = new HashSet<>();
+    while (true) {
+      Clause next = null;
+      double threshold = 0;
+      for (Clause clause : clauses) {
+        if (clause.heads.isEmpty()) {
+          return sorted(best, ranking);
+        }
+        threshold += clause.bound();
+        if (next == null || clause.bound() > next.bound()) {
+          next = clause;
+        }
+      }
+      if (best.size() == limit && settled(best.peek(), threshold, clauses)) {
+        return sorted(best, ranking);
+      }
+      Posting posting = next.next();
+      if (seen.add(posting.id())) {
+        offer(best, limit, posting.document(), clauses);
+      }
+    }
+  }
+
+  private Clause clause(String word, boolean prefix, int articleCount) {
+    Clause clause = new Clause();
+    Map<String, Term> matches = prefix
+        ? terms.subMap(word, true, word + Character.MAX_VALUE, false)
+        : terms.subMap(word, true, word, true);
+    for (Map.Entry<String, Term> match : matches.entrySet()) {
+      if (clause.matches.size() >= maxPrefixTerms) {
+        break;
+      }
+      // the count can briefly lag a posting being added
+      double idf = Math.log(1 + (double) articleCount / Math.max(1, match.getValue().articles.get()));
+      Cursor cursor = new Cursor(match.getValue(), match.getKey(),
+          match.getKey().equals(word) ? idf : idf * PREFIX_WEIGHT);
+      if (cursor.advance()) {
+        clause.add(cursor);
+      }
+    }
+    return clause;
+  }
+
+  /**
+   * Whether no unread article can displace the worst of the best articles.  An
+   * unread article scoring exactly the threshold would rank ahead on a lower id;
+   * that can be ruled out only with a single query word, whose postings are read
+   * in order of id among equal contributions.
+   */
+  private static boolean settled(ArticleSearchHit worst, double threshold, List<Clause> clauses) {
+    return worst.getScore() > threshold || (worst.getScore() == threshold && clauses.size() == 1);
+  }
+
+  private static void offer(PriorityQueue<ArticleSearchHit> best, int limit, Document document, List<Clause> clauses) {
+    double score = 0;
+    for (Clause clause : clauses) {
+      double clauseScore = clause.score(document);
+      if (clauseScore == 0) {
+        return;
+      }
+      score += clauseScore;
+    }
+    if (best.size() == limit) {
+      ArticleSearchHit worst = best.peek();
+      if (score < worst.getScore() || (score == worst.getScore() && document.id() > worst.getId())) {
+        return;
+      }
+      best.poll();
+    }
+    best.add(ArticleSearchHit.builder()
+        .id(document.id())
+        .title(document.title())
+        .url(document.url())
+        .score(score)
+        .build());
+  }
+
+  private static List<ArticleSearchHit> sorted(PriorityQueue<ArticleSearchHit> best,
+      Comparator<ArticleSearchHit> ranking) {
+    List<ArticleSearchHit> hits = new ArrayList<>(best);
+    hits.sort(ranking);
+    return hits;
+  }
+
+  private void unpost(Document old) {
+    if (old == null) {
+      return;
+    }
+    for (int i = 0; i < old.words().length; i++) {
+      Term term = terms.get(old.words()[i]);
+      term.postings.remove(new Posting(old.impacts()[i], old.id(), old));
+      term.articles.decrementAndGet();
+    }
+  }
+
+  /**
+   * Splits text into lower-case words of letters and digits, with accents removed.
+   */
+  static List<String> tokenize(String text) {
+    List<String> words = new ArrayList<>();
+    if (text == null) {
+      return words;
+    }
+    String folded = ACCENTS.matcher(Normalizer.normalize(text, Normalizer.Form.NFKD)).replaceAll("")
+        .toLowerCase(Locale.ROOT);
+    for (String word : NON_WORD.split(folded)) {
+      if (!word.isEmpty()) {
+        words.add(word);
+      }
+    }
+    return words;
+  }
+}
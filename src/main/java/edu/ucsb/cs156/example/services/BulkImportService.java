@@ -0,0 +1,229 @@
+package edu.ucsb.cs156.example.services;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import edu.ucsb.cs156.example.models.ImportReport;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * This is a service that bulk imports entities from an uploaded NDJSON or CSV body.
+ *
+ * The body is parsed as a stream, one row at a time, and parsed rows are written in
+ * chunks of {@code app.import.chunk-size}, each in its own transaction, so that
+ * Hibernate can send them to the database as JDBC batches. Only the current chunk is
+ * held in memory. A chunk that fails to write is retried one row at a time so that
+ * the failure is reported against the row that caused it. Every rejected row is
+ * counted, but only the first {@code app.import.max-errors} are reported in detail.
+ *
+ * Any {@code id} or {@code version} field in the upload is ignored; generated ids
+ * are always assigned by the database sequence, and imported rows start at version 0.
+ */
+
+@Slf4j
+@Service
+public class BulkImportService {
+
+  /**
+   * Media type accepted for CSV uploads. The first line must be a header naming the fields.
+   */
+  public static final String TEXT_CSV_VALUE = "text/csv";
+
+  private static final MediaType TEXT_CSV = MediaType.parseMediaType(TEXT_CSV_VALUE);
+
+  @Autowired
+  ObjectMapper mapper;
+
+  @Autowired
+  PlatformTransactionManager transactionManager;
+
+  @Value("${app.import.chunk-size:500}")
+  int chunkSize;
+
+  @Value("${app.import.max-errors:100}")
+  int maxErrors;
+
+  @JsonIgnoreProperties({ "id", "version" })
+  private abstract static class IgnoreGeneratedFields {
+  }
+
+  /**
+   * This method imports every row of the upload into the given repository.
+   * @param <T> the entity type
+   * @param body the upload (not closed by this method)
+   * @param contentType {@code text/csv} for CSV, anything else is read as NDJSON
+   * @param type the entity class
+   * @param repository the repository to save rows with
+   * @return a report of how many rows were imported and which were rejected
+   * @throws IOException if the upload cannot be read
+   */
+  public <T> ImportReport importRows(InputStream body, MediaType contentType, Class<T> type,
+      CrudRepository<T, ?> repository) throws IOException {
+    return importRows(body, contentType, type, repository, saved -> {
+    });
+  }
+
+  /**
+   * This method imports every row of the upload into the given repository.
+   * @param <T> the entity type
+   * @param body the upload (not closed by this method)
+   * @param contentType {@code text/csv} for CSV, anything else is read as NDJSON
+   * @param type the entity class
+   * @param repository the repository to save rows with
+   * @param afterCommit called with each saved entity once its transaction has committed
+   * @return a report of how many rows were imported and which were rejected
+   * @throws IOException if the upload cannot be read
+   */
+  public <T> ImportReport importRows(InputStream body, MediaType contentType, Class<T> type,
+      CrudRepository<T, ?> repository, Consumer<T> afterCommit) throws IOException {
+    ImportReport report = new ImportReport();
+    report.setMaxErrors(maxErrors);
+    ObjectMapper json = mapper.copy()
+        .addMixIn(type, IgnoreGeneratedFields.class)
+        .enable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+    ChunkWriter<T> writer = new ChunkWriter<>(json, type, repository, afterCommit, report);
+
+    if (TEXT_CSV.isCompatibleWith(contentType)) {
+      readCsv(body, type, writer, report);
+    } else {
+      readNdjson(body, json.readerFor(type), writer, report);
+    }
+    writer.flush();
+
+    report.getErrors().sort(Comparator.comparingLong(ImportReport.RowError::getRow));
+    log.info("imported {} of {} {} rows", report.getImported(), report.getReceived(), type.getSimpleName());
+    return report;
+  }
+
+  private <T> void readNdjson(InputStream body, ObjectReader rowReader, ChunkWriter<T> writer,
+      ImportReport report) throws IOException {
+    BufferedReader lines = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+    String line;
+    while ((line = lines.readLine()) != null) {
+      if (line.isBlank()) {
+        continue;
+      }
+      long row = report.getReceived() + 1;
+      report.setReceived(row);
+      try {
+        writer.add(row, rowReader.readValue(line));
+      } catch (JsonProcessingException e) {
+        report.reject(row, e.getOriginalMessage());
+      }
+    }
+  }
+
+  private <T> void readCsv(InputStream body, Class<T> type, ChunkWriter<T> writer,
+      ImportReport report) throws IOException {
+    CsvMapper csv = CsvMapper.builder()
+        .addModule(new JavaTimeModule())
+        .addMixIn(type, IgnoreGeneratedFields.class)
+        .build();
+    ObjectReader rowReader = csv.readerFor(type).with(CsvSchema.emptySchema().withHeader());
+    try (MappingIterator<T> rows = rowReader.readValues(body)) {
+      while (rows.hasNextValue()) {
+        long row = report.getReceived() + 1;
+        report.setReceived(row);
+        try {
+          writer.add(row, rows.nextValue());
+        } catch (JsonProcessingException e) {
+          report.reject(row, e.getOriginalMessage());
+        }
+      }
+    }
+  }
+
+  /**
+   * Buffers parsed rows and saves them a chunk at a time.
+   */
+  private class ChunkWriter<T> {
+    private final ObjectMapper json;
+    private final Class<T> type;
+    private final CrudRepository<T, ?> repository;
+    private final Consumer<T> afterCommit;
+    private final ImportReport report;
+    private final TransactionTemplate transaction;
+    private final List<T> rows = new ArrayList<>();
+    private final List<Long> rowNumbers = new ArrayList<>();
+
+    ChunkWriter(ObjectMapper json, Class<T> type, CrudRepository<T, ?> repository,
+        Consumer<T> afterCommit, ImportReport report) {
+      this.json = json;
+      this.type = type;
+      this.repository = repository;
+      this.afterCommit = afterCommit;
+      this.report = report;
+      this.transaction = new TransactionTemplate(transactionManager);
+    }
+
+    void add(long rowNumber, T row) {
+      rows.add(row);
+      rowNumbers.add(rowNumber);
+      if (rows.size() >= chunkSize) {
+        flush();
+      }
+    }
+
+    void flush() {
+      if (rows.isEmpty()) {
+        return;
+      }
+      try {
+        List<T> saved = transaction.execute(status -> {
+          List<T> result = new ArrayList<>(rows.size());
+          repository.saveAll(rows).forEach(result::add);
+          return result;
+        });
+        committed(saved);
+      } catch (DataAccessException | TransactionException e) {
+        log.warn("chunk of {} {} rows failed, retrying row by row: {}", rows.size(), type.getSimpleName(),
+            e.getMessage());
+        for (int i = 0; i < rows.size(); i++) {
+          // the failed attempt may already have assigned an id, so save a fresh copy
+          T copy = json.convertValue(json.valueToTree(rows.get(i)), type);
+          try {
+            T saved = transaction.execute(status -> repository.save(copy));
+            committed(List.of(saved));
+          } catch (DataAccessException | TransactionException rowFailure) {
+            report.reject(rowNumbers.get(i), NestedExceptionUtils.getMostSpecificCause(rowFailure).getMessage());
+          }
+        }
+      }
+      rows.clear();
+      rowNumbers.clear();
+    }
+
+    private void committed(List<T> saved) {
+      report.setImported(report.getImported() + saved.size());
+      saved.forEach(afterCommit);
+    }
+  }
+}
@@ -0,0 +1,45 @@
+package edu.ucsb.cs156.example.services;
+
+import edu.ucsb.cs156.example.models.CacheStatistics;
+import jakarta.persistence.EntityManagerFactory;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * This is a service that reports hit/miss statistics for the Hibernate
+ * second-level cache regions.
+ */
+
+@Service
+public class CacheStatisticsService {
+
+  @Autowired
+  EntityManagerFactory entityManagerFactory;
+
+  /**
+   * This method returns the statistics of every second-level cache region, in region name order.
+   * @return the statistics of each region
+   */
+  public List<CacheStatistics> getCacheStatistics() {
+    Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    return Arrays.stream(statistics.getSecondLevelCacheRegionNames())
+        .sorted()
+        .map(regionName -> {
+          CacheRegionStatistics region = statistics.getCacheRegionStatistics(regionName);
+          return CacheStatistics.builder()
+              .regionName(regionName)
+              .hitCount(region.getHitCount())
+              .missCount(region.getMissCount())
+              .putCount(region.getPutCount())
+              .build();
+        })
+        .toList();
+  }
+}
@@ -0,0 +1,197 @@
+package edu.ucsb.cs156.example.services;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+
+import edu.ucsb.cs156.example.models.ConnectionBorrow;
+import edu.ucsb.cs156.example.models.ConnectionPoolState;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.sql.DataSource;
+
+import java.sql.SQLException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.LongSupplier;
+
+/**
+ * This is a service that reports the state of the Hikari connection pool and
+ * keeps track of who borrows connections from it.
+ *
+ * Every connection handed out by the application's DataSource is recorded here
+ * (see {@code BorrowTrackingDataSource}) against the controller method whose
+ * request borrowed it. When a connection is returned after being held for longer
+ * than {@code app.datasource.leak-threshold}, a warning naming the borrower is
+ * logged. The last {@code app.datasource.borrow-history} returned borrows are
+ * kept so that the slowest of them can be listed.
+ */
+
+@Slf4j
+@Service
+public class ConnectionPoolService {
+
+  /**
+   * Borrower recorded for connections borrowed outside of a request.
+   */
+  public static final String BACKGROUND = "(background)";
+
+  @Autowired
+  DataSource dataSource;
+
+  @Value("${app.datasource.leak-threshold:PT2S}")
+  Duration leakThreshold;
+
+  @Value("${app.datasource.borrow-history:500}")
+  int historySize;
+
+  Clock clock = Clock.systemUTC();
+
+  LongSupplier nanoTime = System::nanoTime;
+
+  private final Set<Borrow> open = ConcurrentHashMap.newKeySet();
+
+  private final AtomicLong returned = new AtomicLong();
+
+  private AtomicReferenceArray<ConnectionBorrow> recent;
+
+  /**
+   * This method allocates the history of returned borrows once the configuration has been injected.
+   */
+  @PostConstruct
+  public void buildHistory() {
+    recent = new AtomicReferenceArray<>(historySize);
+  }
+
+  /**
+   * A connection that has been borrowed and not yet returned.
+   */
+  public static final class Borrow {
+    private final String borrower;
+    private final String thread;
+    private final Instant borrowedAt;
+    private final long startNanos;
+
+    private Borrow(String borrower, String thread, Instant borrowedAt, long startNanos) {
+      this.borrower = borrower;
+      this.thread = thread;
+      this.borrowedAt = borrowedAt;
+      this.startNanos = startNanos;
+    }
+
+    private ConnectionBorrow toModel(long nowNanos) {
+      return ConnectionBorrow.builder()
+          .borrower(borrower)
+          .thread(thread)
+          .borrowedAt(borrowedAt)
+          .heldMillis((nowNanos - startNanos) / 1e6)
+          .build();
+    }
+  }
+
+  /**
+   * This method records that the current thread has borrowed a connection.
+   * @return the borrow, to be passed to {@link #returned(Borrow)} when the connection is closed
+   */
+  public Borrow borrowed() {
+    Thread current = Thread.currentThread();
+    String thread = current.getName().isEmpty() ? "virtual-" + current.threadId() : current.getName();
+    Borrow borrow = new Borrow(currentBorrower(), thread, clock.instant(), nanoTime.getAsLong());
+    open.add(borrow);
+    return borrow;
+  }
+
+  /**
+   * This method records that a borrowed connection has been returned to the pool.
+   * @param borrow the borrow returned by {@link #borrowed()}
+   */
+  public void returned(Borrow borrow) {
+    if (!open.remove(borrow)) {
+      return;
+    }
+    ConnectionBorrow done = borrow.toModel(nanoTime.getAsLong());
+    recent.set((int) (returned.getAndIncrement() % historySize), done);
+    if (done.getHeldMillis() > leakThreshold.toMillis()) {
+      log.warn("connection held for {} ms by {} on {}", Math.round(done.getHeldMillis()), done.getBorrower(),
+          done.getThread());
+    }
+  }
+
+  /**
+   * This method returns the current state of the pool.
+   * @param limit the maximum number of borrows to list in each of the borrow lists
+   * @return the state of the pool and its longest-held connections
+   */
+  public ConnectionPoolState getState(int limit) {
+    HikariDataSource hikari;
+    try {
+      hikari = dataSource.unwrap(HikariDataSource.class);
+    } catch (SQLException e) {
+      throw new IllegalStateException("the DataSource is not a Hikari connection pool", e);
+    }
+    HikariPoolMXBean pool = hikari.getHikariPoolMXBean();
+    long now = nanoTime.getAsLong();
+
+    List<ConnectionBorrow> heldTooLong = open.stream()
+        .map(borrow -> borrow.toModel(now))
+        .filter(borrow -> borrow.getHeldMillis() > leakThreshold.toMillis())
+        .sorted(Comparator.comparingDouble(ConnectionBorrow::getHeldMillis).reversed())
+        .limit(limit)
+        .toList();
+
+    List<ConnectionBorrow> history = new ArrayList<>(historySize);
+    for (int i = 0; i < historySize; i++) {
+      ConnectionBorrow borrow = recent.get(i);
+      if (borrow != null) {
+        history.add(borrow);
+      }
+    }
+    List<ConnectionBorrow> slowestRecent = history.stream()
+        .sorted(Comparator.comparingDouble(ConnectionBorrow::getHeldMillis).reversed())
+        .limit(limit)
+        .toList();
+
+    return ConnectionPoolState.builder()
+        .maximumPoolSize(hikari.getMaximumPoolSize())
+        .minimumIdle(hikari.getMinimumIdle())
+        .active(pool.getActiveConnections())
+        .idle(pool.getIdleConnections())
+        .total(pool.getTotalConnections())
+        .pending(pool.getThreadsAwaitingConnection())
+        .leakThresholdMillis(leakThreshold.toMillis())
+        .heldTooLong(heldTooLong)
+        .slowestRecent(slowestRecent)
+        .build();
+  }
+
+  /**
+   * Names the controller method handling the current request, if any.
+   */
+  static String currentBorrower() {
+    if (!(RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes)) {
+      return BACKGROUND;
+    }
+    HttpServletRequest request = attributes.getRequest();
+    if (request.getAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE) instanceof HandlerMethod handler) {
+      return handler.getBeanType().getSimpleName() + "." + handler.getMethod().getName();
+    }
+    return request.getMethod() + " " + request.getRequestURI();
+  }
+}
@@ -3,16 +3,26 @@ package edu.ucsb.cs156.example.services;
 import edu.ucsb.cs156.example.entities.User;
 import edu.ucsb.cs156.example.models.CurrentUser;
 import edu.ucsb.cs156.example.repositories.UserRepository;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 
-import java.util.ArrayList;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Collection;
-import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Primary;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.context.SecurityContext;
@@ -37,8 +47,39 @@ public class CurrentUserServiceImpl extends CurrentUserService {
   @Autowired
   GrantedAuthoritiesService grantedAuthoritiesService;
 
-  @Value("${app.admin.emails}")
-  final private List<String> adminEmails = new ArrayList<String>();
+  @Autowired
+  TableVersionService tableVersionService;
+
+  @Autowired
+  AdminDirectoryService adminDirectory;
+
+  @Value("${app.currentuser.cache.max-size:10000}")
+  long cacheMaxSize;
+
+  @Value("${app.currentuser.cache.ttl:PT15M}")
+  Duration cacheTtl;
+
+  @Value("${app.currentuser.profile-sync-interval:PT1H}")
+  Duration profileSyncInterval;
+
+  Clock clock = Clock.systemUTC();
+
+  private AsyncCache<String, CachedUser> usersBySub;
+
+  /**
+   * This method builds the cache of resolved users once the configuration has been injected.
+   *
+   * The cache holds futures rather than users so that the database is never read or
+   * written while the cache's map holds a bin lock; a virtual thread blocked on JDBC
+   * inside that lock would pin its carrier thread.
+   */
+  @PostConstruct
+  public void buildUserCache() {
+    usersBySub = Caffeine.newBuilder()
+        .maximumSize(cacheMaxSize)
+        .expireAfterWrite(cacheTtl)
+        .buildAsync();
+  }
 
   /**
    * This method returns the current user as a User object.
@@ -59,6 +100,11 @@ public class CurrentUserServiceImpl extends CurrentUserService {
    * 
    * This method also has a side effect of storing the user in the database if they are not already there.
    * 
+   * The resolved user is cached by Google subject id, so that repeated calls (e.g. from
+   * {@code /api/currentUser} on every page load) don't query the database. Profile fields from
+   * Google are written back only when they differ from the stored ones, and at most once per
+   * {@code app.currentuser.profile-sync-interval}.
+   * 
    * @param securityContext the security context (provided by Spring)
    * @param authentication the authentication token (provided by Spring)
    * @return the User object representing the current user
@@ -77,19 +123,9 @@ public class CurrentUserServiceImpl extends CurrentUserService {
     String hostedDomain = oAuthUser.getAttribute("hd");
 
     java.util.Map<java.lang.String,java.lang.Object> attrs = oAuthUser.getAttributes();
-    log.info("attrs={}",attrs);
+    log.debug("attrs={}",attrs);
 
-    Optional<User> ou = userRepository.findByEmail(email);
-    if (ou.isPresent()) {
-      User u = ou.get();
-      if (adminEmails.contains(email) && !u.getAdmin()) {
-        u.setAdmin(true);
-        userRepository.save(u);
-      }
-      return u;
-    }
-
-    User u = User.builder()
+    User profile = User.builder()
         .googleSub(googleSub)
         .email(email)
         .pictureUrl(pictureUrl)
@@ -99,10 +135,129 @@ public class CurrentUserServiceImpl extends CurrentUserService {
         .emailVerified(emailVerified)
         .locale(locale)
         .hostedDomain(hostedDomain)
-        .admin(adminEmails.contains(email))
+        .admin(adminDirectory.isAdmin(email))
         .build();
-    userRepository.save(u);
-    return u;
+
+    ConcurrentMap<String, CompletableFuture<CachedUser>> cache = usersBySub.asMap();
+    CompletableFuture<CachedUser> entry = resolve(cache, googleSub, () -> load(profile));
+    CachedUser cached = entry.join();
+    if (cached.syncDue(clock.instant(), profileSyncInterval) && !sameProfile(cached.user(), profile)) {
+      CompletableFuture<CachedUser> synced = CompletableFuture.completedFuture(syncProfile(cached, profile));
+      cache.replace(googleSub, entry, synced);
+      cached = synced.join();
+    }
+    return cached.user();
+  }
+
+  /**
+   * Returns the cached future for a user, or claims the entry with an incomplete future
+   * and runs the loader on the calling thread, outside of any map lock.  Concurrent
+   * callers for the same user wait on the claimed future instead of loading again.
+   */
+  private static CompletableFuture<CachedUser> resolve(ConcurrentMap<String, CompletableFuture<CachedUser>> cache,
+      String googleSub, Supplier<CachedUser> loader) {
+    CompletableFuture<CachedUser> claimed = new CompletableFuture<>();
+    CompletableFuture<CachedUser> existing = cache.putIfAbsent(googleSub, claimed);
+    if (existing != null) {
+      return existing;
+    }
+    try {
+      claimed.complete(loader.get());
+    } catch (RuntimeException e) {
+      cache.remove(googleSub, claimed);
+      claimed.completeExceptionally(e);
+      throw e;
+    }
+    return claimed;
+  }
+
+  /**
+   * This method evicts a user from the cache of resolved users, so that the next request
+   * from that user reads them from the database again.  Call it whenever a user's admin
+   * status is changed outside of this service.
+   * @param googleSub the Google subject id of the user
+   */
+  public void invalidateUser(String googleSub) {
+    usersBySub.synchronous().invalidate(googleSub);
+  }
+
+  /**
+   * This method evicts every user from the cache of resolved users.  The admin directory
+   * calls it whenever the set of admins changes.
+   */
+  public void invalidateAllUsers() {
+    usersBySub.synchronous().invalidateAll();
+  }
+
+  private CachedUser load(User profile) {
+    Optional<User> ou = userRepository.findByEmail(profile.getEmail());
+    if (ou.isPresent()) {
+      return loadExisting(ou.get(), profile);
+    }
+
+    User u;
+    try {
+      u = userRepository.save(profile);
+    } catch (DataIntegrityViolationException e) {
+      // another server inserted this email first (emails are unique); use its row
+      return loadExisting(userRepository.findByEmail(profile.getEmail()).orElseThrow(() -> e), profile);
+    }
+    tableVersionService.bump(User.class);
+    return new CachedUser(u, clock.instant());
+  }
+
+  private CachedUser loadExisting(User u, User profile) {
+    if (profile.getAdmin() && !u.getAdmin()) {
+      u.setAdmin(true);
+      return save(u, profile);
+    }
+    return syncProfile(new CachedUser(u, clock.instant()), profile);
+  }
+
+  private CachedUser syncProfile(CachedUser cached, User profile) {
+    if (sameProfile(cached.user(), profile)) {
+      return new CachedUser(cached.user(), clock.instant());
+    }
+    return save(cached.user(), profile);
+  }
+
+  private CachedUser save(User stored, User profile) {
+    User updated = User.builder()
+        .id(stored.getId())
+        .email(stored.getEmail())
+        .admin(stored.getAdmin())
+        .googleSub(profile.getGoogleSub())
+        .pictureUrl(profile.getPictureUrl())
+        .fullName(profile.getFullName())
+        .givenName(profile.getGivenName())
+        .familyName(profile.getFamilyName())
+        .emailVerified(profile.getEmailVerified())
+        .locale(profile.getLocale())
+        .hostedDomain(profile.getHostedDomain())
+        .build();
+    updated = userRepository.save(updated);
+    tableVersionService.bump(User.class);
+    return new CachedUser(updated, clock.instant());
+  }
+
+  private static boolean sameProfile(User stored, User profile) {
+    return Objects.equals(stored.getGoogleSub(), profile.getGoogleSub())
+        && Objects.equals(stored.getPictureUrl(), profile.getPictureUrl())
+        && Objects.equals(stored.getFullName(), profile.getFullName())
+        && Objects.equals(stored.getGivenName(), profile.getGivenName())
+        && Objects.equals(stored.getFamilyName(), profile.getFamilyName())
+        && stored.getEmailVerified() == profile.getEmailVerified()
+        && Objects.equals(stored.getLocale(), profile.getLocale())
+        && Objects.equals(stored.getHostedDomain(), profile.getHostedDomain());
+  }
+
+  /**
+   * A resolved user, with the time their profile was last compared with Google's.
+   */
+  private record CachedUser(User user, Instant syncedAt) {
+    boolean syncDue(Instant now, Duration interval) {
+      return !now.isBefore(syncedAt.plus(interval));
+    }
   }
 
   /**
@@ -0,0 +1,238 @@
+package edu.ucsb.cs156.example.services;
+
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.models.NearbyDiningCommons;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * This is a service that finds the dining commons nearest to a point, from
+ * k-d trees held in memory.
+ *
+ * Each commons with a latitude and longitude is placed on the unit sphere, where
+ * straight-line (chord) distance orders points the same way as great-circle
+ * distance, so an ordinary three-dimensional k-d tree gives exact nearest
+ * neighbours without special cases at the poles or the date line.
+ *
+ * There is one tree for every combination of amenity filters: each of
+ * hasSackMeal, hasTakeOutMeal and hasDiningCam may be required, excluded or
+ * ignored, giving 27 trees. A query only searches the tree of its filters, so
+ * commons that fail them are never visited. Every commons is in 8 of the trees.
+ *
+ * The trees are built from the ucsbdiningcommons table once the application
+ * has started, and rebuilt by UCSBDiningCommonsController after every write;
+ * the table is small, and a rebuild swaps in a new set of trees without
+ * blocking queries.  Rebuilds take a lock rather than a monitor, so that one
+ * waiting on the database does not pin a virtual thread's carrier.
+ */
+
+@Slf4j
+@Service
+public class DiningCommonsLocationService {
+
+  /**
+   * The mean radius of the Earth, in meters.
+   */
+  public static final double EARTH_RADIUS_METERS = 6_371_008.8;
+
+  private static final int FILTERS = 27;
+
+  @Autowired
+  UCSBDiningCommonsRepository ucsbDiningCommonsRepository;
+
+  private volatile KdTree[] trees = build(List.of());
+
+  // held while rebuilding, so that an older rebuild never replaces the trees of a newer one
+  private final ReentrantLock rebuildLock = new ReentrantLock();
+
+  /**
+   * One neighbour found by a query, and its squared chord distance on the unit sphere.
+   */
+  private record Neighbour(UCSBDiningCommons commons, double chord2) {
+
+    static final Comparator<Neighbour> NEAREST_FIRST = Comparator.comparingDouble(Neighbour::chord2)
+        .thenComparing(neighbour -> neighbour.commons().getCode());
+  }
+
+  /**
+   * A k-d tree stored as an array: the node of range [lo, hi) is at the middle of
+   * the range, split on axis depth % 3, with its left subtree in [lo, mid) and its
+   * right subtree in [mid + 1, hi).
+   */
+  private static final class KdTree {
+    final UCSBDiningCommons[] commons;
+    final double[][] points;
+
+    KdTree(List<UCSBDiningCommons> members) {
+      Integer[] order = new Integer[members.size()];
+      double[][] unordered = new double[members.size()][];
+      for (int i = 0; i < order.length; i++) {
+        order[i] = i;
+        unordered[i] = point(members.get(i).getLatitude(), members.get(i).getLongitude());
+      }
+      split(order, unordered, 0, order.length, 0);
+      commons = new UCSBDiningCommons[order.length];
+      points = new double[order.length][];
+      for (int i = 0; i < order.length; i++) {
+        commons[i] = members.get(order[i]);
+        points[i] = unordered[order[i]];
+      }
+    }
+
+    private static void split(Integer[] order, double[][] points, int lo, int hi, int depth) {
+      if (hi - lo <= 1) {
+        return;
+      }
+      int axis = depth % 3;
+      Arrays.sort(order, lo, hi, Comparator.comparingDouble(i -> points[i][axis]));
+      int mid = (lo + hi) >>> 1;
+      split(order, points, lo, mid, depth + 1);
+      split(order, points, mid + 1, hi, depth + 1);
+    }
+
+    void nearest(double[] target, int k, PriorityQueue<Neighbour> found, int lo, int hi, int depth) {
+      if (lo >= hi) {
+        return;
+      }
+      int mid = (lo + hi) >>> 1;
+      found.add(new Neighbour(commons[mid], chord2(target, points[mid])));
+      if (found.size() > k) {
+        found.poll();
+      }
+      double diff = target[depth % 3] - points[mid][depth % 3];
+      if (diff < 0) {
+        nearest(target, k, found, lo, mid, depth + 1);
+      } else {
+        nearest(target, k, found, mid + 1, hi, depth + 1);
+      }
+      if (found.size() < k || diff * diff <= found.peek().chord2()) {
+        if (diff < 0) {
+          nearest(target, k, found, mid + 1, hi, depth + 1);
+        } else {
+          nearest(target, k, found, lo, mid, depth + 1);
+        }
+      }
+    }
+  }
+
+  /**
+   * This method rebuilds the trees from the ucsbdiningcommons table.  It runs once the
+   * application has started, and after every write to the table.
+   */
+  @EventListener(ApplicationReadyEvent.class)
+  public void rebuild() {
+    rebuildLock.lock();
+    try {
+      List<UCSBDiningCommons> located = new ArrayList<>();
+      for (UCSBDiningCommons commons : ucsbDiningCommonsRepository.findAll()) {
+        if (commons.getLatitude() != null && commons.getLongitude() != null) {
+          located.add(commons);
+        }
+      }
+      trees = build(located);
+      log.info("indexed the locations of {} dining commons", located.size());
+    } finally {
+      rebuildLock.unlock();
+    }
+  }
+
+  /**
+   * This method returns the dining commons nearest to a point.
+   * @param latitude latitude of the point, in degrees
+   * @param longitude longitude of the point, in degrees
+   * @param k the maximum number of commons to return
+   * @param hasSackMeal if not null, only commons whose hasSackMeal is this value
+   * @param hasTakeOutMeal if not null, only commons whose hasTakeOutMeal is this value
+   * @param hasDiningCam if not null, only commons whose hasDiningCam is this value
+   * @return up to k commons, nearest first
+   */
+  public List<NearbyDiningCommons> nearest(double latitude, double longitude, int k,
+      Boolean hasSackMeal, Boolean hasTakeOutMeal, Boolean hasDiningCam) {
+    if (k <= 0) {
+      return List.of();
+    }
+    KdTree tree = trees[filter(hasSackMeal, hasTakeOutMeal, hasDiningCam)];
+    PriorityQueue<Neighbour> found = new PriorityQueue<>(k + 1, Neighbour.NEAREST_FIRST.reversed());
+    tree.nearest(point(latitude, longitude), k, found, 0, tree.commons.length, 0);
+
+    List<Neighbour> nearestFirst = new ArrayList<>(found);
+    nearestFirst.sort(Neighbour.NEAREST_FIRST);
+    return nearestFirst.stream().map(DiningCommonsLocationService::toNearby).toList();
+  }
+
+  private static NearbyDiningCommons toNearby(Neighbour neighbour) {
+    UCSBDiningCommons commons = neighbour.commons();
+    return NearbyDiningCommons.builder()
+        .code(commons.getCode())
+        .name(commons.getName())
+        .hasSackMeal(commons.getHasSackMeal())
+        .hasTakeOutMeal(commons.getHasTakeOutMeal())
+        .hasDiningCam(commons.getHasDiningCam())
+        .latitude(commons.getLatitude())
+        .longitude(commons.getLongitude())
+        .distanceMeters(2 * EARTH_RADIUS_METERS * Math.asin(Math.min(1, Math.sqrt(neighbour.chord2()) / 2)))
+        .build();
+  }
+
+  private static KdTree[] build(List<UCSBDiningCommons> located) {
+    List<List<UCSBDiningCommons>> members = new ArrayList<>();
+    for (int i = 0; i < FILTERS; i++) {
+      members.add(new ArrayList<>());
+    }
+    for (UCSBDiningCommons commons : located) {
+      for (Boolean sack : options(commons.getHasSackMeal())) {
+        for (Boolean takeOut : options(commons.getHasTakeOutMeal())) {
+          for (Boolean cam : options(commons.getHasDiningCam())) {
+            members.get(filter(sack, takeOut, cam)).add(commons);
+          }
+        }
+      }
+    }
+    KdTree[] built = new KdTree[FILTERS];
+    for (int i = 0; i < FILTERS; i++) {
+      built[i] = new KdTree(members.get(i));
+    }
+    return built;
+  }
+
+  /** The filter values a commons with this flag passes: ignoring the flag, or matching it. */
+  private static Boolean[] options(boolean flag) {
+    return new Boolean[] { null, flag };
+  }
+
+  private static int filter(Boolean hasSackMeal, Boolean hasTakeOutMeal, Boolean hasDiningCam) {
+    return 9 * option(hasSackMeal) + 3 * option(hasTakeOutMeal) + option(hasDiningCam);
+  }
+
+  private static int option(Boolean flag) {
+    if (flag == null) {
+      return 0;
+    }
+    return flag ? 1 : 2;
+  }
+
+  private static double[] point(double latitude, double longitude) {
+    double phi = Math.toRadians(latitude);
+    double lambda = Math.toRadians(longitude);
+    return new double[] { Math.cos(phi) * Math.cos(lambda), Math.cos(phi) * Math.sin(lambda), Math.sin(phi) };
+  }
+
+  private static double chord2(double[] a, double[] b) {
+    double dx = a[0] - b[0];
+    double dy = a[1] - b[1];
+    double dz = a[2] - b[2];
+    return dx * dx + dy * dy + dz * dz;
+  }
+}
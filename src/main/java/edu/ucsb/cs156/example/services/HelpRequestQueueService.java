@@ -0,0 +1,214 @@
+package edu.ucsb.cs156.example.services;
+
+import edu.ucsb.cs156.example.entities.HelpRequest;
+import edu.ucsb.cs156.example.models.HelpRequestEvent;
+import edu.ucsb.cs156.example.repositories.HelpRequestRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * This is a service that pushes the live queue of unsolved help requests to
+ * subscribers over Server-Sent Events.
+ *
+ * A new subscriber first receives a "snapshot" event with every unsolved help
+ * request, and after that only the changes published by the write paths of
+ * HelpRequestController.
+ *
+ * Publishing never blocks the calling request thread: each subscriber has a
+ * small buffer of pending events, keyed by help request id so that repeated
+ * changes to the same request are coalesced, and the buffer is drained on a
+ * pool of {@code app.helprequest.queue.senders} threads of the service's own.
+ * A send blocks while a slow subscriber's connection is full, so the pool is
+ * kept apart from the application task executor: slow subscribers can only
+ * delay each other. Each subscriber has at most one drain queued or running,
+ * so the pool's queue is bounded by the number of subscribers.
+ * If a slow subscriber's buffer overflows, its pending events
+ * are dropped and it is sent a fresh snapshot instead. A change to many help
+ * requests at once (a bulk solve) is published the same way, as one snapshot.
+ */
+
+@Slf4j
+@Service
+public class HelpRequestQueueService {
+
+  @Autowired
+  HelpRequestRepository helpRequestRepository;
+
+  @Value("${app.helprequest.queue.senders:4}")
+  int senders;
+
+  @Value("${app.helprequest.queue.timeout-ms:1800000}")
+  long timeoutMs;
+
+  @Value("${app.helprequest.queue.max-pending:256}")
+  int maxPending;
+
+  private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+
+  TaskExecutor taskExecutor;
+
+  private ThreadPoolTaskExecutor senderPool;
+
+  /**
+   * This method starts the threads that send events to subscribers.
+   */
+  @PostConstruct
+  public void startSenders() {
+    senderPool = new ThreadPoolTaskExecutor();
+    senderPool.setCorePoolSize(senders);
+    senderPool.setMaxPoolSize(senders);
+    senderPool.setThreadNamePrefix("helprequest-queue-");
+    senderPool.initialize();
+    taskExecutor = senderPool;
+  }
+
+  /**
+   * This method stops the threads that send events to subscribers.
+   */
+  @PreDestroy
+  public void stopSenders() {
+    senderPool.shutdown();
+  }
+
+  /**
+   * This method registers a new subscriber to the live queue.
+   * @return the emitter for the subscriber's event stream
+   */
+  public SseEmitter subscribe() {
+    SseEmitter emitter = new SseEmitter(timeoutMs);
+    Subscriber subscriber = new Subscriber(emitter);
+    emitter.onCompletion(() -> subscribers.remove(subscriber));
+    emitter.onTimeout(() -> subscribers.remove(subscriber));
+    emitter.onError(e -> subscribers.remove(subscriber));
+    subscribers.add(subscriber);
+    subscriber.requestSnapshot();
+    return emitter;
+  }
+
+  /**
+   * This method publishes a change to every subscriber. It returns immediately;
+   * the event is delivered asynchronously.
+   * @param event the change to publish
+   */
+  public void publish(HelpRequestEvent event) {
+    for (Subscriber subscriber : subscribers) {
+      subscriber.offer(event);
+    }
+  }
+
+  /**
+   * This method sends every subscriber a fresh snapshot in place of its pending
+   * events, for a change to many help requests at once that would otherwise need
+   * an event per request. It returns immediately; the snapshot is delivered asynchronously.
+   */
+  public void publishSnapshot() {
+    for (Subscriber subscriber : subscribers) {
+      subscriber.requestSnapshot();
+    }
+  }
+
+  /**
+   * This method returns the number of current subscribers.
+   * @return the number of subscribers
+   */
+  public int getSubscriberCount() {
+    return subscribers.size();
+  }
+
+  private class Subscriber {
+    private final SseEmitter emitter;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<Long, HelpRequestEvent> pending = new LinkedHashMap<>();
+    private final AtomicBoolean draining = new AtomicBoolean(false);
+    private boolean snapshotRequested;
+
+    Subscriber(SseEmitter emitter) {
+      this.emitter = emitter;
+    }
+
+    void requestSnapshot() {
+      lock.lock();
+      try {
+        pending.clear();
+        snapshotRequested = true;
+      } finally {
+        lock.unlock();
+      }
+      scheduleDrain();
+    }
+
+    void offer(HelpRequestEvent event) {
+      lock.lock();
+      try {
+        if (!snapshotRequested) {
+          // re-inserting moves the id to the end, so coalesced events keep their latest position
+          pending.remove(event.getId());
+          pending.put(event.getId(), event);
+          if (pending.size() > maxPending) {
+            log.warn("help request queue subscriber fell behind; dropping {} events", pending.size());
+            pending.clear();
+            snapshotRequested = true;
+          }
+        }
+      } finally {
+        lock.unlock();
+      }
+      scheduleDrain();
+    }
+
+    private void scheduleDrain() {
+      if (draining.compareAndSet(false, true)) {
+        taskExecutor.execute(this::drain);
+      }
+    }
+
+    private void drain() {
+      try {
+        while (true) {
+          boolean sendSnapshot;
+          List<HelpRequestEvent> batch;
+          lock.lock();
+          try {
+            sendSnapshot = snapshotRequested;
+            snapshotRequested = false;
+            batch = new ArrayList<>(pending.values());
+            pending.clear();
+            if (!sendSnapshot && batch.isEmpty()) {
+              draining.set(false);
+              return;
+            }
+          } finally {
+            lock.unlock();
+          }
+          if (sendSnapshot) {
+            List<HelpRequest> unsolved = helpRequestRepository.findBySolvedFalseOrderByRequestTimeAsc();
+            emitter.send(SseEmitter.event().name("snapshot").data(unsolved));
+          }
+          for (HelpRequestEvent event : batch) {
+            emitter.send(SseEmitter.event().name(event.getType().name().toLowerCase()).data(event));
+          }
+        }
+      } catch (IOException | RuntimeException e) {
+        log.info("dropping help request queue subscriber: {}", e.toString());
+        subscribers.remove(this);
+        emitter.completeWithError(e);
+      }
+    }
+  }
+}
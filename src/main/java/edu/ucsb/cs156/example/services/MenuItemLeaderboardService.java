@@ -0,0 +1,225 @@
+package edu.ucsb.cs156.example.services;
+
+import edu.ucsb.cs156.example.entities.MenuItemRating;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItem;
+import edu.ucsb.cs156.example.models.MenuItemRanking;
+import edu.ucsb.cs156.example.repositories.MenuItemRatingRepository;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsMenuItemRepository;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.UnaryOperator;
+
+/**
+ * This is a service that ranks menu items by the Bayesian average of their
+ * review stars, and answers from memory.
+ *
+ * An item's score is (C * m + sum of stars) / (C + number of reviews), where m is
+ * {@code app.menuitemreview.leaderboard.prior-mean} and C is
+ * {@code app.menuitemreview.leaderboard.prior-weight}: an item is pulled towards m
+ * until it has about C reviews of its own. Because m is fixed, a review changes the
+ * score of its own item only, so the ranking can be kept current one item at a time.
+ *
+ * Every reviewed menu item has one entry, kept in a skip list ordered by score and
+ * in a second one for its dining commons; the top n are the first n entries. A change
+ * to an item replaces its entry while holding only that item's slot in a
+ * ConcurrentHashMap, so writes to different items do not wait on each other and reads
+ * never lock (a read that races with a change may miss the item being changed).
+ *
+ * The entries are loaded from the menuitemrating and ucsbdiningcommonsmenuitem tables
+ * once the application has started, and are then kept current by MenuItemRatingService
+ * and UCSBDiningCommonsMenuItemController. Reviews of ids that are not menu items are
+ * counted but not ranked.
+ *
+ * Ratings are always read from the menuitemrating table, never adjusted by deltas:
+ * after a review commits, its item's summary is read again. Every read takes a stamp
+ * from a counter before it starts, and an entry only takes a rating read with a later
+ * stamp than the one it holds. A read that started later has seen at least the same
+ * commits, so neither a reload racing with reviews (including the one at startup) nor
+ * two reviews of the same item can leave an entry with an older summary than the
+ * last one read.
+ */
+
+@Slf4j
+@Service
+public class MenuItemLeaderboardService {
+
+  @Autowired
+  MenuItemRatingRepository menuItemRatingRepository;
+
+  @Autowired
+  UCSBDiningCommonsMenuItemRepository ucsbDiningCommonsMenuItemRepository;
+
+  @Value("${app.menuitemreview.leaderboard.prior-mean:3.0}")
+  double priorMean;
+
+  @Value("${app.menuitemreview.leaderboard.prior-weight:5}")
+  double priorWeight;
+
+  private final ConcurrentHashMap<Long, Entry> entries = new ConcurrentHashMap<>();
+
+  private final NavigableSet<Entry> overall = new ConcurrentSkipListSet<>(Entry.RANKING);
+
+  private final ConcurrentHashMap<String, NavigableSet<Entry>> byCommons = new ConcurrentHashMap<>();
+
+  private final AtomicLong readings = new AtomicLong();
+
+  /**
+   * What is known about one item; replaced as a whole, never changed.
+   * The menu item fields are null when the id is not a menu item, and
+   * readAt is the stamp of the read its rating came from.
+   */
+  private record Entry(long itemId, String diningCommonsCode, String name, String station, boolean menuItem,
+      long reviewCount, long starsSum, double score, long readAt) {
+
+    static final Comparator<Entry> RANKING = Comparator.comparingDouble(Entry::score).reversed()
+        .thenComparing(Comparator.comparingLong(Entry::reviewCount).reversed())
+        .thenComparingLong(Entry::itemId);
+
+    boolean ranked() {
+      return menuItem && reviewCount > 0;
+    }
+  }
+
+  /**
+   * This method loads every menu item and rating summary.  It runs once the application has started.
+   */
+  @EventListener(ApplicationReadyEvent.class)
+  public void load() {
+    ucsbDiningCommonsMenuItemRepository.findAll().forEach(this::itemSaved);
+    refreshRatings();
+    log.info("menu item leaderboard has {} ranked items", overall.size());
+  }
+
+  /**
+   * This method returns the highest scoring menu items.
+   * @param n the number of items to return
+   * @param diningCommonsCode the dining commons to rank items of, or null to rank all items
+   * @return up to n items, best first
+   */
+  public List<MenuItemRanking> getTop(int n, String diningCommonsCode) {
+    NavigableSet<Entry> ranking = (diningCommonsCode == null) ? overall : byCommons.get(diningCommonsCode);
+    List<MenuItemRanking> top = new ArrayList<>();
+    if (ranking == null) {
+      return top;
+    }
+    for (Entry entry : ranking) {
+      if (top.size() >= n) {
+        break;
+      }
+      top.add(MenuItemRanking.builder()
+          .rank(top.size() + 1)
+          .itemId(entry.itemId())
+          .diningCommonsCode(entry.diningCommonsCode())
+          .name(entry.name())
+          .station(entry.station())
+          .reviewCount(entry.reviewCount())
+          .averageStars((double) entry.starsSum() / entry.reviewCount())
+          .score(entry.score())
+          .build());
+    }
+    return top;
+  }
+
+  /**
+   * This method reads an item's rating summary again after it has changed.  Call it once the
+   * change has committed.
+   * @param itemId the item id
+   */
+  public void ratingChanged(long itemId) {
+    long readAt = readings.incrementAndGet();
+    refresh(List.of(itemId), menuItemRatingRepository.findAllById(List.of(itemId)), readAt);
+  }
+
+  /**
+   * This method reloads the rating summaries of the given items, e.g. after they have been rebuilt.
+   * @param itemIds the item ids
+   */
+  public void refreshRatings(Collection<Long> itemIds) {
+    long readAt = readings.incrementAndGet();
+    refresh(itemIds, menuItemRatingRepository.findAllById(itemIds), readAt);
+  }
+
+  /**
+   * This method reloads every rating summary, e.g. after they have all been rebuilt.
+   */
+  public void refreshRatings() {
+    long readAt = readings.incrementAndGet();
+    Set<Long> itemIds = new HashSet<>(entries.keySet());
+    Iterable<MenuItemRating> ratings = menuItemRatingRepository.findAll();
+    ratings.forEach(rating -> itemIds.add(rating.getItemId()));
+    refresh(itemIds, ratings, readAt);
+  }
+
+  /**
+   * This method records that a menu item has been created or changed.
+   * @param item the saved menu item
+   */
+  public void itemSaved(UCSBDiningCommonsMenuItem item) {
+    update(item.getId(), e -> new Entry(e.itemId(), item.getDiningCommonsCode(), item.getName(), item.getStation(), true,
+        e.reviewCount(), e.starsSum(), e.score(), e.readAt()));
+  }
+
+  /**
+   * This method records that a menu item has been deleted; its reviews are kept but no longer ranked.
+   * @param itemId the id of the deleted menu item
+   */
+  public void itemRemoved(long itemId) {
+    update(itemId, e -> new Entry(e.itemId(), null, null, null, false, e.reviewCount(), e.starsSum(), e.score(), e.readAt()));
+  }
+
+  private void refresh(Collection<Long> itemIds, Iterable<MenuItemRating> ratings, long readAt) {
+    Map<Long, MenuItemRating> found = new HashMap<>();
+    ratings.forEach(rating -> found.put(rating.getItemId(), rating));
+    for (Long itemId : itemIds) {
+      MenuItemRating rating = found.get(itemId);
+      long reviewCount = (rating == null) ? 0 : rating.getReviewCount();
+      long starsSum = (rating == null) ? 0 : rating.getStarsSum();
+      // a rating read after this one has already been applied, and is at least as new
+      update(itemId, e -> e.readAt() > readAt ? e : scored(e, reviewCount, starsSum, readAt));
+    }
+  }
+
+  private Entry scored(Entry e, long reviewCount, long starsSum, long readAt) {
+    double score = (priorWeight * priorMean + starsSum) / (priorWeight + reviewCount);
+    return new Entry(e.itemId(), e.diningCommonsCode(), e.name(), e.station(), e.menuItem(), reviewCount, starsSum, score,
+        readAt);
+  }
+
+  private void update(long itemId, UnaryOperator<Entry> change) {
+    entries.compute(itemId, (id, old) -> {
+      Entry current = (old != null) ? old : scored(new Entry(id, null, null, null, false, 0, 0, 0, 0), 0, 0, 0);
+      Entry next = change.apply(current);
+      if (old != null && old.ranked()) {
+        overall.remove(old);
+        if (old.diningCommonsCode() != null) {
+          byCommons.get(old.diningCommonsCode()).remove(old);
+        }
+      }
+      if (next.ranked()) {
+        overall.add(next);
+        if (next.diningCommonsCode() != null) {
+          byCommons.computeIfAbsent(next.diningCommonsCode(), code -> new ConcurrentSkipListSet<>(Entry.RANKING)).add(next);
+        }
+      }
+      return (next.menuItem() || next.reviewCount() != 0) ? next : null;
+    });
+  }
+}
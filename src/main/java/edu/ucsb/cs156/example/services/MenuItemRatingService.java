@@ -0,0 +1,240 @@
+package edu.ucsb.cs156.example.services;
+
+import edu.ucsb.cs156.example.entities.MenuItemRating;
+import edu.ucsb.cs156.example.entities.MenuItemReview;
+import edu.ucsb.cs156.example.models.RatingRebuildReport;
+import edu.ucsb.cs156.example.repositories.MenuItemRatingRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This is a service that maintains the rating summary (MenuItemRating) of each
+ * menu item as its reviews are added, changed and removed.
+ *
+ * The review* methods must be called in the same transaction as the change to
+ * the review, so that the summary commits or rolls back with it. Counts are
+ * changed with a single relative update, so concurrent reviews of the same item
+ * are never lost. The summary row of an item is created on its first review,
+ * in the same transaction, by an insert that does nothing if a concurrent review
+ * created it first, so a review never needs a second connection. Once the
+ * transaction commits, MenuItemLeaderboardService reads the item's summary again.
+ *
+ * The rebuild methods recompute summaries from scratch, a chunk of items at a
+ * time, with up to {@code app.menuitemrating.rebuild.parallelism} chunks in
+ * parallel on the application task executor. A rebuild is not isolated from reviews written while it runs; run it
+ * again if that matters.
+ */
+
+@Slf4j
+@Service
+public class MenuItemRatingService {
+
+  @Autowired
+  MenuItemRatingRepository menuItemRatingRepository;
+
+  @Autowired
+  PlatformTransactionManager transactionManager;
+
+  @Autowired
+  MenuItemLeaderboardService menuItemLeaderboardService;
+
+  @Autowired
+  TaskExecutor taskExecutor;
+
+  @PersistenceContext
+  EntityManager entityManager;
+
+  @Value("${app.menuitemrating.rebuild.chunk-size:500}")
+  int chunkSize;
+
+  @Value("${app.menuitemrating.rebuild.parallelism:4}")
+  int parallelism;
+
+  private TransactionTemplate chunkTransaction;
+
+  /**
+   * This method builds the transaction template once the transaction manager has been injected.
+   */
+  @PostConstruct
+  public void buildTransactionTemplates() {
+    chunkTransaction = new TransactionTemplate(transactionManager);
+  }
+
+  /**
+   * This method returns the rating summary of an item.
+   * @param itemId the item id
+   * @return the summary, with every count zero if the item has no reviews
+   */
+  public MenuItemRating getRating(long itemId) {
+    return menuItemRatingRepository.findById(itemId)
+        .orElseGet(() -> MenuItemRating.builder().itemId(itemId).build());
+  }
+
+  /**
+   * This method adds a new review to its item's summary.  Call it in the transaction
+   * that saves the review.
+   * @param review the new review
+   */
+  public void reviewAdded(MenuItemReview review) {
+    if (review.getItemId() == null) {
+      return;
+    }
+    menuItemRatingRepository.createIfMissing(review.getItemId());
+    MenuItemRating delta = delta(review, 1);
+    menuItemRatingRepository.addToCounts(delta);
+    afterCommit(() -> menuItemLeaderboardService.ratingChanged(review.getItemId()));
+    if (review.getDateReviewed() != null) {
+      menuItemRatingRepository.advanceLastReviewed(review.getItemId(), review.getDateReviewed());
+    }
+  }
+
+  /**
+   * This method removes a deleted review from its item's summary.  Call it after the
+   * review has been deleted.
+   * @param review the deleted review
+   */
+  public void reviewRemoved(MenuItemReview review) {
+    if (review.getItemId() == null) {
+      return;
+    }
+    MenuItemRating delta = delta(review, -1);
+    menuItemRatingRepository.addToCounts(delta);
+    menuItemRatingRepository.recomputeLastReviewed(review.getItemId());
+    afterCommit(() -> menuItemLeaderboardService.ratingChanged(review.getItemId()));
+  }
+
+  /**
+   * This method moves a changed review from its old values to its new ones.  Call it after
+   * the review has been saved.
+   * @param before a copy of the review as it was before the change
+   * @param after the review as saved
+   */
+  public void reviewChanged(MenuItemReview before, MenuItemReview after) {
+    if (Objects.equals(before.getItemId(), after.getItemId())
+        && before.getStars() == after.getStars()
+        && Objects.equals(before.getDateReviewed(), after.getDateReviewed())) {
+      return;
+    }
+    reviewRemoved(before);
+    reviewAdded(after);
+  }
+
+  /**
+   * This method recomputes the summary of every reviewed item, and deletes the summaries
+   * of items that no longer have reviews.
+   * @return a report of how many items and reviews were summarized
+   */
+  public RatingRebuildReport rebuildAll() {
+    long start = System.nanoTime();
+    RatingRebuildReport report = rebuildChunks(menuItemRatingRepository.findReviewedItemIds());
+    report.setRemoved(chunkTransaction.execute(status -> menuItemRatingRepository.deleteUnreviewed()));
+    menuItemLeaderboardService.refreshRatings();
+    report.setMillis((System.nanoTime() - start) / 1_000_000);
+    log.info("rebuilt menu item ratings: {}", report);
+    return report;
+  }
+
+  /**
+   * This method recomputes the summaries of the given items, e.g. after reviews of
+   * them have been bulk imported.
+   * @param itemIds the item ids
+   * @return a report of how many items and reviews were summarized
+   */
+  public RatingRebuildReport rebuild(Collection<Long> itemIds) {
+    long start = System.nanoTime();
+    List<Long> distinct = itemIds.stream().filter(Objects::nonNull).distinct().toList();
+    RatingRebuildReport report = rebuildChunks(distinct);
+    menuItemLeaderboardService.refreshRatings(distinct);
+    report.setMillis((System.nanoTime() - start) / 1_000_000);
+    return report;
+  }
+
+  private RatingRebuildReport rebuildChunks(List<Long> itemIds) {
+    List<List<Long>> chunks = new ArrayList<>();
+    for (int from = 0; from < itemIds.size(); from += chunkSize) {
+      chunks.add(itemIds.subList(from, Math.min(from + chunkSize, itemIds.size())));
+    }
+    RatingRebuildReport report = RatingRebuildReport.builder().chunks(chunks.size()).build();
+    // each worker takes the next chunk until none are left, so at most `parallelism` run at once
+    AtomicInteger next = new AtomicInteger();
+    List<CompletableFuture<RatingRebuildReport>> workers = new ArrayList<>();
+    for (int i = 0; i < Math.min(parallelism, chunks.size()); i++) {
+      workers.add(CompletableFuture.supplyAsync(() -> {
+        RatingRebuildReport done = RatingRebuildReport.builder().build();
+        for (int chunk = next.getAndIncrement(); chunk < chunks.size(); chunk = next.getAndIncrement()) {
+          RatingRebuildReport rebuilt = rebuildChunk(chunks.get(chunk));
+          done.setItems(done.getItems() + rebuilt.getItems());
+          done.setReviews(done.getReviews() + rebuilt.getReviews());
+        }
+        return done;
+      }, taskExecutor));
+    }
+    for (CompletableFuture<RatingRebuildReport> worker : workers) {
+      RatingRebuildReport done = worker.join();
+      report.setItems(report.getItems() + done.getItems());
+      report.setReviews(report.getReviews() + done.getReviews());
+    }
+    return report;
+  }
+
+  private RatingRebuildReport rebuildChunk(List<Long> itemIds) {
+    return chunkTransaction.execute(status -> {
+      menuItemRatingRepository.deleteByItemIds(itemIds);
+      List<MenuItemRating> ratings = menuItemRatingRepository.computeRatings(itemIds);
+      long reviews = 0;
+      for (MenuItemRating rating : ratings) {
+        entityManager.persist(rating);
+        reviews += rating.getReviewCount();
+      }
+      return RatingRebuildReport.builder()
+          .items(ratings.size())
+          .reviews(reviews)
+          .build();
+    });
+  }
+
+  private static void afterCommit(Runnable action) {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      action.run();
+      return;
+    }
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+      @Override
+      public void afterCommit() {
+        action.run();
+      }
+    });
+  }
+
+  private static MenuItemRating delta(MenuItemReview review, int sign) {
+    int stars = review.getStars();
+    return MenuItemRating.builder()
+        .itemId(review.getItemId())
+        .reviewCount(sign)
+        .starsSum((long) sign * stars)
+        .oneStar(stars == 1 ? sign : 0)
+        .twoStars(stars == 2 ? sign : 0)
+        .threeStars(stars == 3 ? sign : 0)
+        .fourStars(stars == 4 ? sign : 0)
+        .fiveStars(stars == 5 ? sign : 0)
+        .build();
+  }
+}
@@ -0,0 +1,66 @@
+package edu.ucsb.cs156.example.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import edu.ucsb.cs156.example.entities.MenuItemReview;
+import edu.ucsb.cs156.example.repositories.MenuItemReviewRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * This is a service that exports menu item reviews as newline-delimited JSON.
+ *
+ * Reviews are read from a database cursor and each one is detached from the
+ * persistence context as soon as it has been written, so memory use does not
+ * grow with the size of the table.
+ */
+
+@Slf4j
+@Service
+public class MenuItemReviewExportService {
+
+  @Autowired
+  MenuItemReviewRepository menuItemReviewRepository;
+
+  @Autowired
+  ObjectMapper mapper;
+
+  @PersistenceContext
+  EntityManager entityManager;
+
+  /**
+   * This method writes every review to the given stream, one JSON object per line.
+   * @param out the stream to write to (not closed by this method)
+   * @return the number of reviews written
+   * @throws IOException if writing to the stream fails
+   */
+  @Transactional(readOnly = true)
+  public long writeNdjson(OutputStream out) throws IOException {
+    ObjectWriter writer = mapper.writerFor(MenuItemReview.class);
+    long count = 0;
+    try (Stream<MenuItemReview> reviews = menuItemReviewRepository.streamAllByOrderByIdAsc()) {
+      Iterator<MenuItemReview> it = reviews.iterator();
+      while (it.hasNext()) {
+        MenuItemReview review = it.next();
+        out.write(writer.writeValueAsBytes(review));
+        out.write('\n');
+        entityManager.detach(review);
+        count++;
+      }
+    }
+    out.flush();
+    log.info("exported {} menu item reviews", count);
+    return count;
+  }
+}
@@ -0,0 +1,163 @@
+package edu.ucsb.cs156.example.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import edu.ucsb.cs156.example.errors.InvalidPatchException;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.CriteriaUpdate;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.metamodel.EntityType;
+import jakarta.persistence.metamodel.SingularAttribute;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This is a service that applies JSON merge patches (RFC 7396) to entities.
+ *
+ * A patch is a JSON object naming the fields to change; a field set to null is
+ * cleared. The patch is applied with a single UPDATE statement that sets only the
+ * columns named in the patch, without reading the row first, so a client that
+ * toggles one flag sends and writes one column rather than the whole entity.
+ * Nested objects are not supported, since none of the entities have any.
+ *
+ * The id and version fields cannot be patched. Every patch increments the
+ * version, and a patch can be made conditional on the version the client read,
+ * so that it is refused rather than applied over someone else's change. A patch
+ * that names an unknown field, gives a field a value of the wrong type, or clears
+ * a field that cannot be null is rejected with an InvalidPatchException before
+ * anything is written.
+ */
+
+@Service
+public class MergePatchService {
+
+  /**
+   * Media type of a JSON merge patch request body.
+   */
+  public static final String APPLICATION_MERGE_PATCH_JSON_VALUE = "application/merge-patch+json";
+
+  @Autowired
+  ObjectMapper mapper;
+
+  @PersistenceContext
+  EntityManager entityManager;
+
+  /**
+   * This method applies a merge patch to the entity with the given id.
+   * @param <T> the entity type
+   * @param type the entity class
+   * @param id the id of the entity to patch
+   * @param patch the merge patch
+   * @param version the version the entity must be at (null to patch it at any version)
+   * @return the number of rows changed (0 if there is no entity with that id at that version)
+   */
+  @Transactional
+  public <T> int patch(Class<T> type, Object id, JsonNode patch, Long version) {
+    return update(type, id, patch, Map.of(), version);
+  }
+
+  /**
+   * This method applies a merge patch to the entity with the given id, but only if
+   * one of its fields currently has the expected value, so that the caller learns
+   * whether this patch is the one that changed it.
+   * @param <T> the entity type
+   * @param type the entity class
+   * @param id the id of the entity to patch
+   * @param patch the merge patch
+   * @param field the field to check
+   * @param expected the value the field must have for the patch to be applied
+   * @param version the version the entity must be at (null to patch it at any version)
+   * @return the number of rows changed (0 if there is no entity with that id, field value and version)
+   */
+  @Transactional
+  public <T> int patchIf(Class<T> type, Object id, JsonNode patch, String field, Object expected, Long version) {
+    return update(type, id, patch, Map.of(field, expected), version);
+  }
+
+  private <T> int update(Class<T> type, Object id, JsonNode patch, Map<String, Object> fieldConditions,
+      Long version) {
+    if (!patch.isObject()) {
+      throw new InvalidPatchException(type, "a merge patch must be a JSON object");
+    }
+    EntityType<T> entity = entityManager.getMetamodel().entity(type);
+    CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+    String versionName = entity.getSingularAttributes().stream()
+        .filter(SingularAttribute::isVersion)
+        .findFirst()
+        .orElseThrow()
+        .getName();
+    Map<String, Object> conditions = new HashMap<>(fieldConditions);
+    if (version != null) {
+      conditions.put(versionName, version);
+    }
+
+    if (patch.isEmpty()) {
+      // nothing to write, but the caller still needs to know whether the entity exists
+      CriteriaQuery<Long> count = cb.createQuery(Long.class);
+      Root<T> root = count.from(type);
+      count.select(cb.count(root)).where(matching(cb, root, entity, id, conditions));
+      return entityManager.createQuery(count).getSingleResult().intValue();
+    }
+
+    CriteriaUpdate<T> update = cb.createCriteriaUpdate(type);
+    Root<T> root = update.from(type);
+    for (Map.Entry<String, JsonNode> field : patch.properties()) {
+      SingularAttribute<? super T, ?> attribute = patchable(type, entity, field.getKey());
+      Path<Object> column = root.get(attribute.getName());
+      update.set(column, value(type, attribute, field.getValue()));
+    }
+    Path<Long> versionColumn = root.get(versionName);
+    update.set(versionColumn, cb.sum(versionColumn, cb.literal(1L)));
+    update.where(matching(cb, root, entity, id, conditions));
+    return entityManager.createQuery(update).executeUpdate();
+  }
+
+  private static <T> Predicate[] matching(CriteriaBuilder cb, Root<T> root, EntityType<T> entity, Object id,
+      Map<String, Object> conditions) {
+    List<Predicate> predicates = new ArrayList<>();
+    String idName = entity.getSingularAttributes().stream()
+        .filter(SingularAttribute::isId)
+        .findFirst()
+        .orElseThrow()
+        .getName();
+    predicates.add(cb.equal(root.get(idName), id));
+    conditions.forEach((field, expected) -> predicates.add(cb.equal(root.get(field), expected)));
+    return predicates.toArray(Predicate[]::new);
+  }
+
+  private static <T> SingularAttribute<? super T, ?> patchable(Class<T> type, EntityType<T> entity, String name) {
+    return entity.getSingularAttributes().stream()
+        .filter(attribute -> attribute.getName().equals(name) && !attribute.isId() && !attribute.isVersion())
+        .findFirst()
+        .orElseThrow(() -> new InvalidPatchException(type, "there is no field %s that can be patched".formatted(name)));
+  }
+
+  private <T> Object value(Class<T> type, SingularAttribute<? super T, ?> attribute, JsonNode value) {
+    Class<?> javaType = attribute.getJavaType();
+    if (value.isNull()) {
+      if (javaType.isPrimitive()) {
+        throw new InvalidPatchException(type, "%s cannot be null".formatted(attribute.getName()));
+      }
+      return null;
+    }
+    try {
+      return mapper.treeToValue(value, javaType);
+    } catch (JsonProcessingException e) {
+      throw new InvalidPatchException(type, "%s: %s".formatted(attribute.getName(), e.getOriginalMessage()));
+    }
+  }
+}
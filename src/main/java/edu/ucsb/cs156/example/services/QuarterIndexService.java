@@ -0,0 +1,169 @@
+package edu.ucsb.cs156.example.services;
+
+import edu.ucsb.cs156.example.models.QuarterSpan;
+import edu.ucsb.cs156.example.repositories.UCSBDateRepository;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * This is a service that finds the quarters containing an instant, from an
+ * interval index held in memory.
+ *
+ * A quarter spans from its first UCSB date to its last.  The spans are read
+ * with one GROUP BY query and kept in an array sorted by start, alongside the
+ * running maximum of their ends: the quarters containing an instant are found
+ * by binary search for the last span starting at or before it, then walking
+ * back only while the running maximum end still reaches it.  Quarters seldom
+ * overlap, so that walk is usually one step.
+ *
+ * Quarter strings are parsed once, when the index is built, into ints such as
+ * 20244 for Fall 2024, which sort in calendar order.  Quarters that are not of
+ * the form YYYYQ with Q from 1 to 4 are left out of the index.
+ *
+ * The index is built once the application has started and rebuilt by
+ * UCSBDatesController after every write; a rebuild swaps in a new index
+ * without blocking queries.  Rebuilds take a lock rather than a monitor, so
+ * that one waiting on the database does not pin a virtual thread's carrier.
+ */
+
+@Slf4j
+@Service
+public class QuarterIndexService {
+
+  @Autowired
+  UCSBDateRepository ucsbDateRepository;
+
+  private volatile Index index = new Index(List.of());
+
+  // held while rebuilding, so that an older rebuild never replaces the index of a newer one
+  private final ReentrantLock rebuildLock = new ReentrantLock();
+
+  /**
+   * A quarter's span and its parsed quarter.
+   */
+  private record Quarter(int key, QuarterSpan span) {
+
+    static final Comparator<Quarter> BY_KEY = Comparator.comparingInt(Quarter::key);
+  }
+
+  /**
+   * The quarters sorted by quarter, and sorted by start with the running maximum of their ends.
+   */
+  private static final class Index {
+    final List<QuarterSpan> byQuarter;
+    final Quarter[] byStart;
+    final LocalDateTime[] starts;
+    final LocalDateTime[] maxEnds;
+
+    Index(List<QuarterSpan> spans) {
+      List<Quarter> quarters = new ArrayList<>();
+      for (QuarterSpan span : spans) {
+        int key = quarterKey(span.getQuarterYYYYQ());
+        if (key >= 0) {
+          quarters.add(new Quarter(key, span));
+        }
+      }
+      quarters.sort(Quarter.BY_KEY);
+      byQuarter = quarters.stream().map(Quarter::span).toList();
+
+      byStart = quarters.toArray(Quarter[]::new);
+      Arrays.sort(byStart, Comparator.comparing(quarter -> quarter.span().getStart()));
+      starts = new LocalDateTime[byStart.length];
+      maxEnds = new LocalDateTime[byStart.length];
+      for (int i = 0; i < byStart.length; i++) {
+        starts[i] = byStart[i].span().getStart();
+        LocalDateTime end = byStart[i].span().getEnd();
+        maxEnds[i] = i > 0 && maxEnds[i - 1].isAfter(end) ? maxEnds[i - 1] : end;
+      }
+    }
+  }
+
+  /**
+   * This method rebuilds the index from the ucsbdates table.  It runs once the
+   * application has started, and after every write to the table.
+   */
+  @EventListener(ApplicationReadyEvent.class)
+  public void rebuild() {
+    rebuildLock.lock();
+    try {
+      index = new Index(ucsbDateRepository.findQuarterSpans());
+      log.info("indexed the spans of {} quarters", index.byQuarter.size());
+    } finally {
+      rebuildLock.unlock();
+    }
+  }
+
+  /**
+   * This method returns the span of every quarter.
+   * @return the spans, in quarter order
+   */
+  public List<QuarterSpan> getQuarters() {
+    return index.byQuarter;
+  }
+
+  /**
+   * This method returns the quarters whose span contains an instant, including
+   * quarters that start or end exactly then.
+   * @param at the instant
+   * @return the spans containing it, in quarter order (usually none or one)
+   */
+  public List<QuarterSpan> containing(LocalDateTime at) {
+    Index current = index;
+    int last = upperBound(current.starts, at) - 1;
+    List<Quarter> found = new ArrayList<>();
+    for (int i = last; i >= 0 && !current.maxEnds[i].isBefore(at); i--) {
+      if (!current.byStart[i].span().getEnd().isBefore(at)) {
+        found.add(current.byStart[i]);
+      }
+    }
+    found.sort(Quarter.BY_KEY);
+    return found.stream().map(Quarter::span).toList();
+  }
+
+  /** The index of the first start after the instant. */
+  private static int upperBound(LocalDateTime[] starts, LocalDateTime at) {
+    int lo = 0;
+    int hi = starts.length;
+    while (lo < hi) {
+      int mid = (lo + hi) >>> 1;
+      if (starts[mid].isAfter(at)) {
+        hi = mid;
+      } else {
+        lo = mid + 1;
+      }
+    }
+    return lo;
+  }
+
+  /**
+   * This method parses a quarter string into an int that sorts in calendar order.
+   * @param quarterYYYYQ quarter in the format YYYYQ, e.g. 20244 for Fall 2024
+   * @return the quarter as an int (e.g. 20244), or -1 if it is not of the form YYYYQ with Q from 1 to 4
+   */
+  public static int quarterKey(String quarterYYYYQ) {
+    if (quarterYYYYQ == null || quarterYYYYQ.length() != 5) {
+      return -1;
+    }
+    int key = 0;
+    for (int i = 0; i < 5; i++) {
+      char c = quarterYYYYQ.charAt(i);
+      if (c < '0' || c > '9') {
+        return -1;
+      }
+      key = key * 10 + (c - '0');
+    }
+    int quarter = key % 10;
+    return quarter >= 1 && quarter <= 4 ? key : -1;
+  }
+}
@@ -0,0 +1,118 @@
+package edu.ucsb.cs156.example.services;
+
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * This is a service that keeps a version counter for each table, used to build
+ * ETags for conditional GETs.
+ *
+ * Every write through a controller bumps the counter of the table it changed, so
+ * an ETag built from the counter changes whenever the data might have. Counters
+ * live in memory and restart at zero, so the time the application started is part
+ * of every ETag; tags handed out by a previous run never match. Because the
+ * counters are per process, this assumes a single application instance.
+ *
+ * The ETag of a single entity is built from its version, which restarts at zero
+ * when a row is deleted and one with the same id is created again. So each table
+ * also has a generation, bumped whenever rows are deleted from a table whose ids
+ * can be reused, and it is part of every entity's ETag along with the epoch.
+ */
+
+@Service("tableVersions")
+public class TableVersionService {
+
+  private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+
+  private static final Pattern ENTITY_TAG = Pattern.compile("([0-9a-z]+)-(\\d{1,18})-(\\d{1,18})");
+
+  private final ConcurrentHashMap<Class<?>, AtomicLong> versions = new ConcurrentHashMap<>();
+
+  private final ConcurrentHashMap<Class<?>, AtomicLong> generations = new ConcurrentHashMap<>();
+
+  private AtomicLong counter(Class<?> entity) {
+    return versions.computeIfAbsent(entity, e -> new AtomicLong());
+  }
+
+  private AtomicLong generationCounter(Class<?> entity) {
+    return generations.computeIfAbsent(entity, e -> new AtomicLong());
+  }
+
+  /**
+   * This method returns the current version of an entity's table.
+   * @param entity the entity class
+   * @return the number of times the table has been written since startup
+   */
+  public long getVersion(Class<?> entity) {
+    return counter(entity).get();
+  }
+
+  /**
+   * This method records that an entity's table has been written.
+   * Call it after the write has committed.
+   * @param entity the entity class
+   */
+  public void bump(Class<?> entity) {
+    counter(entity).incrementAndGet();
+  }
+
+  /**
+   * This method returns the ETag (without quotes) for data read from an entity's table.
+   * Compute it before reading, so that a write racing with the read can only make
+   * the tag older than the data, never newer.
+   * @param entity the entity class
+   * @return the ETag value
+   */
+  public String etag(Class<?> entity) {
+    return epoch + "-" + getVersion(entity);
+  }
+
+  /**
+   * This method returns the current generation of the rows of an entity's table.
+   * Read it before reading or writing an entity, for the same reason as etag.
+   * @param entity the entity class
+   * @return the number of times rows have been deleted from the table since startup
+   */
+  public long getGeneration(Class<?> entity) {
+    return generationCounter(entity).get();
+  }
+
+  /**
+   * This method records that rows have been deleted from an entity's table, so that
+   * an id can be used again by a new row whose version restarts at zero.
+   * Call it after the delete has committed.
+   * @param entity the entity class
+   */
+  public void removed(Class<?> entity) {
+    generationCounter(entity).incrementAndGet();
+  }
+
+  /**
+   * This method returns the ETag (without quotes) for a single entity.
+   * @param generation the generation of the entity's table, read before the entity
+   * @param version the version of the entity
+   * @return the ETag value
+   */
+  public String etag(long generation, long version) {
+    return epoch + "-" + generation + "-" + version;
+  }
+
+  /**
+   * This method returns the version named by an entity's ETag, if the tag was
+   * handed out by this run for the given generation of the entity's table.
+   * @param generation the current generation of the entity's table
+   * @param etag the ETag value (without quotes)
+   * @return the version, or null if the tag cannot name the entity as it is now
+   */
+  public Long version(long generation, String etag) {
+    Matcher tag = ENTITY_TAG.matcher(etag);
+    if (!tag.matches() || !tag.group(1).equals(epoch) || !tag.group(2).equals(Long.toString(generation))) {
+      return null;
+    }
+    return Long.valueOf(tag.group(3));
+  }
+}
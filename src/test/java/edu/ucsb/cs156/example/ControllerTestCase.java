@@ -11,6 +11,7 @@ import org.springframework.test.web.servlet.MockMvc;
 
 import edu.ucsb.cs156.example.services.CurrentUserService;
 import edu.ucsb.cs156.example.services.GrantedAuthoritiesService;
+import edu.ucsb.cs156.example.services.TableVersionService;
 import edu.ucsb.cs156.example.services.wiremock.WiremockService;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import org.springframework.test.web.servlet.MvcResult;
@@ -27,6 +28,9 @@ public abstract class ControllerTestCase {
   @Autowired
   public GrantedAuthoritiesService grantedAuthoritiesService;
 
+  @Autowired
+  public TableVersionService tableVersionService;
+
   @Autowired
   public MockMvc mockMvc;
 
@@ -40,4 +44,8 @@ public abstract class ControllerTestCase {
     String responseString = result.getResponse().getContentAsString();
     return mapper.readValue(responseString, Map.class);
   }
+
+  protected String entityTag(Class<?> entity, long version) {
+    return "\"" + tableVersionService.etag(tableVersionService.getGeneration(entity), version) + "\"";
+  }
 }
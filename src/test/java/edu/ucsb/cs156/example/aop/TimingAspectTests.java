@@ -0,0 +1,80 @@
+package edu.ucsb.cs156.example.aop;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.entities.Restaurant;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+
+class TimingAspectTests {
+
+  SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+  FakeController controller;
+
+  static class FakeController {
+    @GetMapping("/api/fake")
+    public String getById(@RequestParam Long id) {
+      if (id < 0) {
+        throw new EntityNotFoundException(Restaurant.class, id);
+      }
+      return "found " + id;
+    }
+
+    public String notAnEndpoint() {
+      return "not timed";
+    }
+  }
+
+  @BeforeEach
+  void setUp() {
+    TimingAspect aspect = new TimingAspect();
+    aspect.registry = registry;
+    AspectJProxyFactory factory = new AspectJProxyFactory(new FakeController());
+    factory.setProxyTargetClass(true);
+    factory.addAspect(aspect);
+    controller = factory.getProxy();
+  }
+
+  @Test
+  void successful_calls_are_timed_per_method() {
+    assertEquals("found 1", controller.getById(1L));
+    assertEquals("found 2", controller.getById(2L));
+
+    Timer timer = registry.get(TimingAspect.TIMER)
+        .tag("controller", "FakeController")
+        .tag("method", "getById")
+        .timer();
+    assertEquals(2, timer.count());
+    assertNull(registry.find(TimingAspect.ERRORS).counter());
+  }
+
+  @Test
+  void calls_that_throw_are_timed_and_counted_as_errors() {
+    assertThrows(EntityNotFoundException.class, () -> controller.getById(-1L));
+
+    assertEquals(1, registry.get(TimingAspect.TIMER).tag("method", "getById").timer().count());
+    assertEquals(1.0, registry.get(TimingAspect.ERRORS)
+        .tag("controller", "FakeController")
+        .tag("method", "getById")
+        .tag("exception", "EntityNotFoundException")
+        .counter().count());
+  }
+
+  @Test
+  void methods_that_are_not_endpoints_are_not_timed() {
+    assertEquals("not timed", controller.notAnEndpoint());
+
+    assertNull(registry.find(TimingAspect.TIMER).timer());
+  }
+}
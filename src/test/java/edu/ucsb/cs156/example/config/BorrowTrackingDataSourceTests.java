@@ -0,0 +1,81 @@
+package edu.ucsb.cs156.example.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import edu.ucsb.cs156.example.services.ConnectionPoolService;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+
+import javax.sql.DataSource;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+class BorrowTrackingDataSourceTests {
+
+  DataSource pool = mock(DataSource.class);
+
+  Connection pooled = mock(Connection.class);
+
+  ConnectionPoolService connectionPoolService = mock(ConnectionPoolService.class);
+
+  ConnectionPoolService.Borrow borrow = mock(ConnectionPoolService.Borrow.class);
+
+  BorrowTrackingDataSource dataSource;
+
+  @BeforeEach
+  @SuppressWarnings("unchecked")
+  void setup() throws SQLException {
+    ObjectProvider<ConnectionPoolService> provider = mock(ObjectProvider.class);
+    when(provider.getIfAvailable()).thenReturn(connectionPoolService);
+    when(connectionPoolService.borrowed()).thenReturn(borrow);
+    when(pool.getConnection()).thenReturn(pooled);
+    dataSource = new BorrowTrackingDataSource(pool, provider);
+  }
+
+  @Test
+  void two_borrows_of_the_same_pooled_connection_are_not_equal() throws SQLException {
+    Connection first = dataSource.getConnection();
+    Connection second = dataSource.getConnection();
+
+    assertEquals(first, first);
+    assertNotEquals(first, second);
+    assertNotEquals(first, pooled);
+    assertEquals(System.identityHashCode(first), first.hashCode());
+    assertTrue(first.toString().startsWith("tracked connection@"));
+    assertNotEquals(first.toString(), second.toString());
+  }
+
+  @Test
+  void close_returns_the_borrow_and_closes_the_pooled_connection() throws SQLException {
+    Connection connection = dataSource.getConnection();
+
+    connection.setAutoCommit(false);
+    verify(connectionPoolService, never()).returned(borrow);
+    connection.close();
+
+    verify(connectionPoolService, times(1)).returned(borrow);
+    verify(pooled, times(1)).setAutoCommit(false);
+    verify(pooled, times(1)).close();
+  }
+
+  @Test
+  void exceptions_from_the_pooled_connection_are_rethrown_unwrapped() throws SQLException {
+    SQLException failure = new SQLException("broken");
+    when(pooled.isValid(1)).thenThrow(failure);
+    Connection connection = dataSource.getConnection();
+
+    assertSame(failure, assertThrows(SQLException.class, () -> connection.isValid(1)));
+  }
+}
@@ -0,0 +1,89 @@
+package edu.ucsb.cs156.example.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+class ConcurrencyLimitFilterTests {
+
+  private static MockHttpServletRequest request(String uri) {
+    return new MockHttpServletRequest("GET", uri);
+  }
+
+  @Test
+  void api_request_holds_a_permit_while_the_handler_runs() throws Exception {
+    ConcurrencyLimitFilter filter = new ConcurrencyLimitFilter(2, Duration.ofMillis(10));
+    int[] seen = new int[1];
+    MockFilterChain chain = new MockFilterChain(new HttpServlet() {
+      @Override
+      protected void doGet(HttpServletRequest req, HttpServletResponse resp) {
+        seen[0] = filter.getAvailablePermits();
+      }
+    });
+
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    filter.doFilter(request("/api/ucsbdates/all"), response, chain);
+
+    assertEquals(200, response.getStatus());
+    assertEquals(1, seen[0]);
+    assertEquals(2, filter.getAvailablePermits());
+  }
+
+  @Test
+  void api_request_is_rejected_with_503_when_no_permit_frees_up() throws Exception {
+    ConcurrencyLimitFilter filter = new ConcurrencyLimitFilter(1, Duration.ofMillis(10));
+    CountDownLatch inHandler = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    Thread busy = Thread.ofVirtual().start(() -> {
+      try {
+        filter.doFilter(request("/api/articles/all"), new MockHttpServletResponse(), (req, resp) -> {
+          inHandler.countDown();
+          try {
+            release.await(5, TimeUnit.SECONDS);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+        });
+      } catch (Exception e) {
+        throw new IllegalStateException(e);
+      }
+    });
+    inHandler.await(5, TimeUnit.SECONDS);
+
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    MockFilterChain chain = new MockFilterChain();
+    filter.doFilter(request("/api/articles/all"), response, chain);
+
+    release.countDown();
+    busy.join();
+
+    assertEquals(503, response.getStatus());
+    assertEquals("1", response.getHeader("Retry-After"));
+    assertNull(chain.getRequest());
+    assertEquals(1, filter.getAvailablePermits());
+  }
+
+  @Test
+  void non_api_requests_are_not_limited() throws Exception {
+    ConcurrencyLimitFilter filter = new ConcurrencyLimitFilter(0, Duration.ofMillis(10));
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    MockFilterChain chain = new MockFilterChain();
+
+    filter.doFilter(request("/swagger-ui/index.html"), response, chain);
+
+    assertEquals(200, response.getStatus());
+    assertEquals("/swagger-ui/index.html", ((HttpServletRequest) chain.getRequest()).getRequestURI());
+  }
+}
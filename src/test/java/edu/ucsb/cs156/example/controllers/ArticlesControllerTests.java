@@ -7,15 +7,27 @@ import edu.ucsb.cs156.example.entities.UCSBDate;
 import edu.ucsb.cs156.example.entities.Articles;
 import edu.ucsb.cs156.example.repositories.ArticlesRepository;
 import edu.ucsb.cs156.example.repositories.UCSBDateRepository;
+import edu.ucsb.cs156.example.models.ArticleSearchHit;
+import edu.ucsb.cs156.example.models.ImportReport;
+import edu.ucsb.cs156.example.services.ArticleSearchService;
+import edu.ucsb.cs156.example.services.BulkImportService;
+import edu.ucsb.cs156.example.services.MergePatchService;
+import edu.ucsb.cs156.example.models.BatchResult;
+
+import com.fasterxml.jackson.databind.JsonNode;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
 import org.springframework.http.MediaType;
+import org.springframework.http.HttpHeaders;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
 
@@ -26,13 +38,18 @@ import static org.springframework.security.test.web.servlet.request.SecurityMock
 import java.time.LocalDateTime;
 
 import java.util.Optional;
+import java.util.LinkedHashMap;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.never;
 
 @WebMvcTest(controllers = ArticlesController.class)
 @Import(TestConfig.class)
@@ -44,6 +61,15 @@ public class ArticlesControllerTests extends ControllerTestCase {
         @MockBean
         UserRepository userRepository;
 
+        @MockBean
+        BulkImportService bulkImportService;
+
+        @MockBean
+        MergePatchService mergePatchService;
+
+        @MockBean
+        ArticleSearchService articleSearchService;
+
         // Authorization tests for /api/Articles/all
 
         @Test
@@ -95,6 +121,7 @@ public class ArticlesControllerTests extends ControllerTestCase {
                                 article.setExplanation("article 1 says");
                                 article.setEmail("thisadmin1@gmail.com");
                                 article.setDateAdded(ldt);
+                                article.setVersion(3L);
 
                 when(articlesRepository.findById(eq(7L))).thenReturn(Optional.of(article));
 
@@ -108,6 +135,7 @@ public class ArticlesControllerTests extends ControllerTestCase {
                 String expectedJson = mapper.writeValueAsString(article);
                 String responseString = response.getResponse().getContentAsString();
                 assertEquals(expectedJson, responseString);
+                assertEquals(entityTag(Articles.class, 3), response.getResponse().getHeader(HttpHeaders.ETAG));
         }
 
         @WithMockUser(roles = { "USER" })
@@ -192,6 +220,7 @@ public class ArticlesControllerTests extends ControllerTestCase {
 
                 // assert
                 verify(articlesRepository, times(1)).save(article1);
+                verify(articleSearchService, times(1)).index(article1);
                 String expectedJson = mapper.writeValueAsString(article1);
                 String responseString = response.getResponse().getContentAsString();
                 assertEquals(expectedJson, responseString);
@@ -202,27 +231,21 @@ public class ArticlesControllerTests extends ControllerTestCase {
         public void admin_can_edit_an_existing_article() throws Exception {
                 // arrange
 
-                LocalDateTime ldt1 = LocalDateTime.parse("2022-01-03T00:00:00");
                 LocalDateTime ldt2 = LocalDateTime.parse("2023-01-04T00:00:00");
 
-                Articles articleOrig = new Articles();
-                                articleOrig.setTitle("article1");
-                                articleOrig.setUrl("article1.com");
-                                articleOrig.setExplanation("article1");
-                                articleOrig.setEmail("thisadmin1@gmail.com");
-                                articleOrig.setDateAdded(ldt1);
-                                
-
                 Articles articleEdited = new Articles();
+                                articleEdited.setId(67L);
                                 articleEdited.setTitle("article2");
                                 articleEdited.setUrl("article2.com");
                                 articleEdited.setExplanation("article2");
                                 articleEdited.setEmail("admin2@gmail.com");
                                 articleEdited.setDateAdded(ldt2);
+                                articleEdited.setVersion(5L);
 
                 String requestBody = mapper.writeValueAsString(articleEdited);
 
-                when(articlesRepository.findById(eq(67L))).thenReturn(Optional.of(articleOrig));
+                when(articlesRepository.updateById(eq(67L), any(), isNull())).thenReturn(1);
+                when(articlesRepository.findById(eq(67L))).thenReturn(Optional.of(articleEdited));
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -234,10 +257,11 @@ public class ArticlesControllerTests extends ControllerTestCase {
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
-                verify(articlesRepository, times(1)).findById(67L);
-                verify(articlesRepository, times(1)).save(articleEdited); // should be saved with correct user
+                verify(articlesRepository, times(1)).updateById(67L, articleEdited, null); // should be saved with correct user
+                verify(articleSearchService, times(1)).index(articleEdited);
                 String responseString = response.getResponse().getContentAsString();
                 assertEquals(requestBody, responseString);
+                assertEquals(entityTag(Articles.class, 5), response.getResponse().getHeader(HttpHeaders.ETAG));
         }
 
         @WithMockUser(roles = { "ADMIN", "USER" })
@@ -256,7 +280,7 @@ public class ArticlesControllerTests extends ControllerTestCase {
 
                 String requestBody = mapper.writeValueAsString(articleEdited);
 
-                when(articlesRepository.findById(eq(67L))).thenReturn(Optional.empty());
+                when(articlesRepository.updateById(eq(67L), any(), isNull())).thenReturn(0);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -268,12 +292,66 @@ public class ArticlesControllerTests extends ControllerTestCase {
                                 .andExpect(status().isNotFound()).andReturn();
 
                 // assert
-                verify(articlesRepository, times(1)).findById(67L);
+                verify(articlesRepository, times(1)).updateById(eq(67L), any(), isNull());
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("Articles with id 67 not found", json.get("message"));
 
         }
 
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_patch_an_existing_article() throws Exception {
+                // arrange
+                Articles patched = Articles.builder()
+                                .id(67L)
+                                .title("article2")
+                                .url("article2.com")
+                                .explanation("article2")
+                                .email("admin2@gmail.com")
+                                .dateAdded(LocalDateTime.parse("2023-01-04T00:00:00"))
+                                .version(5L)
+                                .build();
+                JsonNode patch = mapper.readTree("{\"title\": \"article2\"}");
+
+                when(mergePatchService.patch(Articles.class, 67L, patch, null)).thenReturn(1);
+                when(articlesRepository.findById(eq(67L))).thenReturn(Optional.of(patched));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                patch("/api/Articles?id=67")
+                                                .contentType(MergePatchService.APPLICATION_MERGE_PATCH_JSON_VALUE)
+                                                .content("{\"title\": \"article2\"}")
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(articleSearchService, times(1)).index(patched);
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(mapper.writeValueAsString(patched), responseString);
+                assertEquals(entityTag(Articles.class, 5), response.getResponse().getHeader(HttpHeaders.ETAG));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_cannot_patch_article_that_does_not_exist() throws Exception {
+                // arrange
+                JsonNode patch = mapper.readTree("{\"title\": \"article2\"}");
+                when(mergePatchService.patch(Articles.class, 67L, patch, null)).thenReturn(0);
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                patch("/api/Articles?id=67")
+                                                .contentType(MergePatchService.APPLICATION_MERGE_PATCH_JSON_VALUE)
+                                                .content("{\"title\": \"article2\"}")
+                                                .with(csrf()))
+                                .andExpect(status().isNotFound()).andReturn();
+
+                // assert
+                verify(articlesRepository, never()).findById(any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("Articles with id 67 not found", json.get("message"));
+        }
+
         @WithMockUser(roles = { "ADMIN", "USER" })
         @Test
         public void admin_can_delete_an_article() throws Exception {
@@ -289,7 +367,7 @@ public class ArticlesControllerTests extends ControllerTestCase {
                                 .dateAdded(ldt1)
                                 .build();
 
-                when(articlesRepository.findById(eq(15L))).thenReturn(Optional.of(article1));
+                when(articlesRepository.removeById(eq(15L), isNull())).thenReturn(1);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -298,8 +376,8 @@ public class ArticlesControllerTests extends ControllerTestCase {
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
-                verify(articlesRepository, times(1)).findById(15L);
-                verify(articlesRepository, times(1)).delete(any());
+                verify(articlesRepository, times(1)).removeById(15L, null);
+                verify(articleSearchService, times(1)).remove(15L);
 
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("Article with id 15 deleted", json.get("message"));
@@ -311,7 +389,7 @@ public class ArticlesControllerTests extends ControllerTestCase {
                         throws Exception {
                 // arrange
 
-                when(articlesRepository.findById(eq(15L))).thenReturn(Optional.empty());
+                when(articlesRepository.removeById(eq(15L), isNull())).thenReturn(0);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -320,9 +398,335 @@ public class ArticlesControllerTests extends ControllerTestCase {
                                 .andExpect(status().isNotFound()).andReturn();
 
                 // assert
-                verify(articlesRepository, times(1)).findById(15L);
+                verify(articlesRepository, times(1)).removeById(15L, null);
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("Articles with id 15 not found", json.get("message"));
         }
 
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_first_page_and_next_cursor_when_limit_is_given() throws Exception {
+
+                // arrange
+                Articles articles1 = Articles.builder().id(1L).title("first").build();
+                Articles articles2 = Articles.builder().id(2L).title("second").build();
+                Articles articles3 = Articles.builder().id(3L).title("third").build();
+
+                when(articlesRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), eq(Limit.of(3))))
+                                .thenReturn(new ArrayList<>(Arrays.asList(articles1, articles2, articles3)));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/Articles/all?limit=2"))
+                                .andExpect(status().isOk())
+                                .andExpect(header().string("X-Next-Cursor", "2"))
+                                .andReturn();
+
+                // assert
+                verify(articlesRepository, times(0)).findAll();
+                String expectedJson = mapper.writeValueAsString(Arrays.asList(articles1, articles2));
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_last_page_without_next_cursor() throws Exception {
+
+                // arrange
+                Articles articles3 = Articles.builder().id(3L).title("third").build();
+
+                when(articlesRepository.findByIdGreaterThanOrderByIdAsc(eq(2L), eq(Limit.of(101))))
+                                .thenReturn(new ArrayList<>(Arrays.asList(articles3)));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/Articles/all?after=2"))
+                                .andExpect(status().isOk())
+                                .andExpect(header().doesNotExist("X-Next-Cursor"))
+                                .andReturn();
+
+                // assert
+                verify(articlesRepository, times(1)).findByIdGreaterThanOrderByIdAsc(2L, Limit.of(101));
+                String expectedJson = mapper.writeValueAsString(Arrays.asList(articles3));
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        // Tests for POST /api/Articles/import
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_import() throws Exception {
+                mockMvc.perform(post("/api/Articles/import")
+                                .contentType(MediaType.APPLICATION_NDJSON)
+                                .content("{}\n")
+                                .with(csrf()))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void an_admin_user_can_import_articles() throws Exception {
+                // arrange
+                ImportReport report = new ImportReport();
+                report.setReceived(2);
+                report.setImported(1);
+                report.reject(2, "Unexpected end-of-input");
+                Articles imported = Articles.builder().id(51L).title("Spring Boot").url("https://spring.io")
+                                .explanation("docs").email("cgaucho@ucsb.edu").build();
+                when(bulkImportService.importRows(any(), argThat(MediaType.APPLICATION_NDJSON::isCompatibleWith), eq(Articles.class),
+                                eq(articlesRepository), any())).thenAnswer(invocation -> {
+                                        Consumer<Articles> afterCommit = invocation.getArgument(4);
+                                        afterCommit.accept(imported);
+                                        return report;
+                                });
+
+                // act
+                MvcResult response = mockMvc.perform(post("/api/Articles/import")
+                                .contentType(MediaType.APPLICATION_NDJSON)
+                                .content("{\"title\": \"Spring Boot\", \"url\": \"https://spring.io\", \"explanation\": \"docs\", \"email\": \"cgaucho@ucsb.edu\", \"dateAdded\": \"2022-01-03T00:00:00\"}\n{\n")
+                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(bulkImportService, times(1)).importRows(any(), argThat(MediaType.APPLICATION_NDJSON::isCompatibleWith), eq(Articles.class),
+                                eq(articlesRepository), any());
+                verify(articleSearchService, times(1)).index(imported);
+                assertEquals(mapper.writeValueAsString(report), response.getResponse().getContentAsString());
+        }
+
+        // Tests for conditional GETs (ETag / If-None-Match)
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_304_for_all_when_etag_matches() throws Exception {
+                // arrange
+                when(articlesRepository.findAll()).thenReturn(new ArrayList<>());
+                MvcResult first = mockMvc.perform(get("/api/Articles/all"))
+                                .andExpect(status().isOk())
+                                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache, private"))
+                                .andReturn();
+                String etag = first.getResponse().getHeader(HttpHeaders.ETAG);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/Articles/all").header(HttpHeaders.IF_NONE_MATCH, etag))
+                                .andExpect(status().isNotModified()).andReturn();
+
+                // assert
+                verify(articlesRepository, times(1)).findAll();
+                assertEquals("", response.getResponse().getContentAsString());
+                assertEquals(etag, response.getResponse().getHeader(HttpHeaders.ETAG));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_304_for_get_by_id_when_etag_matches() throws Exception {
+                // arrange
+                Articles entity = Articles.builder().id(15L).version(4L).build();
+                when(articlesRepository.findById(eq(15L))).thenReturn(Optional.of(entity));
+
+                // act
+                mockMvc.perform(get("/api/Articles?id=15").header(HttpHeaders.IF_NONE_MATCH, entityTag(Articles.class, 4)))
+                                .andExpect(status().isNotModified());
+
+                // assert
+                verify(articlesRepository, times(1)).findById(eq(15L));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_delete_changes_the_etag_for_articles() throws Exception {
+                // arrange
+                String before = tableVersionService.etag(Articles.class);
+                when(articlesRepository.removeById(eq(15L), isNull())).thenReturn(1);
+
+                // act
+                mockMvc.perform(delete("/api/Articles?id=" + "15").with(csrf()))
+                                .andExpect(status().isOk());
+
+                // assert
+                assertNotEquals(before, tableVersionService.etag(Articles.class));
+        }
+
+        // Tests for GET /api/Articles/search
+
+        @Test
+        public void logged_out_users_cannot_search() throws Exception {
+                mockMvc.perform(get("/api/Articles/search?q=spring"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_search_articles() throws Exception {
+                // arrange
+                List<ArticleSearchHit> hits = List.of(ArticleSearchHit.builder()
+                                .id(7L).title("Spring Boot").url("https://spring.io").score(1.5)
+                                .build());
+                when(articleSearchService.search("spring bo", 100)).thenReturn(hits);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/Articles/search").param("q", "spring bo"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(articleSearchService, times(1)).search("spring bo", 100);
+                assertEquals(mapper.writeValueAsString(hits), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void search_limit_is_clamped_to_the_maximum_page_size() throws Exception {
+                // act
+                mockMvc.perform(get("/api/Articles/search?q=spring&limit=5000"))
+                                .andExpect(status().isOk());
+
+                // assert
+                verify(articleSearchService, times(1)).search("spring", 1000);
+        }
+
+        // Tests for GET /api/Articles/batch
+
+        @Test
+        public void logged_out_users_cannot_get_batch() throws Exception {
+                mockMvc.perform(get("/api/Articles/batch?ids=1,2"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_a_batch_with_missing_ids_reported() throws Exception {
+                // arrange
+                Articles first = Articles.builder().id(1L).title("first").build();
+                Articles third = Articles.builder().id(3L).title("third").build();
+                when(articlesRepository.findAllById(List.of(1L, 2L, 3L))).thenReturn(List.of(first, third));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/Articles/batch?ids=1,2,3"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                Map<Long, Articles> found = new LinkedHashMap<>();
+                found.put(1L, first);
+                found.put(3L, third);
+                String expectedJson = mapper.writeValueAsString(new BatchResult<>(found, List.of(2L)));
+                assertEquals(expectedJson, response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_304_for_get_batch_when_etag_matches() throws Exception {
+                // arrange
+                String etag = "\"" + tableVersionService.etag(Articles.class) + "\"";
+
+                // act
+                mockMvc.perform(get("/api/Articles/batch?ids=1").header(HttpHeaders.IF_NONE_MATCH, etag))
+                                .andExpect(status().isNotModified());
+
+                // assert
+                verify(articlesRepository, never()).findAllById(any());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_edit_a_article_at_the_version_it_read() throws Exception {
+                // arrange
+                Articles edited = Articles.builder()
+                                .title("Caching")
+                                .url("https://example.org/caching")
+                                .explanation("ETags")
+                                .email("cgaucho@ucsb.edu")
+                                .build();
+                Articles saved = Articles.builder().id(67L).version(5L).build();
+
+                when(articlesRepository.updateById(eq(67L), any(), eq(4L))).thenReturn(1);
+                when(articlesRepository.findById(eq(67L))).thenReturn(Optional.of(saved));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                put("/api/Articles?id=67")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .header(HttpHeaders.IF_MATCH, entityTag(Articles.class, 4))
+                                                .content(mapper.writeValueAsString(edited))
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(articlesRepository, times(1)).updateById(67L, edited, 4L);
+                assertEquals(mapper.writeValueAsString(saved), response.getResponse().getContentAsString());
+                assertEquals(entityTag(Articles.class, 5), response.getResponse().getHeader(HttpHeaders.ETAG));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_cannot_edit_a_article_that_changed_since_it_was_read() throws Exception {
+                // arrange
+                Articles edited = Articles.builder()
+                                .title("Caching")
+                                .url("https://example.org/caching")
+                                .explanation("ETags")
+                                .email("cgaucho@ucsb.edu")
+                                .build();
+
+                when(articlesRepository.updateById(eq(67L), any(), eq(4L))).thenReturn(0);
+                when(articlesRepository.existsById(eq(67L))).thenReturn(true);
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                put("/api/Articles?id=67")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .header(HttpHeaders.IF_MATCH, entityTag(Articles.class, 4))
+                                                .content(mapper.writeValueAsString(edited))
+                                                .with(csrf()))
+                                .andExpect(status().isPreconditionFailed()).andReturn();
+
+                // assert
+                verify(articlesRepository, never()).findById(any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("VersionConflictException", json.get("type"));
+                assertEquals("Articles with id 67 has been changed since it was read", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_cannot_patch_a_article_that_changed_since_it_was_read() throws Exception {
+                // arrange
+                JsonNode patch = mapper.readTree("{\"title\": \"Caching\"}");
+                when(mergePatchService.patch(Articles.class, 67L, patch, 4L)).thenReturn(0);
+                when(articlesRepository.existsById(eq(67L))).thenReturn(true);
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                patch("/api/Articles?id=67")
+                                                .contentType(MergePatchService.APPLICATION_MERGE_PATCH_JSON_VALUE)
+                                                .header(HttpHeaders.IF_MATCH, entityTag(Articles.class, 4))
+                                                .content("{\"title\": \"Caching\"}")
+                                                .with(csrf()))
+                                .andExpect(status().isPreconditionFailed()).andReturn();
+
+                // assert
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("Articles with id 67 has been changed since it was read", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_cannot_delete_a_article_that_changed_since_it_was_read() throws Exception {
+                // arrange
+                when(articlesRepository.removeById(eq(67L), eq(4L))).thenReturn(0);
+                when(articlesRepository.existsById(eq(67L))).thenReturn(true);
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                delete("/api/Articles?id=67")
+                                                .header(HttpHeaders.IF_MATCH, entityTag(Articles.class, 4))
+                                                .with(csrf()))
+                                .andExpect(status().isPreconditionFailed()).andReturn();
+
+                // assert
+                verify(articlesRepository, times(1)).removeById(67L, 4L);
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("Articles with id 67 has been changed since it was read", json.get("message"));
+        }
 }
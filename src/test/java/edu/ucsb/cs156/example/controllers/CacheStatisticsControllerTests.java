@@ -0,0 +1,78 @@
+package edu.ucsb.cs156.example.controllers;
+
+import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.models.CacheStatistics;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.CacheStatisticsService;
+import edu.ucsb.cs156.example.testconfig.TestConfig;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MvcResult;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import java.util.List;
+
+@WebMvcTest(controllers = CacheStatisticsController.class)
+@Import(TestConfig.class)
+public class CacheStatisticsControllerTests extends ControllerTestCase {
+
+  @MockBean
+  UserRepository userRepository;
+
+  @MockBean
+  CacheStatisticsService cacheStatisticsService;
+
+  @Test
+  public void cache__logged_out() throws Exception {
+    mockMvc.perform(get("/api/admin/cache"))
+        .andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = { "USER" })
+  @Test
+  public void cache__user_logged_in() throws Exception {
+    mockMvc.perform(get("/api/admin/cache"))
+        .andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = { "ADMIN", "USER" })
+  @Test
+  public void cache__admin_logged_in() throws Exception {
+
+    // arrange
+
+    List<CacheStatistics> expectedStatistics = List.of(
+        CacheStatistics.builder()
+            .regionName("default-query-results-region")
+            .hitCount(4).missCount(1).putCount(1)
+            .build(),
+        CacheStatistics.builder()
+            .regionName("edu.ucsb.cs156.example.entities.UCSBOrganization")
+            .hitCount(10).missCount(2).putCount(2)
+            .build());
+
+    when(cacheStatisticsService.getCacheStatistics()).thenReturn(expectedStatistics);
+    String expectedJson = mapper.writeValueAsString(expectedStatistics);
+
+    // act
+
+    MvcResult response = mockMvc.perform(get("/api/admin/cache"))
+        .andExpect(status().isOk()).andReturn();
+
+    // assert
+
+    verify(cacheStatisticsService, times(1)).getCacheStatistics();
+    String responseString = response.getResponse().getContentAsString();
+    assertEquals(expectedJson, responseString);
+  }
+}
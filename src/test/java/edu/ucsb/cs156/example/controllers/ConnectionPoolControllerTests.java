@@ -0,0 +1,106 @@
+package edu.ucsb.cs156.example.controllers;
+
+import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.models.ConnectionBorrow;
+import edu.ucsb.cs156.example.models.ConnectionPoolState;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.ConnectionPoolService;
+import edu.ucsb.cs156.example.testconfig.TestConfig;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MvcResult;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import java.time.Instant;
+import java.util.List;
+
+@WebMvcTest(controllers = ConnectionPoolController.class)
+@Import(TestConfig.class)
+public class ConnectionPoolControllerTests extends ControllerTestCase {
+
+  @MockBean
+  UserRepository userRepository;
+
+  @MockBean
+  ConnectionPoolService connectionPoolService;
+
+  ConnectionPoolState state = ConnectionPoolState.builder()
+      .maximumPoolSize(10).minimumIdle(10)
+      .active(3).idle(7).total(10).pending(0)
+      .leakThresholdMillis(2000)
+      .heldTooLong(List.of(ConnectionBorrow.builder()
+          .borrower("HelpRequestController.allHelpRequests")
+          .thread("http-nio-8080-exec-4")
+          .borrowedAt(Instant.parse("2024-10-01T12:00:00Z"))
+          .heldMillis(3500.0)
+          .build()))
+      .slowestRecent(List.of(ConnectionBorrow.builder()
+          .borrower("UCSBDatesController.allUCSBDates")
+          .thread("http-nio-8080-exec-1")
+          .borrowedAt(Instant.parse("2024-10-01T11:59:58Z"))
+          .heldMillis(12.5)
+          .build()))
+      .build();
+
+  @Test
+  public void pool__logged_out() throws Exception {
+    mockMvc.perform(get("/api/admin/pool"))
+        .andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = { "USER" })
+  @Test
+  public void pool__user_logged_in() throws Exception {
+    mockMvc.perform(get("/api/admin/pool"))
+        .andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = { "ADMIN", "USER" })
+  @Test
+  public void pool__admin_logged_in() throws Exception {
+
+    // arrange
+
+    when(connectionPoolService.getState(10)).thenReturn(state);
+    String expectedJson = mapper.writeValueAsString(state);
+
+    // act
+
+    MvcResult response = mockMvc.perform(get("/api/admin/pool"))
+        .andExpect(status().isOk()).andReturn();
+
+    // assert
+
+    verify(connectionPoolService, times(1)).getState(10);
+    String responseString = response.getResponse().getContentAsString();
+    assertEquals(expectedJson, responseString);
+  }
+
+  @WithMockUser(roles = { "ADMIN", "USER" })
+  @Test
+  public void pool__admin_logged_in__negative_limit_lists_no_borrows() throws Exception {
+
+    // arrange
+
+    when(connectionPoolService.getState(0)).thenReturn(state);
+
+    // act
+
+    mockMvc.perform(get("/api/admin/pool?limit=-5"))
+        .andExpect(status().isOk());
+
+    // assert
+
+    verify(connectionPoolService, times(1)).getState(0);
+  }
+}
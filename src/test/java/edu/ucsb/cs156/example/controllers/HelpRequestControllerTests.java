@@ -4,18 +4,32 @@ import edu.ucsb.cs156.example.repositories.UserRepository;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import edu.ucsb.cs156.example.ControllerTestCase;
 import edu.ucsb.cs156.example.entities.HelpRequest;
+import edu.ucsb.cs156.example.models.HelpRequestEvent;
 import edu.ucsb.cs156.example.repositories.HelpRequestRepository;
+import edu.ucsb.cs156.example.services.HelpRequestQueueService;
+import edu.ucsb.cs156.example.models.ImportReport;
+import edu.ucsb.cs156.example.services.BulkImportService;
+import edu.ucsb.cs156.example.services.MergePatchService;
+import edu.ucsb.cs156.example.errors.InvalidPatchException;
+import edu.ucsb.cs156.example.models.BatchResult;
+import edu.ucsb.cs156.example.models.BulkUpdateReport;
+
+import com.fasterxml.jackson.databind.JsonNode;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
 import org.springframework.http.MediaType;
+import org.springframework.http.HttpHeaders;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -23,15 +37,23 @@ import static org.springframework.security.test.web.servlet.request.SecurityMock
 
 import java.time.LocalDateTime;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.LinkedHashMap;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.never;
 
-@WebMvcTest(controllers = HelpRequestController.class)
+@WebMvcTest(controllers = HelpRequestController.class, properties = { "app.batch.chunk-size=2", "app.batch.max-ids=4" })
 @Import(TestConfig.class)
 public class HelpRequestControllerTests extends ControllerTestCase {
 
@@ -41,6 +63,15 @@ public class HelpRequestControllerTests extends ControllerTestCase {
         @MockBean
         UserRepository userRepository;
 
+        @MockBean
+        BulkImportService bulkImportService;
+
+        @MockBean
+        HelpRequestQueueService helpRequestQueueService;
+
+        @MockBean
+        MergePatchService mergePatchService;
+
         // Authorization tests for /api/helprequest/all
 
         @Test
@@ -78,6 +109,7 @@ public class HelpRequestControllerTests extends ControllerTestCase {
                                 .requestTime(requestTime)
                                 .explanation("Need help with setup")
                                 .solved(false)
+                                .version(3L)
                                 .build();
 
                 when(helpRequestRepository.findById(eq(1L))).thenReturn(Optional.of(helpRequest));
@@ -91,6 +123,7 @@ public class HelpRequestControllerTests extends ControllerTestCase {
                 String expectedJson = mapper.writeValueAsString(helpRequest);
                 String responseString = response.getResponse().getContentAsString();
                 assertEquals(expectedJson, responseString);
+                assertEquals(entityTag(HelpRequest.class, 3), response.getResponse().getHeader(HttpHeaders.ETAG));
         }
 
         @WithMockUser(roles = { "USER" })
@@ -201,6 +234,10 @@ public class HelpRequestControllerTests extends ControllerTestCase {
 
                 // assert
                 verify(helpRequestRepository, times(1)).save(helpRequest);
+                verify(helpRequestQueueService, times(1)).publish(HelpRequestEvent.builder()
+                                .type(HelpRequestEvent.Type.CREATED)
+                                .helpRequest(helpRequest)
+                                .build());
                 String expectedJson = mapper.writeValueAsString(helpRequest);
                 String responseString = response.getResponse().getContentAsString();
                 assertEquals(expectedJson, responseString);
@@ -212,30 +249,24 @@ public class HelpRequestControllerTests extends ControllerTestCase {
         @Test
         public void admin_can_update_existing_helprequest() throws Exception {
                 // arrange
-                LocalDateTime originalRequestTime = LocalDateTime.parse("2024-10-22T18:11:56");
                 LocalDateTime updatedRequestTime = LocalDateTime.parse("2024-10-23T09:30:00");
 
-                HelpRequest originalHelpRequest = HelpRequest.builder()
-                                .requesterEmail("user@example.com")
-                                .teamId("team01")
-                                .tableOrBreakoutRoom("Table 1")
-                                .requestTime(originalRequestTime)
-                                .explanation("Need help with setup")
-                                .solved(false)
-                                .build();
-
                 HelpRequest updatedHelpRequest = HelpRequest.builder()
+                                .id(1L)
                                 .requesterEmail("admin@example.com")
                                 .teamId("adminTeam")
                                 .tableOrBreakoutRoom("Breakout Room 1")
                                 .requestTime(updatedRequestTime) // requestTime
                                 .explanation("Urgent help needed")
                                 .solved(true)
+                                .version(5L)
                                 .build();
 
                 String requestBody = mapper.writeValueAsString(updatedHelpRequest);
 
-                when(helpRequestRepository.findById(eq(1L))).thenReturn(Optional.of(originalHelpRequest));
+                // the request was unsolved, so the solving update matches it
+                when(helpRequestRepository.updateUnsolvedById(eq(1L), any(), isNull())).thenReturn(1);
+                when(helpRequestRepository.findById(eq(1L))).thenReturn(Optional.of(updatedHelpRequest));
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -247,11 +278,17 @@ public class HelpRequestControllerTests extends ControllerTestCase {
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
-                verify(helpRequestRepository, times(1)).findById(1L);
-                verify(helpRequestRepository, times(1)).save(updatedHelpRequest);
+                verify(helpRequestRepository, times(1)).updateUnsolvedById(1L, updatedHelpRequest, null);
+                verify(helpRequestRepository, never()).updateById(anyLong(), any(), any());
+                verify(helpRequestQueueService, times(1)).publish(HelpRequestEvent.builder()
+                                .type(HelpRequestEvent.Type.SOLVED)
+                                .id(1L)
+                                .helpRequest(updatedHelpRequest)
+                                .build());
                 String responseString = response.getResponse().getContentAsString();
                 String expectedJson = mapper.writeValueAsString(updatedHelpRequest);
                 assertEquals(expectedJson, responseString);
+                assertEquals(entityTag(HelpRequest.class, 5), response.getResponse().getHeader(HttpHeaders.ETAG));
         }
 
         @WithMockUser(roles = { "ADMIN", "USER" })
@@ -271,7 +308,7 @@ public class HelpRequestControllerTests extends ControllerTestCase {
 
                 String requestBody = mapper.writeValueAsString(updatedHelpRequest);
 
-                when(helpRequestRepository.findById(eq(1L))).thenReturn(Optional.empty());
+                when(helpRequestRepository.updateById(eq(1L), any(), isNull())).thenReturn(0);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -283,31 +320,292 @@ public class HelpRequestControllerTests extends ControllerTestCase {
                                 .andExpect(status().isNotFound()).andReturn();
 
                 // assert
-                verify(helpRequestRepository, times(1)).findById(1L);
+                verify(helpRequestRepository, times(1)).updateUnsolvedById(eq(1L), any(), isNull());
+                verify(helpRequestRepository, times(1)).updateById(eq(1L), any(), isNull());
                 String responseString = response.getResponse().getContentAsString();
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("EntityNotFoundException", json.get("type"));
                 assertEquals("HelpRequest with id 1 not found", json.get("message"));
         }
 
-        // Tests for DELETE /api/helprequest
-
-        @WithMockUser(roles = { "ADMIN", "USER" })
-        @Test
-        public void admin_can_delete_existing_helprequest() throws Exception {
-                // arrange
-                LocalDateTime requestTime = LocalDateTime.parse("2024-10-22T18:11:56");
+        // Tests for PATCH /api/helprequest
 
-                HelpRequest helpRequest = HelpRequest.builder()
+        private HelpRequest patchedHelpRequest(boolean solved) {
+                return HelpRequest.builder()
+                                .id(1L)
                                 .requesterEmail("user@example.com")
                                 .teamId("team01")
-                                .tableOrBreakoutRoom("Table 1")
-                                .requestTime(requestTime)
+                                .tableOrBreakoutRoom("Table 2")
+                                .requestTime(LocalDateTime.parse("2024-10-22T18:11:56"))
                                 .explanation("Need help with setup")
-                                .solved(false)
+                                .solved(solved)
+                                .version(5L)
                                 .build();
+        }
 
-                when(helpRequestRepository.findById(eq(1L))).thenReturn(Optional.of(helpRequest));
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_patch() throws Exception {
+                mockMvc.perform(patch("/api/helprequest?id=1")
+                                .contentType(MergePatchService.APPLICATION_MERGE_PATCH_JSON_VALUE)
+                                .content("{\"solved\": true}")
+                                .with(csrf()))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_patch_that_solves_a_request_publishes_solved_event() throws Exception {
+                // arrange
+                HelpRequest solved = patchedHelpRequest(true);
+                JsonNode patch = mapper.readTree("{\"solved\": true}");
+                String before = tableVersionService.etag(HelpRequest.class);
+
+                // the request was unsolved, so the conditional patch matches it
+                when(mergePatchService.patchIf(HelpRequest.class, 1L, patch, "solved", false, null)).thenReturn(1);
+                when(helpRequestRepository.findById(eq(1L))).thenReturn(Optional.of(solved));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                patch("/api/helprequest?id=1")
+                                                .contentType(MergePatchService.APPLICATION_MERGE_PATCH_JSON_VALUE)
+                                                .content("{\"solved\": true}")
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(mergePatchService, never()).patch(any(), any(), any(), any());
+                verify(helpRequestQueueService, times(1)).publish(HelpRequestEvent.builder()
+                                .type(HelpRequestEvent.Type.SOLVED)
+                                .id(1L)
+                                .helpRequest(solved)
+                                .build());
+                assertEquals(mapper.writeValueAsString(solved), response.getResponse().getContentAsString());
+                assertNotEquals(before, tableVersionService.etag(HelpRequest.class));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_patch_of_an_already_solved_request_publishes_updated_event() throws Exception {
+                // arrange
+                HelpRequest solved = patchedHelpRequest(true);
+                JsonNode patch = mapper.readTree("{\"solved\": true}");
+
+                // the request was already solved, so only the plain patch matches it
+                when(mergePatchService.patchIf(HelpRequest.class, 1L, patch, "solved", false, null)).thenReturn(0);
+                when(mergePatchService.patch(HelpRequest.class, 1L, patch, null)).thenReturn(1);
+                when(helpRequestRepository.findById(eq(1L))).thenReturn(Optional.of(solved));
+
+                // act
+                mockMvc.perform(
+                                patch("/api/helprequest?id=1")
+                                                .contentType(MergePatchService.APPLICATION_MERGE_PATCH_JSON_VALUE)
+                                                .content("{\"solved\": true}")
+                                                .with(csrf()))
+                                .andExpect(status().isOk());
+
+                // assert
+                verify(helpRequestQueueService, times(1)).publish(HelpRequestEvent.builder()
+                                .type(HelpRequestEvent.Type.UPDATED)
+                                .id(1L)
+                                .helpRequest(solved)
+                                .build());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_patch_that_does_not_solve_skips_the_conditional_patch() throws Exception {
+                // arrange
+                HelpRequest unsolved = patchedHelpRequest(false);
+                JsonNode patch = mapper.readTree("{\"explanation\": \"Need help with setup\"}");
+
+                when(mergePatchService.patch(HelpRequest.class, 1L, patch, null)).thenReturn(1);
+                when(helpRequestRepository.findById(eq(1L))).thenReturn(Optional.of(unsolved));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                patch("/api/helprequest?id=1")
+                                                .contentType(MergePatchService.APPLICATION_MERGE_PATCH_JSON_VALUE)
+                                                .content("{\"explanation\": \"Need help with setup\"}")
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(mergePatchService, never()).patchIf(any(), any(), any(), any(), any(), any());
+                verify(helpRequestQueueService, times(1)).publish(HelpRequestEvent.builder()
+                                .type(HelpRequestEvent.Type.UPDATED)
+                                .id(1L)
+                                .helpRequest(unsolved)
+                                .build());
+                assertEquals(mapper.writeValueAsString(unsolved), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_tries_to_patch_non_existent_helprequest_and_gets_404() throws Exception {
+                // arrange
+                JsonNode patch = mapper.readTree("{\"teamId\": \"team02\"}");
+                when(mergePatchService.patch(HelpRequest.class, 1L, patch, null)).thenReturn(0);
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                patch("/api/helprequest?id=1")
+                                                .contentType(MergePatchService.APPLICATION_MERGE_PATCH_JSON_VALUE)
+                                                .content("{\"teamId\": \"team02\"}")
+                                                .with(csrf()))
+                                .andExpect(status().isNotFound()).andReturn();
+
+                // assert
+                verify(helpRequestRepository, never()).findById(any());
+                verify(helpRequestQueueService, never()).publish(any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("EntityNotFoundException", json.get("type"));
+                assertEquals("HelpRequest with id 1 not found", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_gets_404_when_helprequest_is_deleted_before_the_patch_is_read_back() throws Exception {
+                // arrange
+                JsonNode patch = mapper.readTree("{\"teamId\": \"team02\"}");
+                when(mergePatchService.patch(HelpRequest.class, 1L, patch, null)).thenReturn(1);
+                when(helpRequestRepository.findById(eq(1L))).thenReturn(Optional.empty());
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                patch("/api/helprequest?id=1")
+                                                .contentType(MergePatchService.APPLICATION_MERGE_PATCH_JSON_VALUE)
+                                                .content("{\"teamId\": \"team02\"}")
+                                                .with(csrf()))
+                                .andExpect(status().isNotFound()).andReturn();
+
+                // assert
+                verify(helpRequestQueueService, never()).publish(any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("HelpRequest with id 1 not found", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_gets_400_for_a_patch_the_service_rejects() throws Exception {
+                // arrange
+                JsonNode patch = mapper.readTree("{\"priority\": 1}");
+                when(mergePatchService.patch(HelpRequest.class, 1L, patch, null)).thenThrow(
+                                new InvalidPatchException(HelpRequest.class, "there is no field priority that can be patched"));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                patch("/api/helprequest?id=1")
+                                                .contentType(MergePatchService.APPLICATION_MERGE_PATCH_JSON_VALUE)
+                                                .content("{\"priority\": 1}")
+                                                .with(csrf()))
+                                .andExpect(status().isBadRequest()).andReturn();
+
+                // assert
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("InvalidPatchException", json.get("type"));
+                assertEquals("Cannot patch HelpRequest: there is no field priority that can be patched", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_cannot_patch_with_a_plain_json_body() throws Exception {
+                mockMvc.perform(
+                                patch("/api/helprequest?id=1")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .content("{\"solved\": true}")
+                                                .with(csrf()))
+                                .andExpect(status().isUnsupportedMediaType());
+
+                verify(mergePatchService, never()).patch(any(), any(), any(), any());
+        }
+
+        // Tests for PUT /api/helprequest/solve and /api/helprequest/solve/team
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_bulk_solve() throws Exception {
+                mockMvc.perform(put("/api/helprequest/solve?ids=1,2").with(csrf()))
+                                .andExpect(status().is(403));
+                mockMvc.perform(put("/api/helprequest/solve/team?teamId=s22-5pm-3").with(csrf()))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_solve_help_requests_by_id_in_one_update() throws Exception {
+                // arrange
+                String before = tableVersionService.etag(HelpRequest.class);
+                when(helpRequestRepository.solveByIdIn(List.of(1L, 2L, 3L))).thenReturn(2);
+
+                // act
+                MvcResult response = mockMvc.perform(put("/api/helprequest/solve?ids=1,2,3").with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(helpRequestRepository, times(1)).solveByIdIn(List.of(1L, 2L, 3L));
+                verify(helpRequestQueueService, times(1)).publishSnapshot();
+                verify(helpRequestQueueService, never()).publish(any());
+                assertNotEquals(before, tableVersionService.etag(HelpRequest.class));
+                assertEquals(mapper.writeValueAsString(new BulkUpdateReport(2)),
+                                response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_cannot_solve_more_help_requests_by_id_than_the_cap() throws Exception {
+                // act
+                MvcResult response = mockMvc.perform(put("/api/helprequest/solve?ids=1,2,3,4,5").with(csrf()))
+                                .andExpect(status().isBadRequest()).andReturn();
+
+                // assert
+                verify(helpRequestRepository, never()).solveByIdIn(any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("TooManyIdsException", json.get("type"));
+                assertEquals("5 ids were requested, but at most 4 may be named in one request", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_solve_all_unsolved_help_requests_of_a_team() throws Exception {
+                // arrange
+                when(helpRequestRepository.solveByTeamId("s22-5pm-3")).thenReturn(4);
+
+                // act
+                MvcResult response = mockMvc.perform(put("/api/helprequest/solve/team?teamId=s22-5pm-3").with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(helpRequestQueueService, times(1)).publishSnapshot();
+                assertEquals(mapper.writeValueAsString(new BulkUpdateReport(4)),
+                                response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void bulk_solve_that_changes_nothing_publishes_nothing() throws Exception {
+                // arrange
+                String before = tableVersionService.etag(HelpRequest.class);
+                when(helpRequestRepository.solveByTeamId("s22-5pm-3")).thenReturn(0);
+
+                // act
+                MvcResult response = mockMvc.perform(put("/api/helprequest/solve/team?teamId=s22-5pm-3").with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(helpRequestQueueService, never()).publishSnapshot();
+                assertEquals(before, tableVersionService.etag(HelpRequest.class));
+                assertEquals(mapper.writeValueAsString(new BulkUpdateReport(0)),
+                                response.getResponse().getContentAsString());
+        }
+
+        // Tests for DELETE /api/helprequest
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_delete_existing_helprequest() throws Exception {
+                // arrange
+                when(helpRequestRepository.removeById(eq(1L), isNull())).thenReturn(1);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -316,8 +614,11 @@ public class HelpRequestControllerTests extends ControllerTestCase {
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
-                verify(helpRequestRepository, times(1)).findById(1L);
-                verify(helpRequestRepository, times(1)).delete(helpRequest);
+                verify(helpRequestRepository, times(1)).removeById(1L, null);
+                verify(helpRequestQueueService, times(1)).publish(HelpRequestEvent.builder()
+                                .type(HelpRequestEvent.Type.DELETED)
+                                .id(1L)
+                                .build());
                 String expectedJson = "{\"message\":\"HelpRequest with id 1 deleted\"}";
                 String responseString = response.getResponse().getContentAsString();
                 assertEquals(expectedJson, responseString);
@@ -327,7 +628,7 @@ public class HelpRequestControllerTests extends ControllerTestCase {
         @Test
         public void admin_tries_to_delete_non_existent_helprequest_and_gets_404() throws Exception {
                 // arrange
-                when(helpRequestRepository.findById(eq(1L))).thenReturn(Optional.empty());
+                when(helpRequestRepository.removeById(eq(1L), isNull())).thenReturn(0);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -336,11 +637,423 @@ public class HelpRequestControllerTests extends ControllerTestCase {
                                 .andExpect(status().isNotFound()).andReturn();
 
                 // assert
-                verify(helpRequestRepository, times(1)).findById(1L);
+                verify(helpRequestRepository, times(1)).removeById(1L, null);
                 String responseString = response.getResponse().getContentAsString();
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("EntityNotFoundException", json.get("type"));
                 assertEquals("HelpRequest with id 1 not found", json.get("message"));
         }
 
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_first_page_and_next_cursor_when_limit_is_given() throws Exception {
+
+                // arrange
+                HelpRequest helpRequest1 = HelpRequest.builder().id(1L).teamId("first").build();
+                HelpRequest helpRequest2 = HelpRequest.builder().id(2L).teamId("second").build();
+                HelpRequest helpRequest3 = HelpRequest.builder().id(3L).teamId("third").build();
+
+                when(helpRequestRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), eq(Limit.of(3))))
+                                .thenReturn(new ArrayList<>(Arrays.asList(helpRequest1, helpRequest2, helpRequest3)));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/helprequest/all?limit=2"))
+                                .andExpect(status().isOk())
+                                .andExpect(header().string("X-Next-Cursor", "2"))
+                                .andReturn();
+
+                // assert
+                verify(helpRequestRepository, times(0)).findAll();
+                String expectedJson = mapper.writeValueAsString(Arrays.asList(helpRequest1, helpRequest2));
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_last_page_without_next_cursor() throws Exception {
+
+                // arrange
+                HelpRequest helpRequest3 = HelpRequest.builder().id(3L).teamId("third").build();
+
+                when(helpRequestRepository.findByIdGreaterThanOrderByIdAsc(eq(2L), eq(Limit.of(101))))
+                                .thenReturn(new ArrayList<>(Arrays.asList(helpRequest3)));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/helprequest/all?after=2"))
+                                .andExpect(status().isOk())
+                                .andExpect(header().doesNotExist("X-Next-Cursor"))
+                                .andReturn();
+
+                // assert
+                verify(helpRequestRepository, times(1)).findByIdGreaterThanOrderByIdAsc(2L, Limit.of(101));
+                String expectedJson = mapper.writeValueAsString(Arrays.asList(helpRequest3));
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        @Test
+        public void logged_out_users_cannot_subscribe_to_queue() throws Exception {
+                mockMvc.perform(get("/api/helprequest/queue"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_users_can_subscribe_to_queue() throws Exception {
+                // arrange
+                when(helpRequestQueueService.subscribe()).thenReturn(new SseEmitter());
+
+                // act
+                mockMvc.perform(get("/api/helprequest/queue"))
+                                .andExpect(request().asyncStarted());
+
+                // assert
+                verify(helpRequestQueueService, times(1)).subscribe();
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_update_that_does_not_solve_publishes_updated_event() throws Exception {
+                // arrange
+                LocalDateTime requestTime = LocalDateTime.parse("2024-10-22T18:11:56");
+
+                HelpRequest updatedHelpRequest = HelpRequest.builder()
+                                .id(1L)
+                                .requesterEmail("user@example.com")
+                                .teamId("team01")
+                                .tableOrBreakoutRoom("Table 2")
+                                .requestTime(requestTime)
+                                .explanation("Need help with setup")
+                                .solved(true)
+                                .version(5L)
+                                .build();
+
+                String requestBody = mapper.writeValueAsString(updatedHelpRequest);
+
+                // the request was already solved, so only the plain update matches it
+                when(helpRequestRepository.updateUnsolvedById(eq(1L), any(), isNull())).thenReturn(0);
+                when(helpRequestRepository.updateById(eq(1L), any(), isNull())).thenReturn(1);
+                when(helpRequestRepository.findById(eq(1L))).thenReturn(Optional.of(updatedHelpRequest));
+
+                // act
+                mockMvc.perform(
+                                put("/api/helprequest?id=1")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(requestBody)
+                                                .with(csrf()))
+                                .andExpect(status().isOk());
+
+                // assert
+                verify(helpRequestQueueService, times(1)).publish(HelpRequestEvent.builder()
+                                .type(HelpRequestEvent.Type.UPDATED)
+                                .id(1L)
+                                .helpRequest(updatedHelpRequest)
+                                .build());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_update_that_leaves_request_unsolved_publishes_updated_event() throws Exception {
+                // arrange
+                LocalDateTime requestTime = LocalDateTime.parse("2024-10-22T18:11:56");
+
+                HelpRequest updatedHelpRequest = HelpRequest.builder()
+                                .id(1L)
+                                .requesterEmail("user@example.com")
+                                .teamId("team01")
+                                .tableOrBreakoutRoom("Table 2")
+                                .requestTime(requestTime)
+                                .explanation("Need help with setup")
+                                .solved(false)
+                                .version(5L)
+                                .build();
+
+                String requestBody = mapper.writeValueAsString(updatedHelpRequest);
+
+                when(helpRequestRepository.updateById(eq(1L), any(), isNull())).thenReturn(1);
+                when(helpRequestRepository.findById(eq(1L))).thenReturn(Optional.of(updatedHelpRequest));
+
+                // act
+                mockMvc.perform(
+                                put("/api/helprequest?id=1")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(requestBody)
+                                                .with(csrf()))
+                                .andExpect(status().isOk());
+
+                // assert
+                verify(helpRequestRepository, never()).updateUnsolvedById(anyLong(), any(), any());
+                verify(helpRequestQueueService, times(1)).publish(HelpRequestEvent.builder()
+                                .type(HelpRequestEvent.Type.UPDATED)
+                                .id(1L)
+                                .helpRequest(updatedHelpRequest)
+                                .build());
+        }
+
+        // Tests for POST /api/helprequest/import
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_import() throws Exception {
+                mockMvc.perform(post("/api/helprequest/import")
+                                .contentType(MediaType.APPLICATION_NDJSON)
+                                .content("{}\n")
+                                .with(csrf()))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void an_admin_user_can_import_help_requests() throws Exception {
+                // arrange
+                ImportReport report = new ImportReport();
+                report.setReceived(1);
+                report.setImported(1);
+                when(bulkImportService.importRows(any(), argThat(MediaType.APPLICATION_NDJSON::isCompatibleWith), eq(HelpRequest.class),
+                                eq(helpRequestRepository), any())).thenReturn(report);
+
+                // act
+                MvcResult response = mockMvc.perform(post("/api/helprequest/import")
+                                .contentType(MediaType.APPLICATION_NDJSON)
+                                .content("{\"requesterEmail\": \"cgaucho@ucsb.edu\", \"teamId\": \"s22-5pm-3\", \"tableOrBreakoutRoom\": \"7\", \"requestTime\": \"2022-04-20T17:35:00\", \"explanation\": \"Need help\", \"solved\": false}\n")
+                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                @SuppressWarnings("unchecked")
+                ArgumentCaptor<Consumer<HelpRequest>> afterCommit = ArgumentCaptor.forClass(Consumer.class);
+                verify(bulkImportService, times(1)).importRows(any(), argThat(MediaType.APPLICATION_NDJSON::isCompatibleWith), eq(HelpRequest.class),
+                                eq(helpRequestRepository), afterCommit.capture());
+                assertEquals(mapper.writeValueAsString(report), response.getResponse().getContentAsString());
+
+                HelpRequest saved = HelpRequest.builder().id(51L).requesterEmail("cgaucho@ucsb.edu").build();
+                afterCommit.getValue().accept(saved);
+                verify(helpRequestQueueService, times(1)).publish(HelpRequestEvent.builder()
+                                .type(HelpRequestEvent.Type.CREATED)
+                                .id(51L)
+                                .helpRequest(saved)
+                                .build());
+        }
+
+        // Tests for conditional GETs (ETag / If-None-Match)
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_304_for_all_when_etag_matches() throws Exception {
+                // arrange
+                when(helpRequestRepository.findAll()).thenReturn(new ArrayList<>());
+                MvcResult first = mockMvc.perform(get("/api/helprequest/all"))
+                                .andExpect(status().isOk())
+                                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache, private"))
+                                .andReturn();
+                String etag = first.getResponse().getHeader(HttpHeaders.ETAG);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/helprequest/all").header(HttpHeaders.IF_NONE_MATCH, etag))
+                                .andExpect(status().isNotModified()).andReturn();
+
+                // assert
+                verify(helpRequestRepository, times(1)).findAll();
+                assertEquals("", response.getResponse().getContentAsString());
+                assertEquals(etag, response.getResponse().getHeader(HttpHeaders.ETAG));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_304_for_get_by_id_when_etag_matches() throws Exception {
+                // arrange
+                HelpRequest entity = HelpRequest.builder().id(15L).version(4L).build();
+                when(helpRequestRepository.findById(eq(15L))).thenReturn(Optional.of(entity));
+
+                // act
+                mockMvc.perform(get("/api/helprequest?id=15").header(HttpHeaders.IF_NONE_MATCH, entityTag(HelpRequest.class, 4)))
+                                .andExpect(status().isNotModified());
+
+                // assert
+                verify(helpRequestRepository, times(1)).findById(eq(15L));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_delete_changes_the_etag_for_help_requests() throws Exception {
+                // arrange
+                String before = tableVersionService.etag(HelpRequest.class);
+                when(helpRequestRepository.removeById(eq(15L), isNull())).thenReturn(1);
+
+                // act
+                mockMvc.perform(delete("/api/helprequest?id=" + "15").with(csrf()))
+                                .andExpect(status().isOk());
+
+                // assert
+                assertNotEquals(before, tableVersionService.etag(HelpRequest.class));
+        }
+
+        // Tests for GET /api/helprequest/batch
+
+        @Test
+        public void logged_out_users_cannot_get_batch() throws Exception {
+                mockMvc.perform(get("/api/helprequest/batch?ids=1,2"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_a_batch_looked_up_in_chunks_with_missing_ids_reported() throws Exception {
+                // arrange
+                HelpRequest first = HelpRequest.builder().id(1L).teamId("team01").build();
+                HelpRequest third = HelpRequest.builder().id(3L).teamId("team03").build();
+                // with a chunk size of 2, the distinct ids 3,1,2 are looked up as [3,1] then [2];
+                // the four ids requested are exactly the most allowed
+                when(helpRequestRepository.findAllById(List.of(3L, 1L))).thenReturn(List.of(first, third));
+                when(helpRequestRepository.findAllById(List.of(2L))).thenReturn(List.of());
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/helprequest/batch?ids=3,1,3,2"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(helpRequestRepository, times(2)).findAllById(any());
+                Map<Long, HelpRequest> found = new LinkedHashMap<>();
+                found.put(3L, third);
+                found.put(1L, first);
+                String expectedJson = mapper.writeValueAsString(new BatchResult<>(found, List.of(2L)));
+                assertEquals(expectedJson, response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void a_batch_naming_more_ids_than_allowed_is_refused() throws Exception {
+                // act
+                MvcResult response = mockMvc.perform(get("/api/helprequest/batch?ids=1,2,3,4,5"))
+                                .andExpect(status().isBadRequest()).andReturn();
+
+                // assert
+                verify(helpRequestRepository, never()).findAllById(any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("TooManyIdsException", json.get("type"));
+                assertEquals("5 ids were requested, but at most 4 may be named in one request", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_304_for_get_batch_when_etag_matches() throws Exception {
+                // arrange
+                String etag = "\"" + tableVersionService.etag(HelpRequest.class) + "\"";
+
+                // act
+                mockMvc.perform(get("/api/helprequest/batch?ids=1").header(HttpHeaders.IF_NONE_MATCH, etag))
+                                .andExpect(status().isNotModified());
+
+                // assert
+                verify(helpRequestRepository, never()).findAllById(any());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_edit_a_help_request_at_the_version_it_read() throws Exception {
+                // arrange
+                HelpRequest edited = HelpRequest.builder()
+                                .requesterEmail("cgaucho@ucsb.edu")
+                                .teamId("s22-5pm-3")
+                                .tableOrBreakoutRoom("7")
+                                .explanation("Need help with Swagger-ui")
+                                .solved(false)
+                                .build();
+                HelpRequest saved = HelpRequest.builder().id(67L).version(5L).build();
+
+                when(helpRequestRepository.updateById(eq(67L), any(), eq(4L))).thenReturn(1);
+                when(helpRequestRepository.findById(eq(67L))).thenReturn(Optional.of(saved));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                put("/api/helprequest?id=67")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .header(HttpHeaders.IF_MATCH, entityTag(HelpRequest.class, 4))
+                                                .content(mapper.writeValueAsString(edited))
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(helpRequestRepository, times(1)).updateById(67L, edited, 4L);
+                assertEquals(mapper.writeValueAsString(saved), response.getResponse().getContentAsString());
+                assertEquals(entityTag(HelpRequest.class, 5), response.getResponse().getHeader(HttpHeaders.ETAG));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_cannot_edit_a_help_request_that_changed_since_it_was_read() throws Exception {
+                // arrange
+                HelpRequest edited = HelpRequest.builder()
+                                .requesterEmail("cgaucho@ucsb.edu")
+                                .teamId("s22-5pm-3")
+                                .tableOrBreakoutRoom("7")
+                                .explanation("Need help with Swagger-ui")
+                                .solved(false)
+                                .build();
+
+                when(helpRequestRepository.updateById(eq(67L), any(), eq(4L))).thenReturn(0);
+                when(helpRequestRepository.existsById(eq(67L))).thenReturn(true);
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                put("/api/helprequest?id=67")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .header(HttpHeaders.IF_MATCH, entityTag(HelpRequest.class, 4))
+                                                .content(mapper.writeValueAsString(edited))
+                                                .with(csrf()))
+                                .andExpect(status().isPreconditionFailed()).andReturn();
+
+                // assert
+                verify(helpRequestRepository, never()).findById(any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("VersionConflictException", json.get("type"));
+                assertEquals("HelpRequest with id 67 has been changed since it was read", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_cannot_patch_a_help_request_that_changed_since_it_was_read() throws Exception {
+                // arrange
+                JsonNode patch = mapper.readTree("{\"explanation\": \"Need help with setup\"}");
+                when(mergePatchService.patch(HelpRequest.class, 67L, patch, 4L)).thenReturn(0);
+                when(helpRequestRepository.existsById(eq(67L))).thenReturn(true);
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                patch("/api/helprequest?id=67")
+                                                .contentType(MergePatchService.APPLICATION_MERGE_PATCH_JSON_VALUE)
+                                                .header(HttpHeaders.IF_MATCH, entityTag(HelpRequest.class, 4))
+                                                .content("{\"explanation\": \"Need help with setup\"}")
+                                                .with(csrf()))
+                                .andExpect(status().isPreconditionFailed()).andReturn();
+
+                // assert
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("HelpRequest with id 67 has been changed since it was read", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_cannot_delete_a_help_request_that_changed_since_it_was_read() throws Exception {
+                // arrange
+                when(helpRequestRepository.removeById(eq(67L), eq(4L))).thenReturn(0);
+                when(helpRequestRepository.existsById(eq(67L))).thenReturn(true);
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                delete("/api/helprequest?id=67")
+                                                .header(HttpHeaders.IF_MATCH, entityTag(HelpRequest.class, 4))
+                                                .with(csrf()))
+                                .andExpect(status().isPreconditionFailed()).andReturn();
+
+                // assert
+                verify(helpRequestRepository, times(1)).removeById(67L, 4L);
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("HelpRequest with id 67 has been changed since it was read", json.get("message"));
+        }
 }
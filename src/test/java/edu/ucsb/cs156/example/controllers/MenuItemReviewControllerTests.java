@@ -3,19 +3,38 @@ package edu.ucsb.cs156.example.controllers;
 import edu.ucsb.cs156.example.repositories.UserRepository;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.entities.MenuItemRating;
 import edu.ucsb.cs156.example.entities.MenuItemReview;
 import edu.ucsb.cs156.example.repositories.MenuItemReviewRepository;
-
+import edu.ucsb.cs156.example.services.MenuItemLeaderboardService;
+import edu.ucsb.cs156.example.services.MenuItemRatingService;
+import edu.ucsb.cs156.example.services.MenuItemReviewExportService;
+import edu.ucsb.cs156.example.models.MenuItemRanking;
+import edu.ucsb.cs156.example.models.RatingRebuildReport;
+import edu.ucsb.cs156.example.models.ImportReport;
+import edu.ucsb.cs156.example.services.BulkImportService;
+import edu.ucsb.cs156.example.models.BatchResult;
+
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
 import org.springframework.http.MediaType;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
+import org.mockito.InOrder;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -24,13 +43,22 @@ import static org.springframework.security.test.web.servlet.request.SecurityMock
 import java.time.LocalDateTime;
 
 import java.util.Optional;
+import java.util.LinkedHashMap;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.never;
 
 @WebMvcTest(controllers = MenuItemReviewController.class)
 @Import(TestConfig.class)
@@ -42,6 +70,18 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
     @MockBean
     UserRepository userRepository;
 
+    @MockBean
+    BulkImportService bulkImportService;
+
+    @MockBean
+    MenuItemReviewExportService menuItemReviewExportService;
+
+    @MockBean
+    MenuItemRatingService menuItemRatingService;
+
+    @MockBean
+    MenuItemLeaderboardService menuItemLeaderboardService;
+
     // Authorization tests for /api/menuitemreview/admin/all
 
     @Test
@@ -93,6 +133,7 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
                             .stars(3)
                             .dateReviewed(ldt)
                             .comments("good")
+                            .version(3L)
                             .build();
 
                 when(menuItemReviewRepository.findById(eq(7L))).thenReturn(Optional.of(menuItemReview));
@@ -107,6 +148,7 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
                 String expectedJson = mapper.writeValueAsString(menuItemReview);
                 String responseString = response.getResponse().getContentAsString();
                 assertEquals(expectedJson, responseString);
+                assertEquals(entityTag(MenuItemReview.class, 3), response.getResponse().getHeader(HttpHeaders.ETAG));
         }
 
         @WithMockUser(roles = { "USER" })
@@ -197,7 +239,9 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
                             .andExpect(status().isOk()).andReturn();
 
             // assert
-            verify(menuItemReviewRepository, times(1)).save(menuItemReview1);
+            InOrder order = inOrder(menuItemRatingService, menuItemReviewRepository);
+            order.verify(menuItemRatingService, times(1)).reviewAdded(menuItemReview1);
+            order.verify(menuItemReviewRepository, times(1)).save(menuItemReview1);
             String expectedJson = mapper.writeValueAsString(menuItemReview1);
             String responseString = response.getResponse().getContentAsString();
             assertEquals(expectedJson, responseString);
@@ -229,6 +273,7 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
                 // assert
                 verify(menuItemReviewRepository, times(1)).findById(15L);
                 verify(menuItemReviewRepository, times(1)).delete(any());
+                verify(menuItemRatingService, times(1)).reviewRemoved(menuItemReview1);
 
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("MenuItemReview with id 15 deleted", json.get("message"));
@@ -268,19 +313,23 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
                                 .stars(3)
                                 .dateReviewed(ldt1)
                                 .comments("good")
+                                .version(3L)
                                 .build();
 
                 MenuItemReview editedMenuItemReview = MenuItemReview.builder()
+                                .id(67L)
                                 .itemId(3L)
                                 .reviewerEmail("test@ucsb.edu")
                                 .stars(4)
                                 .dateReviewed(ldt2)
                                 .comments("great")
+                                .version(4L)
                                 .build();
 
                 String requestBody = mapper.writeValueAsString(editedMenuItemReview);
 
-                when(menuItemReviewRepository.findById(eq(67L))).thenReturn(Optional.of(origMenuItemReview));
+                when(menuItemReviewRepository.findForUpdateById(eq(67L))).thenReturn(Optional.of(origMenuItemReview));
+                when(menuItemReviewRepository.updateById(eq(67L), any(), isNull())).thenReturn(1);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -292,10 +341,12 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
-                verify(menuItemReviewRepository, times(1)).findById(67L);
-                verify(menuItemReviewRepository, times(1)).save(editedMenuItemReview); // should be saved with correct user
+                verify(menuItemReviewRepository, times(1)).findForUpdateById(67L);
+                verify(menuItemReviewRepository, times(1)).updateById(67L, editedMenuItemReview, null);
+                verify(menuItemRatingService, times(1)).reviewChanged(origMenuItemReview, editedMenuItemReview);
                 String responseString = response.getResponse().getContentAsString();
                 assertEquals(requestBody, responseString);
+                assertEquals(entityTag(MenuItemReview.class, 4), response.getResponse().getHeader(HttpHeaders.ETAG));
         }
 
         @WithMockUser(roles = { "ADMIN", "USER" })
@@ -315,7 +366,7 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
 
                 String requestBody = mapper.writeValueAsString(editedMenuItemReview);
 
-                when(menuItemReviewRepository.findById(eq(67L))).thenReturn(Optional.empty());
+                when(menuItemReviewRepository.findForUpdateById(eq(67L))).thenReturn(Optional.empty());
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -327,10 +378,606 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
                                 .andExpect(status().isNotFound()).andReturn();
 
                 // assert
-                verify(menuItemReviewRepository, times(1)).findById(67L);
+                verify(menuItemReviewRepository, times(1)).findForUpdateById(67L);
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("MenuItemReview with id 67 not found", json.get("message"));
 
         }
 
-}
\ No newline at end of file
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_edit_a_review_at_the_version_it_read() throws Exception {
+                // arrange
+                MenuItemReview origMenuItemReview = MenuItemReview.builder()
+                                .itemId(2L)
+                                .reviewerEmail("cgaucho@ucsb.edu")
+                                .stars(3)
+                                .dateReviewed(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .comments("good")
+                                .version(3L)
+                                .build();
+                MenuItemReview editedMenuItemReview = MenuItemReview.builder()
+                                .itemId(2L)
+                                .reviewerEmail("cgaucho@ucsb.edu")
+                                .stars(4)
+                                .dateReviewed(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .comments("great")
+                                .build();
+
+                when(menuItemReviewRepository.findForUpdateById(eq(67L))).thenReturn(Optional.of(origMenuItemReview));
+                when(menuItemReviewRepository.updateById(eq(67L), any(), eq(3L))).thenReturn(1);
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                put("/api/menuitemreview?id=67")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .header(HttpHeaders.IF_MATCH, entityTag(MenuItemReview.class, 3))
+                                                .content(mapper.writeValueAsString(editedMenuItemReview))
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(menuItemReviewRepository, times(1)).updateById(eq(67L), any(), eq(3L));
+                verify(menuItemRatingService, times(1)).reviewChanged(eq(origMenuItemReview), any());
+                assertEquals(entityTag(MenuItemReview.class, 4), response.getResponse().getHeader(HttpHeaders.ETAG));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_cannot_edit_a_review_that_changed_since_it_was_read() throws Exception {
+                // arrange
+                MenuItemReview origMenuItemReview = MenuItemReview.builder()
+                                .itemId(2L)
+                                .reviewerEmail("cgaucho@ucsb.edu")
+                                .stars(3)
+                                .dateReviewed(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .comments("good")
+                                .version(3L)
+                                .build();
+                MenuItemReview editedMenuItemReview = MenuItemReview.builder()
+                                .itemId(2L)
+                                .reviewerEmail("cgaucho@ucsb.edu")
+                                .stars(4)
+                                .dateReviewed(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .comments("great")
+                                .build();
+
+                when(menuItemReviewRepository.findForUpdateById(eq(67L))).thenReturn(Optional.of(origMenuItemReview));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                put("/api/menuitemreview?id=67")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .header(HttpHeaders.IF_MATCH, entityTag(MenuItemReview.class, 2))
+                                                .content(mapper.writeValueAsString(editedMenuItemReview))
+                                                .with(csrf()))
+                                .andExpect(status().isPreconditionFailed()).andReturn();
+
+                // assert
+                verify(menuItemReviewRepository, never()).updateById(anyLong(), any(), any());
+                verify(menuItemRatingService, never()).reviewChanged(any(), any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("VersionConflictException", json.get("type"));
+                assertEquals("MenuItemReview with id 67 has been changed since it was read", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_cannot_edit_a_review_that_changes_between_the_read_and_the_write() throws Exception {
+                // arrange
+                MenuItemReview origMenuItemReview = MenuItemReview.builder()
+                                .itemId(2L)
+                                .reviewerEmail("cgaucho@ucsb.edu")
+                                .stars(3)
+                                .dateReviewed(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .comments("good")
+                                .version(3L)
+                                .build();
+                MenuItemReview editedMenuItemReview = MenuItemReview.builder()
+                                .itemId(2L)
+                                .reviewerEmail("cgaucho@ucsb.edu")
+                                .stars(4)
+                                .dateReviewed(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .comments("great")
+                                .build();
+
+                when(menuItemReviewRepository.findForUpdateById(eq(67L))).thenReturn(Optional.of(origMenuItemReview));
+                when(menuItemReviewRepository.updateById(eq(67L), any(), eq(3L))).thenReturn(0);
+                when(menuItemReviewRepository.existsById(eq(67L))).thenReturn(true);
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                put("/api/menuitemreview?id=67")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .header(HttpHeaders.IF_MATCH, entityTag(MenuItemReview.class, 3))
+                                                .content(mapper.writeValueAsString(editedMenuItemReview))
+                                                .with(csrf()))
+                                .andExpect(status().isPreconditionFailed()).andReturn();
+
+                // assert
+                verify(menuItemRatingService, never()).reviewChanged(any(), any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("MenuItemReview with id 67 has been changed since it was read", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_gets_404_for_an_unconditional_edit_of_a_review_deleted_before_the_write() throws Exception {
+                // arrange
+                MenuItemReview origMenuItemReview = MenuItemReview.builder()
+                                .itemId(2L)
+                                .stars(3)
+                                .version(3L)
+                                .build();
+                MenuItemReview editedMenuItemReview = MenuItemReview.builder()
+                                .itemId(2L)
+                                .stars(4)
+                                .build();
+
+                when(menuItemReviewRepository.findForUpdateById(eq(67L))).thenReturn(Optional.of(origMenuItemReview));
+                when(menuItemReviewRepository.updateById(eq(67L), any(), isNull())).thenReturn(0);
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                put("/api/menuitemreview?id=67")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(mapper.writeValueAsString(editedMenuItemReview))
+                                                .with(csrf()))
+                                .andExpect(status().isNotFound()).andReturn();
+
+                // assert
+                verify(menuItemRatingService, never()).reviewChanged(any(), any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("MenuItemReview with id 67 not found", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_delete_a_review_at_the_version_it_read() throws Exception {
+                // arrange
+                MenuItemReview menuItemReview = MenuItemReview.builder()
+                                .itemId(2L)
+                                .reviewerEmail("cgaucho@ucsb.edu")
+                                .stars(3)
+                                .dateReviewed(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .comments("good")
+                                .version(3L)
+                                .build();
+
+                when(menuItemReviewRepository.findById(eq(15L))).thenReturn(Optional.of(menuItemReview));
+
+                // act
+                mockMvc.perform(
+                                delete("/api/menuitemreview?id=15")
+                                                .header(HttpHeaders.IF_MATCH, entityTag(MenuItemReview.class, 3))
+                                                .with(csrf()))
+                                .andExpect(status().isOk());
+
+                // assert
+                verify(menuItemReviewRepository, times(1)).delete(menuItemReview);
+                verify(menuItemRatingService, times(1)).reviewRemoved(menuItemReview);
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_cannot_delete_a_review_that_changed_since_it_was_read() throws Exception {
+                // arrange
+                MenuItemReview menuItemReview = MenuItemReview.builder()
+                                .itemId(2L)
+                                .reviewerEmail("cgaucho@ucsb.edu")
+                                .stars(3)
+                                .dateReviewed(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .comments("good")
+                                .version(3L)
+                                .build();
+
+                when(menuItemReviewRepository.findById(eq(15L))).thenReturn(Optional.of(menuItemReview));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                delete("/api/menuitemreview?id=15")
+                                                .header(HttpHeaders.IF_MATCH, entityTag(MenuItemReview.class, 2))
+                                                .with(csrf()))
+                                .andExpect(status().isPreconditionFailed()).andReturn();
+
+                // assert
+                verify(menuItemReviewRepository, never()).delete(any());
+                verify(menuItemRatingService, never()).reviewRemoved(any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("MenuItemReview with id 15 has been changed since it was read", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_delete_of_a_review_changed_during_the_delete_gets_412() throws Exception {
+                // arrange
+                MenuItemReview menuItemReview = MenuItemReview.builder()
+                                .itemId(2L)
+                                .reviewerEmail("cgaucho@ucsb.edu")
+                                .stars(3)
+                                .dateReviewed(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .comments("good")
+                                .version(3L)
+                                .build();
+
+                when(menuItemReviewRepository.findById(eq(15L))).thenReturn(Optional.of(menuItemReview));
+                doThrow(new ObjectOptimisticLockingFailureException(MenuItemReview.class, 15L))
+                                .when(menuItemReviewRepository).delete(menuItemReview);
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                delete("/api/menuitemreview?id=15")
+                                                .with(csrf()))
+                                .andExpect(status().isPreconditionFailed()).andReturn();
+
+                // assert
+                verify(menuItemRatingService, never()).reviewRemoved(any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("ObjectOptimisticLockingFailureException", json.get("type"));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_first_page_and_next_cursor_when_limit_is_given() throws Exception {
+
+                // arrange
+                MenuItemReview menuItemReview1 = MenuItemReview.builder().id(1L).comments("first").build();
+                MenuItemReview menuItemReview2 = MenuItemReview.builder().id(2L).comments("second").build();
+                MenuItemReview menuItemReview3 = MenuItemReview.builder().id(3L).comments("third").build();
+
+                when(menuItemReviewRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), eq(Limit.of(3))))
+                                .thenReturn(new ArrayList<>(Arrays.asList(menuItemReview1, menuItemReview2, menuItemReview3)));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/menuitemreview/all?limit=2"))
+                                .andExpect(status().isOk())
+                                .andExpect(header().string("X-Next-Cursor", "2"))
+                                .andReturn();
+
+                // assert
+                verify(menuItemReviewRepository, times(0)).findAll();
+                String expectedJson = mapper.writeValueAsString(Arrays.asList(menuItemReview1, menuItemReview2));
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_last_page_without_next_cursor() throws Exception {
+
+                // arrange
+                MenuItemReview menuItemReview3 = MenuItemReview.builder().id(3L).comments("third").build();
+
+                when(menuItemReviewRepository.findByIdGreaterThanOrderByIdAsc(eq(2L), eq(Limit.of(101))))
+                                .thenReturn(new ArrayList<>(Arrays.asList(menuItemReview3)));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/menuitemreview/all?after=2"))
+                                .andExpect(status().isOk())
+                                .andExpect(header().doesNotExist("X-Next-Cursor"))
+                                .andReturn();
+
+                // assert
+                verify(menuItemReviewRepository, times(1)).findByIdGreaterThanOrderByIdAsc(2L, Limit.of(101));
+                String expectedJson = mapper.writeValueAsString(Arrays.asList(menuItemReview3));
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        @Test
+        public void logged_out_users_cannot_export() throws Exception {
+                mockMvc.perform(get("/api/menuitemreview/export"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_export_reviews_as_ndjson() throws Exception {
+
+                // arrange
+                doAnswer(invocation -> {
+                        OutputStream out = invocation.getArgument(0);
+                        out.write("{\"id\":1}\n{\"id\":2}\n".getBytes());
+                        return 2L;
+                }).when(menuItemReviewExportService).writeNdjson(any());
+
+                // act
+                MvcResult started = mockMvc.perform(get("/api/menuitemreview/export"))
+                                .andExpect(request().asyncStarted()).andReturn();
+                MvcResult response = mockMvc.perform(asyncDispatch(started))
+                                .andExpect(status().isOk())
+                                .andExpect(content().contentType("application/x-ndjson"))
+                                .andReturn();
+
+                // assert
+                verify(menuItemReviewExportService, times(1)).writeNdjson(any());
+                assertEquals("{\"id\":1}\n{\"id\":2}\n", response.getResponse().getContentAsString());
+        }
+
+    // Tests for POST /api/menuitemreview/import
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_regular_users_cannot_import() throws Exception {
+        mockMvc.perform(post("/api/menuitemreview/import")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .content("{}\n")
+                .with(csrf()))
+                .andExpect(status().is(403));
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void an_admin_user_can_import_menu_item_reviews() throws Exception {
+        // arrange
+        ImportReport report = new ImportReport();
+        report.setReceived(2);
+        report.setImported(1);
+        report.reject(2, "Unexpected end-of-input");
+        when(bulkImportService.importRows(any(), argThat(MediaType.APPLICATION_NDJSON::isCompatibleWith), eq(MenuItemReview.class),
+                eq(menuItemReviewRepository), any())).thenAnswer(invocation -> {
+                    Consumer<MenuItemReview> afterCommit = invocation.getArgument(4);
+                    afterCommit.accept(MenuItemReview.builder().id(51L).itemId(7L).stars(5).build());
+                    afterCommit.accept(MenuItemReview.builder().id(52L).itemId(7L).stars(4).build());
+                    return report;
+                });
+
+        // act
+        MvcResult response = mockMvc.perform(post("/api/menuitemreview/import")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .content("{\"itemId\": 7, \"reviewerEmail\": \"cgaucho@ucsb.edu\", \"stars\": 5, \"dateReviewed\": \"2022-01-03T00:00:00\", \"comments\": \"great\"}\n{\n")
+                .with(csrf()))
+                .andExpect(status().isOk()).andReturn();
+
+        // assert
+        verify(bulkImportService, times(1)).importRows(any(), argThat(MediaType.APPLICATION_NDJSON::isCompatibleWith), eq(MenuItemReview.class),
+                eq(menuItemReviewRepository), any());
+        verify(menuItemRatingService, times(1)).rebuild(Set.of(7L));
+        assertEquals(mapper.writeValueAsString(report), response.getResponse().getContentAsString());
+    }
+
+    // Tests for conditional GETs (ETag / If-None-Match)
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_user_gets_304_for_all_when_etag_matches() throws Exception {
+        // arrange
+        when(menuItemReviewRepository.findAll()).thenReturn(new ArrayList<>());
+        MvcResult first = mockMvc.perform(get("/api/menuitemreview/all"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache, private"))
+                .andReturn();
+        String etag = first.getResponse().getHeader(HttpHeaders.ETAG);
+
+        // act
+        MvcResult response = mockMvc.perform(get("/api/menuitemreview/all").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified()).andReturn();
+
+        // assert
+        verify(menuItemReviewRepository, times(1)).findAll();
+        assertEquals("", response.getResponse().getContentAsString());
+        assertEquals(etag, response.getResponse().getHeader(HttpHeaders.ETAG));
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_user_gets_304_for_get_by_id_when_etag_matches() throws Exception {
+        // arrange
+        MenuItemReview entity = MenuItemReview.builder().id(15L).version(4L).build();
+        when(menuItemReviewRepository.findById(eq(15L))).thenReturn(Optional.of(entity));
+
+        // act
+        mockMvc.perform(get("/api/menuitemreview?id=15").header(HttpHeaders.IF_NONE_MATCH, entityTag(MenuItemReview.class, 4)))
+                .andExpect(status().isNotModified());
+
+        // assert
+        verify(menuItemReviewRepository, times(1)).findById(eq(15L));
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void admin_delete_changes_the_etag_for_reviews() throws Exception {
+        // arrange
+        String before = tableVersionService.etag(MenuItemReview.class);
+        when(menuItemReviewRepository.findById(eq(15L))).thenReturn(Optional.of(MenuItemReview.builder().id(15L).build()));
+
+        // act
+        mockMvc.perform(delete("/api/menuitemreview?id=" + "15").with(csrf()))
+                .andExpect(status().isOk());
+
+        // assert
+        assertNotEquals(before, tableVersionService.etag(MenuItemReview.class));
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void a_delete_in_a_transaction_changes_the_etag_only_once_it_commits() throws Exception {
+        // arrange
+        String before = tableVersionService.etag(MenuItemReview.class);
+        when(menuItemReviewRepository.findById(eq(15L))).thenReturn(Optional.of(MenuItemReview.builder().id(15L).build()));
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            // act
+            mockMvc.perform(delete("/api/menuitemreview?id=" + "15").with(csrf()))
+                    .andExpect(status().isOk());
+
+            // assert
+            assertEquals(before, tableVersionService.etag(MenuItemReview.class));
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        assertNotEquals(before, tableVersionService.etag(MenuItemReview.class));
+    }
+
+    // Tests for GET /api/menuitemreview/summary and POST /api/menuitemreview/summary/rebuild
+
+    @Test
+    public void logged_out_users_cannot_get_a_summary() throws Exception {
+        mockMvc.perform(get("/api/menuitemreview/summary?itemId=7"))
+                .andExpect(status().is(403));
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_user_can_get_the_summary_of_an_item() throws Exception {
+        // arrange
+        MenuItemRating rating = MenuItemRating.builder()
+                .itemId(7L)
+                .reviewCount(3).starsSum(12)
+                .threeStars(1).fourStars(1).fiveStars(1)
+                .lastReviewed(LocalDateTime.parse("2022-01-03T00:00:00"))
+                .build();
+        when(menuItemRatingService.getRating(7L)).thenReturn(rating);
+
+        // act
+        MvcResult response = mockMvc.perform(get("/api/menuitemreview/summary?itemId=7"))
+                .andExpect(status().isOk()).andReturn();
+
+        // assert
+        verify(menuItemRatingService, times(1)).getRating(7L);
+        assertEquals(mapper.writeValueAsString(rating), response.getResponse().getContentAsString());
+        assertEquals(4.0, responseToJson(response).get("averageStars"));
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_user_gets_304_for_summary_when_etag_matches() throws Exception {
+        // arrange
+        String etag = "\"" + tableVersionService.etag(MenuItemReview.class) + "\"";
+
+        // act
+        mockMvc.perform(get("/api/menuitemreview/summary?itemId=7").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+
+        // assert
+        verify(menuItemRatingService, never()).getRating(7L);
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_regular_users_cannot_rebuild_summaries() throws Exception {
+        mockMvc.perform(post("/api/menuitemreview/summary/rebuild").with(csrf()))
+                .andExpect(status().is(403));
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void an_admin_user_can_rebuild_summaries() throws Exception {
+        // arrange
+        RatingRebuildReport report = RatingRebuildReport.builder()
+                .items(2).reviews(5).chunks(1).removed(1).millis(3)
+                .build();
+        when(menuItemRatingService.rebuildAll()).thenReturn(report);
+        String before = tableVersionService.etag(MenuItemReview.class);
+
+        // act
+        MvcResult response = mockMvc.perform(post("/api/menuitemreview/summary/rebuild").with(csrf()))
+                .andExpect(status().isOk()).andReturn();
+
+        // assert
+        verify(menuItemRatingService, times(1)).rebuildAll();
+        assertEquals(mapper.writeValueAsString(report), response.getResponse().getContentAsString());
+        assertNotEquals(before, tableVersionService.etag(MenuItemReview.class));
+    }
+
+    // Tests for GET /api/menuitemreview/top
+
+    @Test
+    public void logged_out_users_cannot_get_the_top_items() throws Exception {
+        mockMvc.perform(get("/api/menuitemreview/top"))
+                .andExpect(status().is(403));
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_user_can_get_the_top_ten_items() throws Exception {
+        // arrange
+        List<MenuItemRanking> top = List.of(MenuItemRanking.builder()
+                .rank(1).itemId(7L).diningCommonsCode("ortega").name("Burrito").station("Grill")
+                .reviewCount(10).averageStars(4.8).score(4.2)
+                .build());
+        when(menuItemLeaderboardService.getTop(10, null)).thenReturn(top);
+
+        // act
+        MvcResult response = mockMvc.perform(get("/api/menuitemreview/top"))
+                .andExpect(status().isOk()).andReturn();
+
+        // assert
+        verify(menuItemLeaderboardService, times(1)).getTop(10, null);
+        assertEquals(mapper.writeValueAsString(top), response.getResponse().getContentAsString());
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_user_can_get_the_top_items_of_a_dining_commons() throws Exception {
+        // arrange
+        when(menuItemLeaderboardService.getTop(3, "carrillo")).thenReturn(List.of());
+
+        // act
+        MvcResult response = mockMvc.perform(get("/api/menuitemreview/top?n=3&diningCommonsCode=carrillo"))
+                .andExpect(status().isOk()).andReturn();
+
+        // assert
+        verify(menuItemLeaderboardService, times(1)).getTop(3, "carrillo");
+        assertEquals("[]", response.getResponse().getContentAsString());
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void a_negative_n_lists_no_items() throws Exception {
+        // act
+        mockMvc.perform(get("/api/menuitemreview/top?n=-5"))
+                .andExpect(status().isOk());
+
+        // assert
+        verify(menuItemLeaderboardService, times(1)).getTop(0, null);
+    }
+
+    // Tests for GET /api/menuitemreview/batch
+
+    @Test
+    public void logged_out_users_cannot_get_batch() throws Exception {
+        mockMvc.perform(get("/api/menuitemreview/batch?ids=1,2"))
+                .andExpect(status().is(403));
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_user_gets_a_batch_with_missing_ids_reported() throws Exception {
+        // arrange
+        MenuItemReview first = MenuItemReview.builder().id(1L).stars(5).build();
+        MenuItemReview third = MenuItemReview.builder().id(3L).stars(2).build();
+        when(menuItemReviewRepository.findAllById(List.of(1L, 2L, 3L))).thenReturn(List.of(first, third));
+
+        // act
+        MvcResult response = mockMvc.perform(get("/api/menuitemreview/batch?ids=1,2,3"))
+                .andExpect(status().isOk()).andReturn();
+
+        // assert
+        Map<Long, MenuItemReview> found = new LinkedHashMap<>();
+        found.put(1L, first);
+        found.put(3L, third);
+        String expectedJson = mapper.writeValueAsString(new BatchResult<>(found, List.of(2L)));
+        assertEquals(expectedJson, response.getResponse().getContentAsString());
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_user_gets_304_for_get_batch_when_etag_matches() throws Exception {
+        // arrange
+        String etag = "\"" + tableVersionService.etag(MenuItemReview.class) + "\"";
+
+        // act
+        mockMvc.perform(get("/api/menuitemreview/batch?ids=1").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+
+        // assert
+        verify(menuItemReviewRepository, never()).findAllById(any());
+    }
+}
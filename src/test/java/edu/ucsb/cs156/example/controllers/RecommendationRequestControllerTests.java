@@ -6,6 +6,13 @@ import edu.ucsb.cs156.example.ControllerTestCase;
 import edu.ucsb.cs156.example.entities.RecommendationRequest;
 import edu.ucsb.cs156.example.entities.UCSBDate;
 import edu.ucsb.cs156.example.repositories.RecommendationRequestRepository;
+import edu.ucsb.cs156.example.models.ImportReport;
+import edu.ucsb.cs156.example.services.BulkImportService;
+import edu.ucsb.cs156.example.services.MergePatchService;
+import edu.ucsb.cs156.example.models.BatchResult;
+import edu.ucsb.cs156.example.models.BulkUpdateReport;
+
+import com.fasterxml.jackson.databind.JsonNode;
 
 
 import java.util.ArrayList;
@@ -15,7 +22,9 @@ import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
 import org.springframework.http.MediaType;
+import org.springframework.http.HttpHeaders;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
 
@@ -26,13 +35,21 @@ import static org.springframework.security.test.web.servlet.request.SecurityMock
 import java.time.LocalDateTime;
 
 import java.util.Optional;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.never;
 
 @WebMvcTest(controllers = RecommendationRequestController.class)
 @Import(TestConfig.class)
@@ -44,6 +61,12 @@ public class RecommendationRequestControllerTests extends ControllerTestCase{
     @MockBean
     UserRepository userRepository;
 
+    @MockBean
+    BulkImportService bulkImportService;
+
+    @MockBean
+    MergePatchService mergePatchService;
+
     // GET
     @Test
     public void logged_out_users_cannot_get_all() throws Exception {
@@ -124,6 +147,7 @@ public class RecommendationRequestControllerTests extends ControllerTestCase{
                                 .dateRequested(ldt1)
                                 .dateNeeded(ldt2)
                                 .done(true)
+                                .version(3L)
                                 .build();
 
                 when(recommendationRequestRepository.findById(eq(7L))).thenReturn(Optional.of(recommendationRequest1));
@@ -138,6 +162,7 @@ public class RecommendationRequestControllerTests extends ControllerTestCase{
                 String expectedJson = mapper.writeValueAsString(recommendationRequest1);
                 String responseString = response.getResponse().getContentAsString();
                 assertEquals(expectedJson, responseString);
+                assertEquals(entityTag(RecommendationRequest.class, 3), response.getResponse().getHeader(HttpHeaders.ETAG));
         }
 
     @WithMockUser(roles = { "USER" })
@@ -212,31 +237,24 @@ public class RecommendationRequestControllerTests extends ControllerTestCase{
         public void admin_can_edit_an_existing_recommendationrequest() throws Exception {
                 // arrange
 
-                LocalDateTime ldt1 = LocalDateTime.parse("2022-01-03T00:00:00");
                 LocalDateTime ldt2 = LocalDateTime.parse("2023-01-03T00:00:00");
                 LocalDateTime ldt3 = LocalDateTime.parse("2022-01-03T00:00:00");
 
-                RecommendationRequest recommendationRequest1 = RecommendationRequest.builder()
-                                .requesterEmail("example1")
-                                .professorEmail("example2")
-                                .explanation("testing")
-                                .dateRequested(ldt1)
-                                .dateNeeded(ldt2)
-                                .done(true)
-                                .build();
-
                 RecommendationRequest recommendationRequest2 = RecommendationRequest.builder()
+                        .id(67L)
                         .requesterEmail("example1change")
                         .professorEmail("example2change")
                         .explanation("testingchaneg")
                         .dateRequested(ldt2)
                         .dateNeeded(ldt3)
                         .done(false)
+                        .version(5L)
                         .build();
 
                 String requestBody = mapper.writeValueAsString(recommendationRequest2);
 
-                when(recommendationRequestRepository.findById(eq(67L))).thenReturn(Optional.of(recommendationRequest1));
+                when(recommendationRequestRepository.updateById(eq(67L), any(), isNull())).thenReturn(1);
+                when(recommendationRequestRepository.findById(eq(67L))).thenReturn(Optional.of(recommendationRequest2));
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -248,10 +266,10 @@ public class RecommendationRequestControllerTests extends ControllerTestCase{
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
-                verify(recommendationRequestRepository, times(1)).findById(67L);
-                verify(recommendationRequestRepository, times(1)).save(recommendationRequest2); // should be saved with correct user
+                verify(recommendationRequestRepository, times(1)).updateById(67L, recommendationRequest2, null); // should be saved with correct user
                 String responseString = response.getResponse().getContentAsString();
                 assertEquals(requestBody, responseString);
+                assertEquals(entityTag(RecommendationRequest.class, 5), response.getResponse().getHeader(HttpHeaders.ETAG));
         }
 
         @WithMockUser(roles = { "ADMIN", "USER" })
@@ -273,7 +291,7 @@ public class RecommendationRequestControllerTests extends ControllerTestCase{
 
                 String requestBody = mapper.writeValueAsString(recommendationRequestEdit);
 
-                when(recommendationRequestRepository.findById(eq(67L))).thenReturn(Optional.empty());
+                when(recommendationRequestRepository.updateById(eq(67L), any(), isNull())).thenReturn(0);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -285,12 +303,141 @@ public class RecommendationRequestControllerTests extends ControllerTestCase{
                                 .andExpect(status().isNotFound()).andReturn();
 
                 // assert
-                verify(recommendationRequestRepository, times(1)).findById(67L);
+                verify(recommendationRequestRepository, times(1)).updateById(eq(67L), any(), isNull());
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("RecommendationRequest with id 67 not found", json.get("message"));
 
         }
 
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_bulk_mark_done() throws Exception {
+                mockMvc.perform(put("/api/recommendationrequest/done?ids=1,2").with(csrf()))
+                                .andExpect(status().is(403));
+                mockMvc.perform(put("/api/recommendationrequest/done/professor?professorEmail=phtcon@ucsb.edu").with(csrf()))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_mark_recommendation_requests_done_by_id_in_one_update() throws Exception {
+                // arrange
+                String before = tableVersionService.etag(RecommendationRequest.class);
+                when(recommendationRequestRepository.markDoneByIdIn(List.of(1L, 2L, 3L))).thenReturn(3);
+
+                // act
+                MvcResult response = mockMvc.perform(put("/api/recommendationrequest/done?ids=1,2,3").with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(recommendationRequestRepository, times(1)).markDoneByIdIn(List.of(1L, 2L, 3L));
+                assertNotEquals(before, tableVersionService.etag(RecommendationRequest.class));
+                assertEquals(mapper.writeValueAsString(new BulkUpdateReport(3)),
+                                response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_cannot_mark_more_recommendation_requests_done_by_id_than_the_cap() throws Exception {
+                // arrange
+                String ids = LongStream.rangeClosed(1, 1001).mapToObj(Long::toString).collect(Collectors.joining(","));
+
+                // act
+                MvcResult response = mockMvc.perform(put("/api/recommendationrequest/done?ids=" + ids).with(csrf()))
+                                .andExpect(status().isBadRequest()).andReturn();
+
+                // assert
+                verify(recommendationRequestRepository, never()).markDoneByIdIn(any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("TooManyIdsException", json.get("type"));
+                assertEquals("1001 ids were requested, but at most 1000 may be named in one request", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_mark_all_open_requests_to_a_professor_done() throws Exception {
+                // arrange
+                when(recommendationRequestRepository.markDoneByProfessorEmail("phtcon@ucsb.edu")).thenReturn(5);
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                put("/api/recommendationrequest/done/professor?professorEmail=phtcon@ucsb.edu").with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                assertEquals(mapper.writeValueAsString(new BulkUpdateReport(5)),
+                                response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void bulk_mark_done_that_changes_nothing_keeps_the_etag() throws Exception {
+                // arrange
+                String before = tableVersionService.etag(RecommendationRequest.class);
+                when(recommendationRequestRepository.markDoneByIdIn(List.of(9L))).thenReturn(0);
+
+                // act
+                mockMvc.perform(put("/api/recommendationrequest/done?ids=9").with(csrf()))
+                                .andExpect(status().isOk());
+
+                // assert
+                assertEquals(before, tableVersionService.etag(RecommendationRequest.class));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_patch_an_existing_recommendationrequest() throws Exception {
+                // arrange
+                RecommendationRequest patched = RecommendationRequest.builder()
+                                .id(67L)
+                                .requesterEmail("student@ucsb.edu")
+                                .professorEmail("prof@ucsb.edu")
+                                .explanation("grad school")
+                                .dateRequested(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .dateNeeded(LocalDateTime.parse("2022-02-03T00:00:00"))
+                                .done(true)
+                                .version(5L)
+                                .build();
+                JsonNode patch = mapper.readTree("{\"done\": true}");
+
+                when(mergePatchService.patch(RecommendationRequest.class, 67L, patch, null)).thenReturn(1);
+                when(recommendationRequestRepository.findById(eq(67L))).thenReturn(Optional.of(patched));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                patch("/api/recommendationrequest?id=67")
+                                                .contentType(MergePatchService.APPLICATION_MERGE_PATCH_JSON_VALUE)
+                                                .content("{\"done\": true}")
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(mapper.writeValueAsString(patched), responseString);
+                assertEquals(entityTag(RecommendationRequest.class, 5), response.getResponse().getHeader(HttpHeaders.ETAG));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_cannot_patch_recommendationrequest_that_does_not_exist() throws Exception {
+                // arrange
+                JsonNode patch = mapper.readTree("{\"done\": true}");
+                when(mergePatchService.patch(RecommendationRequest.class, 67L, patch, null)).thenReturn(0);
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                patch("/api/recommendationrequest?id=67")
+                                                .contentType(MergePatchService.APPLICATION_MERGE_PATCH_JSON_VALUE)
+                                                .content("{\"done\": true}")
+                                                .with(csrf()))
+                                .andExpect(status().isNotFound()).andReturn();
+
+                // assert
+                verify(recommendationRequestRepository, never()).findById(any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("RecommendationRequest with id 67 not found", json.get("message"));
+        }
+
         @WithMockUser(roles = { "ADMIN", "USER" })
         @Test
         public void admin_can_delete_a_request() throws Exception {
@@ -299,16 +446,8 @@ public class RecommendationRequestControllerTests extends ControllerTestCase{
                 LocalDateTime ldt1 = LocalDateTime.parse("2022-01-03T00:00:00");
                 LocalDateTime ldt2 = LocalDateTime.parse("2022-01-03T00:00:00");
 
-                RecommendationRequest recommendationRequestEdit = RecommendationRequest.builder()
-                    .requesterEmail("example1change")
-                    .professorEmail("example2change")
-                    .explanation("testingchaneg")
-                    .dateRequested(ldt1)
-                    .dateNeeded(ldt2)
-                    .done(false)
-                    .build();
 
-                when(recommendationRequestRepository.findById(eq(15L))).thenReturn(Optional.of(recommendationRequestEdit));
+                when(recommendationRequestRepository.removeById(eq(15L), isNull())).thenReturn(1);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -317,8 +456,7 @@ public class RecommendationRequestControllerTests extends ControllerTestCase{
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
-                verify(recommendationRequestRepository, times(1)).findById(15L);
-                verify(recommendationRequestRepository, times(1)).delete(any());
+                verify(recommendationRequestRepository, times(1)).removeById(15L, null);
 
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("Recommendation Request with id 15 deleted", json.get("message"));
@@ -330,7 +468,7 @@ public class RecommendationRequestControllerTests extends ControllerTestCase{
                         throws Exception {
                 // arrange
 
-                when(recommendationRequestRepository.findById(eq(15L))).thenReturn(Optional.empty());
+                when(recommendationRequestRepository.removeById(eq(15L), isNull())).thenReturn(0);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -339,11 +477,291 @@ public class RecommendationRequestControllerTests extends ControllerTestCase{
                                 .andExpect(status().isNotFound()).andReturn();
 
                 // assert
-                verify(recommendationRequestRepository, times(1)).findById(15L);
+                verify(recommendationRequestRepository, times(1)).removeById(15L, null);
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("RecommendationRequest with id 15 not found", json.get("message"));
         }
-    
 
-    
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_first_page_and_next_cursor_when_limit_is_given() throws Exception {
+
+                // arrange
+                RecommendationRequest recommendationRequest1 = RecommendationRequest.builder().id(1L).explanation("first").build();
+                RecommendationRequest recommendationRequest2 = RecommendationRequest.builder().id(2L).explanation("second").build();
+                RecommendationRequest recommendationRequest3 = RecommendationRequest.builder().id(3L).explanation("third").build();
+
+                when(recommendationRequestRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), eq(Limit.of(3))))
+                                .thenReturn(new ArrayList<>(Arrays.asList(recommendationRequest1, recommendationRequest2, recommendationRequest3)));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/recommendationrequest/all?limit=2"))
+                                .andExpect(status().isOk())
+                                .andExpect(header().string("X-Next-Cursor", "2"))
+                                .andReturn();
+
+                // assert
+                verify(recommendationRequestRepository, times(0)).findAll();
+                String expectedJson = mapper.writeValueAsString(Arrays.asList(recommendationRequest1, recommendationRequest2));
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_last_page_without_next_cursor() throws Exception {
+
+                // arrange
+                RecommendationRequest recommendationRequest3 = RecommendationRequest.builder().id(3L).explanation("third").build();
+
+                when(recommendationRequestRepository.findByIdGreaterThanOrderByIdAsc(eq(2L), eq(Limit.of(101))))
+                                .thenReturn(new ArrayList<>(Arrays.asList(recommendationRequest3)));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/recommendationrequest/all?after=2"))
+                                .andExpect(status().isOk())
+                                .andExpect(header().doesNotExist("X-Next-Cursor"))
+                                .andReturn();
+
+                // assert
+                verify(recommendationRequestRepository, times(1)).findByIdGreaterThanOrderByIdAsc(2L, Limit.of(101));
+                String expectedJson = mapper.writeValueAsString(Arrays.asList(recommendationRequest3));
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+    // Tests for POST /api/recommendationrequest/import
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_regular_users_cannot_import() throws Exception {
+        mockMvc.perform(post("/api/recommendationrequest/import")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .content("{}\n")
+                .with(csrf()))
+                .andExpect(status().is(403));
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void an_admin_user_can_import_recommendation_requests() throws Exception {
+        // arrange
+        ImportReport report = new ImportReport();
+        report.setReceived(2);
+        report.setImported(1);
+        report.reject(2, "Unexpected end-of-input");
+        when(bulkImportService.importRows(any(), argThat(MediaType.APPLICATION_NDJSON::isCompatibleWith), eq(RecommendationRequest.class),
+                eq(recommendationRequestRepository))).thenReturn(report);
+
+        // act
+        MvcResult response = mockMvc.perform(post("/api/recommendationrequest/import")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .content("{\"requesterEmail\": \"cgaucho@ucsb.edu\", \"professorEmail\": \"phtcon@ucsb.edu\", \"explanation\": \"grad school\"}\n{\n")
+                .with(csrf()))
+                .andExpect(status().isOk()).andReturn();
+
+        // assert
+        verify(bulkImportService, times(1)).importRows(any(), argThat(MediaType.APPLICATION_NDJSON::isCompatibleWith), eq(RecommendationRequest.class),
+                eq(recommendationRequestRepository));
+        assertEquals(mapper.writeValueAsString(report), response.getResponse().getContentAsString());
+    }
+
+    // Tests for conditional GETs (ETag / If-None-Match)
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_user_gets_304_for_all_when_etag_matches() throws Exception {
+        // arrange
+        when(recommendationRequestRepository.findAll()).thenReturn(new ArrayList<>());
+        MvcResult first = mockMvc.perform(get("/api/recommendationrequest/all"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache, private"))
+                .andReturn();
+        String etag = first.getResponse().getHeader(HttpHeaders.ETAG);
+
+        // act
+        MvcResult response = mockMvc.perform(get("/api/recommendationrequest/all").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified()).andReturn();
+
+        // assert
+        verify(recommendationRequestRepository, times(1)).findAll();
+        assertEquals("", response.getResponse().getContentAsString());
+        assertEquals(etag, response.getResponse().getHeader(HttpHeaders.ETAG));
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_user_gets_304_for_get_by_id_when_etag_matches() throws Exception {
+        // arrange
+        RecommendationRequest entity = RecommendationRequest.builder().id(15L).version(4L).build();
+        when(recommendationRequestRepository.findById(eq(15L))).thenReturn(Optional.of(entity));
+
+        // act
+        mockMvc.perform(get("/api/recommendationrequest?id=15").header(HttpHeaders.IF_NONE_MATCH, entityTag(RecommendationRequest.class, 4)))
+                .andExpect(status().isNotModified());
+
+        // assert
+        verify(recommendationRequestRepository, times(1)).findById(eq(15L));
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void admin_delete_changes_the_etag_for_recommendation_requests() throws Exception {
+        // arrange
+        String before = tableVersionService.etag(RecommendationRequest.class);
+        when(recommendationRequestRepository.removeById(eq(15L), isNull())).thenReturn(1);
+
+        // act
+        mockMvc.perform(delete("/api/recommendationrequest?id=" + "15").with(csrf()))
+                .andExpect(status().isOk());
+
+        // assert
+        assertNotEquals(before, tableVersionService.etag(RecommendationRequest.class));
+    }
+
+    // Tests for GET /api/recommendationrequest/batch
+
+    @Test
+    public void logged_out_users_cannot_get_batch() throws Exception {
+        mockMvc.perform(get("/api/recommendationrequest/batch?ids=1,2"))
+                .andExpect(status().is(403));
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_user_gets_a_batch_with_missing_ids_reported() throws Exception {
+        // arrange
+        RecommendationRequest first = RecommendationRequest.builder().id(1L).professorEmail("prof1@ucsb.edu").build();
+        RecommendationRequest third = RecommendationRequest.builder().id(3L).professorEmail("prof3@ucsb.edu").build();
+        when(recommendationRequestRepository.findAllById(List.of(1L, 2L, 3L))).thenReturn(List.of(first, third));
+
+        // act
+        MvcResult response = mockMvc.perform(get("/api/recommendationrequest/batch?ids=1,2,3"))
+                .andExpect(status().isOk()).andReturn();
+
+        // assert
+        Map<Long, RecommendationRequest> found = new LinkedHashMap<>();
+        found.put(1L, first);
+        found.put(3L, third);
+        String expectedJson = mapper.writeValueAsString(new BatchResult<>(found, List.of(2L)));
+        assertEquals(expectedJson, response.getResponse().getContentAsString());
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_user_gets_304_for_get_batch_when_etag_matches() throws Exception {
+        // arrange
+        String etag = "\"" + tableVersionService.etag(RecommendationRequest.class) + "\"";
+
+        // act
+        mockMvc.perform(get("/api/recommendationrequest/batch?ids=1").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+
+        // assert
+        verify(recommendationRequestRepository, never()).findAllById(any());
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void admin_can_edit_a_recommendation_request_at_the_version_it_read() throws Exception {
+        // arrange
+        RecommendationRequest edited = RecommendationRequest.builder()
+                .requesterEmail("cgaucho@ucsb.edu")
+                .professorEmail("phtcon@ucsb.edu")
+                .explanation("BS/MS program")
+                .done(false)
+                .build();
+        RecommendationRequest saved = RecommendationRequest.builder().id(67L).version(5L).build();
+
+        when(recommendationRequestRepository.updateById(eq(67L), any(), eq(4L))).thenReturn(1);
+        when(recommendationRequestRepository.findById(eq(67L))).thenReturn(Optional.of(saved));
+
+        // act
+        MvcResult response = mockMvc.perform(
+                put("/api/recommendationrequest?id=67")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .characterEncoding("utf-8")
+                        .header(HttpHeaders.IF_MATCH, entityTag(RecommendationRequest.class, 4))
+                        .content(mapper.writeValueAsString(edited))
+                        .with(csrf()))
+                .andExpect(status().isOk()).andReturn();
+
+        // assert
+        verify(recommendationRequestRepository, times(1)).updateById(67L, edited, 4L);
+        assertEquals(mapper.writeValueAsString(saved), response.getResponse().getContentAsString());
+        assertEquals(entityTag(RecommendationRequest.class, 5), response.getResponse().getHeader(HttpHeaders.ETAG));
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void admin_cannot_edit_a_recommendation_request_that_changed_since_it_was_read() throws Exception {
+        // arrange
+        RecommendationRequest edited = RecommendationRequest.builder()
+                .requesterEmail("cgaucho@ucsb.edu")
+                .professorEmail("phtcon@ucsb.edu")
+                .explanation("BS/MS program")
+                .done(false)
+                .build();
+
+        when(recommendationRequestRepository.updateById(eq(67L), any(), eq(4L))).thenReturn(0);
+        when(recommendationRequestRepository.existsById(eq(67L))).thenReturn(true);
+
+        // act
+        MvcResult response = mockMvc.perform(
+                put("/api/recommendationrequest?id=67")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .characterEncoding("utf-8")
+                        .header(HttpHeaders.IF_MATCH, entityTag(RecommendationRequest.class, 4))
+                        .content(mapper.writeValueAsString(edited))
+                        .with(csrf()))
+                .andExpect(status().isPreconditionFailed()).andReturn();
+
+        // assert
+        verify(recommendationRequestRepository, never()).findById(any());
+        Map<String, Object> json = responseToJson(response);
+        assertEquals("VersionConflictException", json.get("type"));
+        assertEquals("RecommendationRequest with id 67 has been changed since it was read", json.get("message"));
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void admin_cannot_patch_a_recommendation_request_that_changed_since_it_was_read() throws Exception {
+        // arrange
+        JsonNode patch = mapper.readTree("{\"explanation\": \"PhD program\"}");
+        when(mergePatchService.patch(RecommendationRequest.class, 67L, patch, 4L)).thenReturn(0);
+        when(recommendationRequestRepository.existsById(eq(67L))).thenReturn(true);
+
+        // act
+        MvcResult response = mockMvc.perform(
+                patch("/api/recommendationrequest?id=67")
+                        .contentType(MergePatchService.APPLICATION_MERGE_PATCH_JSON_VALUE)
+                        .header(HttpHeaders.IF_MATCH, entityTag(RecommendationRequest.class, 4))
+                        .content("{\"explanation\": \"PhD program\"}")
+                        .with(csrf()))
+                .andExpect(status().isPreconditionFailed()).andReturn();
+
+        // assert
+        Map<String, Object> json = responseToJson(response);
+        assertEquals("RecommendationRequest with id 67 has been changed since it was read", json.get("message"));
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void admin_cannot_delete_a_recommendation_request_that_changed_since_it_was_read() throws Exception {
+        // arrange
+        when(recommendationRequestRepository.removeById(eq(67L), eq(4L))).thenReturn(0);
+        when(recommendationRequestRepository.existsById(eq(67L))).thenReturn(true);
+
+        // act
+        MvcResult response = mockMvc.perform(
+                delete("/api/recommendationrequest?id=67")
+                        .header(HttpHeaders.IF_MATCH, entityTag(RecommendationRequest.class, 4))
+                        .with(csrf()))
+                .andExpect(status().isPreconditionFailed()).andReturn();
+
+        // assert
+        verify(recommendationRequestRepository, times(1)).removeById(67L, 4L);
+        Map<String, Object> json = responseToJson(response);
+        assertEquals("RecommendationRequest with id 67 has been changed since it was read", json.get("message"));
+    }
 }
@@ -5,6 +5,12 @@ import edu.ucsb.cs156.example.testconfig.TestConfig;
 import edu.ucsb.cs156.example.ControllerTestCase;
 import edu.ucsb.cs156.example.entities.Restaurant;
 import edu.ucsb.cs156.example.repositories.RestaurantRepository;
+import edu.ucsb.cs156.example.models.ImportReport;
+import edu.ucsb.cs156.example.services.BulkImportService;
+import edu.ucsb.cs156.example.services.MergePatchService;
+import edu.ucsb.cs156.example.models.BatchResult;
+
+import com.fasterxml.jackson.databind.JsonNode;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -13,7 +19,9 @@ import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
 import org.springframework.http.MediaType;
+import org.springframework.http.HttpHeaders;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
 
@@ -22,13 +30,19 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
 
 import java.util.Optional;
+import java.util.LinkedHashMap;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.never;
 
 @WebMvcTest(controllers = RestaurantsController.class)
 @Import(TestConfig.class)
@@ -40,6 +54,12 @@ public class RestaurantsControllerTests extends ControllerTestCase {
         @MockBean
         UserRepository userRepository;
 
+        @MockBean
+        BulkImportService bulkImportService;
+
+        @MockBean
+        MergePatchService mergePatchService;
+
         // Authorization tests for /api/phones/admin/all
 
         @Test
@@ -88,6 +108,7 @@ public class RestaurantsControllerTests extends ControllerTestCase {
                 Restaurant restaurant = Restaurant.builder()
                                 .name("Taco Bell")
                                 .description("Mexican")
+                                .version(3L)
                                 .build();
 
                 when(restaurantRepository.findById(eq(7L))).thenReturn(Optional.of(restaurant));  // Check not sure why id is 7
@@ -102,6 +123,7 @@ public class RestaurantsControllerTests extends ControllerTestCase {
                 String expectedJson = mapper.writeValueAsString(restaurant);
                 String responseString = response.getResponse().getContentAsString();
                 assertEquals(expectedJson, responseString);
+                assertEquals(entityTag(Restaurant.class, 3), response.getResponse().getHeader(HttpHeaders.ETAG));
         }
 
         @WithMockUser(roles = { "USER" })
@@ -187,12 +209,7 @@ public class RestaurantsControllerTests extends ControllerTestCase {
         public void admin_can_delete_a_restaurant() throws Exception {
                 // arrange
 
-                Restaurant restaurant = Restaurant.builder()
-                                .name("Taco Bell")
-                                .description("Mexican")
-                                .build();
-
-                when(restaurantRepository.findById(eq(15L))).thenReturn(Optional.of(restaurant));
+                when(restaurantRepository.removeById(eq(15L), isNull())).thenReturn(1);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -201,8 +218,7 @@ public class RestaurantsControllerTests extends ControllerTestCase {
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
-                verify(restaurantRepository, times(1)).findById(15L);
-                verify(restaurantRepository, times(1)).delete(any());
+                verify(restaurantRepository, times(1)).removeById(15L, null);
 
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("Restaurant with id 15 deleted", json.get("message"));
@@ -214,7 +230,7 @@ public class RestaurantsControllerTests extends ControllerTestCase {
                         throws Exception {
                 // arrange
 
-                when(restaurantRepository.findById(eq(15L))).thenReturn(Optional.empty());
+                when(restaurantRepository.removeById(eq(15L), isNull())).thenReturn(0);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -223,7 +239,7 @@ public class RestaurantsControllerTests extends ControllerTestCase {
                                 .andExpect(status().isNotFound()).andReturn();
 
                 // assert
-                verify(restaurantRepository, times(1)).findById(15L);
+                verify(restaurantRepository, times(1)).removeById(15L, null);
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("Restaurant with id 15 not found", json.get("message"));
         }
@@ -233,19 +249,16 @@ public class RestaurantsControllerTests extends ControllerTestCase {
         public void admin_can_edit_an_existing_restaurant() throws Exception {
                 // arrange
 
-                Restaurant restaurantOrig = Restaurant.builder().id(67L)
-                                .name("Chipotle")
-                                .description("Mexican")
-                                .build();
-
                 Restaurant restaurantEdited = Restaurant.builder().id(67L)
                                 .name("Taco Bell")
                                 .description("American")
+                                .version(5L)
                                 .build();
 
                 String requestBody = mapper.writeValueAsString(restaurantEdited);
 
-                when(restaurantRepository.findById(eq(67L))).thenReturn(Optional.of(restaurantOrig));
+                when(restaurantRepository.updateById(eq(67L), any(), isNull())).thenReturn(1);
+                when(restaurantRepository.findById(eq(67L))).thenReturn(Optional.of(restaurantEdited));
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -257,10 +270,10 @@ public class RestaurantsControllerTests extends ControllerTestCase {
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
-                verify(restaurantRepository, times(1)).findById(67L);
-                verify(restaurantRepository, times(1)).save(restaurantEdited); // should be saved with correct user
+                verify(restaurantRepository, times(1)).updateById(67L, restaurantEdited, null); // should be saved with correct user
                 String responseString = response.getResponse().getContentAsString();
                 assertEquals(requestBody, responseString);
+                assertEquals(entityTag(Restaurant.class, 5), response.getResponse().getHeader(HttpHeaders.ETAG));
         }
 
         @WithMockUser(roles = { "ADMIN", "USER" })
@@ -277,7 +290,7 @@ public class RestaurantsControllerTests extends ControllerTestCase {
 
                 String requestBody = mapper.writeValueAsString(editedRestaurant);
 
-                when(restaurantRepository.findById(eq(67L))).thenReturn(Optional.empty());
+                when(restaurantRepository.updateById(eq(67L), any(), isNull())).thenReturn(0);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -289,9 +302,419 @@ public class RestaurantsControllerTests extends ControllerTestCase {
                                 .andExpect(status().isNotFound()).andReturn();
 
                 // assert
-                verify(restaurantRepository, times(1)).findById(67L);
+                verify(restaurantRepository, times(1)).updateById(eq(67L), any(), isNull());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("Restaurant with id 67 not found", json.get("message"));
+
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_patch_an_existing_restaurant() throws Exception {
+                // arrange
+                Restaurant patched = Restaurant.builder()
+                                .id(67L)
+                                .name("Freebirds")
+                                .description("Burritos, open late")
+                                .version(5L)
+                                .build();
+                JsonNode patch = mapper.readTree("{\"description\": \"Burritos, open late\"}");
+
+                when(mergePatchService.patch(Restaurant.class, 67L, patch, null)).thenReturn(1);
+                when(restaurantRepository.findById(eq(67L))).thenReturn(Optional.of(patched));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                patch("/api/restaurants?id=67")
+                                                .contentType(MergePatchService.APPLICATION_MERGE_PATCH_JSON_VALUE)
+                                                .content("{\"description\": \"Burritos, open late\"}")
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(mapper.writeValueAsString(patched), responseString);
+                assertEquals(entityTag(Restaurant.class, 5), response.getResponse().getHeader(HttpHeaders.ETAG));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_cannot_patch_restaurant_that_does_not_exist() throws Exception {
+                // arrange
+                JsonNode patch = mapper.readTree("{\"description\": \"Burritos, open late\"}");
+                when(mergePatchService.patch(Restaurant.class, 67L, patch, null)).thenReturn(0);
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                patch("/api/restaurants?id=67")
+                                                .contentType(MergePatchService.APPLICATION_MERGE_PATCH_JSON_VALUE)
+                                                .content("{\"description\": \"Burritos, open late\"}")
+                                                .with(csrf()))
+                                .andExpect(status().isNotFound()).andReturn();
+
+                // assert
+                verify(restaurantRepository, never()).findById(any());
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("Restaurant with id 67 not found", json.get("message"));
+        }
 
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_first_page_and_next_cursor_when_limit_is_given() throws Exception {
+
+                // arrange
+                Restaurant restaurant1 = Restaurant.builder().id(1L).name("first").build();
+                Restaurant restaurant2 = Restaurant.builder().id(2L).name("second").build();
+                Restaurant restaurant3 = Restaurant.builder().id(3L).name("third").build();
+
+                when(restaurantRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), eq(Limit.of(3))))
+                                .thenReturn(new ArrayList<>(Arrays.asList(restaurant1, restaurant2, restaurant3)));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/restaurants/all?limit=2"))
+                                .andExpect(status().isOk())
+                                .andExpect(header().string("X-Next-Cursor", "2"))
+                                .andReturn();
+
+                // assert
+                verify(restaurantRepository, times(0)).findAll();
+                String expectedJson = mapper.writeValueAsString(Arrays.asList(restaurant1, restaurant2));
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_last_page_without_next_cursor() throws Exception {
+
+                // arrange
+                Restaurant restaurant3 = Restaurant.builder().id(3L).name("third").build();
+
+                when(restaurantRepository.findByIdGreaterThanOrderByIdAsc(eq(2L), eq(Limit.of(101))))
+                                .thenReturn(new ArrayList<>(Arrays.asList(restaurant3)));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/restaurants/all?after=2"))
+                                .andExpect(status().isOk())
+                                .andExpect(header().doesNotExist("X-Next-Cursor"))
+                                .andReturn();
+
+                // assert
+                verify(restaurantRepository, times(1)).findByIdGreaterThanOrderByIdAsc(2L, Limit.of(101));
+                String expectedJson = mapper.writeValueAsString(Arrays.asList(restaurant3));
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        // Tests for POST /api/restaurants/import
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_import() throws Exception {
+                mockMvc.perform(post("/api/restaurants/import")
+                                .contentType(MediaType.APPLICATION_NDJSON)
+                                .content("{}\n")
+                                .with(csrf()))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void an_admin_user_can_import_restaurants() throws Exception {
+                // arrange
+                ImportReport report = new ImportReport();
+                report.setReceived(2);
+                report.setImported(1);
+                report.reject(2, "Unexpected end-of-input");
+                when(bulkImportService.importRows(any(), argThat(MediaType.APPLICATION_NDJSON::isCompatibleWith), eq(Restaurant.class),
+                                eq(restaurantRepository))).thenReturn(report);
+
+                // act
+                MvcResult response = mockMvc.perform(post("/api/restaurants/import")
+                                .contentType(MediaType.APPLICATION_NDJSON)
+                                .content("{\"name\": \"Freebirds\", \"description\": \"Burritos\"}\n{\n")
+                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(bulkImportService, times(1)).importRows(any(), argThat(MediaType.APPLICATION_NDJSON::isCompatibleWith), eq(Restaurant.class),
+                                eq(restaurantRepository));
+                assertEquals(mapper.writeValueAsString(report), response.getResponse().getContentAsString());
+        }
+
+        // Tests for conditional GETs (ETag / If-None-Match)
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_304_for_all_when_etag_matches() throws Exception {
+                // arrange
+                when(restaurantRepository.findAll()).thenReturn(new ArrayList<>());
+                MvcResult first = mockMvc.perform(get("/api/restaurants/all"))
+                                .andExpect(status().isOk())
+                                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache, private"))
+                                .andReturn();
+                String etag = first.getResponse().getHeader(HttpHeaders.ETAG);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/restaurants/all").header(HttpHeaders.IF_NONE_MATCH, etag))
+                                .andExpect(status().isNotModified()).andReturn();
+
+                // assert
+                verify(restaurantRepository, times(1)).findAll();
+                assertEquals("", response.getResponse().getContentAsString());
+                assertEquals(etag, response.getResponse().getHeader(HttpHeaders.ETAG));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_304_for_get_by_id_when_etag_matches() throws Exception {
+                // arrange
+                Restaurant entity = Restaurant.builder().id(15L).version(4L).build();
+                when(restaurantRepository.findById(eq(15L))).thenReturn(Optional.of(entity));
+
+                // act
+                mockMvc.perform(get("/api/restaurants?id=15").header(HttpHeaders.IF_NONE_MATCH, entityTag(Restaurant.class, 4)))
+                                .andExpect(status().isNotModified());
+
+                // assert
+                verify(restaurantRepository, times(1)).findById(eq(15L));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_delete_changes_the_etag_for_restaurants() throws Exception {
+                // arrange
+                String before = tableVersionService.etag(Restaurant.class);
+                when(restaurantRepository.removeById(eq(15L), isNull())).thenReturn(1);
+
+                // act
+                mockMvc.perform(delete("/api/restaurants?id=" + "15").with(csrf()))
+                                .andExpect(status().isOk());
+
+                // assert
+                assertNotEquals(before, tableVersionService.etag(Restaurant.class));
+        }
+
+        // Tests for GET /api/restaurants/batch
+
+        @Test
+        public void logged_out_users_cannot_get_batch() throws Exception {
+                mockMvc.perform(get("/api/restaurants/batch?ids=1,2"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_a_batch_with_missing_ids_reported() throws Exception {
+                // arrange
+                Restaurant first = Restaurant.builder().id(1L).name("Freebirds").build();
+                Restaurant third = Restaurant.builder().id(3L).name("Woodstocks").build();
+                when(restaurantRepository.findAllById(List.of(1L, 2L, 3L))).thenReturn(List.of(first, third));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/restaurants/batch?ids=1,2,3"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                Map<Long, Restaurant> found = new LinkedHashMap<>();
+                found.put(1L, first);
+                found.put(3L, third);
+                String expectedJson = mapper.writeValueAsString(new BatchResult<>(found, List.of(2L)));
+                assertEquals(expectedJson, response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_304_for_get_batch_when_etag_matches() throws Exception {
+                // arrange
+                String etag = "\"" + tableVersionService.etag(Restaurant.class) + "\"";
+
+                // act
+                mockMvc.perform(get("/api/restaurants/batch?ids=1").header(HttpHeaders.IF_NONE_MATCH, etag))
+                                .andExpect(status().isNotModified());
+
+                // assert
+                verify(restaurantRepository, never()).findAllById(any());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_edit_a_restaurant_at_the_version_it_read() throws Exception {
+                // arrange
+                Restaurant edited = Restaurant.builder()
+                                .name("Freebirds")
+                                .description("Burritos")
+                                .build();
+                Restaurant saved = Restaurant.builder().id(67L).version(5L).build();
+
+                when(restaurantRepository.updateById(eq(67L), any(), eq(4L))).thenReturn(1);
+                when(restaurantRepository.findById(eq(67L))).thenReturn(Optional.of(saved));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                put("/api/restaurants?id=67")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .header(HttpHeaders.IF_MATCH, entityTag(Restaurant.class, 4))
+                                                .content(mapper.writeValueAsString(edited))
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(restaurantRepository, times(1)).updateById(67L, edited, 4L);
+                assertEquals(mapper.writeValueAsString(saved), response.getResponse().getContentAsString());
+                assertEquals(entityTag(Restaurant.class, 5), response.getResponse().getHeader(HttpHeaders.ETAG));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_cannot_edit_a_restaurant_that_changed_since_it_was_read() throws Exception {
+                // arrange
+                Restaurant edited = Restaurant.builder()
+                                .name("Freebirds")
+                                .description("Burritos")
+                                .build();
+
+                when(restaurantRepository.updateById(eq(67L), any(), eq(4L))).thenReturn(0);
+                when(restaurantRepository.existsById(eq(67L))).thenReturn(true);
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                put("/api/restaurants?id=67")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .header(HttpHeaders.IF_MATCH, entityTag(Restaurant.class, 4))
+                                                .content(mapper.writeValueAsString(edited))
+                                                .with(csrf()))
+                                .andExpect(status().isPreconditionFailed()).andReturn();
+
+                // assert
+                verify(restaurantRepository, never()).findById(any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("VersionConflictException", json.get("type"));
+                assertEquals("Restaurant with id 67 has been changed since it was read", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_cannot_patch_a_restaurant_that_changed_since_it_was_read() throws Exception {
+                // arrange
+                JsonNode patch = mapper.readTree("{\"description\": \"Burritos, open late\"}");
+                when(mergePatchService.patch(Restaurant.class, 67L, patch, 4L)).thenReturn(0);
+                when(restaurantRepository.existsById(eq(67L))).thenReturn(true);
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                patch("/api/restaurants?id=67")
+                                                .contentType(MergePatchService.APPLICATION_MERGE_PATCH_JSON_VALUE)
+                                                .header(HttpHeaders.IF_MATCH, entityTag(Restaurant.class, 4))
+                                                .content("{\"description\": \"Burritos, open late\"}")
+                                                .with(csrf()))
+                                .andExpect(status().isPreconditionFailed()).andReturn();
+
+                // assert
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("Restaurant with id 67 has been changed since it was read", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_cannot_delete_a_restaurant_that_changed_since_it_was_read() throws Exception {
+                // arrange
+                when(restaurantRepository.removeById(eq(67L), eq(4L))).thenReturn(0);
+                when(restaurantRepository.existsById(eq(67L))).thenReturn(true);
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                delete("/api/restaurants?id=67")
+                                                .header(HttpHeaders.IF_MATCH, entityTag(Restaurant.class, 4))
+                                                .with(csrf()))
+                                .andExpect(status().isPreconditionFailed()).andReturn();
+
+                // assert
+                verify(restaurantRepository, times(1)).removeById(67L, 4L);
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("Restaurant with id 67 has been changed since it was read", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_edit_with_a_wildcard_if_match_is_unconditional() throws Exception {
+                // arrange
+                Restaurant edited = Restaurant.builder()
+                                .name("Freebirds")
+                                .description("Burritos")
+                                .build();
+                Restaurant saved = Restaurant.builder().id(67L).version(5L).build();
+
+                when(restaurantRepository.updateById(eq(67L), any(), isNull())).thenReturn(1);
+                when(restaurantRepository.findById(eq(67L))).thenReturn(Optional.of(saved));
+
+                // act
+                mockMvc.perform(
+                                put("/api/restaurants?id=67")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .header(HttpHeaders.IF_MATCH, "*")
+                                                .content(mapper.writeValueAsString(edited))
+                                                .with(csrf()))
+                                .andExpect(status().isOk());
+
+                // assert
+                verify(restaurantRepository, times(1)).updateById(67L, edited, null);
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_edit_with_a_weak_if_match_is_refused() throws Exception {
+                // arrange
+                Restaurant edited = Restaurant.builder()
+                                .name("Freebirds")
+                                .description("Burritos")
+                                .build();
+
+                // no version can match a tag this server did not hand out
+                when(restaurantRepository.updateById(eq(67L), any(), eq(-1L))).thenReturn(0);
+                when(restaurantRepository.existsById(eq(67L))).thenReturn(true);
+
+                // act
+                mockMvc.perform(
+                                put("/api/restaurants?id=67")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .header(HttpHeaders.IF_MATCH, "W/\"4\"")
+                                                .content(mapper.writeValueAsString(edited))
+                                                .with(csrf()))
+                                .andExpect(status().isPreconditionFailed());
+
+                // assert
+                verify(restaurantRepository, times(1)).updateById(67L, edited, -1L);
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_conditional_edit_of_a_restaurant_that_does_not_exist_gets_404() throws Exception {
+                // arrange
+                Restaurant edited = Restaurant.builder()
+                                .name("Freebirds")
+                                .description("Burritos")
+                                .build();
+
+                when(restaurantRepository.updateById(eq(67L), any(), eq(4L))).thenReturn(0);
+                when(restaurantRepository.existsById(eq(67L))).thenReturn(false);
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                put("/api/restaurants?id=67")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .header(HttpHeaders.IF_MATCH, entityTag(Restaurant.class, 4))
+                                                .content(mapper.writeValueAsString(edited))
+                                                .with(csrf()))
+                                .andExpect(status().isNotFound()).andReturn();
+
+                // assert
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("Restaurant with id 67 not found", json.get("message"));
         }
 }
@@ -5,15 +5,27 @@ import edu.ucsb.cs156.example.testconfig.TestConfig;
 import edu.ucsb.cs156.example.ControllerTestCase;
 import edu.ucsb.cs156.example.entities.UCSBDate;
 import edu.ucsb.cs156.example.repositories.UCSBDateRepository;
+import edu.ucsb.cs156.example.models.ImportReport;
+import edu.ucsb.cs156.example.models.QuarterSpan;
+import edu.ucsb.cs156.example.services.BulkImportService;
+import edu.ucsb.cs156.example.services.MergePatchService;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import edu.ucsb.cs156.example.services.QuarterIndexService;
+import edu.ucsb.cs156.example.models.BatchResult;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.mock.mockito.MockReset;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
 import org.springframework.http.MediaType;
+import org.springframework.http.HttpHeaders;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
 
@@ -24,13 +36,18 @@ import static org.springframework.security.test.web.servlet.request.SecurityMock
 import java.time.LocalDateTime;
 
 import java.util.Optional;
+import java.util.LinkedHashMap;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.never;
 
 @WebMvcTest(controllers = UCSBDatesController.class)
 @Import(TestConfig.class)
@@ -42,6 +59,16 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
         @MockBean
         UserRepository userRepository;
 
+        @MockBean
+        BulkImportService bulkImportService;
+
+        @MockBean
+        MergePatchService mergePatchService;
+
+        // reset before each test, as the context calls rebuild() on startup
+        @MockBean(reset = MockReset.BEFORE)
+        QuarterIndexService quarterIndexService;
+
         // Authorization tests for /api/ucsbdates/admin/all
 
         @Test
@@ -92,6 +119,7 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
                                 .name("firstDayOfClasses")
                                 .quarterYYYYQ("20222")
                                 .localDateTime(ldt)
+                                .version(3L)
                                 .build();
 
                 when(ucsbDateRepository.findById(eq(7L))).thenReturn(Optional.of(ucsbDate));
@@ -106,6 +134,7 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
                 String expectedJson = mapper.writeValueAsString(ucsbDate);
                 String responseString = response.getResponse().getContentAsString();
                 assertEquals(expectedJson, responseString);
+                assertEquals(entityTag(UCSBDate.class, 3), response.getResponse().getHeader(HttpHeaders.ETAG));
         }
 
         @WithMockUser(roles = { "USER" })
@@ -189,6 +218,7 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
 
                 // assert
                 verify(ucsbDateRepository, times(1)).save(ucsbDate1);
+                verify(quarterIndexService, times(1)).rebuild();
                 String expectedJson = mapper.writeValueAsString(ucsbDate1);
                 String responseString = response.getResponse().getContentAsString();
                 assertEquals(expectedJson, responseString);
@@ -201,13 +231,8 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
 
                 LocalDateTime ldt1 = LocalDateTime.parse("2022-01-03T00:00:00");
 
-                UCSBDate ucsbDate1 = UCSBDate.builder()
-                                .name("firstDayOfClasses")
-                                .quarterYYYYQ("20222")
-                                .localDateTime(ldt1)
-                                .build();
 
-                when(ucsbDateRepository.findById(eq(15L))).thenReturn(Optional.of(ucsbDate1));
+                when(ucsbDateRepository.removeById(eq(15L), isNull())).thenReturn(1);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -216,8 +241,8 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
-                verify(ucsbDateRepository, times(1)).findById(15L);
-                verify(ucsbDateRepository, times(1)).delete(any());
+                verify(ucsbDateRepository, times(1)).removeById(15L, null);
+                verify(quarterIndexService, times(1)).rebuild();
 
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("UCSBDate with id 15 deleted", json.get("message"));
@@ -229,7 +254,7 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
                         throws Exception {
                 // arrange
 
-                when(ucsbDateRepository.findById(eq(15L))).thenReturn(Optional.empty());
+                when(ucsbDateRepository.removeById(eq(15L), isNull())).thenReturn(0);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -238,7 +263,7 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
                                 .andExpect(status().isNotFound()).andReturn();
 
                 // assert
-                verify(ucsbDateRepository, times(1)).findById(15L);
+                verify(ucsbDateRepository, times(1)).removeById(15L, null);
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("UCSBDate with id 15 not found", json.get("message"));
         }
@@ -248,24 +273,20 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
         public void admin_can_edit_an_existing_ucsbdate() throws Exception {
                 // arrange
 
-                LocalDateTime ldt1 = LocalDateTime.parse("2022-01-03T00:00:00");
                 LocalDateTime ldt2 = LocalDateTime.parse("2023-01-03T00:00:00");
 
-                UCSBDate ucsbDateOrig = UCSBDate.builder()
-                                .name("firstDayOfClasses")
-                                .quarterYYYYQ("20222")
-                                .localDateTime(ldt1)
-                                .build();
-
                 UCSBDate ucsbDateEdited = UCSBDate.builder()
+                                .id(67L)
                                 .name("firstDayOfFestivus")
                                 .quarterYYYYQ("20232")
                                 .localDateTime(ldt2)
+                                .version(5L)
                                 .build();
 
                 String requestBody = mapper.writeValueAsString(ucsbDateEdited);
 
-                when(ucsbDateRepository.findById(eq(67L))).thenReturn(Optional.of(ucsbDateOrig));
+                when(ucsbDateRepository.updateById(eq(67L), any(), isNull())).thenReturn(1);
+                when(ucsbDateRepository.findById(eq(67L))).thenReturn(Optional.of(ucsbDateEdited));
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -277,10 +298,11 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
-                verify(ucsbDateRepository, times(1)).findById(67L);
-                verify(ucsbDateRepository, times(1)).save(ucsbDateEdited); // should be saved with correct user
+                verify(ucsbDateRepository, times(1)).updateById(67L, ucsbDateEdited, null); // should be saved with correct user
+                verify(quarterIndexService, times(1)).rebuild();
                 String responseString = response.getResponse().getContentAsString();
                 assertEquals(requestBody, responseString);
+                assertEquals(entityTag(UCSBDate.class, 5), response.getResponse().getHeader(HttpHeaders.ETAG));
         }
 
         @WithMockUser(roles = { "ADMIN", "USER" })
@@ -298,7 +320,7 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
 
                 String requestBody = mapper.writeValueAsString(ucsbEditedDate);
 
-                when(ucsbDateRepository.findById(eq(67L))).thenReturn(Optional.empty());
+                when(ucsbDateRepository.updateById(eq(67L), any(), isNull())).thenReturn(0);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -310,9 +332,433 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
                                 .andExpect(status().isNotFound()).andReturn();
 
                 // assert
-                verify(ucsbDateRepository, times(1)).findById(67L);
+                verify(ucsbDateRepository, times(1)).updateById(eq(67L), any(), isNull());
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("UCSBDate with id 67 not found", json.get("message"));
 
         }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_patch_an_existing_ucsbdate() throws Exception {
+                // arrange
+                UCSBDate patched = UCSBDate.builder()
+                                .id(67L)
+                                .quarterYYYYQ("20222")
+                                .name("firstDayOfClasses")
+                                .localDateTime(LocalDateTime.parse("2022-03-28T00:00:00"))
+                                .version(5L)
+                                .build();
+                JsonNode patch = mapper.readTree("{\"name\": \"firstDayOfClasses\"}");
+
+                when(mergePatchService.patch(UCSBDate.class, 67L, patch, null)).thenReturn(1);
+                when(ucsbDateRepository.findById(eq(67L))).thenReturn(Optional.of(patched));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                patch("/api/ucsbdates?id=67")
+                                                .contentType(MergePatchService.APPLICATION_MERGE_PATCH_JSON_VALUE)
+                                                .content("{\"name\": \"firstDayOfClasses\"}")
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(quarterIndexService, times(1)).rebuild();
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(mapper.writeValueAsString(patched), responseString);
+                assertEquals(entityTag(UCSBDate.class, 5), response.getResponse().getHeader(HttpHeaders.ETAG));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_cannot_patch_ucsbdate_that_does_not_exist() throws Exception {
+                // arrange
+                JsonNode patch = mapper.readTree("{\"name\": \"firstDayOfClasses\"}");
+                when(mergePatchService.patch(UCSBDate.class, 67L, patch, null)).thenReturn(0);
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                patch("/api/ucsbdates?id=67")
+                                                .contentType(MergePatchService.APPLICATION_MERGE_PATCH_JSON_VALUE)
+                                                .content("{\"name\": \"firstDayOfClasses\"}")
+                                                .with(csrf()))
+                                .andExpect(status().isNotFound()).andReturn();
+
+                // assert
+                verify(ucsbDateRepository, never()).findById(any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("UCSBDate with id 67 not found", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_first_page_and_next_cursor_when_limit_is_given() throws Exception {
+
+                // arrange
+                UCSBDate ucsbDate1 = UCSBDate.builder().id(1L).name("first").build();
+                UCSBDate ucsbDate2 = UCSBDate.builder().id(2L).name("second").build();
+                UCSBDate ucsbDate3 = UCSBDate.builder().id(3L).name("third").build();
+
+                when(ucsbDateRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), eq(Limit.of(3))))
+                                .thenReturn(new ArrayList<>(Arrays.asList(ucsbDate1, ucsbDate2, ucsbDate3)));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdates/all?limit=2"))
+                                .andExpect(status().isOk())
+                                .andExpect(header().string("X-Next-Cursor", "2"))
+                                .andReturn();
+
+                // assert
+                verify(ucsbDateRepository, times(0)).findAll();
+                String expectedJson = mapper.writeValueAsString(Arrays.asList(ucsbDate1, ucsbDate2));
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_last_page_without_next_cursor() throws Exception {
+
+                // arrange
+                UCSBDate ucsbDate3 = UCSBDate.builder().id(3L).name("third").build();
+
+                when(ucsbDateRepository.findByIdGreaterThanOrderByIdAsc(eq(2L), eq(Limit.of(101))))
+                                .thenReturn(new ArrayList<>(Arrays.asList(ucsbDate3)));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdates/all?after=2"))
+                                .andExpect(status().isOk())
+                                .andExpect(header().doesNotExist("X-Next-Cursor"))
+                                .andReturn();
+
+                // assert
+                verify(ucsbDateRepository, times(1)).findByIdGreaterThanOrderByIdAsc(2L, Limit.of(101));
+                String expectedJson = mapper.writeValueAsString(Arrays.asList(ucsbDate3));
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        // Tests for POST /api/ucsbdates/import
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_import() throws Exception {
+                mockMvc.perform(post("/api/ucsbdates/import")
+                                .contentType(MediaType.APPLICATION_NDJSON)
+                                .content("{}\n")
+                                .with(csrf()))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void an_admin_user_can_import_ucsb_dates() throws Exception {
+                // arrange
+                ImportReport report = new ImportReport();
+                report.setReceived(2);
+                report.setImported(1);
+                report.reject(2, "Unexpected end-of-input");
+                when(bulkImportService.importRows(any(), argThat(MediaType.APPLICATION_NDJSON::isCompatibleWith), eq(UCSBDate.class),
+                                eq(ucsbDateRepository))).thenReturn(report);
+
+                // act
+                MvcResult response = mockMvc.perform(post("/api/ucsbdates/import")
+                                .contentType(MediaType.APPLICATION_NDJSON)
+                                .content("{\"quarterYYYYQ\": \"20222\", \"name\": \"firstDayOfClasses\", \"localDateTime\": \"2022-03-28T00:00:00\"}\n{\n")
+                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(bulkImportService, times(1)).importRows(any(), argThat(MediaType.APPLICATION_NDJSON::isCompatibleWith), eq(UCSBDate.class),
+                                eq(ucsbDateRepository));
+                verify(quarterIndexService, times(1)).rebuild();
+                assertEquals(mapper.writeValueAsString(report), response.getResponse().getContentAsString());
+        }
+
+        // Tests for the quarter and range queries
+
+        @Test
+        public void logged_out_users_cannot_list_dates_by_quarter_range_or_instant() throws Exception {
+                mockMvc.perform(get("/api/ucsbdates/quarter?quarterYYYYQ=20222")).andExpect(status().is(403));
+                mockMvc.perform(get("/api/ucsbdates/range?from=2022-01-01T00:00:00&to=2022-02-01T00:00:00")).andExpect(status().is(403));
+                mockMvc.perform(get("/api/ucsbdates/quarters")).andExpect(status().is(403));
+                mockMvc.perform(get("/api/ucsbdates/quarters/containing?at=2022-01-01T00:00:00")).andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_list_the_dates_of_a_quarter() throws Exception {
+                // arrange
+                List<UCSBDate> dates = List.of(
+                                UCSBDate.builder().id(1L).quarterYYYYQ("20222").name("firstDayOfClasses")
+                                                .localDateTime(LocalDateTime.parse("2022-03-28T00:00:00")).build(),
+                                UCSBDate.builder().id(2L).quarterYYYYQ("20222").name("lastDayOfClasses")
+                                                .localDateTime(LocalDateTime.parse("2022-06-03T00:00:00")).build());
+                when(ucsbDateRepository.findAllByQuarterYYYYQOrderByLocalDateTimeAscIdAsc("20222")).thenReturn(dates);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdates/quarter?quarterYYYYQ=20222"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                assertEquals(mapper.writeValueAsString(dates), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_list_the_dates_in_a_range() throws Exception {
+                // arrange
+                LocalDateTime from = LocalDateTime.parse("2022-03-01T00:00:00");
+                LocalDateTime to = LocalDateTime.parse("2022-04-01T00:00:00");
+                List<UCSBDate> dates = List.of(UCSBDate.builder().id(1L).quarterYYYYQ("20222").name("firstDayOfClasses")
+                                .localDateTime(LocalDateTime.parse("2022-03-28T00:00:00")).build());
+                when(ucsbDateRepository.findByLocalDateTimeBetweenOrderByLocalDateTimeAscIdAsc(from, to, Limit.of(100)))
+                                .thenReturn(dates);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdates/range?from=2022-03-01T00:00:00&to=2022-04-01T00:00:00"))
+                                .andExpect(status().isOk()).andReturn();
+                mockMvc.perform(get("/api/ucsbdates/range?from=2022-03-01T00:00:00&to=2022-04-01T00:00:00&limit=5000"))
+                                .andExpect(status().isOk());
+
+                // assert
+                assertEquals(mapper.writeValueAsString(dates), response.getResponse().getContentAsString());
+                verify(ucsbDateRepository, times(1)).findByLocalDateTimeBetweenOrderByLocalDateTimeAscIdAsc(from, to, Limit.of(1000));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_list_quarters_and_find_the_quarter_containing_an_instant() throws Exception {
+                // arrange
+                List<QuarterSpan> spans = List.of(QuarterSpan.builder().quarterYYYYQ("20222")
+                                .start(LocalDateTime.parse("2022-03-28T00:00:00"))
+                                .end(LocalDateTime.parse("2022-06-03T00:00:00")).dates(2).build());
+                when(quarterIndexService.getQuarters()).thenReturn(spans);
+                when(quarterIndexService.containing(LocalDateTime.parse("2022-04-15T12:00:00"))).thenReturn(spans);
+
+                // act
+                MvcResult all = mockMvc.perform(get("/api/ucsbdates/quarters"))
+                                .andExpect(status().isOk()).andReturn();
+                MvcResult containing = mockMvc.perform(get("/api/ucsbdates/quarters/containing?at=2022-04-15T12:00:00"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                assertEquals(mapper.writeValueAsString(spans), all.getResponse().getContentAsString());
+                assertEquals(mapper.writeValueAsString(spans), containing.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_304_for_quarter_and_range_when_etag_matches() throws Exception {
+                // arrange
+                String etag = "\"" + tableVersionService.etag(UCSBDate.class) + "\"";
+
+                // act
+                mockMvc.perform(get("/api/ucsbdates/quarter?quarterYYYYQ=20222").header(HttpHeaders.IF_NONE_MATCH, etag))
+                                .andExpect(status().isNotModified());
+                mockMvc.perform(get("/api/ucsbdates/range?from=2022-03-01T00:00:00&to=2022-04-01T00:00:00")
+                                .header(HttpHeaders.IF_NONE_MATCH, etag))
+                                .andExpect(status().isNotModified());
+
+                // assert
+                verify(ucsbDateRepository, never()).findAllByQuarterYYYYQOrderByLocalDateTimeAscIdAsc(any());
+                verify(ucsbDateRepository, never()).findByLocalDateTimeBetweenOrderByLocalDateTimeAscIdAsc(any(), any(), any());
+        }
+
+        // Tests for conditional GETs (ETag / If-None-Match)
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_304_for_all_when_etag_matches() throws Exception {
+                // arrange
+                when(ucsbDateRepository.findAll()).thenReturn(new ArrayList<>());
+                MvcResult first = mockMvc.perform(get("/api/ucsbdates/all"))
+                                .andExpect(status().isOk())
+                                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache, private"))
+                                .andReturn();
+                String etag = first.getResponse().getHeader(HttpHeaders.ETAG);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdates/all").header(HttpHeaders.IF_NONE_MATCH, etag))
+                                .andExpect(status().isNotModified()).andReturn();
+
+                // assert
+                verify(ucsbDateRepository, times(1)).findAll();
+                assertEquals("", response.getResponse().getContentAsString());
+                assertEquals(etag, response.getResponse().getHeader(HttpHeaders.ETAG));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_304_for_get_by_id_when_etag_matches() throws Exception {
+                // arrange
+                UCSBDate entity = UCSBDate.builder().id(15L).version(4L).build();
+                when(ucsbDateRepository.findById(eq(15L))).thenReturn(Optional.of(entity));
+
+                // act
+                mockMvc.perform(get("/api/ucsbdates?id=15").header(HttpHeaders.IF_NONE_MATCH, entityTag(UCSBDate.class, 4)))
+                                .andExpect(status().isNotModified());
+
+                // assert
+                verify(ucsbDateRepository, times(1)).findById(eq(15L));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_delete_changes_the_etag_for_dates() throws Exception {
+                // arrange
+                String before = tableVersionService.etag(UCSBDate.class);
+                when(ucsbDateRepository.removeById(eq(15L), isNull())).thenReturn(1);
+
+                // act
+                mockMvc.perform(delete("/api/ucsbdates?id=" + "15").with(csrf()))
+                                .andExpect(status().isOk());
+
+                // assert
+                assertNotEquals(before, tableVersionService.etag(UCSBDate.class));
+        }
+
+        // Tests for GET /api/ucsbdates/batch
+
+        @Test
+        public void logged_out_users_cannot_get_batch() throws Exception {
+                mockMvc.perform(get("/api/ucsbdates/batch?ids=1,2"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_a_batch_with_missing_ids_reported() throws Exception {
+                // arrange
+                UCSBDate first = UCSBDate.builder().id(1L).quarterYYYYQ("20222").build();
+                UCSBDate third = UCSBDate.builder().id(3L).quarterYYYYQ("20224").build();
+                when(ucsbDateRepository.findAllById(List.of(1L, 2L, 3L))).thenReturn(List.of(first, third));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdates/batch?ids=1,2,3"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                Map<Long, UCSBDate> found = new LinkedHashMap<>();
+                found.put(1L, first);
+                found.put(3L, third);
+                String expectedJson = mapper.writeValueAsString(new BatchResult<>(found, List.of(2L)));
+                assertEquals(expectedJson, response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_304_for_get_batch_when_etag_matches() throws Exception {
+                // arrange
+                String etag = "\"" + tableVersionService.etag(UCSBDate.class) + "\"";
+
+                // act
+                mockMvc.perform(get("/api/ucsbdates/batch?ids=1").header(HttpHeaders.IF_NONE_MATCH, etag))
+                                .andExpect(status().isNotModified());
+
+                // assert
+                verify(ucsbDateRepository, never()).findAllById(any());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_edit_a_ucsbdate_at_the_version_it_read() throws Exception {
+                // arrange
+                UCSBDate edited = UCSBDate.builder()
+                                .quarterYYYYQ("20222")
+                                .name("firstDayOfClasses")
+                                .localDateTime(LocalDateTime.parse("2022-03-28T00:00:00"))
+                                .build();
+                UCSBDate saved = UCSBDate.builder().id(67L).version(5L).build();
+
+                when(ucsbDateRepository.updateById(eq(67L), any(), eq(4L))).thenReturn(1);
+                when(ucsbDateRepository.findById(eq(67L))).thenReturn(Optional.of(saved));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                put("/api/ucsbdates?id=67")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .header(HttpHeaders.IF_MATCH, entityTag(UCSBDate.class, 4))
+                                                .content(mapper.writeValueAsString(edited))
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(ucsbDateRepository, times(1)).updateById(67L, edited, 4L);
+                assertEquals(mapper.writeValueAsString(saved), response.getResponse().getContentAsString());
+                assertEquals(entityTag(UCSBDate.class, 5), response.getResponse().getHeader(HttpHeaders.ETAG));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_cannot_edit_a_ucsbdate_that_changed_since_it_was_read() throws Exception {
+                // arrange
+                UCSBDate edited = UCSBDate.builder()
+                                .quarterYYYYQ("20222")
+                                .name("firstDayOfClasses")
+                                .localDateTime(LocalDateTime.parse("2022-03-28T00:00:00"))
+                                .build();
+
+                when(ucsbDateRepository.updateById(eq(67L), any(), eq(4L))).thenReturn(0);
+                when(ucsbDateRepository.existsById(eq(67L))).thenReturn(true);
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                put("/api/ucsbdates?id=67")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .header(HttpHeaders.IF_MATCH, entityTag(UCSBDate.class, 4))
+                                                .content(mapper.writeValueAsString(edited))
+                                                .with(csrf()))
+                                .andExpect(status().isPreconditionFailed()).andReturn();
+
+                // assert
+                verify(ucsbDateRepository, never()).findById(any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("VersionConflictException", json.get("type"));
+                assertEquals("UCSBDate with id 67 has been changed since it was read", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_cannot_patch_a_ucsbdate_that_changed_since_it_was_read() throws Exception {
+                // arrange
+                JsonNode patch = mapper.readTree("{\"name\": \"lastDayOfClasses\"}");
+                when(mergePatchService.patch(UCSBDate.class, 67L, patch, 4L)).thenReturn(0);
+                when(ucsbDateRepository.existsById(eq(67L))).thenReturn(true);
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                patch("/api/ucsbdates?id=67")
+                                                .contentType(MergePatchService.APPLICATION_MERGE_PATCH_JSON_VALUE)
+                                                .header(HttpHeaders.IF_MATCH, entityTag(UCSBDate.class, 4))
+                                                .content("{\"name\": \"lastDayOfClasses\"}")
+                                                .with(csrf()))
+                                .andExpect(status().isPreconditionFailed()).andReturn();
+
+                // assert
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("UCSBDate with id 67 has been changed since it was read", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_cannot_delete_a_ucsbdate_that_changed_since_it_was_read() throws Exception {
+                // arrange
+                when(ucsbDateRepository.removeById(eq(67L), eq(4L))).thenReturn(0);
+                when(ucsbDateRepository.existsById(eq(67L))).thenReturn(true);
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                delete("/api/ucsbdates?id=67")
+                                                .header(HttpHeaders.IF_MATCH, entityTag(UCSBDate.class, 4))
+                                                .with(csrf()))
+                                .andExpect(status().isPreconditionFailed()).andReturn();
+
+                // assert
+                verify(ucsbDateRepository, times(1)).removeById(67L, 4L);
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("UCSBDate with id 67 has been changed since it was read", json.get("message"));
+        }
 }
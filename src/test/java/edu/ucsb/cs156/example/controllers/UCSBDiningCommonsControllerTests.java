@@ -5,15 +5,28 @@ import edu.ucsb.cs156.example.testconfig.TestConfig;
 import edu.ucsb.cs156.example.ControllerTestCase;
 import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
 import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
+import edu.ucsb.cs156.example.models.ImportReport;
+import edu.ucsb.cs156.example.models.NearbyDiningCommons;
+import edu.ucsb.cs156.example.services.BulkImportService;
+import edu.ucsb.cs156.example.services.MergePatchService;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import edu.ucsb.cs156.example.services.DiningCommonsLocationService;
+import edu.ucsb.cs156.example.models.BatchResult;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.mock.mockito.MockReset;
 import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.http.MediaType;
+import org.springframework.http.HttpHeaders;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
 
@@ -22,13 +35,18 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
 
 import java.util.Optional;
+import java.util.LinkedHashMap;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.never;
 
 @WebMvcTest(controllers = UCSBDiningCommonsController.class)
 @Import(TestConfig.class)
@@ -40,6 +58,16 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
         @MockBean
         UserRepository userRepository;
 
+        @MockBean
+        BulkImportService bulkImportService;
+
+        @MockBean
+        MergePatchService mergePatchService;
+
+        // reset before each test, as the context calls rebuild() on startup
+        @MockBean(reset = MockReset.BEFORE)
+        DiningCommonsLocationService diningCommonsLocationService;
+
         // Authorization tests for /api/ucsbdiningcommons/admin/all
 
         @Test
@@ -93,6 +121,7 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
                                 .hasDiningCam(true)
                                 .latitude(34.409953)
                                 .longitude(-119.85277)
+                                .version(3L)
                                 .build();
 
                 when(ucsbDiningCommonsRepository.findById(eq("carrillo"))).thenReturn(Optional.of(commons));
@@ -107,6 +136,7 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
                 String expectedJson = mapper.writeValueAsString(commons);
                 String responseString = response.getResponse().getContentAsString();
                 assertEquals(expectedJson, responseString);
+                assertEquals(entityTag(UCSBDiningCommons.class, 3), response.getResponse().getHeader(HttpHeaders.ETAG));
         }
 
         @WithMockUser(roles = { "USER" })
@@ -197,11 +227,33 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
 
                 // assert
                 verify(ucsbDiningCommonsRepository, times(1)).save(ortega);
+                verify(diningCommonsLocationService, times(1)).rebuild();
                 String expectedJson = mapper.writeValueAsString(ortega);
                 String responseString = response.getResponse().getContentAsString();
                 assertEquals(expectedJson, responseString);
         }
 
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void posting_a_commons_whose_code_is_taken_is_a_conflict() throws Exception {
+                // arrange
+
+                when(ucsbDiningCommonsRepository.save(any()))
+                                .thenThrow(new DataIntegrityViolationException("duplicate key"));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                post("/api/ucsbdiningcommons/post?name=Ortega&code=ortega&hasSackMeal=true&hasTakeOutMeal=true&hasDiningCam=true&latitude=34.410987&longitude=-119.84709")
+                                                .with(csrf()))
+                                .andExpect(status().isConflict()).andReturn();
+
+                // assert
+                verify(diningCommonsLocationService, never()).rebuild();
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("DuplicateEntityException", json.get("type"));
+                assertEquals("UCSBDiningCommons with id ortega already exists", json.get("message"));
+        }
+
         @WithMockUser(roles = { "ADMIN", "USER" })
         @Test
         public void admin_can_delete_a_date() throws Exception {
@@ -217,7 +269,7 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
                                 .longitude(-119.867427)
                                 .build();
 
-                when(ucsbDiningCommonsRepository.findById(eq("portola"))).thenReturn(Optional.of(portola));
+                when(ucsbDiningCommonsRepository.removeById(eq("portola"), isNull())).thenReturn(1);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -226,8 +278,8 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
-                verify(ucsbDiningCommonsRepository, times(1)).findById("portola");
-                verify(ucsbDiningCommonsRepository, times(1)).delete(any());
+                verify(ucsbDiningCommonsRepository, times(1)).removeById("portola", null);
+                verify(diningCommonsLocationService, times(1)).rebuild();
 
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("UCSBDiningCommons with id portola deleted", json.get("message"));
@@ -239,7 +291,7 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
                         throws Exception {
                 // arrange
 
-                when(ucsbDiningCommonsRepository.findById(eq("munger-hall"))).thenReturn(Optional.empty());
+                when(ucsbDiningCommonsRepository.removeById(eq("munger-hall"), isNull())).thenReturn(0);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -248,7 +300,7 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
                                 .andExpect(status().isNotFound()).andReturn();
 
                 // assert
-                verify(ucsbDiningCommonsRepository, times(1)).findById("munger-hall");
+                verify(ucsbDiningCommonsRepository, times(1)).removeById("munger-hall", null);
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("UCSBDiningCommons with id munger-hall not found", json.get("message"));
         }
@@ -258,16 +310,6 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
         public void admin_can_edit_an_existing_commons() throws Exception {
                 // arrange
 
-                UCSBDiningCommons carrilloOrig = UCSBDiningCommons.builder()
-                                .name("Carrillo")
-                                .code("carrillo")
-                                .hasSackMeal(false)
-                                .hasTakeOutMeal(false)
-                                .hasDiningCam(true)
-                                .latitude(34.409953)
-                                .longitude(-119.85277)
-                                .build();
-
                 UCSBDiningCommons carrilloEdited = UCSBDiningCommons.builder()
                                 .name("Carrillo Dining Hall")
                                 .code("carrillo")
@@ -276,11 +318,13 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
                                 .hasDiningCam(false)
                                 .latitude(34.409954)
                                 .longitude(-119.85278)
+                                .version(5L)
                                 .build();
 
                 String requestBody = mapper.writeValueAsString(carrilloEdited);
 
-                when(ucsbDiningCommonsRepository.findById(eq("carrillo"))).thenReturn(Optional.of(carrilloOrig));
+                when(ucsbDiningCommonsRepository.updateById(eq("carrillo"), any(), isNull())).thenReturn(1);
+                when(ucsbDiningCommonsRepository.findById(eq("carrillo"))).thenReturn(Optional.of(carrilloEdited));
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -292,10 +336,11 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
-                verify(ucsbDiningCommonsRepository, times(1)).findById("carrillo");
-                verify(ucsbDiningCommonsRepository, times(1)).save(carrilloEdited); // should be saved with updated info
+                verify(ucsbDiningCommonsRepository, times(1)).updateById("carrillo", carrilloEdited, null); // should be saved with updated info
+                verify(diningCommonsLocationService, times(1)).rebuild();
                 String responseString = response.getResponse().getContentAsString();
                 assertEquals(requestBody, responseString);
+                assertEquals(entityTag(UCSBDiningCommons.class, 5), response.getResponse().getHeader(HttpHeaders.ETAG));
         }
 
         @WithMockUser(roles = { "ADMIN", "USER" })
@@ -315,7 +360,7 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
 
                 String requestBody = mapper.writeValueAsString(editedCommons);
 
-                when(ucsbDiningCommonsRepository.findById(eq("munger-hall"))).thenReturn(Optional.empty());
+                when(ucsbDiningCommonsRepository.updateById(eq("munger-hall"), any(), isNull())).thenReturn(0);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -327,9 +372,415 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
                                 .andExpect(status().isNotFound()).andReturn();
 
                 // assert
-                verify(ucsbDiningCommonsRepository, times(1)).findById("munger-hall");
+                verify(ucsbDiningCommonsRepository, times(1)).updateById(eq("munger-hall"), any(), isNull());
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("UCSBDiningCommons with id munger-hall not found", json.get("message"));
 
         }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_patch_an_existing_commons() throws Exception {
+                // arrange
+                UCSBDiningCommons patched = UCSBDiningCommons.builder()
+                                .name("Carrillo Dining Hall")
+                                .code("carrillo")
+                                .hasSackMeal(false)
+                                .hasTakeOutMeal(true)
+                                .hasDiningCam(true)
+                                .latitude(34.409953)
+                                .longitude(-119.85277)
+                                .version(5L)
+                                .build();
+                JsonNode patch = mapper.readTree("{\"hasSackMeal\": false}");
+
+                when(mergePatchService.patch(UCSBDiningCommons.class, "carrillo", patch, null)).thenReturn(1);
+                when(ucsbDiningCommonsRepository.findById(eq("carrillo"))).thenReturn(Optional.of(patched));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                patch("/api/ucsbdiningcommons?code=carrillo")
+                                                .contentType(MergePatchService.APPLICATION_MERGE_PATCH_JSON_VALUE)
+                                                .content("{\"hasSackMeal\": false}")
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(diningCommonsLocationService, times(1)).rebuild();
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(mapper.writeValueAsString(patched), responseString);
+                assertEquals(entityTag(UCSBDiningCommons.class, 5), response.getResponse().getHeader(HttpHeaders.ETAG));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_cannot_patch_commons_that_does_not_exist() throws Exception {
+                // arrange
+                JsonNode patch = mapper.readTree("{\"hasSackMeal\": false}");
+                when(mergePatchService.patch(UCSBDiningCommons.class, "carrillo", patch, null)).thenReturn(0);
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                patch("/api/ucsbdiningcommons?code=carrillo")
+                                                .contentType(MergePatchService.APPLICATION_MERGE_PATCH_JSON_VALUE)
+                                                .content("{\"hasSackMeal\": false}")
+                                                .with(csrf()))
+                                .andExpect(status().isNotFound()).andReturn();
+
+                // assert
+                verify(ucsbDiningCommonsRepository, never()).findById(any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("UCSBDiningCommons with id carrillo not found", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_first_page_and_next_cursor_when_limit_is_given() throws Exception {
+
+                // arrange
+                UCSBDiningCommons ucsbDiningCommons1 = UCSBDiningCommons.builder().code("carrillo").name("first").build();
+                UCSBDiningCommons ucsbDiningCommons2 = UCSBDiningCommons.builder().code("dlg").name("second").build();
+                UCSBDiningCommons ucsbDiningCommons3 = UCSBDiningCommons.builder().code("ortega").name("third").build();
+
+                when(ucsbDiningCommonsRepository.findByCodeGreaterThanOrderByCodeAsc(eq(""), eq(Limit.of(3))))
+                                .thenReturn(new ArrayList<>(Arrays.asList(ucsbDiningCommons1, ucsbDiningCommons2, ucsbDiningCommons3)));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommons/all?limit=2"))
+                                .andExpect(status().isOk())
+                                .andExpect(header().string("X-Next-Cursor", "dlg"))
+                                .andReturn();
+
+                // assert
+                verify(ucsbDiningCommonsRepository, times(0)).findAll();
+                String expectedJson = mapper.writeValueAsString(Arrays.asList(ucsbDiningCommons1, ucsbDiningCommons2));
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_last_page_without_next_cursor() throws Exception {
+
+                // arrange
+                UCSBDiningCommons ucsbDiningCommons3 = UCSBDiningCommons.builder().code("ortega").name("third").build();
+
+                when(ucsbDiningCommonsRepository.findByCodeGreaterThanOrderByCodeAsc(eq("dlg"), eq(Limit.of(101))))
+                                .thenReturn(new ArrayList<>(Arrays.asList(ucsbDiningCommons3)));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommons/all?after=dlg"))
+                                .andExpect(status().isOk())
+                                .andExpect(header().doesNotExist("X-Next-Cursor"))
+                                .andReturn();
+
+                // assert
+                verify(ucsbDiningCommonsRepository, times(1)).findByCodeGreaterThanOrderByCodeAsc("dlg", Limit.of(101));
+                String expectedJson = mapper.writeValueAsString(Arrays.asList(ucsbDiningCommons3));
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        // Tests for POST /api/ucsbdiningcommons/import
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_import() throws Exception {
+                mockMvc.perform(post("/api/ucsbdiningcommons/import")
+                                .contentType(MediaType.APPLICATION_NDJSON)
+                                .content("{}\n")
+                                .with(csrf()))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void an_admin_user_can_import_commons() throws Exception {
+                // arrange
+                ImportReport report = new ImportReport();
+                report.setReceived(2);
+                report.setImported(1);
+                report.reject(2, "Unexpected end-of-input");
+                when(bulkImportService.importRows(any(), argThat(MediaType.APPLICATION_NDJSON::isCompatibleWith), eq(UCSBDiningCommons.class),
+                                eq(ucsbDiningCommonsRepository))).thenReturn(report);
+
+                // act
+                MvcResult response = mockMvc.perform(post("/api/ucsbdiningcommons/import")
+                                .contentType(MediaType.APPLICATION_NDJSON)
+                                .content("{\"code\": \"ortega\", \"name\": \"Ortega\", \"hasSackMeal\": true, \"hasTakeOutMeal\": true, \"hasDiningCam\": false, \"latitude\": 34.41, \"longitude\": -119.84}\n{\n")
+                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(bulkImportService, times(1)).importRows(any(), argThat(MediaType.APPLICATION_NDJSON::isCompatibleWith), eq(UCSBDiningCommons.class),
+                                eq(ucsbDiningCommonsRepository));
+                verify(diningCommonsLocationService, times(1)).rebuild();
+                assertEquals(mapper.writeValueAsString(report), response.getResponse().getContentAsString());
+        }
+
+        // Tests for GET /api/ucsbdiningcommons/nearest
+
+        @Test
+        public void logged_out_users_cannot_get_nearest() throws Exception {
+                mockMvc.perform(get("/api/ucsbdiningcommons/nearest?lat=34.41&lon=-119.85"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_nearest_commons_with_amenity_filters() throws Exception {
+                // arrange
+                List<NearbyDiningCommons> nearby = List.of(NearbyDiningCommons.builder()
+                                .code("ortega").name("Ortega").hasSackMeal(true).hasTakeOutMeal(true)
+                                .latitude(34.410987).longitude(-119.84709).distanceMeters(120.5).build());
+                when(diningCommonsLocationService.nearest(34.41, -119.848, 2, true, null, false)).thenReturn(nearby);
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                get("/api/ucsbdiningcommons/nearest?lat=34.41&lon=-119.848&k=2&hasSackMeal=true&hasDiningCam=false"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(diningCommonsLocationService, times(1)).nearest(34.41, -119.848, 2, true, null, false);
+                assertEquals(mapper.writeValueAsString(nearby), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void nearest_defaults_to_five_commons_and_treats_negative_k_as_zero() throws Exception {
+                // act
+                mockMvc.perform(get("/api/ucsbdiningcommons/nearest?lat=34.41&lon=-119.85"))
+                                .andExpect(status().isOk());
+                mockMvc.perform(get("/api/ucsbdiningcommons/nearest?lat=34.41&lon=-119.85&k=-3"))
+                                .andExpect(status().isOk());
+
+                // assert
+                verify(diningCommonsLocationService, times(1)).nearest(34.41, -119.85, 5, null, null, null);
+                verify(diningCommonsLocationService, times(1)).nearest(34.41, -119.85, 0, null, null, null);
+        }
+
+        // Tests for conditional GETs (ETag / If-None-Match)
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_304_for_all_when_etag_matches() throws Exception {
+                // arrange
+                when(ucsbDiningCommonsRepository.findAll()).thenReturn(new ArrayList<>());
+                MvcResult first = mockMvc.perform(get("/api/ucsbdiningcommons/all"))
+                                .andExpect(status().isOk())
+                                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache, private"))
+                                .andReturn();
+                String etag = first.getResponse().getHeader(HttpHeaders.ETAG);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommons/all").header(HttpHeaders.IF_NONE_MATCH, etag))
+                                .andExpect(status().isNotModified()).andReturn();
+
+                // assert
+                verify(ucsbDiningCommonsRepository, times(1)).findAll();
+                assertEquals("", response.getResponse().getContentAsString());
+                assertEquals(etag, response.getResponse().getHeader(HttpHeaders.ETAG));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_304_for_get_by_code_when_etag_matches() throws Exception {
+                // arrange
+                UCSBDiningCommons entity = UCSBDiningCommons.builder().code("ortega").version(4L).build();
+                when(ucsbDiningCommonsRepository.findById(eq("ortega"))).thenReturn(Optional.of(entity));
+
+                // act
+                mockMvc.perform(get("/api/ucsbdiningcommons?code=ortega").header(HttpHeaders.IF_NONE_MATCH, entityTag(UCSBDiningCommons.class, 4)))
+                                .andExpect(status().isNotModified());
+
+                // assert
+                verify(ucsbDiningCommonsRepository, times(1)).findById(eq("ortega"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_delete_changes_the_etag_for_commons() throws Exception {
+                // arrange
+                String before = tableVersionService.etag(UCSBDiningCommons.class);
+                when(ucsbDiningCommonsRepository.removeById(eq("ortega"), isNull())).thenReturn(1);
+
+                // act
+                mockMvc.perform(delete("/api/ucsbdiningcommons?code=" + "ortega").with(csrf()))
+                                .andExpect(status().isOk());
+
+                // assert
+                assertNotEquals(before, tableVersionService.etag(UCSBDiningCommons.class));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void a_tag_from_before_a_delete_does_not_match_the_commons_created_again() throws Exception {
+                // arrange
+                String stale = entityTag(UCSBDiningCommons.class, 0);
+                when(ucsbDiningCommonsRepository.removeById(eq("ortega"), isNull())).thenReturn(1);
+                mockMvc.perform(delete("/api/ucsbdiningcommons?code=ortega").with(csrf()))
+                                .andExpect(status().isOk());
+                UCSBDiningCommons recreated = UCSBDiningCommons.builder().code("ortega").version(0L).build();
+                when(ucsbDiningCommonsRepository.findById(eq("ortega"))).thenReturn(Optional.of(recreated));
+                when(ucsbDiningCommonsRepository.existsById(eq("ortega"))).thenReturn(true);
+
+                // act
+                mockMvc.perform(get("/api/ucsbdiningcommons?code=ortega").header(HttpHeaders.IF_NONE_MATCH, stale))
+                                .andExpect(status().isOk());
+                mockMvc.perform(delete("/api/ucsbdiningcommons?code=ortega").header(HttpHeaders.IF_MATCH, stale).with(csrf()))
+                                .andExpect(status().isPreconditionFailed());
+
+                // assert
+                verify(ucsbDiningCommonsRepository, times(1)).removeById("ortega", -1L);
+        }
+
+        // Tests for GET /api/ucsbdiningcommons/batch
+
+        @Test
+        public void logged_out_users_cannot_get_batch() throws Exception {
+                mockMvc.perform(get("/api/ucsbdiningcommons/batch?ids=carrillo,munger-hall"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_a_batch_with_missing_ids_reported() throws Exception {
+                // arrange
+                UCSBDiningCommons first = UCSBDiningCommons.builder().code("carrillo").name("Carrillo").build();
+                UCSBDiningCommons third = UCSBDiningCommons.builder().code("ortega").name("Ortega").build();
+                when(ucsbDiningCommonsRepository.findAllById(List.of("carrillo", "munger-hall", "ortega"))).thenReturn(List.of(first, third));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommons/batch?ids=carrillo,munger-hall,ortega"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                Map<String, UCSBDiningCommons> found = new LinkedHashMap<>();
+                found.put("carrillo", first);
+                found.put("ortega", third);
+                String expectedJson = mapper.writeValueAsString(new BatchResult<>(found, List.of("munger-hall")));
+                assertEquals(expectedJson, response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_304_for_get_batch_when_etag_matches() throws Exception {
+                // arrange
+                String etag = "\"" + tableVersionService.etag(UCSBDiningCommons.class) + "\"";
+
+                // act
+                mockMvc.perform(get("/api/ucsbdiningcommons/batch?ids=carrillo").header(HttpHeaders.IF_NONE_MATCH, etag))
+                                .andExpect(status().isNotModified());
+
+                // assert
+                verify(ucsbDiningCommonsRepository, never()).findAllById(any());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_edit_a_commons_at_the_version_it_read() throws Exception {
+                // arrange
+                UCSBDiningCommons edited = UCSBDiningCommons.builder()
+                                .name("Ortega")
+                                .hasSackMeal(true)
+                                .hasTakeOutMeal(true)
+                                .hasDiningCam(true)
+                                .latitude(34.410987)
+                                .longitude(-119.84709)
+                                .build();
+                UCSBDiningCommons saved = UCSBDiningCommons.builder().code("ortega").version(5L).build();
+
+                when(ucsbDiningCommonsRepository.updateById(eq("ortega"), any(), eq(4L))).thenReturn(1);
+                when(ucsbDiningCommonsRepository.findById(eq("ortega"))).thenReturn(Optional.of(saved));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                put("/api/ucsbdiningcommons?code=ortega")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .header(HttpHeaders.IF_MATCH, entityTag(UCSBDiningCommons.class, 4))
+                                                .content(mapper.writeValueAsString(edited))
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(ucsbDiningCommonsRepository, times(1)).updateById("ortega", edited, 4L);
+                assertEquals(mapper.writeValueAsString(saved), response.getResponse().getContentAsString());
+                assertEquals(entityTag(UCSBDiningCommons.class, 5), response.getResponse().getHeader(HttpHeaders.ETAG));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_cannot_edit_a_commons_that_changed_since_it_was_read() throws Exception {
+                // arrange
+                UCSBDiningCommons edited = UCSBDiningCommons.builder()
+                                .name("Ortega")
+                                .hasSackMeal(true)
+                                .hasTakeOutMeal(true)
+                                .hasDiningCam(true)
+                                .latitude(34.410987)
+                                .longitude(-119.84709)
+                                .build();
+
+                when(ucsbDiningCommonsRepository.updateById(eq("ortega"), any(), eq(4L))).thenReturn(0);
+                when(ucsbDiningCommonsRepository.existsById(eq("ortega"))).thenReturn(true);
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                put("/api/ucsbdiningcommons?code=ortega")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .header(HttpHeaders.IF_MATCH, entityTag(UCSBDiningCommons.class, 4))
+                                                .content(mapper.writeValueAsString(edited))
+                                                .with(csrf()))
+                                .andExpect(status().isPreconditionFailed()).andReturn();
+
+                // assert
+                verify(ucsbDiningCommonsRepository, never()).findById(any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("VersionConflictException", json.get("type"));
+                assertEquals("UCSBDiningCommons with id ortega has been changed since it was read", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_cannot_patch_a_commons_that_changed_since_it_was_read() throws Exception {
+                // arrange
+                JsonNode patch = mapper.readTree("{\"hasSackMeal\": false}");
+                when(mergePatchService.patch(UCSBDiningCommons.class, "ortega", patch, 4L)).thenReturn(0);
+                when(ucsbDiningCommonsRepository.existsById(eq("ortega"))).thenReturn(true);
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                patch("/api/ucsbdiningcommons?code=ortega")
+                                                .contentType(MergePatchService.APPLICATION_MERGE_PATCH_JSON_VALUE)
+                                                .header(HttpHeaders.IF_MATCH, entityTag(UCSBDiningCommons.class, 4))
+                                                .content("{\"hasSackMeal\": false}")
+                                                .with(csrf()))
+                                .andExpect(status().isPreconditionFailed()).andReturn();
+
+                // assert
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("UCSBDiningCommons with id ortega has been changed since it was read", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_cannot_delete_a_commons_that_changed_since_it_was_read() throws Exception {
+                // arrange
+                when(ucsbDiningCommonsRepository.removeById(eq("ortega"), eq(4L))).thenReturn(0);
+                when(ucsbDiningCommonsRepository.existsById(eq("ortega"))).thenReturn(true);
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                delete("/api/ucsbdiningcommons?code=ortega")
+                                                .header(HttpHeaders.IF_MATCH, entityTag(UCSBDiningCommons.class, 4))
+                                                .with(csrf()))
+                                .andExpect(status().isPreconditionFailed()).andReturn();
+
+                // assert
+                verify(ucsbDiningCommonsRepository, times(1)).removeById("ortega", 4L);
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("UCSBDiningCommons with id ortega has been changed since it was read", json.get("message"));
+        }
 }
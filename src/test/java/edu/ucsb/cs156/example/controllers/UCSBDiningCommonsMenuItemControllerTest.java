@@ -5,16 +5,26 @@ import edu.ucsb.cs156.example.testconfig.TestConfig;
 import edu.ucsb.cs156.example.ControllerTestCase;
 import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItem;
 import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsMenuItemRepository;
+import edu.ucsb.cs156.example.models.ImportReport;
+import edu.ucsb.cs156.example.services.BulkImportService;
+import edu.ucsb.cs156.example.services.MergePatchService;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import edu.ucsb.cs156.example.services.MenuItemLeaderboardService;
+import edu.ucsb.cs156.example.models.BatchResult;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Map;
+import java.util.function.Consumer;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
 import org.springframework.http.MediaType;
+import org.springframework.http.HttpHeaders;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
 
@@ -25,14 +35,20 @@ import static org.springframework.security.test.web.servlet.request.SecurityMock
 import java.time.LocalDateTime;
 
 import java.util.Optional;
+import java.util.LinkedHashMap;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.never;
 
 @WebMvcTest(controllers = UCSBDiningCommonsMenuItemController.class)
 @Import(TestConfig.class)
@@ -44,6 +60,15 @@ public class UCSBDiningCommonsMenuItemControllerTest extends ControllerTestCase
     @MockBean
     UserRepository userRepository;
 
+    @MockBean
+    BulkImportService bulkImportService;
+
+    @MockBean
+    MergePatchService mergePatchService;
+
+    @MockBean
+    MenuItemLeaderboardService menuItemLeaderboardService;
+
     @Test
     public void logged_out_users_cannot_get_all() throws Exception {
         mockMvc.perform(get("/api/ucsbdiningcommonmenuitem/all"))
@@ -108,6 +133,7 @@ public class UCSBDiningCommonsMenuItemControllerTest extends ControllerTestCase
         assertEquals("test-code", savedItem.getDiningCommonsCode());
         assertEquals("Test Item", savedItem.getName());
         assertEquals("Test Station", savedItem.getStation());
+        verify(menuItemLeaderboardService, times(1)).itemSaved(item);
 
         String responseString = response.getResponse().getContentAsString();
         UCSBDiningCommonsMenuItem returnedItem = mapper.readValue(responseString, UCSBDiningCommonsMenuItem.class);
@@ -160,6 +186,7 @@ public class UCSBDiningCommonsMenuItemControllerTest extends ControllerTestCase
                 .diningCommonsCode("test-code")
                 .name("Test Item")
                 .station("Test Station")
+                .version(3L)
                 .build();
 
         when(ucsbDiningCommonsMenuItemRepository.findById(1L)).thenReturn(Optional.of(item));
@@ -179,6 +206,7 @@ public class UCSBDiningCommonsMenuItemControllerTest extends ControllerTestCase
         assertEquals("test-code", returnedItem.getDiningCommonsCode());
         assertEquals("Test Item", returnedItem.getName());
         assertEquals("Test Station", returnedItem.getStation());
+        assertEquals(entityTag(UCSBDiningCommonsMenuItem.class, 3), response.getResponse().getHeader(HttpHeaders.ETAG));
     }
 
     @WithMockUser(roles = { "USER" })
@@ -205,24 +233,19 @@ public class UCSBDiningCommonsMenuItemControllerTest extends ControllerTestCase
     @Test
     public void admin_can_update_an_existing_menu_item() throws Exception {
         // Arrange
-        UCSBDiningCommonsMenuItem originalItem = UCSBDiningCommonsMenuItem.builder()
-                .id(1L)
-                .diningCommonsCode("code1")
-                .name("Original Item")
-                .station("Original Station")
-                .build();
 
         UCSBDiningCommonsMenuItem updatedItem = UCSBDiningCommonsMenuItem.builder()
                 .id(1L)
                 .diningCommonsCode("code2")
                 .name("Updated Item")
                 .station("Updated Station")
+                .version(5L)
                 .build();
 
         String requestBody = mapper.writeValueAsString(updatedItem);
 
-        when(ucsbDiningCommonsMenuItemRepository.findById(1L)).thenReturn(Optional.of(originalItem));
-        when(ucsbDiningCommonsMenuItemRepository.save(any())).thenReturn(updatedItem);
+        when(ucsbDiningCommonsMenuItemRepository.updateById(eq(1L), any(), isNull())).thenReturn(1);
+        when(ucsbDiningCommonsMenuItemRepository.findById(eq(1L))).thenReturn(Optional.of(updatedItem));
 
         // Act
         MvcResult response = mockMvc.perform(
@@ -235,16 +258,16 @@ public class UCSBDiningCommonsMenuItemControllerTest extends ControllerTestCase
                 .andReturn();
 
         // Assert
-        verify(ucsbDiningCommonsMenuItemRepository, times(1)).findById(1L);
 
         // Capture and verify saved item fields
         ArgumentCaptor<UCSBDiningCommonsMenuItem> captor = ArgumentCaptor.forClass(UCSBDiningCommonsMenuItem.class);
-        verify(ucsbDiningCommonsMenuItemRepository, times(1)).save(captor.capture());
+        verify(ucsbDiningCommonsMenuItemRepository, times(1)).updateById(eq(1L), captor.capture(), isNull());
 
         UCSBDiningCommonsMenuItem savedItem = captor.getValue();
         assertEquals("code2", savedItem.getDiningCommonsCode());
         assertEquals("Updated Item", savedItem.getName());
         assertEquals("Updated Station", savedItem.getStation());
+        verify(menuItemLeaderboardService, times(1)).itemSaved(savedItem);
 
         // Verify the response
         String responseString = response.getResponse().getContentAsString();
@@ -254,6 +277,7 @@ public class UCSBDiningCommonsMenuItemControllerTest extends ControllerTestCase
         assertEquals("code2", returnedItem.getDiningCommonsCode());
         assertEquals("Updated Item", returnedItem.getName());
         assertEquals("Updated Station", returnedItem.getStation());
+        assertEquals(entityTag(UCSBDiningCommonsMenuItem.class, 5), response.getResponse().getHeader(HttpHeaders.ETAG));
     }
 
     @WithMockUser(roles = { "ADMIN", "USER" })
@@ -269,8 +293,6 @@ public class UCSBDiningCommonsMenuItemControllerTest extends ControllerTestCase
 
         String requestBody = mapper.writeValueAsString(updatedItem);
 
-        when(ucsbDiningCommonsMenuItemRepository.findById(id)).thenReturn(Optional.empty());
-
         // Act
         MvcResult response = mockMvc.perform(
                 put("/api/ucsbdiningcommonmenuitem")
@@ -282,13 +304,65 @@ public class UCSBDiningCommonsMenuItemControllerTest extends ControllerTestCase
                 .andReturn();
 
         // Assert
-        verify(ucsbDiningCommonsMenuItemRepository, times(1)).findById(id);
+        verify(ucsbDiningCommonsMenuItemRepository, times(1)).updateById(eq(id), any(), isNull());
 
         Map<String, Object> json = responseToJson(response);
         assertEquals("EntityNotFoundException", json.get("type"));
         assertEquals("UCSBDiningCommonsMenuItem with id " + id + " not found", json.get("message"));
     }
 
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void admin_can_patch_an_existing_menu_item() throws Exception {
+        // arrange
+        UCSBDiningCommonsMenuItem patched = UCSBDiningCommonsMenuItem.builder()
+                .id(67L)
+                .diningCommonsCode("ortega")
+                .name("Baked Pesto Pasta with Chicken")
+                .station("Entree Specials")
+                .version(5L)
+                .build();
+        JsonNode patch = mapper.readTree("{\"station\": \"Entree Specials\"}");
+
+        when(mergePatchService.patch(UCSBDiningCommonsMenuItem.class, 67L, patch, null)).thenReturn(1);
+        when(ucsbDiningCommonsMenuItemRepository.findById(eq(67L))).thenReturn(Optional.of(patched));
+
+        // act
+        MvcResult response = mockMvc.perform(
+                patch("/api/ucsbdiningcommonmenuitem?id=67")
+                        .contentType(MergePatchService.APPLICATION_MERGE_PATCH_JSON_VALUE)
+                        .content("{\"station\": \"Entree Specials\"}")
+                        .with(csrf()))
+                .andExpect(status().isOk()).andReturn();
+
+        // assert
+        verify(menuItemLeaderboardService, times(1)).itemSaved(patched);
+        String responseString = response.getResponse().getContentAsString();
+        assertEquals(mapper.writeValueAsString(patched), responseString);
+        assertEquals(entityTag(UCSBDiningCommonsMenuItem.class, 5), response.getResponse().getHeader(HttpHeaders.ETAG));
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void admin_cannot_patch_menu_item_that_does_not_exist() throws Exception {
+        // arrange
+        JsonNode patch = mapper.readTree("{\"station\": \"Entree Specials\"}");
+        when(mergePatchService.patch(UCSBDiningCommonsMenuItem.class, 67L, patch, null)).thenReturn(0);
+
+        // act
+        MvcResult response = mockMvc.perform(
+                patch("/api/ucsbdiningcommonmenuitem?id=67")
+                        .contentType(MergePatchService.APPLICATION_MERGE_PATCH_JSON_VALUE)
+                        .content("{\"station\": \"Entree Specials\"}")
+                        .with(csrf()))
+                .andExpect(status().isNotFound()).andReturn();
+
+        // assert
+        verify(ucsbDiningCommonsMenuItemRepository, never()).findById(any());
+        Map<String, Object> json = responseToJson(response);
+        assertEquals("UCSBDiningCommonsMenuItem with id 67 not found", json.get("message"));
+    }
+
     @WithMockUser(roles = { "USER" })
     @Test
     public void regular_user_cannot_update_menu_item() throws Exception {
@@ -316,14 +390,8 @@ public class UCSBDiningCommonsMenuItemControllerTest extends ControllerTestCase
         @Test
         public void admin_can_delete_an_existing_menu_item() throws Exception {
         // Arrange
-        UCSBDiningCommonsMenuItem item = UCSBDiningCommonsMenuItem.builder()
-                .id(1L)
-                .diningCommonsCode("code1")
-                .name("Item 1")
-                .station("Station 1")
-                .build();
 
-        when(ucsbDiningCommonsMenuItemRepository.findById(1L)).thenReturn(Optional.of(item));
+        when(ucsbDiningCommonsMenuItemRepository.removeById(1L, null)).thenReturn(1);
 
         // Act
         MvcResult response = mockMvc.perform(
@@ -334,8 +402,8 @@ public class UCSBDiningCommonsMenuItemControllerTest extends ControllerTestCase
                 .andReturn();
 
         // Assert
-        verify(ucsbDiningCommonsMenuItemRepository, times(1)).findById(1L);
-        verify(ucsbDiningCommonsMenuItemRepository, times(1)).delete(item);
+        verify(ucsbDiningCommonsMenuItemRepository, times(1)).removeById(1L, null);
+        verify(menuItemLeaderboardService, times(1)).itemRemoved(1L);
 
         Map<String, Object> json = responseToJson(response);
         assertEquals("UCSBDiningCommonsMenuItem with id 1 deleted", json.get("message"));
@@ -345,8 +413,6 @@ public class UCSBDiningCommonsMenuItemControllerTest extends ControllerTestCase
         @Test
         public void admin_cannot_delete_nonexistent_menu_item() throws Exception {
         // Arrange
-        when(ucsbDiningCommonsMenuItemRepository.findById(99L)).thenReturn(Optional.empty());
-
         // Act
         MvcResult response = mockMvc.perform(
                 delete("/api/ucsbdiningcommonmenuitem")
@@ -356,7 +422,7 @@ public class UCSBDiningCommonsMenuItemControllerTest extends ControllerTestCase
                 .andReturn();
 
         // Assert
-        verify(ucsbDiningCommonsMenuItemRepository, times(1)).findById(99L);
+        verify(ucsbDiningCommonsMenuItemRepository, times(1)).removeById(99L, null);
 
         Map<String, Object> json = responseToJson(response);
         assertEquals("EntityNotFoundException", json.get("type"));
@@ -374,4 +440,292 @@ public class UCSBDiningCommonsMenuItemControllerTest extends ControllerTestCase
                 .andExpect(status().isForbidden()); // 403 Forbidden
         }
 
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_first_page_and_next_cursor_when_limit_is_given() throws Exception {
+
+                // arrange
+                UCSBDiningCommonsMenuItem ucsbDiningCommonsMenuItem1 = UCSBDiningCommonsMenuItem.builder().id(1L).name("first").build();
+                UCSBDiningCommonsMenuItem ucsbDiningCommonsMenuItem2 = UCSBDiningCommonsMenuItem.builder().id(2L).name("second").build();
+                UCSBDiningCommonsMenuItem ucsbDiningCommonsMenuItem3 = UCSBDiningCommonsMenuItem.builder().id(3L).name("third").build();
+
+                when(ucsbDiningCommonsMenuItemRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), eq(Limit.of(3))))
+                                .thenReturn(new ArrayList<>(Arrays.asList(ucsbDiningCommonsMenuItem1, ucsbDiningCommonsMenuItem2, ucsbDiningCommonsMenuItem3)));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommonmenuitem/all?limit=2"))
+                                .andExpect(status().isOk())
+                                .andExpect(header().string("X-Next-Cursor", "2"))
+                                .andReturn();
+
+                // assert
+                verify(ucsbDiningCommonsMenuItemRepository, times(0)).findAll();
+                String expectedJson = mapper.writeValueAsString(Arrays.asList(ucsbDiningCommonsMenuItem1, ucsbDiningCommonsMenuItem2));
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_last_page_without_next_cursor() throws Exception {
+
+                // arrange
+                UCSBDiningCommonsMenuItem ucsbDiningCommonsMenuItem3 = UCSBDiningCommonsMenuItem.builder().id(3L).name("third").build();
+
+                when(ucsbDiningCommonsMenuItemRepository.findByIdGreaterThanOrderByIdAsc(eq(2L), eq(Limit.of(101))))
+                                .thenReturn(new ArrayList<>(Arrays.asList(ucsbDiningCommonsMenuItem3)));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommonmenuitem/all?after=2"))
+                                .andExpect(status().isOk())
+                                .andExpect(header().doesNotExist("X-Next-Cursor"))
+                                .andReturn();
+
+                // assert
+                verify(ucsbDiningCommonsMenuItemRepository, times(1)).findByIdGreaterThanOrderByIdAsc(2L, Limit.of(101));
+                String expectedJson = mapper.writeValueAsString(Arrays.asList(ucsbDiningCommonsMenuItem3));
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+    // Tests for POST /api/ucsbdiningcommonmenuitem/import
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_regular_users_cannot_import() throws Exception {
+        mockMvc.perform(post("/api/ucsbdiningcommonmenuitem/import")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .content("{}\n")
+                .with(csrf()))
+                .andExpect(status().is(403));
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void an_admin_user_can_import_menu_items() throws Exception {
+        // arrange
+        ImportReport report = new ImportReport();
+        report.setReceived(2);
+        report.setImported(1);
+        report.reject(2, "Unexpected end-of-input");
+        UCSBDiningCommonsMenuItem burrito = UCSBDiningCommonsMenuItem.builder()
+                .id(51L).diningCommonsCode("ortega").name("Burrito").station("Grill")
+                .build();
+        when(bulkImportService.importRows(any(), argThat(MediaType.APPLICATION_NDJSON::isCompatibleWith), eq(UCSBDiningCommonsMenuItem.class),
+                eq(ucsbDiningCommonsMenuItemRepository), any())).thenAnswer(invocation -> {
+                    Consumer<UCSBDiningCommonsMenuItem> afterCommit = invocation.getArgument(4);
+                    afterCommit.accept(burrito);
+                    return report;
+                });
+
+        // act
+        MvcResult response = mockMvc.perform(post("/api/ucsbdiningcommonmenuitem/import")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .content("{\"diningCommonsCode\": \"ortega\", \"name\": \"Burrito\", \"station\": \"Grill\"}\n{\n")
+                .with(csrf()))
+                .andExpect(status().isOk()).andReturn();
+
+        // assert
+        verify(bulkImportService, times(1)).importRows(any(), argThat(MediaType.APPLICATION_NDJSON::isCompatibleWith), eq(UCSBDiningCommonsMenuItem.class),
+                eq(ucsbDiningCommonsMenuItemRepository), any());
+        verify(menuItemLeaderboardService, times(1)).itemSaved(burrito);
+        assertEquals(mapper.writeValueAsString(report), response.getResponse().getContentAsString());
+    }
+
+    // Tests for conditional GETs (ETag / If-None-Match)
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_user_gets_304_for_all_when_etag_matches() throws Exception {
+        // arrange
+        when(ucsbDiningCommonsMenuItemRepository.findAll()).thenReturn(new ArrayList<>());
+        MvcResult first = mockMvc.perform(get("/api/ucsbdiningcommonmenuitem/all"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache, private"))
+                .andReturn();
+        String etag = first.getResponse().getHeader(HttpHeaders.ETAG);
+
+        // act
+        MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommonmenuitem/all").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified()).andReturn();
+
+        // assert
+        verify(ucsbDiningCommonsMenuItemRepository, times(1)).findAll();
+        assertEquals("", response.getResponse().getContentAsString());
+        assertEquals(etag, response.getResponse().getHeader(HttpHeaders.ETAG));
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_user_gets_304_for_get_by_id_when_etag_matches() throws Exception {
+        // arrange
+        UCSBDiningCommonsMenuItem entity = UCSBDiningCommonsMenuItem.builder().id(15L).version(4L).build();
+        when(ucsbDiningCommonsMenuItemRepository.findById(eq(15L))).thenReturn(Optional.of(entity));
+
+        // act
+        mockMvc.perform(get("/api/ucsbdiningcommonmenuitem?id=15").header(HttpHeaders.IF_NONE_MATCH, entityTag(UCSBDiningCommonsMenuItem.class, 4)))
+                .andExpect(status().isNotModified());
+
+        // assert
+        verify(ucsbDiningCommonsMenuItemRepository, times(1)).findById(eq(15L));
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void admin_delete_changes_the_etag_for_menu_items() throws Exception {
+        // arrange
+        String before = tableVersionService.etag(UCSBDiningCommonsMenuItem.class);
+        when(ucsbDiningCommonsMenuItemRepository.removeById(eq(15L), isNull())).thenReturn(1);
+
+        // act
+        mockMvc.perform(delete("/api/ucsbdiningcommonmenuitem?id=" + "15").with(csrf()))
+                .andExpect(status().isOk());
+
+        // assert
+        assertNotEquals(before, tableVersionService.etag(UCSBDiningCommonsMenuItem.class));
+    }
+
+    // Tests for GET /api/ucsbdiningcommonmenuitem/batch
+
+    @Test
+    public void logged_out_users_cannot_get_batch() throws Exception {
+        mockMvc.perform(get("/api/ucsbdiningcommonmenuitem/batch?ids=1,2"))
+                .andExpect(status().is(403));
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_user_gets_a_batch_with_missing_ids_reported() throws Exception {
+        // arrange
+        UCSBDiningCommonsMenuItem first = UCSBDiningCommonsMenuItem.builder().id(1L).name("Tofu Banh Mi").build();
+        UCSBDiningCommonsMenuItem third = UCSBDiningCommonsMenuItem.builder().id(3L).name("Chicken Caesar Salad").build();
+        when(ucsbDiningCommonsMenuItemRepository.findAllById(List.of(1L, 2L, 3L))).thenReturn(List.of(first, third));
+
+        // act
+        MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommonmenuitem/batch?ids=1,2,3"))
+                .andExpect(status().isOk()).andReturn();
+
+        // assert
+        Map<Long, UCSBDiningCommonsMenuItem> found = new LinkedHashMap<>();
+        found.put(1L, first);
+        found.put(3L, third);
+        String expectedJson = mapper.writeValueAsString(new BatchResult<>(found, List.of(2L)));
+        assertEquals(expectedJson, response.getResponse().getContentAsString());
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_user_gets_304_for_get_batch_when_etag_matches() throws Exception {
+        // arrange
+        String etag = "\"" + tableVersionService.etag(UCSBDiningCommonsMenuItem.class) + "\"";
+
+        // act
+        mockMvc.perform(get("/api/ucsbdiningcommonmenuitem/batch?ids=1").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+
+        // assert
+        verify(ucsbDiningCommonsMenuItemRepository, never()).findAllById(any());
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void admin_can_edit_a_menu_item_at_the_version_it_read() throws Exception {
+        // arrange
+        UCSBDiningCommonsMenuItem edited = UCSBDiningCommonsMenuItem.builder()
+                .diningCommonsCode("ortega")
+                .name("Baked Pesto Pasta with Chicken")
+                .station("Entree Specials")
+                .build();
+        UCSBDiningCommonsMenuItem saved = UCSBDiningCommonsMenuItem.builder().id(67L).version(5L).build();
+
+        when(ucsbDiningCommonsMenuItemRepository.updateById(eq(67L), any(), eq(4L))).thenReturn(1);
+        when(ucsbDiningCommonsMenuItemRepository.findById(eq(67L))).thenReturn(Optional.of(saved));
+
+        // act
+        MvcResult response = mockMvc.perform(
+                put("/api/ucsbdiningcommonmenuitem?id=67")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .characterEncoding("utf-8")
+                        .header(HttpHeaders.IF_MATCH, entityTag(UCSBDiningCommonsMenuItem.class, 4))
+                        .content(mapper.writeValueAsString(edited))
+                        .with(csrf()))
+                .andExpect(status().isOk()).andReturn();
+
+        // assert
+        verify(ucsbDiningCommonsMenuItemRepository, times(1)).updateById(67L, edited, 4L);
+        assertEquals(mapper.writeValueAsString(saved), response.getResponse().getContentAsString());
+        assertEquals(entityTag(UCSBDiningCommonsMenuItem.class, 5), response.getResponse().getHeader(HttpHeaders.ETAG));
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void admin_cannot_edit_a_menu_item_that_changed_since_it_was_read() throws Exception {
+        // arrange
+        UCSBDiningCommonsMenuItem edited = UCSBDiningCommonsMenuItem.builder()
+                .diningCommonsCode("ortega")
+                .name("Baked Pesto Pasta with Chicken")
+                .station("Entree Specials")
+                .build();
+
+        when(ucsbDiningCommonsMenuItemRepository.updateById(eq(67L), any(), eq(4L))).thenReturn(0);
+        when(ucsbDiningCommonsMenuItemRepository.existsById(eq(67L))).thenReturn(true);
+
+        // act
+        MvcResult response = mockMvc.perform(
+                put("/api/ucsbdiningcommonmenuitem?id=67")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .characterEncoding("utf-8")
+                        .header(HttpHeaders.IF_MATCH, entityTag(UCSBDiningCommonsMenuItem.class, 4))
+                        .content(mapper.writeValueAsString(edited))
+                        .with(csrf()))
+                .andExpect(status().isPreconditionFailed()).andReturn();
+
+        // assert
+        verify(ucsbDiningCommonsMenuItemRepository, never()).findById(any());
+        Map<String, Object> json = responseToJson(response);
+        assertEquals("VersionConflictException", json.get("type"));
+        assertEquals("UCSBDiningCommonsMenuItem with id 67 has been changed since it was read", json.get("message"));
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void admin_cannot_patch_a_menu_item_that_changed_since_it_was_read() throws Exception {
+        // arrange
+        JsonNode patch = mapper.readTree("{\"station\": \"Entree Specials\"}");
+        when(mergePatchService.patch(UCSBDiningCommonsMenuItem.class, 67L, patch, 4L)).thenReturn(0);
+        when(ucsbDiningCommonsMenuItemRepository.existsById(eq(67L))).thenReturn(true);
+
+        // act
+        MvcResult response = mockMvc.perform(
+                patch("/api/ucsbdiningcommonmenuitem?id=67")
+                        .contentType(MergePatchService.APPLICATION_MERGE_PATCH_JSON_VALUE)
+                        .header(HttpHeaders.IF_MATCH, entityTag(UCSBDiningCommonsMenuItem.class, 4))
+                        .content("{\"station\": \"Entree Specials\"}")
+                        .with(csrf()))
+                .andExpect(status().isPreconditionFailed()).andReturn();
+
+        // assert
+        Map<String, Object> json = responseToJson(response);
+        assertEquals("UCSBDiningCommonsMenuItem with id 67 has been changed since it was read", json.get("message"));
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void admin_cannot_delete_a_menu_item_that_changed_since_it_was_read() throws Exception {
+        // arrange
+        when(ucsbDiningCommonsMenuItemRepository.removeById(eq(67L), eq(4L))).thenReturn(0);
+        when(ucsbDiningCommonsMenuItemRepository.existsById(eq(67L))).thenReturn(true);
+
+        // act
+        MvcResult response = mockMvc.perform(
+                delete("/api/ucsbdiningcommonmenuitem?id=67")
+                        .header(HttpHeaders.IF_MATCH, entityTag(UCSBDiningCommonsMenuItem.class, 4))
+                        .with(csrf()))
+                .andExpect(status().isPreconditionFailed()).andReturn();
+
+        // assert
+        verify(ucsbDiningCommonsMenuItemRepository, times(1)).removeById(67L, 4L);
+        Map<String, Object> json = responseToJson(response);
+        assertEquals("UCSBDiningCommonsMenuItem with id 67 has been changed since it was read", json.get("message"));
+    }
 }
@@ -5,6 +5,12 @@ import edu.ucsb.cs156.example.testconfig.TestConfig;
 import edu.ucsb.cs156.example.ControllerTestCase;
 import edu.ucsb.cs156.example.entities.UCSBOrganization;
 import edu.ucsb.cs156.example.repositories.UCSBOrganizationRepository;
+import edu.ucsb.cs156.example.models.ImportReport;
+import edu.ucsb.cs156.example.services.BulkImportService;
+import edu.ucsb.cs156.example.services.MergePatchService;
+import edu.ucsb.cs156.example.models.BatchResult;
+
+import com.fasterxml.jackson.databind.JsonNode;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -13,7 +19,10 @@ import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.http.MediaType;
+import org.springframework.http.HttpHeaders;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
 
@@ -22,13 +31,19 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
 
 import java.util.Optional;
+import java.util.LinkedHashMap;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.never;
 
 @WebMvcTest(controllers = UCSBOrganizationController.class)
 @Import(TestConfig.class)
@@ -41,6 +56,12 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
         @MockBean
         UserRepository userRepository;
 
+        @MockBean
+        BulkImportService bulkImportService;
+
+        @MockBean
+        MergePatchService mergePatchService;
+
         // Authorization tests for /api/ucsborganization/admin/all
 
         @Test
@@ -137,18 +158,32 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
                 assertEquals(expectedJson, responseString);
         }
 
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void posting_an_org_whose_code_is_taken_is_a_conflict() throws Exception {
+                // arrange
+
+                when(ucsbOrganizationRepository.save(any()))
+                                .thenThrow(new DataIntegrityViolationException("duplicate key"));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                post("/api/ucsborganization/post?orgCode=ROK&orgTranslationShort=CLIMBING&orgTranslation=UCSBCLIMBING&inactive=true")
+                        .with(csrf()))
+                .andExpect(status().isConflict()).andReturn();
+
+                // assert
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("DuplicateEntityException", json.get("type"));
+                assertEquals("UCSBOrganization with id ROK already exists", json.get("message"));
+        }
+
         @WithMockUser(roles = { "ADMIN", "USER" })
         @Test
         public void admin_can_delete_a_org() throws Exception {
                 // arrange
 
-                UCSBOrganization ind = UCSBOrganization.builder()
-                        .orgCode("IND")
-                        .orgTranslationShort("INDUS")
-                        .orgTranslation("INDUS SOUTH ASIAN CLUB")
-                        .inactive(true)
-                        .build();
-                when(ucsbOrganizationRepository.findById(eq("IND"))).thenReturn(Optional.of(ind));
+                when(ucsbOrganizationRepository.removeById(eq("IND"), isNull())).thenReturn(1);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -157,8 +192,7 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
-                verify(ucsbOrganizationRepository, times(1)).findById("IND");
-                verify(ucsbOrganizationRepository, times(1)).delete(any());
+                verify(ucsbOrganizationRepository, times(1)).removeById("IND", null);
 
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("UCSBOrganization with id IND deleted", json.get("message"));
@@ -170,7 +204,7 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
                         throws Exception {
                 // arrange
 
-                when(ucsbOrganizationRepository.findById(eq("tedex"))).thenReturn(Optional.empty());
+                when(ucsbOrganizationRepository.removeById(eq("tedex"), isNull())).thenReturn(0);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -179,7 +213,7 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
                                 .andExpect(status().isNotFound()).andReturn();
 
                 // assert
-                verify(ucsbOrganizationRepository, times(1)).findById("tedex");
+                verify(ucsbOrganizationRepository, times(1)).removeById("tedex", null);
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("UCSBOrganization with id tedex not found", json.get("message"));
         }
@@ -189,23 +223,27 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
 	public void admin_can_edit_an_existing_organization() throws Exception {
 		// arrange
 
-		UCSBOrganization ksigOrig = UCSBOrganization.builder()
-                        .orgCode("KSIG")
-                        .orgTranslationShort("KAPPA SIGMA")
-                        .orgTranslation("KAPPA SIGMA FRATERNITY")
-                        .inactive(true)
-                        .build();
-		
 		UCSBOrganization ksigEdited = UCSBOrganization.builder()
                         .orgCode("ksig")
                         .orgTranslationShort("KAPPA SIGMA FRAT")
                         .orgTranslation("KAPPA SIGMA SOCIAL FRATERNITY")
                         .inactive(false)
+                        .version(5L)
+                        .build();
+
+		// the code in the body is ignored; the organization keeps the code it is stored under
+		UCSBOrganization ksigSaved = UCSBOrganization.builder()
+                        .orgCode("KSIG")
+                        .orgTranslationShort("KAPPA SIGMA FRAT")
+                        .orgTranslation("KAPPA SIGMA SOCIAL FRATERNITY")
+                        .inactive(false)
+                        .version(5L)
                         .build();
 
 		String requestBody = mapper.writeValueAsString(ksigEdited);
 
-		when(ucsbOrganizationRepository.findById(eq("KSIG"))).thenReturn(Optional.of(ksigOrig));
+		when(ucsbOrganizationRepository.updateById(eq("KSIG"), any(), isNull())).thenReturn(1);
+		when(ucsbOrganizationRepository.findById(eq("KSIG"))).thenReturn(Optional.of(ksigSaved));
 
 		// act
 		MvcResult response = mockMvc.perform(
@@ -217,10 +255,10 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
 						.andExpect(status().isOk()).andReturn();
 
 		// assert
-		verify(ucsbOrganizationRepository, times(1)).findById("KSIG");
-		verify(ucsbOrganizationRepository, times(1)).save(ksigEdited); // should be saved with updated info
+		verify(ucsbOrganizationRepository, times(1)).updateById("KSIG", ksigEdited, null); // should be saved with updated info
 		String responseString = response.getResponse().getContentAsString();
-		assertEquals(requestBody, responseString);
+		assertEquals(mapper.writeValueAsString(ksigSaved), responseString);
+		assertEquals(entityTag(UCSBOrganization.class, 5), response.getResponse().getHeader(HttpHeaders.ETAG));
 	}
 
 	@WithMockUser(roles = { "ADMIN", "USER" })
@@ -237,7 +275,7 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
 
 		String requestBody = mapper.writeValueAsString(zprEdited);
 
-		when(ucsbOrganizationRepository.findById(eq("ATO"))).thenReturn(Optional.empty());
+		when(ucsbOrganizationRepository.updateById(eq("ATO"), any(), isNull())).thenReturn(0);
 
 		// act
 		MvcResult response = mockMvc.perform(
@@ -249,10 +287,61 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
 						.andExpect(status().isNotFound()).andReturn();
 
 		// assert
-		verify(ucsbOrganizationRepository, times(1)).findById("ATO");
+		verify(ucsbOrganizationRepository, times(1)).updateById(eq("ATO"), any(), isNull());
 		Map<String, Object> json = responseToJson(response);
 		assertEquals("UCSBOrganization with id ATO not found", json.get("message"));
 	}
+
+	@WithMockUser(roles = { "ADMIN", "USER" })
+	@Test
+	public void admin_can_patch_an_existing_organization() throws Exception {
+		// arrange
+		UCSBOrganization patched = UCSBOrganization.builder()
+						.orgCode("KSIG")
+						.orgTranslationShort("KAPPA SIGMA")
+						.orgTranslation("KAPPA SIGMA FRATERNITY")
+						.inactive(true)
+						.version(5L)
+						.build();
+		JsonNode patch = mapper.readTree("{\"inactive\": true}");
+
+		when(mergePatchService.patch(UCSBOrganization.class, "KSIG", patch, null)).thenReturn(1);
+		when(ucsbOrganizationRepository.findById(eq("KSIG"))).thenReturn(Optional.of(patched));
+
+		// act
+		MvcResult response = mockMvc.perform(
+						patch("/api/ucsborganization?orgCode=KSIG")
+										.contentType(MergePatchService.APPLICATION_MERGE_PATCH_JSON_VALUE)
+										.content("{\"inactive\": true}")
+										.with(csrf()))
+						.andExpect(status().isOk()).andReturn();
+
+		// assert
+		String responseString = response.getResponse().getContentAsString();
+		assertEquals(mapper.writeValueAsString(patched), responseString);
+		assertEquals(entityTag(UCSBOrganization.class, 5), response.getResponse().getHeader(HttpHeaders.ETAG));
+	}
+
+	@WithMockUser(roles = { "ADMIN", "USER" })
+	@Test
+	public void admin_cannot_patch_organization_that_does_not_exist() throws Exception {
+		// arrange
+		JsonNode patch = mapper.readTree("{\"inactive\": true}");
+		when(mergePatchService.patch(UCSBOrganization.class, "KSIG", patch, null)).thenReturn(0);
+
+		// act
+		MvcResult response = mockMvc.perform(
+						patch("/api/ucsborganization?orgCode=KSIG")
+										.contentType(MergePatchService.APPLICATION_MERGE_PATCH_JSON_VALUE)
+										.content("{\"inactive\": true}")
+										.with(csrf()))
+						.andExpect(status().isNotFound()).andReturn();
+
+		// assert
+		verify(ucsbOrganizationRepository, never()).findById(any());
+		Map<String, Object> json = responseToJson(response);
+		assertEquals("UCSBOrganization with id KSIG not found", json.get("message"));
+	}
         
         @Test
         public void logged_out_users_cannot_get_by_id() throws Exception {
@@ -269,6 +358,7 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
                         .orgTranslationShort("ACHIO")
                         .orgTranslation("ALPHA CHI OMEGA SORORITY")
                         .inactive(true)
+                        .version(3L)
                         .build();
                 when(ucsbOrganizationRepository.findById(eq("AXO"))).thenReturn(Optional.of(axo));
                 // act
@@ -279,6 +369,7 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
                 String expectedJson = mapper.writeValueAsString(axo);
                 String responseString = response.getResponse().getContentAsString();
                 assertEquals(expectedJson, responseString);
+                assertEquals(entityTag(UCSBOrganization.class, 3), response.getResponse().getHeader(HttpHeaders.ETAG));
         }
         @WithMockUser(roles = { "USER" })
         @Test
@@ -295,4 +386,306 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
                 assertEquals("UCSBOrganization with id ATO not found", json.get("message"));
         }
 
-}
\ No newline at end of file
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_first_page_and_next_cursor_when_limit_is_given() throws Exception {
+
+                // arrange
+                UCSBOrganization ucsbOrganization1 = UCSBOrganization.builder().orgCode("KRC").orgTranslation("first").build();
+                UCSBOrganization ucsbOrganization2 = UCSBOrganization.builder().orgCode("OSLI").orgTranslation("second").build();
+                UCSBOrganization ucsbOrganization3 = UCSBOrganization.builder().orgCode("ZPR").orgTranslation("third").build();
+
+                when(ucsbOrganizationRepository.findByOrgCodeGreaterThanOrderByOrgCodeAsc(eq(""), eq(Limit.of(3))))
+                                .thenReturn(new ArrayList<>(Arrays.asList(ucsbOrganization1, ucsbOrganization2, ucsbOrganization3)));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsborganization/all?limit=2"))
+                                .andExpect(status().isOk())
+                                .andExpect(header().string("X-Next-Cursor", "OSLI"))
+                                .andReturn();
+
+                // assert
+                verify(ucsbOrganizationRepository, times(0)).findAll();
+                String expectedJson = mapper.writeValueAsString(Arrays.asList(ucsbOrganization1, ucsbOrganization2));
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_last_page_without_next_cursor() throws Exception {
+
+                // arrange
+                UCSBOrganization ucsbOrganization3 = UCSBOrganization.builder().orgCode("ZPR").orgTranslation("third").build();
+
+                when(ucsbOrganizationRepository.findByOrgCodeGreaterThanOrderByOrgCodeAsc(eq("OSLI"), eq(Limit.of(101))))
+                                .thenReturn(new ArrayList<>(Arrays.asList(ucsbOrganization3)));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsborganization/all?after=OSLI"))
+                                .andExpect(status().isOk())
+                                .andExpect(header().doesNotExist("X-Next-Cursor"))
+                                .andReturn();
+
+                // assert
+                verify(ucsbOrganizationRepository, times(1)).findByOrgCodeGreaterThanOrderByOrgCodeAsc("OSLI", Limit.of(101));
+                String expectedJson = mapper.writeValueAsString(Arrays.asList(ucsbOrganization3));
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        // Tests for POST /api/ucsborganization/import
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_import() throws Exception {
+                mockMvc.perform(post("/api/ucsborganization/import")
+                                .contentType(MediaType.APPLICATION_NDJSON)
+                                .content("{}\n")
+                                .with(csrf()))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void an_admin_user_can_import_organizations() throws Exception {
+                // arrange
+                ImportReport report = new ImportReport();
+                report.setReceived(2);
+                report.setImported(1);
+                report.reject(2, "Unexpected end-of-input");
+                when(bulkImportService.importRows(any(), argThat(MediaType.APPLICATION_NDJSON::isCompatibleWith), eq(UCSBOrganization.class),
+                                eq(ucsbOrganizationRepository))).thenReturn(report);
+
+                // act
+                MvcResult response = mockMvc.perform(post("/api/ucsborganization/import")
+                                .contentType(MediaType.APPLICATION_NDJSON)
+                                .content("{\"orgCode\": \"ZPR\", \"orgTranslationShort\": \"ZETA PHI RHO\", \"orgTranslation\": \"ZETA PHI RHO\", \"inactive\": false}\n{\n")
+                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(bulkImportService, times(1)).importRows(any(), argThat(MediaType.APPLICATION_NDJSON::isCompatibleWith), eq(UCSBOrganization.class),
+                                eq(ucsbOrganizationRepository));
+                assertEquals(mapper.writeValueAsString(report), response.getResponse().getContentAsString());
+        }
+
+        // Tests for conditional GETs (ETag / If-None-Match)
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_304_for_all_when_etag_matches() throws Exception {
+                // arrange
+                when(ucsbOrganizationRepository.findAll()).thenReturn(new ArrayList<>());
+                MvcResult first = mockMvc.perform(get("/api/ucsborganization/all"))
+                                .andExpect(status().isOk())
+                                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache, private"))
+                                .andReturn();
+                String etag = first.getResponse().getHeader(HttpHeaders.ETAG);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsborganization/all").header(HttpHeaders.IF_NONE_MATCH, etag))
+                                .andExpect(status().isNotModified()).andReturn();
+
+                // assert
+                verify(ucsbOrganizationRepository, times(1)).findAll();
+                assertEquals("", response.getResponse().getContentAsString());
+                assertEquals(etag, response.getResponse().getHeader(HttpHeaders.ETAG));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_304_for_get_by_orgcode_when_etag_matches() throws Exception {
+                // arrange
+                UCSBOrganization entity = UCSBOrganization.builder().orgCode("ZPR").version(4L).build();
+                when(ucsbOrganizationRepository.findById(eq("ZPR"))).thenReturn(Optional.of(entity));
+
+                // act
+                mockMvc.perform(get("/api/ucsborganization?orgCode=ZPR").header(HttpHeaders.IF_NONE_MATCH, entityTag(UCSBOrganization.class, 4)))
+                                .andExpect(status().isNotModified());
+
+                // assert
+                verify(ucsbOrganizationRepository, times(1)).findById(eq("ZPR"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_delete_changes_the_etag_for_organizations() throws Exception {
+                // arrange
+                String before = tableVersionService.etag(UCSBOrganization.class);
+                when(ucsbOrganizationRepository.removeById(eq("ZPR"), isNull())).thenReturn(1);
+
+                // act
+                mockMvc.perform(delete("/api/ucsborganization?orgCode=" + "ZPR").with(csrf()))
+                                .andExpect(status().isOk());
+
+                // assert
+                assertNotEquals(before, tableVersionService.etag(UCSBOrganization.class));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void a_tag_from_before_a_delete_does_not_match_the_organization_created_again() throws Exception {
+                // arrange
+                String stale = entityTag(UCSBOrganization.class, 0);
+                when(ucsbOrganizationRepository.removeById(eq("ZPR"), isNull())).thenReturn(1);
+                mockMvc.perform(delete("/api/ucsborganization?orgCode=ZPR").with(csrf()))
+                                .andExpect(status().isOk());
+                UCSBOrganization recreated = UCSBOrganization.builder().orgCode("ZPR").version(0L).build();
+                when(ucsbOrganizationRepository.findById(eq("ZPR"))).thenReturn(Optional.of(recreated));
+                when(ucsbOrganizationRepository.existsById(eq("ZPR"))).thenReturn(true);
+
+                // act
+                mockMvc.perform(get("/api/ucsborganization?orgCode=ZPR").header(HttpHeaders.IF_NONE_MATCH, stale))
+                                .andExpect(status().isOk());
+                mockMvc.perform(delete("/api/ucsborganization?orgCode=ZPR").header(HttpHeaders.IF_MATCH, stale).with(csrf()))
+                                .andExpect(status().isPreconditionFailed());
+
+                // assert
+                verify(ucsbOrganizationRepository, times(1)).removeById("ZPR", -1L);
+        }
+
+        // Tests for GET /api/ucsborganization/batch
+
+        @Test
+        public void logged_out_users_cannot_get_batch() throws Exception {
+                mockMvc.perform(get("/api/ucsborganization/batch?ids=KSIG,ATO"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_a_batch_with_missing_ids_reported() throws Exception {
+                // arrange
+                UCSBOrganization first = UCSBOrganization.builder().orgCode("KSIG").orgTranslationShort("KAPPA SIGMA").build();
+                UCSBOrganization third = UCSBOrganization.builder().orgCode("OSLI").orgTranslationShort("STUDUCSBOrganization LIFE").build();
+                when(ucsbOrganizationRepository.findAllById(List.of("KSIG", "ATO", "OSLI"))).thenReturn(List.of(first, third));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsborganization/batch?ids=KSIG,ATO,OSLI"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                Map<String, UCSBOrganization> found = new LinkedHashMap<>();
+                found.put("KSIG", first);
+                found.put("OSLI", third);
+                String expectedJson = mapper.writeValueAsString(new BatchResult<>(found, List.of("ATO")));
+                assertEquals(expectedJson, response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_304_for_get_batch_when_etag_matches() throws Exception {
+                // arrange
+                String etag = "\"" + tableVersionService.etag(UCSBOrganization.class) + "\"";
+
+                // act
+                mockMvc.perform(get("/api/ucsborganization/batch?ids=KSIG").header(HttpHeaders.IF_NONE_MATCH, etag))
+                                .andExpect(status().isNotModified());
+
+                // assert
+                verify(ucsbOrganizationRepository, never()).findAllById(any());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_edit_a_organization_at_the_version_it_read() throws Exception {
+                // arrange
+                UCSBOrganization edited = UCSBOrganization.builder()
+                                .orgTranslationShort("ZETA PHI RHO")
+                                .orgTranslation("ZETA PHI RHO")
+                                .inactive(false)
+                                .build();
+                UCSBOrganization saved = UCSBOrganization.builder().orgCode("ZPR").version(5L).build();
+
+                when(ucsbOrganizationRepository.updateById(eq("ZPR"), any(), eq(4L))).thenReturn(1);
+                when(ucsbOrganizationRepository.findById(eq("ZPR"))).thenReturn(Optional.of(saved));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                put("/api/ucsborganization?orgCode=ZPR")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .header(HttpHeaders.IF_MATCH, entityTag(UCSBOrganization.class, 4))
+                                                .content(mapper.writeValueAsString(edited))
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(ucsbOrganizationRepository, times(1)).updateById("ZPR", edited, 4L);
+                assertEquals(mapper.writeValueAsString(saved), response.getResponse().getContentAsString());
+                assertEquals(entityTag(UCSBOrganization.class, 5), response.getResponse().getHeader(HttpHeaders.ETAG));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_cannot_edit_a_organization_that_changed_since_it_was_read() throws Exception {
+                // arrange
+                UCSBOrganization edited = UCSBOrganization.builder()
+                                .orgTranslationShort("ZETA PHI RHO")
+                                .orgTranslation("ZETA PHI RHO")
+                                .inactive(false)
+                                .build();
+
+                when(ucsbOrganizationRepository.updateById(eq("ZPR"), any(), eq(4L))).thenReturn(0);
+                when(ucsbOrganizationRepository.existsById(eq("ZPR"))).thenReturn(true);
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                put("/api/ucsborganization?orgCode=ZPR")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .header(HttpHeaders.IF_MATCH, entityTag(UCSBOrganization.class, 4))
+                                                .content(mapper.writeValueAsString(edited))
+                                                .with(csrf()))
+                                .andExpect(status().isPreconditionFailed()).andReturn();
+
+                // assert
+                verify(ucsbOrganizationRepository, never()).findById(any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("VersionConflictException", json.get("type"));
+                assertEquals("UCSBOrganization with id ZPR has been changed since it was read", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_cannot_patch_a_organization_that_changed_since_it_was_read() throws Exception {
+                // arrange
+                JsonNode patch = mapper.readTree("{\"inactive\": true}");
+                when(mergePatchService.patch(UCSBOrganization.class, "ZPR", patch, 4L)).thenReturn(0);
+                when(ucsbOrganizationRepository.existsById(eq("ZPR"))).thenReturn(true);
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                patch("/api/ucsborganization?orgCode=ZPR")
+                                                .contentType(MergePatchService.APPLICATION_MERGE_PATCH_JSON_VALUE)
+                                                .header(HttpHeaders.IF_MATCH, entityTag(UCSBOrganization.class, 4))
+                                                .content("{\"inactive\": true}")
+                                                .with(csrf()))
+                                .andExpect(status().isPreconditionFailed()).andReturn();
+
+                // assert
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("UCSBOrganization with id ZPR has been changed since it was read", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_cannot_delete_a_organization_that_changed_since_it_was_read() throws Exception {
+                // arrange
+                when(ucsbOrganizationRepository.removeById(eq("ZPR"), eq(4L))).thenReturn(0);
+                when(ucsbOrganizationRepository.existsById(eq("ZPR"))).thenReturn(true);
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                delete("/api/ucsborganization?orgCode=ZPR")
+                                                .header(HttpHeaders.IF_MATCH, entityTag(UCSBOrganization.class, 4))
+                                                .with(csrf()))
+                                .andExpect(status().isPreconditionFailed()).andReturn();
+
+                // assert
+                verify(ucsbOrganizationRepository, times(1)).removeById("ZPR", 4L);
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("UCSBOrganization with id ZPR has been changed since it was read", json.get("message"));
+        }
+}
@@ -0,0 +1,119 @@
+package edu.ucsb.cs156.example.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.annotation.DirtiesContext.ClassMode;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+
+import edu.ucsb.cs156.example.entities.Articles;
+import edu.ucsb.cs156.example.models.ArticleSearchHit;
+import edu.ucsb.cs156.example.repositories.ArticlesRepository;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.ArticleSearchService;
+import edu.ucsb.cs156.example.testconfig.TestConfig;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Checks that article search follows articles through post, put and delete,
+ * and that a rebuild picks up articles saved behind the controller's back.
+ */
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.MOCK)
+@AutoConfigureMockMvc
+@ActiveProfiles("integration")
+@Import(TestConfig.class)
+@DirtiesContext(classMode = ClassMode.BEFORE_EACH_TEST_METHOD)
+public class ArticleSearchIT {
+        @Autowired
+        public MockMvc mockMvc;
+
+        @Autowired
+        public ObjectMapper mapper;
+
+        @Autowired
+        ArticlesRepository articlesRepository;
+
+        @Autowired
+        ArticleSearchService articleSearchService;
+
+        @MockBean
+        UserRepository userRepository;
+
+        private Articles postArticle(String title, String explanation) throws Exception {
+                MvcResult response = mockMvc.perform(post("/api/Articles/post")
+                                .param("title", title)
+                                .param("url", "https://example.org")
+                                .param("explanation", explanation)
+                                .param("email", "cgaucho@ucsb.edu")
+                                .param("dateAdded", "2022-01-03T00:00:00")
+                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+                return mapper.readValue(response.getResponse().getContentAsString(), Articles.class);
+        }
+
+        private List<Long> search(String q) throws Exception {
+                MvcResult response = mockMvc.perform(get("/api/Articles/search").param("q", q))
+                                .andExpect(status().isOk()).andReturn();
+                return List.of(mapper.readValue(response.getResponse().getContentAsString(), ArticleSearchHit[].class))
+                                .stream().map(ArticleSearchHit::getId).toList();
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void search_follows_articles_as_they_are_posted_changed_and_deleted() throws Exception {
+                Articles spring = postArticle("Spring Boot guide", "Building web applications");
+                Articles garden = postArticle("Gardening in spring", "Planting bulbs");
+
+                assertEquals(List.of(garden.getId(), spring.getId()), search("spring"));
+                assertEquals(List.of(spring.getId()), search("spring appl"));
+
+                garden.setTitle("Winter gardening");
+                mockMvc.perform(put("/api/Articles").param("id", Long.toString(garden.getId()))
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(mapper.writeValueAsString(garden))
+                                .with(csrf()))
+                                .andExpect(status().isOk());
+
+                assertEquals(List.of(spring.getId()), search("spring"));
+                assertEquals(List.of(garden.getId()), search("winter"));
+
+                mockMvc.perform(delete("/api/Articles").param("id", Long.toString(spring.getId())).with(csrf()))
+                                .andExpect(status().isOk());
+
+                assertEquals(List.of(), search("spring"));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void rebuild_indexes_articles_already_in_the_table() throws Exception {
+                Articles saved = articlesRepository.save(Articles.builder().title("Java records").url("https://example.org")
+                                .explanation("Immutable data carriers").email("cgaucho@ucsb.edu")
+                                .dateAdded(LocalDateTime.parse("2022-01-03T00:00:00")).build());
+
+                articleSearchService.rebuild();
+
+                assertEquals(List.of(saved.getId()), search("immutable"));
+        }
+}
@@ -0,0 +1,149 @@
+package edu.ucsb.cs156.example.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.annotation.DirtiesContext.ClassMode;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+
+import edu.ucsb.cs156.example.models.ImportReport;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsMenuItemRepository;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.BulkImportService;
+import edu.ucsb.cs156.example.testconfig.TestConfig;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Throughput benchmark for the bulk import endpoint against the in-memory H2 database.
+ *
+ * Compares one POST per row (the old way of loading menu items) with NDJSON and CSV
+ * uploads of the same rows, and logs rows/sec for each. Run it with
+ * {@code INTEGRATION=true mvn test-compile failsafe:integration-test -Dit.test=BulkImportBenchmarkIT}
+ */
+
+@Slf4j
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.MOCK, properties = {
+                "logging.level.sql=WARN",
+                "logging.level.org.hibernate.type.descriptor.sql.BasicBinder=WARN",
+                "logging.level.edu.ucsb.cs156.example.aop=WARN"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("integration")
+@Import(TestConfig.class)
+@DirtiesContext(classMode = ClassMode.BEFORE_EACH_TEST_METHOD)
+public class BulkImportBenchmarkIT {
+
+        private static final int SINGLE_POST_ROWS = 1_000;
+        private static final int BULK_ROWS = 20_000;
+
+        @Autowired
+        public MockMvc mockMvc;
+
+        @Autowired
+        public ObjectMapper mapper;
+
+        @Autowired
+        UCSBDiningCommonsMenuItemRepository ucsbDiningCommonsMenuItemRepository;
+
+        @MockBean
+        UserRepository userRepository;
+
+        private static String ndjson(int rows) {
+                StringBuilder upload = new StringBuilder();
+                for (int i = 0; i < rows; i++) {
+                        upload.append("{\"diningCommonsCode\":\"ortega\",\"name\":\"Item ")
+                                        .append(i).append("\",\"station\":\"Grill\"}\n");
+                }
+                return upload.toString();
+        }
+
+        private static String csv(int rows) {
+                StringBuilder upload = new StringBuilder("diningCommonsCode,name,station\n");
+                for (int i = 0; i < rows; i++) {
+                        upload.append("ortega,Item ").append(i).append(",Grill\n");
+                }
+                return upload.toString();
+        }
+
+        private static double rowsPerSecond(long rows, long startNanos) {
+                return rows * 1e9 / (System.nanoTime() - startNanos);
+        }
+
+        private ImportReport upload(String contentType, String body) throws Exception {
+                MvcResult response = mockMvc.perform(
+                                post("/api/ucsbdiningcommonmenuitem/import")
+                                                .contentType(contentType)
+                                                .content(body.getBytes(StandardCharsets.UTF_8))
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+                return mapper.readValue(response.getResponse().getContentAsString(), ImportReport.class);
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void single_row_posts() throws Exception {
+                long start = System.nanoTime();
+                for (int i = 0; i < SINGLE_POST_ROWS; i++) {
+                        mockMvc.perform(post("/api/ucsbdiningcommonmenuitem/post")
+                                        .param("diningCommonsCode", "ortega")
+                                        .param("name", "Item " + i)
+                                        .param("station", "Grill")
+                                        .with(csrf()))
+                                        .andExpect(status().isOk());
+                }
+                double rate = rowsPerSecond(SINGLE_POST_ROWS, start);
+
+                assertEquals(SINGLE_POST_ROWS, ucsbDiningCommonsMenuItemRepository.count());
+                log.info("benchmark: single-row POST {} rows at {} rows/sec", SINGLE_POST_ROWS, Math.round(rate));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void ndjson_import() throws Exception {
+                String body = ndjson(BULK_ROWS);
+
+                long start = System.nanoTime();
+                ImportReport report = upload(MediaType.APPLICATION_NDJSON_VALUE, body);
+                double rate = rowsPerSecond(BULK_ROWS, start);
+
+                assertEquals(BULK_ROWS, report.getImported());
+                assertEquals(BULK_ROWS, ucsbDiningCommonsMenuItemRepository.count());
+                log.info("benchmark: NDJSON import {} rows at {} rows/sec", BULK_ROWS, Math.round(rate));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void csv_import() throws Exception {
+                String body = csv(BULK_ROWS);
+
+                long start = System.nanoTime();
+                ImportReport report = upload(BulkImportService.TEXT_CSV_VALUE, body);
+                double rate = rowsPerSecond(BULK_ROWS, start);
+
+                assertEquals(BULK_ROWS, report.getImported());
+                assertEquals(BULK_ROWS, ucsbDiningCommonsMenuItemRepository.count());
+                log.info("benchmark: CSV import {} rows at {} rows/sec", BULK_ROWS, Math.round(rate));
+        }
+}
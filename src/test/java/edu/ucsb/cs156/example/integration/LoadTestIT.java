@@ -0,0 +1,453 @@
+package edu.ucsb.cs156.example.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.annotation.DirtiesContext.ClassMode;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+
+import edu.ucsb.cs156.example.testconfig.TestConfig;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongFunction;
+
+import javax.sql.DataSource;
+
+/**
+ * Load test that simulates concurrent logged-in users against every CRUD controller.
+ *
+ * The application runs in-process with a fresh in-memory H2 database (the {@code integration}
+ * profile). Each virtual user is a thread that sends requests through {@code MockMvc}, so every
+ * request goes through the Spring Security filter chain, method security, the controller, JPA
+ * and the connection pool; only the servlet container's socket handling is left out. Users are
+ * synthetic: regular users are {@code loaduserN} with ROLE_USER, and admins are {@code admin}
+ * with ROLE_ADMIN, which {@code MockCurrentUserServiceImpl} turns into the matching fake
+ * {@code User}. Regular users only read; admins also create, update and delete.
+ *
+ * The run reports throughput, latency percentiles per endpoint and how saturated the
+ * Hikari connection pool was, logs the report and writes it to
+ * {@code target/load-test-report.json}. Run it with
+ * {@code INTEGRATION=true mvn test-compile failsafe:integration-test -Dit.test=LoadTestIT},
+ * adding e.g. {@code -Dloadtest.users=50 -Dloadtest.admins=5 -Dloadtest.duration=PT60S}
+ * to change the load.
+ *
+ * With {@code -Dspring.threads.virtual.enabled=true} each request is handed to a new virtual
+ * thread, as Tomcat does in that mode, and passes through {@code ConcurrencyLimitFilter};
+ * otherwise it runs on the virtual user's own platform thread. Either way the latency is
+ * measured on the virtual user's thread, so it includes any wait for a carrier thread.
+ */
+
+@Slf4j
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.MOCK, properties = {
+                "logging.level.sql=WARN",
+                "logging.level.org.hibernate.type.descriptor.sql.BasicBinder=WARN",
+                "logging.level.edu.ucsb.cs156.example.services=WARN",
+                "app.logging.requests=false"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("integration")
+@Import(TestConfig.class)
+@DirtiesContext(classMode = ClassMode.BEFORE_EACH_TEST_METHOD)
+public class LoadTestIT {
+
+        @Value("${loadtest.users:20}")
+        int users;
+
+        @Value("${loadtest.admins:2}")
+        int admins;
+
+        @Value("${loadtest.warmup:PT5S}")
+        Duration warmup;
+
+        @Value("${loadtest.duration:PT20S}")
+        Duration duration;
+
+        @Value("${loadtest.seed-rows:200}")
+        int seedRows;
+
+        @Value("${spring.threads.virtual.enabled:false}")
+        boolean virtualThreads;
+
+        @Autowired
+        public MockMvc mockMvc;
+
+        @Autowired
+        public ObjectMapper mapper;
+
+        @Autowired
+        DataSource dataSource;
+
+        private static final LocalDateTime WHEN = LocalDateTime.parse("2024-10-01T12:00:00");
+
+        private static final RequestPostProcessor ADMIN = user("admin").roles("ADMIN", "USER");
+
+        private final AtomicLong uniqueCodes = new AtomicLong();
+
+        private final ExecutorService requestThreads = Executors.newVirtualThreadPerTaskExecutor();
+
+        /**
+         * One CRUD controller: its base path, the request parameter that identifies a row,
+         * and the fields of a new row (as {@code /post} request parameters).
+         */
+        record Resource(String path, String key, LongFunction<Map<String, String>> newRow, Keys keys) {
+                Resource(String path, String key, LongFunction<Map<String, String>> newRow) {
+                        this(path, key, newRow, new Keys());
+                }
+        }
+
+        /**
+         * The keys of the rows of one resource that currently exist, as far as this test knows.
+         */
+        static class Keys {
+                private final List<String> keys = new ArrayList<>();
+
+                synchronized void add(String key) {
+                        keys.add(key);
+                }
+
+                synchronized void remove(String key) {
+                        keys.remove(key);
+                }
+
+                synchronized String random() {
+                        return keys.isEmpty() ? "0" : keys.get(ThreadLocalRandom.current().nextInt(keys.size()));
+                }
+        }
+
+        private List<Resource> resources() {
+                return List.of(
+                                new Resource("/api/Articles", "id", i -> Map.of(
+                                                "title", "Article " + i, "url", "https://example.org/" + i,
+                                                "explanation", "Worth reading", "email", "cgaucho@ucsb.edu",
+                                                "dateAdded", WHEN.toString())),
+                                new Resource("/api/helprequest", "id", i -> Map.of(
+                                                "requesterEmail", "cgaucho@ucsb.edu", "teamId", "s24-5pm-" + i % 8,
+                                                "tableOrBreakoutRoom", "table " + i % 8, "requestTime", WHEN.toString(),
+                                                "explanation", "Merge conflict", "solved", Boolean.toString(i % 2 == 0))),
+                                new Resource("/api/menuitemreview", "id", i -> Map.of(
+                                                "itemId", Long.toString(i % 50), "reviewerEmail", "cgaucho@ucsb.edu",
+                                                "stars", Long.toString(1 + i % 5), "dateReviewed", WHEN.toString(),
+                                                "comments", "Pretty good")),
+                                new Resource("/api/recommendationrequest", "id", i -> Map.of(
+                                                "requesterEmail", "cgaucho@ucsb.edu", "professorEmail", "phtcon@ucsb.edu",
+                                                "explanation", "Grad school", "dateRequested", WHEN.toString(),
+                                                "dateNeeded", WHEN.plusDays(30).toString(), "done", "false")),
+                                new Resource("/api/restaurants", "id", i -> Map.of(
+                                                "name", "Restaurant " + i, "description", "Tacos and burritos")),
+                                new Resource("/api/ucsbdates", "id", i -> Map.of(
+                                                "quarterYYYYQ", "20244", "name", "Day " + i,
+                                                "localDateTime", WHEN.plusDays(i % 90).toString())),
+                                new Resource("/api/ucsbdiningcommons", "code", i -> Map.of(
+                                                "code", "dc" + i, "name", "Commons " + i, "hasSackMeal", "true",
+                                                "hasTakeOutMeal", "false", "hasDiningCam", "true",
+                                                "latitude", "34.41", "longitude", "-119.84")),
+                                new Resource("/api/ucsbdiningcommonmenuitem", "id", i -> Map.of(
+                                                "diningCommonsCode", "ortega", "name", "Item " + i, "station", "Grill")),
+                                new Resource("/api/ucsborganization", "orgCode", i -> Map.of(
+                                                "orgCode", "ORG" + i, "orgTranslationShort", "ORG " + i,
+                                                "orgTranslation", "Organization " + i, "inactive", "false")));
+        }
+
+        /**
+         * Latencies of one kind of request, in nanoseconds.
+         */
+        static class Samples {
+                private long[] nanos = new long[1024];
+                private int count;
+                private long failures;
+                private long notFound;
+
+                void add(long latency) {
+                        if (count == nanos.length) {
+                                nanos = Arrays.copyOf(nanos, count * 2);
+                        }
+                        nanos[count++] = latency;
+                }
+
+                void merge(Samples other) {
+                        for (int i = 0; i < other.count; i++) {
+                                add(other.nanos[i]);
+                        }
+                        failures += other.failures;
+                        notFound += other.notFound;
+                }
+
+                double percentileMillis(double percentile) {
+                        if (count == 0) {
+                                return 0;
+                        }
+                        long[] sorted = Arrays.copyOf(nanos, count);
+                        Arrays.sort(sorted);
+                        int rank = (int) Math.ceil(percentile / 100.0 * count) - 1;
+                        return sorted[Math.max(rank, 0)] / 1e6;
+                }
+        }
+
+        /**
+         * Samples the connection pool while the load runs.
+         */
+        static class PoolSampler {
+                private final HikariPoolMXBean pool;
+                private long samples;
+                private long activeTotal;
+                private int peakActive;
+                private int peakWaiting;
+                private long samplesWithWaiting;
+
+                PoolSampler(HikariPoolMXBean pool) {
+                        this.pool = pool;
+                }
+
+                synchronized void sample() {
+                        int active = pool.getActiveConnections();
+                        int waiting = pool.getThreadsAwaitingConnection();
+                        samples++;
+                        activeTotal += active;
+                        peakActive = Math.max(peakActive, active);
+                        peakWaiting = Math.max(peakWaiting, waiting);
+                        if (waiting > 0) {
+                                samplesWithWaiting++;
+                        }
+                }
+        }
+
+        record EndpointReport(long requests, long failures, long notFound, double p50Millis, double p95Millis,
+                        double p99Millis, double maxMillis) {
+        }
+
+        record PoolReport(int maximumPoolSize, int peakActive, double meanActive, int peakThreadsWaiting,
+                        double fractionOfTimeWithThreadsWaiting) {
+        }
+
+        record Report(String threads, int users, int admins, double seconds, long requests, double requestsPerSecond, long failures,
+                        EndpointReport overall, Map<String, EndpointReport> endpoints, PoolReport connectionPool) {
+        }
+
+        private static EndpointReport endpointReport(Samples samples) {
+                return new EndpointReport(samples.count, samples.failures, samples.notFound,
+                                samples.percentileMillis(50), samples.percentileMillis(95),
+                                samples.percentileMillis(99), samples.percentileMillis(100));
+        }
+
+        private void seed(Resource resource) throws Exception {
+                StringBuilder upload = new StringBuilder();
+                for (int i = 0; i < seedRows; i++) {
+                        upload.append(mapper.writeValueAsString(resource.newRow().apply(uniqueCodes.incrementAndGet())))
+                                        .append('\n');
+                }
+                mockMvc.perform(post(resource.path() + "/import")
+                                .contentType(MediaType.APPLICATION_NDJSON)
+                                .content(upload.toString().getBytes(StandardCharsets.UTF_8))
+                                .with(ADMIN).with(csrf()))
+                                .andExpect(status().isOk());
+                MvcResult all = mockMvc.perform(get(resource.path() + "/all").with(ADMIN)).andReturn();
+                for (JsonNode row : mapper.readTree(all.getResponse().getContentAsString())) {
+                        resource.keys().add(row.get(resource.key()).asText());
+                }
+        }
+
+        /**
+         * One request from a virtual user: a label to report it under, the request, and the key
+         * of the row it targets (if any).
+         */
+        record Call(String label, MockHttpServletRequestBuilder request, String key) {
+        }
+
+        /**
+         * Picks the next request for a virtual user.
+         */
+        private Call nextCall(Resource resource, boolean admin) throws Exception {
+                int roll = ThreadLocalRandom.current().nextInt(100);
+                String path = resource.path();
+                String key = resource.keys().random();
+                if (admin) {
+                        if (roll < 25) {
+                                MockHttpServletRequestBuilder create = post(path + "/post");
+                                resource.newRow().apply(uniqueCodes.incrementAndGet()).forEach(create::param);
+                                return new Call("POST " + path + "/post", create, null);
+                        } else if (roll < 40) {
+                                return new Call("PUT " + path, put(path).param(resource.key(), key)
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .content(mapper.writeValueAsString(
+                                                                resource.newRow().apply(uniqueCodes.incrementAndGet()))),
+                                                key);
+                        } else if (roll < 50) {
+                                return new Call("DELETE " + path, delete(path).param(resource.key(), key), key);
+                        }
+                        roll = (roll - 50) * 2;
+                }
+                if (roll < 45) {
+                        return new Call("GET " + path + "/all", get(path + "/all"), null);
+                } else if (roll < 60) {
+                        return new Call("GET " + path + "/all?limit", get(path + "/all").param("limit", "50"), null);
+                } else if (roll < 95) {
+                        return new Call("GET " + path, get(path).param(resource.key(), key), key);
+                }
+                return new Call("GET /api/currentUser", get("/api/currentUser"), null);
+        }
+
+        private Map<String, Samples> virtualUser(List<Resource> resources, RequestPostProcessor who, boolean admin,
+                        long measureFrom, long until) throws Exception {
+                Map<String, Samples> samples = new TreeMap<>();
+                while (System.nanoTime() < until) {
+                        Resource resource = resources.get(ThreadLocalRandom.current().nextInt(resources.size()));
+                        Call call = nextCall(resource, admin);
+                        long start = System.nanoTime();
+                        RequestBuilder request = call.request().with(who).with(csrf());
+                        MvcResult result = virtualThreads
+                                        ? requestThreads.submit(() -> mockMvc.perform(request).andReturn()).get()
+                                        : mockMvc.perform(request).andReturn();
+                        long latency = System.nanoTime() - start;
+
+                        int status = result.getResponse().getStatus();
+                        String label = call.label();
+                        if (status == 200 && label.startsWith("POST")) {
+                                JsonNode created = mapper.readTree(result.getResponse().getContentAsString());
+                                resource.keys().add(created.get(resource.key()).asText());
+                        } else if (status == 200 && label.startsWith("DELETE")) {
+                                resource.keys().remove(call.key());
+                        }
+                        if (start < measureFrom) {
+                                continue;
+                        }
+                        Samples endpoint = samples.computeIfAbsent(label, l -> new Samples());
+                        endpoint.add(latency);
+                        if (status == 404) {
+                                // another admin deleted the row first
+                                endpoint.notFound++;
+                        } else if (status >= 400) {
+                                endpoint.failures++;
+                                log.warn("{} returned {}: {}", label, status, result.getResponse().getContentAsString());
+                        }
+                }
+                return samples;
+        }
+
+        @Test
+        public void concurrent_users_on_every_crud_controller() throws Exception {
+                List<Resource> resources = resources();
+                for (Resource resource : resources) {
+                        seed(resource);
+                }
+
+                HikariDataSource hikari = dataSource.unwrap(HikariDataSource.class);
+                PoolSampler sampler = new PoolSampler(hikari.getHikariPoolMXBean());
+                ScheduledExecutorService sampling = Executors.newSingleThreadScheduledExecutor();
+
+                long measureFrom = System.nanoTime() + warmup.toNanos();
+                long until = measureFrom + duration.toNanos();
+                sampling.scheduleAtFixedRate(() -> {
+                        if (System.nanoTime() >= measureFrom) {
+                                sampler.sample();
+                        }
+                }, 0, 5, TimeUnit.MILLISECONDS);
+
+                ExecutorService pool = Executors.newFixedThreadPool(users + admins);
+                List<Future<Map<String, Samples>>> running = new ArrayList<>();
+                for (int i = 0; i < users; i++) {
+                        RequestPostProcessor who = user("loaduser" + i).roles("USER");
+                        running.add(pool.submit(() -> virtualUser(resources, who, false, measureFrom, until)));
+                }
+                for (int i = 0; i < admins; i++) {
+                        running.add(pool.submit(() -> virtualUser(resources, ADMIN, true, measureFrom, until)));
+                }
+
+                Map<String, Samples> byEndpoint = new TreeMap<>();
+                for (Future<Map<String, Samples>> virtualUser : running) {
+                        virtualUser.get().forEach((label, samples) ->
+                                        byEndpoint.computeIfAbsent(label, l -> new Samples()).merge(samples));
+                }
+                pool.shutdown();
+                requestThreads.shutdown();
+                sampling.shutdownNow();
+
+                Samples overall = new Samples();
+                Map<String, EndpointReport> endpoints = new LinkedHashMap<>();
+                byEndpoint.forEach((label, samples) -> {
+                        overall.merge(samples);
+                        endpoints.put(label, endpointReport(samples));
+                });
+                double seconds = duration.toNanos() / 1e9;
+                PoolReport connectionPool;
+                synchronized (sampler) {
+                        connectionPool = new PoolReport(hikari.getMaximumPoolSize(), sampler.peakActive,
+                                        sampler.samples == 0 ? 0 : (double) sampler.activeTotal / sampler.samples,
+                                        sampler.peakWaiting,
+                                        sampler.samples == 0 ? 0 : (double) sampler.samplesWithWaiting / sampler.samples);
+                }
+                Report report = new Report(virtualThreads ? "virtual" : "platform", users, admins, seconds, overall.count, overall.count / seconds,
+                                overall.failures, endpointReport(overall), endpoints, connectionPool);
+
+                logReport(report);
+                File output = new File("target/load-test-report.json");
+                output.getParentFile().mkdirs();
+                mapper.copy().enable(SerializationFeature.INDENT_OUTPUT).writeValue(output, report);
+
+                assertTrue(report.requests() > 0);
+                assertEquals(0, report.failures());
+        }
+
+        private void logReport(Report report) {
+                StringBuilder table = new StringBuilder();
+                table.append(String.format("%n%-52s %9s %6s %6s %9s %9s %9s %9s%n", "endpoint", "requests", "fail",
+                                "404", "p50 ms", "p95 ms", "p99 ms", "max ms"));
+                Map<String, EndpointReport> rows = new LinkedHashMap<>(report.endpoints());
+                rows.put("overall", report.overall());
+                rows.forEach((label, row) -> table.append(String.format("%-52s %9d %6d %6d %9.2f %9.2f %9.2f %9.2f%n",
+                                label, row.requests(), row.failures(), row.notFound(), row.p50Millis(),
+                                row.p95Millis(), row.p99Millis(), row.maxMillis())));
+                PoolReport pool = report.connectionPool();
+                log.info("load test ({} threads): {} users + {} admins for {}s: {} requests, {} req/s{}"
+                                + "connection pool: max size {}, peak active {}, mean active {}, peak waiting {}, "
+                                + "waiting {}% of the time",
+                                report.threads(), report.users(), report.admins(), report.seconds(), report.requests(),
+                                Math.round(report.requestsPerSecond()), table,
+                                pool.maximumPoolSize(), pool.peakActive(), String.format("%.1f", pool.meanActive()),
+                                pool.peakThreadsWaiting(), Math.round(pool.fractionOfTimeWithThreadsWaiting() * 100));
+        }
+}
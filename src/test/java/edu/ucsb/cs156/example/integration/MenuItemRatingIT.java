@@ -0,0 +1,204 @@
+package edu.ucsb.cs156.example.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.annotation.DirtiesContext.ClassMode;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+
+import edu.ucsb.cs156.example.entities.MenuItemRating;
+import edu.ucsb.cs156.example.entities.MenuItemReview;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItem;
+import edu.ucsb.cs156.example.models.MenuItemRanking;
+import edu.ucsb.cs156.example.models.RatingRebuildReport;
+import edu.ucsb.cs156.example.repositories.MenuItemRatingRepository;
+import edu.ucsb.cs156.example.repositories.MenuItemReviewRepository;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.testconfig.TestConfig;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Checks that the rating summaries of menu items follow their reviews through
+ * post, put, delete and import, that a rebuild agrees with them, and that the
+ * leaderboard follows them.
+ */
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.MOCK)
+@AutoConfigureMockMvc
+@ActiveProfiles("integration")
+@Import(TestConfig.class)
+@DirtiesContext(classMode = ClassMode.BEFORE_EACH_TEST_METHOD)
+public class MenuItemRatingIT {
+        @Autowired
+        public MockMvc mockMvc;
+
+        @Autowired
+        public ObjectMapper mapper;
+
+        @Autowired
+        MenuItemReviewRepository menuItemReviewRepository;
+
+        @Autowired
+        MenuItemRatingRepository menuItemRatingRepository;
+
+        @MockBean
+        UserRepository userRepository;
+
+        private MenuItemReview postReview(long itemId, int stars, String dateReviewed) throws Exception {
+                MvcResult response = mockMvc.perform(post("/api/menuitemreview/post")
+                                .param("itemId", Long.toString(itemId))
+                                .param("reviewerEmail", "cgaucho@ucsb.edu")
+                                .param("stars", Integer.toString(stars))
+                                .param("dateReviewed", dateReviewed)
+                                .param("comments", "ok")
+                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+                return mapper.readValue(response.getResponse().getContentAsString(), MenuItemReview.class);
+        }
+
+        private MenuItemRating summary(long itemId) throws Exception {
+                MvcResult response = mockMvc.perform(get("/api/menuitemreview/summary").param("itemId", Long.toString(itemId)))
+                                .andExpect(status().isOk()).andReturn();
+                return mapper.readValue(response.getResponse().getContentAsString(), MenuItemRating.class);
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void summaries_follow_reviews_as_they_are_posted_changed_and_deleted() throws Exception {
+                MenuItemReview first = postReview(7, 5, "2022-01-03T00:00:00");
+                MenuItemReview second = postReview(7, 2, "2022-02-03T00:00:00");
+                postReview(8, 4, "2022-01-05T00:00:00");
+
+                assertEquals(MenuItemRating.builder().itemId(7L).reviewCount(2).starsSum(7).twoStars(1).fiveStars(1)
+                                .lastReviewed(LocalDateTime.parse("2022-02-03T00:00:00")).build(), summary(7));
+
+                second.setItemId(8L);
+                second.setStars(3);
+                mockMvc.perform(put("/api/menuitemreview").param("id", Long.toString(second.getId()))
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(mapper.writeValueAsString(second))
+                                .with(csrf()))
+                                .andExpect(status().isOk());
+
+                assertEquals(MenuItemRating.builder().itemId(7L).reviewCount(1).starsSum(5).fiveStars(1)
+                                .lastReviewed(LocalDateTime.parse("2022-01-03T00:00:00")).build(), summary(7));
+                assertEquals(MenuItemRating.builder().itemId(8L).reviewCount(2).starsSum(7).threeStars(1).fourStars(1)
+                                .lastReviewed(LocalDateTime.parse("2022-02-03T00:00:00")).build(), summary(8));
+
+                mockMvc.perform(delete("/api/menuitemreview").param("id", Long.toString(first.getId())).with(csrf()))
+                                .andExpect(status().isOk());
+
+                assertEquals(MenuItemRating.builder().itemId(7L).build(), summary(7));
+                assertEquals(3.5, summary(8).getAverageStars());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void a_rebuild_recomputes_summaries_and_removes_stale_ones() throws Exception {
+                postReview(7, 5, "2022-01-03T00:00:00");
+                postReview(8, 4, "2022-01-05T00:00:00");
+                MenuItemRating expected7 = summary(7);
+                MenuItemRating expected8 = summary(8);
+
+                // reviews written behind the service's back, and a summary left behind
+                menuItemReviewRepository.save(MenuItemReview.builder().itemId(8L).reviewerEmail("x@ucsb.edu").stars(1)
+                                .dateReviewed(LocalDateTime.parse("2021-12-01T00:00:00")).comments("late").build());
+                menuItemRatingRepository.save(MenuItemRating.builder().itemId(99L).reviewCount(1).starsSum(3).threeStars(1).build());
+
+                MvcResult response = mockMvc.perform(post("/api/menuitemreview/summary/rebuild").with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+                RatingRebuildReport report = mapper.readValue(response.getResponse().getContentAsString(),
+                                RatingRebuildReport.class);
+
+                assertEquals(2, report.getItems());
+                assertEquals(3, report.getReviews());
+                assertEquals(1, report.getRemoved());
+                assertEquals(expected7, summary(7));
+                expected8.setReviewCount(2);
+                expected8.setStarsSum(5);
+                expected8.setOneStar(1);
+                assertEquals(expected8, summary(8));
+                assertFalse(menuItemRatingRepository.existsById(99L));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void an_import_rebuilds_the_summaries_of_the_imported_items() throws Exception {
+                postReview(7, 5, "2022-01-03T00:00:00");
+                String upload = "{\"itemId\":7,\"reviewerEmail\":\"a@ucsb.edu\",\"stars\":1,\"dateReviewed\":\"2022-03-01T00:00:00\",\"comments\":\"meh\"}\n"
+                                + "{\"itemId\":9,\"reviewerEmail\":\"b@ucsb.edu\",\"stars\":3,\"dateReviewed\":\"2022-03-02T00:00:00\",\"comments\":\"ok\"}\n";
+
+                mockMvc.perform(post("/api/menuitemreview/import")
+                                .contentType(MediaType.APPLICATION_NDJSON)
+                                .content(upload)
+                                .with(csrf()))
+                                .andExpect(status().isOk());
+
+                assertEquals(MenuItemRating.builder().itemId(7L).reviewCount(2).starsSum(6).oneStar(1).fiveStars(1)
+                                .lastReviewed(LocalDateTime.parse("2022-03-01T00:00:00")).build(), summary(7));
+                assertEquals(MenuItemRating.builder().itemId(9L).reviewCount(1).starsSum(3).threeStars(1)
+                                .lastReviewed(LocalDateTime.parse("2022-03-02T00:00:00")).build(), summary(9));
+        }
+
+        private List<Long> top(String query) throws Exception {
+                MvcResult response = mockMvc.perform(get("/api/menuitemreview/top" + query))
+                                .andExpect(status().isOk()).andReturn();
+                return List.of(mapper.readValue(response.getResponse().getContentAsString(), MenuItemRanking[].class))
+                                .stream().map(MenuItemRanking::getItemId).toList();
+        }
+
+        private long postItem(String diningCommonsCode, String name) throws Exception {
+                MvcResult response = mockMvc.perform(post("/api/ucsbdiningcommonmenuitem/post")
+                                .param("diningCommonsCode", diningCommonsCode)
+                                .param("name", name)
+                                .param("station", "Grill")
+                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+                return mapper.readValue(response.getResponse().getContentAsString(), UCSBDiningCommonsMenuItem.class).getId();
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void the_leaderboard_follows_reviews_and_menu_items() throws Exception {
+                long burrito = postItem("ortega", "Burrito");
+                long pizza = postItem("ortega", "Pizza");
+                long salad = postItem("carrillo", "Salad");
+
+                postReview(burrito, 5, "2022-01-03T00:00:00");
+                for (int i = 0; i < 6; i++) {
+                        postReview(pizza, 5, "2022-01-04T00:00:00");
+                }
+                postReview(salad, 4, "2022-01-05T00:00:00");
+
+                assertEquals(List.of(pizza, burrito, salad), top(""));
+                assertEquals(List.of(pizza, burrito), top("?diningCommonsCode=ortega"));
+                assertEquals(List.of(pizza), top("?n=1"));
+
+                mockMvc.perform(delete("/api/ucsbdiningcommonmenuitem").param("id", Long.toString(pizza)).with(csrf()))
+                                .andExpect(status().isOk());
+
+                assertEquals(List.of(burrito, salad), top(""));
+        }
+}
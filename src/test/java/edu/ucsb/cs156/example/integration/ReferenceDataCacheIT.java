@@ -0,0 +1,144 @@
+package edu.ucsb.cs156.example.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.annotation.DirtiesContext.ClassMode;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+
+import edu.ucsb.cs156.example.entities.UCSBOrganization;
+import edu.ucsb.cs156.example.repositories.UCSBOrganizationRepository;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.testconfig.TestConfig;
+import jakarta.persistence.EntityManagerFactory;
+
+import java.util.List;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@AutoConfigureMockMvc
+@ActiveProfiles("integration")
+@Import(TestConfig.class)
+@DirtiesContext(classMode = ClassMode.BEFORE_EACH_TEST_METHOD)
+public class ReferenceDataCacheIT {
+        @Autowired
+        public MockMvc mockMvc;
+
+        @Autowired
+        public ObjectMapper mapper;
+
+        @Autowired
+        UCSBOrganizationRepository ucsbOrganizationRepository;
+
+        @Autowired
+        EntityManagerFactory entityManagerFactory;
+
+        @MockBean
+        UserRepository userRepository;
+
+        Statistics statistics;
+
+        UCSBOrganization zpr = UCSBOrganization.builder()
+                        .orgCode("ZPR")
+                        .orgTranslationShort("ZETA PHI RHO")
+                        .orgTranslation("ZETA PHI RHO")
+                        .inactive(false)
+                        .build();
+
+        @BeforeEach
+        public void setUp() {
+                ucsbOrganizationRepository.save(zpr);
+                statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+                statistics.clear();
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void repeated_get_by_id_is_served_from_the_cache_without_a_query() throws Exception {
+                // act
+                for (int i = 0; i < 3; i++) {
+                        MvcResult response = mockMvc.perform(get("/api/ucsborganization?orgCode=ZPR"))
+                                        .andExpect(status().isOk()).andReturn();
+                        assertEquals(mapper.writeValueAsString(zpr), response.getResponse().getContentAsString());
+                }
+
+                // assert
+                assertEquals(3, statistics.getSecondLevelCacheHitCount());
+                assertEquals(0, statistics.getPrepareStatementCount());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void repeated_get_all_is_served_from_the_query_cache() throws Exception {
+                // act
+                for (int i = 0; i < 3; i++) {
+                        MvcResult response = mockMvc.perform(get("/api/ucsborganization/all"))
+                                        .andExpect(status().isOk()).andReturn();
+                        assertEquals(mapper.writeValueAsString(List.of(zpr)), response.getResponse().getContentAsString());
+                }
+
+                // assert
+                assertEquals(1, statistics.getQueryCacheMissCount());
+                assertEquals(2, statistics.getQueryCacheHitCount());
+                assertEquals(1, statistics.getPrepareStatementCount());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void writes_invalidate_the_cached_entity_and_listing() throws Exception {
+                // arrange
+                mockMvc.perform(get("/api/ucsborganization/all")).andExpect(status().isOk());
+                mockMvc.perform(get("/api/ucsborganization?orgCode=ZPR")).andExpect(status().isOk());
+
+                UCSBOrganization renamed = UCSBOrganization.builder()
+                                .orgCode("ZPR")
+                                .orgTranslationShort("ZETA PHI RHO")
+                                .orgTranslation("ZETA PHI RHO SORORITY")
+                                .inactive(true)
+                                .build();
+
+                // act
+                mockMvc.perform(put("/api/ucsborganization?orgCode=ZPR")
+                                .contentType("application/json")
+                                .content(mapper.writeValueAsString(renamed))
+                                .with(csrf()))
+                                .andExpect(status().isOk());
+                mockMvc.perform(post("/api/ucsborganization/post")
+                                .param("orgCode", "SKY")
+                                .param("orgTranslationShort", "SKYDIVING CLUB")
+                                .param("orgTranslation", "SKYDIVING CLUB AT UCSB")
+                                .param("inactive", "false")
+                                .with(csrf()))
+                                .andExpect(status().isOk());
+
+                // assert
+                MvcResult one = mockMvc.perform(get("/api/ucsborganization?orgCode=ZPR"))
+                                .andExpect(status().isOk()).andReturn();
+                renamed.setVersion(1L);
+                assertEquals(mapper.writeValueAsString(renamed), one.getResponse().getContentAsString());
+
+                MvcResult all = mockMvc.perform(get("/api/ucsborganization/all"))
+                                .andExpect(status().isOk()).andReturn();
+                assertEquals(2, mapper.readValue(all.getResponse().getContentAsString(), List.class).size());
+        }
+}
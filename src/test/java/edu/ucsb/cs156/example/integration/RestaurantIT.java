@@ -1,6 +1,7 @@
 package edu.ucsb.cs156.example.integration;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -9,6 +10,8 @@ import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMock
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.annotation.DirtiesContext.ClassMode;
@@ -28,6 +31,7 @@ import edu.ucsb.cs156.example.repositories.RestaurantRepository;
 import edu.ucsb.cs156.example.repositories.UserRepository;
 import edu.ucsb.cs156.example.services.CurrentUserService;
 import edu.ucsb.cs156.example.services.GrantedAuthoritiesService;
+import edu.ucsb.cs156.example.services.MergePatchService;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 
 @ExtendWith(SpringExtension.class)
@@ -86,6 +90,7 @@ public class RestaurantIT {
                                 .id(1L)
                                 .name("Chipotle")
                                 .description("Mexican")
+                                .version(0L)
                                 .build();
 
                 // act
@@ -99,4 +104,75 @@ public class RestaurantIT {
                 String responseString = response.getResponse().getContentAsString();
                 assertEquals(expectedJson, responseString);
         }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void an_admin_user_can_patch_the_description_of_a_restaurant() throws Exception {
+                // arrange
+
+                Restaurant restaurant = restaurantRepository.save(Restaurant.builder()
+                                .name("Freebirds")
+                                .description("Burritos")
+                                .build());
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                patch("/api/restaurants?id=" + restaurant.getId())
+                                                .contentType(MergePatchService.APPLICATION_MERGE_PATCH_JSON_VALUE)
+                                                .content("{\"description\": \"Burritos, open late\"}")
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                Restaurant patched = Restaurant.builder()
+                                .id(restaurant.getId())
+                                .name("Freebirds")
+                                .description("Burritos, open late")
+                                .version(1L)
+                                .build();
+                assertEquals(patched, restaurantRepository.findById(restaurant.getId()).get());
+                assertEquals(mapper.writeValueAsString(patched), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void of_two_edits_made_at_the_same_version_only_the_first_is_applied() throws Exception {
+                // arrange
+
+                Restaurant restaurant = restaurantRepository.save(Restaurant.builder()
+                                .name("Freebirds")
+                                .description("Burritos")
+                                .build());
+                String etag = mockMvc.perform(get("/api/restaurants?id=" + restaurant.getId()))
+                                .andExpect(status().isOk()).andReturn()
+                                .getResponse().getHeader(HttpHeaders.ETAG);
+
+                // act
+                MvcResult first = mockMvc.perform(
+                                put("/api/restaurants?id=" + restaurant.getId())
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .header(HttpHeaders.IF_MATCH, etag)
+                                                .content("{\"name\": \"Freebirds\", \"description\": \"Burritos, open late\"}")
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+                mockMvc.perform(
+                                put("/api/restaurants?id=" + restaurant.getId())
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .header(HttpHeaders.IF_MATCH, etag)
+                                                .content("{\"name\": \"Freebirds\", \"description\": \"Tacos\"}")
+                                                .with(csrf()))
+                                .andExpect(status().isPreconditionFailed());
+                mockMvc.perform(
+                                delete("/api/restaurants?id=" + restaurant.getId())
+                                                .header(HttpHeaders.IF_MATCH, etag)
+                                                .with(csrf()))
+                                .andExpect(status().isPreconditionFailed());
+
+                // assert
+                assertTrue(etag.endsWith("-0\""));
+                assertTrue(first.getResponse().getHeader(HttpHeaders.ETAG).endsWith("-1\""));
+                Restaurant edited = restaurantRepository.findById(restaurant.getId()).get();
+                assertEquals("Burritos, open late", edited.getDescription());
+                assertEquals(1L, edited.getVersion());
+        }
 }
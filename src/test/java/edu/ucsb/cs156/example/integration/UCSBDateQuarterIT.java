@@ -0,0 +1,107 @@
+package edu.ucsb.cs156.example.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.annotation.DirtiesContext.ClassMode;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+
+import edu.ucsb.cs156.example.entities.UCSBDate;
+import edu.ucsb.cs156.example.models.QuarterSpan;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.testconfig.TestConfig;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Checks the quarter and range queries on UCSB dates against the database,
+ * and that the quarter index follows posts and deletes.
+ */
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.MOCK)
+@AutoConfigureMockMvc
+@ActiveProfiles("integration")
+@Import(TestConfig.class)
+@DirtiesContext(classMode = ClassMode.BEFORE_EACH_TEST_METHOD)
+public class UCSBDateQuarterIT {
+        @Autowired
+        public MockMvc mockMvc;
+
+        @Autowired
+        public ObjectMapper mapper;
+
+        @MockBean
+        UserRepository userRepository;
+
+        private UCSBDate postDate(String quarterYYYYQ, String name, String localDateTime) throws Exception {
+                MvcResult response = mockMvc.perform(post("/api/ucsbdates/post")
+                                .param("quarterYYYYQ", quarterYYYYQ)
+                                .param("name", name)
+                                .param("localDateTime", localDateTime)
+                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+                return mapper.readValue(response.getResponse().getContentAsString(), UCSBDate.class);
+        }
+
+        private <T> List<T> getList(String url, Class<T[]> type) throws Exception {
+                MvcResult response = mockMvc.perform(get(url)).andExpect(status().isOk()).andReturn();
+                return List.of(mapper.readValue(response.getResponse().getContentAsString(), type));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void dates_can_be_listed_by_quarter_and_by_range() throws Exception {
+                UCSBDate lastDay = postDate("20222", "lastDayOfClasses", "2022-06-03T00:00:00");
+                UCSBDate firstDay = postDate("20222", "firstDayOfClasses", "2022-03-28T00:00:00");
+                UCSBDate fallStart = postDate("20224", "firstDayOfClasses", "2022-09-22T00:00:00");
+
+                assertEquals(List.of(firstDay, lastDay), getList("/api/ucsbdates/quarter?quarterYYYYQ=20222", UCSBDate[].class));
+                assertEquals(List.of(lastDay, fallStart),
+                                getList("/api/ucsbdates/range?from=2022-06-03T00:00:00&to=2022-12-31T00:00:00", UCSBDate[].class));
+                assertEquals(List.of(lastDay),
+                                getList("/api/ucsbdates/range?from=2022-04-01T00:00:00&to=2022-12-31T00:00:00&limit=1", UCSBDate[].class));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void the_quarter_index_follows_posts_and_deletes() throws Exception {
+                postDate("20222", "firstDayOfClasses", "2022-03-28T00:00:00");
+                postDate("20222", "lastDayOfClasses", "2022-06-03T00:00:00");
+                UCSBDate fall = postDate("20224", "firstDayOfClasses", "2022-09-22T00:00:00");
+
+                QuarterSpan spring = QuarterSpan.builder().quarterYYYYQ("20222")
+                                .start(LocalDateTime.parse("2022-03-28T00:00:00"))
+                                .end(LocalDateTime.parse("2022-06-03T00:00:00")).dates(2).build();
+                assertEquals(List.of(spring, QuarterSpan.builder().quarterYYYYQ("20224")
+                                .start(fall.getLocalDateTime()).end(fall.getLocalDateTime()).dates(1).build()),
+                                getList("/api/ucsbdates/quarters", QuarterSpan[].class));
+                assertEquals(List.of(spring),
+                                getList("/api/ucsbdates/quarters/containing?at=2022-04-15T12:00:00", QuarterSpan[].class));
+
+                mockMvc.perform(delete("/api/ucsbdates").param("id", Long.toString(fall.getId())).with(csrf()))
+                                .andExpect(status().isOk());
+
+                assertEquals(List.of(spring), getList("/api/ucsbdates/quarters", QuarterSpan[].class));
+                assertEquals(List.of(),
+                                getList("/api/ucsbdates/quarters/containing?at=2022-09-22T00:00:00", QuarterSpan[].class));
+        }
+}
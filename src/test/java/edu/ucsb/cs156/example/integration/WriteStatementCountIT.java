@@ -0,0 +1,318 @@
+package edu.ucsb.cs156.example.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.annotation.DirtiesContext.ClassMode;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import edu.ucsb.cs156.example.entities.Articles;
+import edu.ucsb.cs156.example.entities.HelpRequest;
+import edu.ucsb.cs156.example.entities.RecommendationRequest;
+import edu.ucsb.cs156.example.entities.Restaurant;
+import edu.ucsb.cs156.example.entities.UCSBDate;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItem;
+import edu.ucsb.cs156.example.entities.UCSBOrganization;
+import edu.ucsb.cs156.example.repositories.ArticlesRepository;
+import edu.ucsb.cs156.example.repositories.HelpRequestRepository;
+import edu.ucsb.cs156.example.repositories.RecommendationRequestRepository;
+import edu.ucsb.cs156.example.repositories.RestaurantRepository;
+import edu.ucsb.cs156.example.repositories.UCSBDateRepository;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsMenuItemRepository;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
+import edu.ucsb.cs156.example.repositories.UCSBOrganizationRepository;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.testconfig.TestConfig;
+import jakarta.persistence.EntityManagerFactory;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.LocalDateTime;
+
+/**
+ * Counts the SQL statements each controller's update and delete endpoint sends to the in-memory
+ * H2 database, the old way (findById, then save or delete, each in its own transaction) and the
+ * new way (a single update or delete statement that reports the number of rows it changed).
+ * Side effects of the endpoints that are the same either way (index rebuilds, events) are not
+ * counted. Run it with
+ * {@code INTEGRATION=true mvn test-compile failsafe:integration-test -Dit.test=WriteStatementCountIT}
+ */
+
+@Slf4j
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.MOCK, properties = {
+                "logging.level.sql=WARN",
+                "logging.level.org.hibernate.type.descriptor.sql.BasicBinder=WARN",
+                "logging.level.edu.ucsb.cs156.example.aop=WARN"
+})
+@ActiveProfiles("integration")
+@Import(TestConfig.class)
+@DirtiesContext(classMode = ClassMode.BEFORE_EACH_TEST_METHOD)
+public class WriteStatementCountIT {
+
+        private static final LocalDateTime NOW = LocalDateTime.parse("2024-10-22T18:11:56");
+
+        @Autowired
+        EntityManagerFactory entityManagerFactory;
+
+        @Autowired
+        ArticlesRepository articlesRepository;
+
+        @Autowired
+        HelpRequestRepository helpRequestRepository;
+
+        @Autowired
+        RecommendationRequestRepository recommendationRequestRepository;
+
+        @Autowired
+        RestaurantRepository restaurantRepository;
+
+        @Autowired
+        UCSBDateRepository ucsbDateRepository;
+
+        @Autowired
+        UCSBDiningCommonsMenuItemRepository ucsbDiningCommonsMenuItemRepository;
+
+        @Autowired
+        UCSBDiningCommonsRepository ucsbDiningCommonsRepository;
+
+        @Autowired
+        UCSBOrganizationRepository ucsbOrganizationRepository;
+
+        @MockBean
+        UserRepository userRepository;
+
+        Statistics statistics;
+
+        @BeforeEach
+        public void setUp() {
+                statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        }
+
+        private long statements(Runnable write) {
+                long before = statistics.getPrepareStatementCount();
+                write.run();
+                return statistics.getPrepareStatementCount() - before;
+        }
+
+        private void compare(String controller, Runnable oldUpdate, Runnable newUpdate, Runnable oldDelete,
+                        Runnable newDelete) {
+                long oldUpdates = statements(oldUpdate);
+                long newUpdates = statements(newUpdate);
+                long oldDeletes = statements(oldDelete);
+                long newDeletes = statements(newDelete);
+
+                log.info("benchmark: {} update {} -> {} statements, delete {} -> {} statements",
+                                controller, oldUpdates, newUpdates, oldDeletes, newDeletes);
+                assertEquals(1, newUpdates);
+                assertEquals(1, newDeletes);
+                assertTrue(oldUpdates >= newUpdates);
+                assertTrue(oldDeletes >= newDeletes);
+        }
+
+        @Test
+        public void articles() {
+                long oldId = articlesRepository.save(Articles.builder().title("Old").url("https://a.example")
+                                .explanation("x").email("a@ucsb.edu").dateAdded(NOW).build()).getId();
+                long newId = articlesRepository.save(Articles.builder().title("Old").url("https://a.example")
+                                .explanation("x").email("a@ucsb.edu").dateAdded(NOW).build()).getId();
+                Articles incoming = Articles.builder().title("New").url("https://b.example")
+                                .explanation("y").email("b@ucsb.edu").dateAdded(NOW).build();
+
+                compare("ArticlesController",
+                                () -> {
+                                        Articles article = articlesRepository.findById(oldId).orElseThrow();
+                                        article.setTitle(incoming.getTitle());
+                                        article.setUrl(incoming.getUrl());
+                                        article.setExplanation(incoming.getExplanation());
+                                        article.setEmail(incoming.getEmail());
+                                        article.setDateAdded(incoming.getDateAdded());
+                                        articlesRepository.save(article);
+                                },
+                                () -> articlesRepository.updateById(newId, incoming, 0L),
+                                () -> articlesRepository.delete(articlesRepository.findById(oldId).orElseThrow()),
+                                () -> articlesRepository.removeById(newId, 0L));
+        }
+
+        @Test
+        public void help_requests() {
+                long oldId = helpRequestRepository.save(HelpRequest.builder().requesterEmail("a@ucsb.edu")
+                                .teamId("team01").tableOrBreakoutRoom("1").requestTime(NOW).explanation("x").build())
+                                .getId();
+                long newId = helpRequestRepository.save(HelpRequest.builder().requesterEmail("a@ucsb.edu")
+                                .teamId("team01").tableOrBreakoutRoom("1").requestTime(NOW).explanation("x").build())
+                                .getId();
+                HelpRequest incoming = HelpRequest.builder().requesterEmail("a@ucsb.edu").teamId("team01")
+                                .tableOrBreakoutRoom("2").requestTime(NOW).explanation("y").solved(true).build();
+
+                compare("HelpRequestController",
+                                () -> {
+                                        HelpRequest helpRequest = helpRequestRepository.findById(oldId).orElseThrow();
+                                        helpRequest.setRequesterEmail(incoming.getRequesterEmail());
+                                        helpRequest.setTeamId(incoming.getTeamId());
+                                        helpRequest.setTableOrBreakoutRoom(incoming.getTableOrBreakoutRoom());
+                                        helpRequest.setRequestTime(incoming.getRequestTime());
+                                        helpRequest.setExplanation(incoming.getExplanation());
+                                        helpRequest.setSolved(incoming.getSolved());
+                                        helpRequestRepository.save(helpRequest);
+                                },
+                                () -> helpRequestRepository.updateUnsolvedById(newId, incoming, 0L),
+                                () -> helpRequestRepository.delete(helpRequestRepository.findById(oldId).orElseThrow()),
+                                () -> helpRequestRepository.removeById(newId, 0L));
+        }
+
+        @Test
+        public void recommendation_requests() {
+                long oldId = recommendationRequestRepository.save(RecommendationRequest.builder()
+                                .requesterEmail("a@ucsb.edu").professorEmail("p@ucsb.edu").explanation("x")
+                                .dateRequested(NOW).dateNeeded(NOW).build()).getId();
+                long newId = recommendationRequestRepository.save(RecommendationRequest.builder()
+                                .requesterEmail("a@ucsb.edu").professorEmail("p@ucsb.edu").explanation("x")
+                                .dateRequested(NOW).dateNeeded(NOW).build()).getId();
+                RecommendationRequest incoming = RecommendationRequest.builder().requesterEmail("a@ucsb.edu")
+                                .professorEmail("p@ucsb.edu").explanation("y").dateRequested(NOW).dateNeeded(NOW)
+                                .done(true).build();
+
+                compare("RecommendationRequestController",
+                                () -> {
+                                        RecommendationRequest request = recommendationRequestRepository.findById(oldId)
+                                                        .orElseThrow();
+                                        request.setRequesterEmail(incoming.getRequesterEmail());
+                                        request.setProfessorEmail(incoming.getProfessorEmail());
+                                        request.setExplanation(incoming.getExplanation());
+                                        request.setDateRequested(incoming.getDateRequested());
+                                        request.setDateNeeded(incoming.getDateNeeded());
+                                        request.setDone(incoming.getDone());
+                                        recommendationRequestRepository.save(request);
+                                },
+                                () -> recommendationRequestRepository.updateById(newId, incoming, 0L),
+                                () -> recommendationRequestRepository.delete(
+                                                recommendationRequestRepository.findById(oldId).orElseThrow()),
+                                () -> recommendationRequestRepository.removeById(newId, 0L));
+        }
+
+        @Test
+        public void restaurants() {
+                long oldId = restaurantRepository.save(Restaurant.builder().name("Chipotle").description("Mexican")
+                                .build()).getId();
+                long newId = restaurantRepository.save(Restaurant.builder().name("Chipotle").description("Mexican")
+                                .build()).getId();
+                Restaurant incoming = Restaurant.builder().name("Taco Bell").description("Tacos").build();
+
+                compare("RestaurantsController",
+                                () -> {
+                                        Restaurant restaurant = restaurantRepository.findById(oldId).orElseThrow();
+                                        restaurant.setName(incoming.getName());
+                                        restaurant.setDescription(incoming.getDescription());
+                                        restaurantRepository.save(restaurant);
+                                },
+                                () -> restaurantRepository.updateById(newId, incoming, 0L),
+                                () -> restaurantRepository.delete(restaurantRepository.findById(oldId).orElseThrow()),
+                                () -> restaurantRepository.removeById(newId, 0L));
+        }
+
+        @Test
+        public void dates() {
+                long oldId = ucsbDateRepository.save(UCSBDate.builder().quarterYYYYQ("20244").name("first")
+                                .localDateTime(NOW).build()).getId();
+                long newId = ucsbDateRepository.save(UCSBDate.builder().quarterYYYYQ("20244").name("first")
+                                .localDateTime(NOW).build()).getId();
+                UCSBDate incoming = UCSBDate.builder().quarterYYYYQ("20251").name("last").localDateTime(NOW).build();
+
+                compare("UCSBDatesController",
+                                () -> {
+                                        UCSBDate date = ucsbDateRepository.findById(oldId).orElseThrow();
+                                        date.setQuarterYYYYQ(incoming.getQuarterYYYYQ());
+                                        date.setName(incoming.getName());
+                                        date.setLocalDateTime(incoming.getLocalDateTime());
+                                        ucsbDateRepository.save(date);
+                                },
+                                () -> ucsbDateRepository.updateById(newId, incoming, 0L),
+                                () -> ucsbDateRepository.delete(ucsbDateRepository.findById(oldId).orElseThrow()),
+                                () -> ucsbDateRepository.removeById(newId, 0L));
+        }
+
+        @Test
+        public void menu_items() {
+                long oldId = ucsbDiningCommonsMenuItemRepository.save(UCSBDiningCommonsMenuItem.builder()
+                                .diningCommonsCode("ortega").name("Tacos").station("Grill").build()).getId();
+                long newId = ucsbDiningCommonsMenuItemRepository.save(UCSBDiningCommonsMenuItem.builder()
+                                .diningCommonsCode("ortega").name("Tacos").station("Grill").build()).getId();
+                UCSBDiningCommonsMenuItem incoming = UCSBDiningCommonsMenuItem.builder().diningCommonsCode("dlg")
+                                .name("Pizza").station("Oven").build();
+
+                compare("UCSBDiningCommonsMenuItemController",
+                                () -> {
+                                        UCSBDiningCommonsMenuItem item = ucsbDiningCommonsMenuItemRepository
+                                                        .findById(oldId).orElseThrow();
+                                        item.setDiningCommonsCode(incoming.getDiningCommonsCode());
+                                        item.setName(incoming.getName());
+                                        item.setStation(incoming.getStation());
+                                        ucsbDiningCommonsMenuItemRepository.save(item);
+                                },
+                                () -> ucsbDiningCommonsMenuItemRepository.updateById(newId, incoming, 0L),
+                                () -> ucsbDiningCommonsMenuItemRepository.delete(
+                                                ucsbDiningCommonsMenuItemRepository.findById(oldId).orElseThrow()),
+                                () -> ucsbDiningCommonsMenuItemRepository.removeById(newId, 0L));
+        }
+
+        @Test
+        public void dining_commons() {
+                ucsbDiningCommonsRepository.save(UCSBDiningCommons.builder().code("old").name("Old")
+                                .latitude(34.4).longitude(-119.8).build());
+                ucsbDiningCommonsRepository.save(UCSBDiningCommons.builder().code("new").name("Old")
+                                .latitude(34.4).longitude(-119.8).build());
+                UCSBDiningCommons incoming = UCSBDiningCommons.builder().name("New").hasSackMeal(true)
+                                .latitude(34.5).longitude(-119.9).build();
+
+                compare("UCSBDiningCommonsController",
+                                () -> {
+                                        UCSBDiningCommons commons = ucsbDiningCommonsRepository.findById("old")
+                                                        .orElseThrow();
+                                        commons.setName(incoming.getName());
+                                        commons.setHasSackMeal(incoming.getHasSackMeal());
+                                        commons.setLatitude(incoming.getLatitude());
+                                        commons.setLongitude(incoming.getLongitude());
+                                        ucsbDiningCommonsRepository.save(commons);
+                                },
+                                () -> ucsbDiningCommonsRepository.updateById("new", incoming, 0L),
+                                () -> ucsbDiningCommonsRepository.delete(
+                                                ucsbDiningCommonsRepository.findById("old").orElseThrow()),
+                                () -> ucsbDiningCommonsRepository.removeById("new", 0L));
+        }
+
+        @Test
+        public void organizations() {
+                ucsbOrganizationRepository.save(UCSBOrganization.builder().orgCode("OLD").orgTranslationShort("OLD")
+                                .orgTranslation("OLD CLUB").build());
+                ucsbOrganizationRepository.save(UCSBOrganization.builder().orgCode("NEW").orgTranslationShort("OLD")
+                                .orgTranslation("OLD CLUB").build());
+                UCSBOrganization incoming = UCSBOrganization.builder().orgTranslationShort("NEW")
+                                .orgTranslation("NEW CLUB").inactive(true).build();
+
+                compare("UCSBOrganizationController",
+                                () -> {
+                                        UCSBOrganization org = ucsbOrganizationRepository.findById("OLD").orElseThrow();
+                                        org.setOrgTranslationShort(incoming.getOrgTranslationShort());
+                                        org.setOrgTranslation(incoming.getOrgTranslation());
+                                        org.setInactive(incoming.getInactive());
+                                        ucsbOrganizationRepository.save(org);
+                                },
+                                () -> ucsbOrganizationRepository.updateById("NEW", incoming, 0L),
+                                () -> ucsbOrganizationRepository.delete(
+                                                ucsbOrganizationRepository.findById("OLD").orElseThrow()),
+                                () -> ucsbOrganizationRepository.removeById("NEW", 0L));
+        }
+}
@@ -0,0 +1,324 @@
+package edu.ucsb.cs156.example.repositories;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import edu.ucsb.cs156.example.entities.Articles;
+import edu.ucsb.cs156.example.entities.HelpRequest;
+import edu.ucsb.cs156.example.entities.MenuItemRating;
+import edu.ucsb.cs156.example.entities.MenuItemReview;
+import edu.ucsb.cs156.example.entities.RecommendationRequest;
+import edu.ucsb.cs156.example.entities.Restaurant;
+import edu.ucsb.cs156.example.entities.UCSBDate;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItem;
+import edu.ucsb.cs156.example.entities.UCSBOrganization;
+import edu.ucsb.cs156.example.services.wiremock.WiremockService;
+
+import jakarta.persistence.EntityManager;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.ApplicationContext;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.repository.support.Repositories;
+
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import javax.sql.DataSource;
+
+/**
+ * Runs every repository query against H2, asks H2 for the plan of each SQL statement it issued,
+ * and fails if a statement scans a whole table that it is not expected to scan.  A query that
+ * regresses to a full scan (for example because an index was dropped or a filter column changed)
+ * shows up here rather than as a slow page in production.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+    + "edu.ucsb.cs156.example.repositories.QueryPlanTests$RecordingInspector")
+class QueryPlanTests {
+
+  private static final Pattern TABLE_SCAN = Pattern.compile("PUBLIC\\.(\\w+)\\.tableScan");
+
+  private static final List<String> statements = new CopyOnWriteArrayList<>();
+
+  /**
+   * Records the SQL of every statement Hibernate prepares.
+   */
+  public static class RecordingInspector implements StatementInspector {
+    @Override
+    public String inspect(String sql) {
+      statements.add(sql);
+      return sql;
+    }
+  }
+
+  @FunctionalInterface
+  interface Query {
+    void run(QueryPlanTests repositories) throws Exception;
+  }
+
+  @MockBean
+  WiremockService wiremockService;
+
+  @Autowired
+  ApplicationContext applicationContext;
+
+  @Autowired
+  DataSource dataSource;
+
+  @Autowired
+  EntityManager entityManager;
+
+  @Autowired
+  ArticlesRepository articlesRepository;
+
+  @Autowired
+  HelpRequestRepository helpRequestRepository;
+
+  @Autowired
+  MenuItemRatingRepository menuItemRatingRepository;
+
+  @Autowired
+  MenuItemReviewRepository menuItemReviewRepository;
+
+  @Autowired
+  RecommendationRequestRepository recommendationRequestRepository;
+
+  @Autowired
+  RestaurantRepository restaurantRepository;
+
+  @Autowired
+  UCSBDateRepository ucsbDateRepository;
+
+  @Autowired
+  UCSBDiningCommonsMenuItemRepository ucsbDiningCommonsMenuItemRepository;
+
+  @Autowired
+  UCSBDiningCommonsRepository ucsbDiningCommonsRepository;
+
+  @Autowired
+  UCSBOrganizationRepository ucsbOrganizationRepository;
+
+  @Autowired
+  UserRepository userRepository;
+
+  static Stream<Arguments> queries() {
+    LocalDateTime from = LocalDateTime.parse("2024-09-01T00:00:00");
+    LocalDateTime to = LocalDateTime.parse("2024-12-31T00:00:00");
+    return Stream.of(
+        query("ArticlesRepository.findByIdGreaterThanOrderByIdAsc",
+            t -> t.articlesRepository.findByIdGreaterThanOrderByIdAsc(0, Limit.of(10))),
+        query("ArticlesRepository.streamAllByOrderByIdAsc",
+            t -> drain(t.articlesRepository.streamAllByOrderByIdAsc())),
+        query("ArticlesRepository.updateById",
+            t -> t.articlesRepository.updateById(1, Articles.builder().title("Title").build(), 0L)),
+        query("ArticlesRepository.removeById",
+            t -> t.articlesRepository.removeById(1, 0L)),
+        query("HelpRequestRepository.findByIdGreaterThanOrderByIdAsc",
+            t -> t.helpRequestRepository.findByIdGreaterThanOrderByIdAsc(0, Limit.of(10))),
+        query("HelpRequestRepository.findBySolvedFalseOrderByRequestTimeAsc",
+            t -> t.helpRequestRepository.findBySolvedFalseOrderByRequestTimeAsc()),
+        query("HelpRequestRepository.updateById",
+            t -> t.helpRequestRepository.updateById(1, HelpRequest.builder().solved(true).build(), 0L)),
+        query("HelpRequestRepository.updateUnsolvedById",
+            t -> t.helpRequestRepository.updateUnsolvedById(1, HelpRequest.builder().solved(true).build(), 0L)),
+        query("HelpRequestRepository.removeById",
+            t -> t.helpRequestRepository.removeById(1, 0L)),
+        query("HelpRequestRepository.solveByIdIn",
+            t -> t.helpRequestRepository.solveByIdIn(List.of(1L, 2L, 3L))),
+        query("HelpRequestRepository.solveByTeamId",
+            t -> t.helpRequestRepository.solveByTeamId("s22-5pm-3")),
+        query("MenuItemRatingRepository.createIfMissing",
+            t -> t.menuItemRatingRepository.createIfMissing(1)),
+        query("MenuItemRatingRepository.addToCounts",
+            t -> t.menuItemRatingRepository.addToCounts(MenuItemRating.builder().itemId(1).reviewCount(1).build())),
+        query("MenuItemRatingRepository.advanceLastReviewed",
+            t -> t.menuItemRatingRepository.advanceLastReviewed(1, from)),
+        query("MenuItemRatingRepository.recomputeLastReviewed",
+            t -> t.menuItemRatingRepository.recomputeLastReviewed(1)),
+        query("MenuItemRatingRepository.computeRatings",
+            t -> t.menuItemRatingRepository.computeRatings(List.of(1L, 2L))),
+        query("MenuItemRatingRepository.findReviewedItemIds",
+            t -> t.menuItemRatingRepository.findReviewedItemIds()),
+        query("MenuItemRatingRepository.deleteByItemIds",
+            t -> t.menuItemRatingRepository.deleteByItemIds(List.of(1L, 2L))),
+        // every rating has to be checked against the reviews; the subquery itself uses the item index
+        query("MenuItemRatingRepository.deleteUnreviewed", Set.of("MENUITEMRATING"),
+            t -> t.menuItemRatingRepository.deleteUnreviewed()),
+        query("MenuItemReviewRepository.findByIdGreaterThanOrderByIdAsc",
+            t -> t.menuItemReviewRepository.findByIdGreaterThanOrderByIdAsc(0, Limit.of(10))),
+        query("MenuItemReviewRepository.streamAllByOrderByIdAsc",
+            t -> drain(t.menuItemReviewRepository.streamAllByOrderByIdAsc())),
+        query("MenuItemReviewRepository.findForUpdateById",
+            t -> t.menuItemReviewRepository.findForUpdateById(1)),
+        query("MenuItemReviewRepository.updateById",
+            t -> t.menuItemReviewRepository.updateById(1, MenuItemReview.builder().stars(5).build(), 0L)),
+        query("RecommendationRequestRepository.findByIdGreaterThanOrderByIdAsc",
+            t -> t.recommendationRequestRepository.findByIdGreaterThanOrderByIdAsc(0, Limit.of(10))),
+        query("RecommendationRequestRepository.updateById",
+            t -> t.recommendationRequestRepository.updateById(1, RecommendationRequest.builder().done(true).build(), 0L)),
+        query("RecommendationRequestRepository.removeById",
+            t -> t.recommendationRequestRepository.removeById(1, 0L)),
+        query("RecommendationRequestRepository.markDoneByIdIn",
+            t -> t.recommendationRequestRepository.markDoneByIdIn(List.of(1L, 2L, 3L))),
+        query("RecommendationRequestRepository.markDoneByProfessorEmail",
+            t -> t.recommendationRequestRepository.markDoneByProfessorEmail("phtcon@ucsb.edu")),
+        query("RestaurantRepository.findByIdGreaterThanOrderByIdAsc",
+            t -> t.restaurantRepository.findByIdGreaterThanOrderByIdAsc(0, Limit.of(10))),
+        query("RestaurantRepository.updateById",
+            t -> t.restaurantRepository.updateById(1, Restaurant.builder().name("Name").build(), 0L)),
+        query("RestaurantRepository.removeById",
+            t -> t.restaurantRepository.removeById(1, 0L)),
+        query("UCSBDateRepository.findAllByQuarterYYYYQ",
+            t -> t.ucsbDateRepository.findAllByQuarterYYYYQ("20244")),
+        query("UCSBDateRepository.findByIdGreaterThanOrderByIdAsc",
+            t -> t.ucsbDateRepository.findByIdGreaterThanOrderByIdAsc(0, Limit.of(10))),
+        query("UCSBDateRepository.findAllByQuarterYYYYQOrderByLocalDateTimeAscIdAsc",
+            t -> t.ucsbDateRepository.findAllByQuarterYYYYQOrderByLocalDateTimeAscIdAsc("20244")),
+        query("UCSBDateRepository.findByLocalDateTimeBetweenOrderByLocalDateTimeAscIdAsc",
+            t -> t.ucsbDateRepository.findByLocalDateTimeBetweenOrderByLocalDateTimeAscIdAsc(from, to, Limit.of(10))),
+        query("UCSBDateRepository.findQuarterSpans",
+            t -> t.ucsbDateRepository.findQuarterSpans()),
+        query("UCSBDateRepository.updateById",
+            t -> t.ucsbDateRepository.updateById(1, UCSBDate.builder().quarterYYYYQ("20244").build(), 0L)),
+        query("UCSBDateRepository.removeById",
+            t -> t.ucsbDateRepository.removeById(1, 0L)),
+        query("UCSBDiningCommonsMenuItemRepository.findByIdGreaterThanOrderByIdAsc",
+            t -> t.ucsbDiningCommonsMenuItemRepository.findByIdGreaterThanOrderByIdAsc(0, Limit.of(10))),
+        query("UCSBDiningCommonsMenuItemRepository.updateById",
+            t -> t.ucsbDiningCommonsMenuItemRepository.updateById(1,
+                UCSBDiningCommonsMenuItem.builder().diningCommonsCode("ortega").build(), 0L)),
+        query("UCSBDiningCommonsMenuItemRepository.removeById",
+            t -> t.ucsbDiningCommonsMenuItemRepository.removeById(1, 0L)),
+        query("UCSBDiningCommonsRepository.findByCodeGreaterThanOrderByCodeAsc",
+            t -> t.ucsbDiningCommonsRepository.findByCodeGreaterThanOrderByCodeAsc("", Limit.of(10))),
+        // the whole (small, cached) reference table is the result
+        query("UCSBDiningCommonsRepository.findAll", Set.of("UCSBDININGCOMMONS"),
+            t -> t.ucsbDiningCommonsRepository.findAll()),
+        query("UCSBDiningCommonsRepository.updateById",
+            t -> t.ucsbDiningCommonsRepository.updateById("ortega", UCSBDiningCommons.builder().name("Ortega").build(), 0L)),
+        query("UCSBDiningCommonsRepository.removeById",
+            t -> t.ucsbDiningCommonsRepository.removeById("ortega", 0L)),
+        query("UCSBOrganizationRepository.findByOrgCodeGreaterThanOrderByOrgCodeAsc",
+            t -> t.ucsbOrganizationRepository.findByOrgCodeGreaterThanOrderByOrgCodeAsc("", Limit.of(10))),
+        query("UCSBOrganizationRepository.findAll", Set.of("UCSBORGANIZATION"),
+            t -> t.ucsbOrganizationRepository.findAll()),
+        query("UCSBOrganizationRepository.updateById",
+            t -> t.ucsbOrganizationRepository.updateById("ZPR", UCSBOrganization.builder().inactive(true).build(), 0L)),
+        query("UCSBOrganizationRepository.removeById",
+            t -> t.ucsbOrganizationRepository.removeById("ZPR", 0L)),
+        query("UserRepository.findByEmail",
+            t -> t.userRepository.findByEmail("cgaucho@ucsb.edu")),
+        query("UserRepository.findAdminEmails",
+            t -> t.userRepository.findAdminEmails()),
+        query("UserRepository.promoteToAdmin",
+            t -> t.userRepository.promoteToAdmin(List.of("cgaucho@ucsb.edu", "ldelplaya@ucsb.edu"))));
+  }
+
+  private static Arguments query(String name, Query query) {
+    return query(name, Set.of(), query);
+  }
+
+  private static Arguments query(String name, Set<String> expectedScans, Query query) {
+    return Arguments.of(name, expectedScans, query);
+  }
+
+  private static void drain(Stream<?> stream) {
+    try (stream) {
+      stream.forEach(row -> { });
+    }
+  }
+
+  @BeforeEach
+  void clearQueryCache() {
+    // a cached query result would not reach the database, so there would be no plan to check
+    entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getCache().evictAllRegions();
+  }
+
+  @ParameterizedTest(name = "{0}")
+  @MethodSource("queries")
+  void query_does_not_scan_unexpected_tables(String name, Set<String> expectedScans, Query query)
+      throws Exception {
+    statements.clear();
+    query.run(this);
+    entityManager.flush();
+    List<String> issued = new ArrayList<>(statements);
+
+    assertFalse(issued.isEmpty(), name + " issued no SQL");
+    Set<String> scanned = new TreeSet<>();
+    for (String sql : issued) {
+      scanned.addAll(tableScans(sql));
+    }
+    assertEquals(new TreeSet<>(expectedScans), scanned, name + " scans " + scanned + " in " + issued);
+  }
+
+  @Test
+  void every_repository_query_has_a_plan_check() {
+    Set<String> declared = new TreeSet<>();
+    Repositories repositories = new Repositories(applicationContext);
+    for (Class<?> domainType : repositories) {
+      Class<?> repository = repositories.getRequiredRepositoryInformation(domainType).getRepositoryInterface();
+      for (Method method : repository.getDeclaredMethods()) {
+        declared.add(repository.getSimpleName() + "." + method.getName());
+      }
+    }
+
+    Set<String> checked = new TreeSet<>();
+    queries().forEach(arguments -> checked.add((String) arguments.get()[0]));
+
+    assertEquals(declared, checked);
+  }
+
+  @ParameterizedTest(name = "{0}.{1}")
+  @CsvSource({
+      "USERS, EMAIL",
+      "USERS, ADMIN",
+      "MENUITEMREVIEW, ITEM_ID",
+      "MENUITEMREVIEW, REVIEWER_EMAIL",
+      "UCSBDININGCOMMONSMENUITEM, DINING_COMMONS_CODE",
+      "HELPREQUEST, REQUESTER_EMAIL",
+      "HELPREQUEST, SOLVED",
+      "HELPREQUEST, TEAM_ID",
+      "RECOMMENDATIONREQUEST, PROFESSOR_EMAIL"
+  })
+  void lookup_column_is_indexed(String table, String column) throws SQLException {
+    assertEquals(Set.of(), tableScans("select * from " + table + " where " + column + " = ?"));
+  }
+
+  private Set<String> tableScans(String sql) throws SQLException {
+    Set<String> scanned = new TreeSet<>();
+    try (Connection connection = dataSource.getConnection();
+        PreparedStatement explain = connection.prepareStatement("EXPLAIN " + sql);
+        ResultSet plan = explain.executeQuery()) {
+      while (plan.next()) {
+        Matcher matcher = TABLE_SCAN.matcher(plan.getString(1));
+        while (matcher.find()) {
+          scanned.add(matcher.group(1));
+        }
+      }
+    }
+    return scanned;
+  }
+}
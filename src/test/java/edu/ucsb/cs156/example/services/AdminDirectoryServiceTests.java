@@ -0,0 +1,109 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import edu.ucsb.cs156.example.repositories.UserRepository;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+@ExtendWith(MockitoExtension.class)
+class AdminDirectoryServiceTests {
+
+  @Mock
+  UserRepository userRepository;
+
+  @Mock
+  ObjectProvider<CurrentUserServiceImpl> currentUserService;
+
+  @Mock
+  CurrentUserServiceImpl cachedUsers;
+
+  @InjectMocks
+  AdminDirectoryService adminDirectory;
+
+  private void configureAdminEmails(String... emails) {
+    ReflectionTestUtils.setField(adminDirectory, "adminEmails", new ArrayList<>(List.of(emails)));
+  }
+
+  @Test
+  void a_missing_email_is_never_admin() {
+    when(userRepository.findAdminEmails()).thenReturn(List.of());
+
+    adminDirectory.reconcile();
+
+    assertFalse(adminDirectory.isAdmin(null));
+  }
+
+  @Test
+  void reconcile_promotes_configured_users_in_one_update_and_merges_database_admins() {
+    configureAdminEmails("phtcon@ucsb.edu", "cgaucho@ucsb.edu");
+    when(userRepository.promoteToAdmin(List.of("phtcon@ucsb.edu", "cgaucho@ucsb.edu"))).thenReturn(1);
+    when(userRepository.findAdminEmails()).thenReturn(List.of("phtcon@ucsb.edu", "ldelplaya@ucsb.edu"));
+
+    adminDirectory.reconcile();
+
+    verify(userRepository, times(1)).promoteToAdmin(any());
+    assertEquals(Set.of("phtcon@ucsb.edu", "cgaucho@ucsb.edu", "ldelplaya@ucsb.edu"), adminDirectory.getAdmins());
+    assertTrue(adminDirectory.isAdmin("cgaucho@ucsb.edu"));
+    assertTrue(adminDirectory.isAdmin("ldelplaya@ucsb.edu"));
+    assertFalse(adminDirectory.isAdmin("student@ucsb.edu"));
+  }
+
+  @Test
+  void reconcile_skips_the_update_when_no_admins_are_configured() {
+    when(userRepository.findAdminEmails()).thenReturn(List.of("ldelplaya@ucsb.edu"));
+
+    adminDirectory.reconcile();
+
+    verify(userRepository, never()).promoteToAdmin(any());
+    assertEquals(Set.of("ldelplaya@ucsb.edu"), adminDirectory.getAdmins());
+  }
+
+  @Test
+  void refresh_replaces_the_set_and_evicts_cached_users_when_it_changes() {
+    configureAdminEmails("phtcon@ucsb.edu");
+    when(userRepository.findAdminEmails()).thenReturn(List.of("ldelplaya@ucsb.edu"), List.of());
+    doAnswer(invocation -> {
+      invocation.<Consumer<CurrentUserServiceImpl>>getArgument(0).accept(cachedUsers);
+      return null;
+    }).when(currentUserService).ifAvailable(any());
+
+    adminDirectory.refresh();
+    Set<String> before = adminDirectory.getAdmins();
+    verify(cachedUsers, never()).invalidateAllUsers();
+    adminDirectory.refresh();
+
+    assertEquals(Set.of("phtcon@ucsb.edu", "ldelplaya@ucsb.edu"), before);
+    assertEquals(Set.of("phtcon@ucsb.edu"), adminDirectory.getAdmins());
+    verify(cachedUsers, times(1)).invalidateAllUsers();
+  }
+
+  @Test
+  void refresh_keeps_cached_users_when_the_set_is_unchanged() {
+    when(userRepository.findAdminEmails()).thenReturn(List.of("ldelplaya@ucsb.edu"));
+
+    adminDirectory.refresh();
+    adminDirectory.refresh();
+
+    verify(currentUserService, never()).ifAvailable(any());
+  }
+}
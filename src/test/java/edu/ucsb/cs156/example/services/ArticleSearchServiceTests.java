@@ -0,0 +1,269 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import edu.ucsb.cs156.example.entities.Articles;
+import edu.ucsb.cs156.example.models.ArticleSearchHit;
+import edu.ucsb.cs156.example.repositories.ArticlesRepository;
+import jakarta.persistence.EntityManager;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+@ExtendWith(MockitoExtension.class)
+class ArticleSearchServiceTests {
+
+  @Mock
+  ArticlesRepository articlesRepository;
+
+  @Mock
+  EntityManager entityManager;
+
+  @InjectMocks
+  ArticleSearchService articleSearchService;
+
+  @BeforeEach
+  void setUp() {
+    articleSearchService.maxPrefixTerms = 50;
+  }
+
+  private static Articles article(long id, String title, String explanation) {
+    return Articles.builder().id(id).title(title).url("https://example.org/" + id).explanation(explanation).build();
+  }
+
+  private List<Long> ids(String query) {
+    return articleSearchService.search(query, 10).stream().map(ArticleSearchHit::getId).toList();
+  }
+
+  private void indexSamples() {
+    articleSearchService.index(article(1, "Spring Boot guide", "How to build a web application with Spring"));
+    articleSearchService.index(article(2, "Gardening in spring", "Planting bulbs before the frost ends"));
+    articleSearchService.index(article(3, "Java records", "Records are immutable data carriers in Java"));
+    articleSearchService.index(article(4, "Bootstrap CSS", "A front-end toolkit for building web pages"));
+  }
+
+  @Test
+  void tokenize_lower_cases_and_strips_accents_and_punctuation() {
+    assertEquals(List.of("creme", "brulee", "is", "50", "off"), ArticleSearchService.tokenize("Crème Brûlée -- is 50% OFF!"));
+    assertEquals(List.of("hello"), ArticleSearchService.tokenize("  (hello)"));
+    assertEquals(List.of(), ArticleSearchService.tokenize("  ...  "));
+    assertEquals(List.of(), ArticleSearchService.tokenize(null));
+  }
+
+  @Test
+  void rebuild_indexes_every_article_from_the_table() {
+    Articles spring = article(1, "Spring Boot guide", "web applications");
+    Articles java = article(2, "Java records", "immutable data");
+    when(articlesRepository.streamAllByOrderByIdAsc()).thenReturn(Stream.of(spring, java));
+
+    articleSearchService.rebuild();
+
+    assertEquals(List.of(1L), ids("spring"));
+    assertEquals(List.of(2L), ids("immutable"));
+    verify(entityManager, times(1)).detach(spring);
+    verify(entityManager, times(1)).detach(java);
+  }
+
+  @Test
+  void rebuild_leaves_alone_articles_indexed_or_removed_while_it_runs() {
+    Articles spring = article(1, "Spring Boot guide", "web applications");
+    Articles staleJava = article(2, "Java records", "stale draft");
+    Articles deleted = article(3, "Deleted article", "gone");
+    // the articles are changed by other requests once the rebuild has read the first row
+    Stream<Articles> table = Stream.of(spring, staleJava, deleted).peek(article -> {
+      if (article == spring) {
+        articleSearchService.index(article(2, "Java records", "fresh edit"));
+        articleSearchService.remove(3);
+      }
+    });
+    when(articlesRepository.streamAllByOrderByIdAsc()).thenReturn(table);
+
+    articleSearchService.rebuild();
+
+    assertEquals(List.of(1L), ids("spring"));
+    assertEquals(List.of(2L), ids("fresh"));
+    assertEquals(List.of(), ids("stale"));
+    assertEquals(List.of(), ids("deleted"));
+
+    // once the rebuild is over, changes are no longer tracked and later rebuilds index everything
+    when(articlesRepository.streamAllByOrderByIdAsc()).thenReturn(Stream.of(deleted));
+    articleSearchService.rebuild();
+    assertEquals(List.of(3L), ids("deleted"));
+  }
+
+  @Test
+  void every_word_must_match() {
+    indexSamples();
+
+    assertEquals(List.of(1L, 2L), ids("spring"));
+    assertEquals(List.of(1L), ids("spring web"));
+    assertEquals(List.of(), ids("spring records"));
+    assertEquals(List.of(), ids("kubernetes"));
+  }
+
+  @Test
+  void only_the_last_word_matches_as_a_prefix() {
+    indexSamples();
+
+    assertEquals(List.of(4L, 1L), ids("web boo"));
+    assertEquals(List.of(), ids("boo web"));
+    assertEquals(List.of(3L), ids("JAVA rec"));
+  }
+
+  @Test
+  void an_exact_match_outranks_a_prefix_match() {
+    articleSearchService.index(article(1, "Notes", "bootstrap themes"));
+    articleSearchService.index(article(2, "Notes", "boot camp"));
+
+    assertEquals(List.of(2L, 1L), ids("boot"));
+  }
+
+  @Test
+  void title_matches_outrank_explanation_matches_and_short_articles_outrank_long_ones() {
+    articleSearchService.index(article(1, "Cooking", "a guide to pasta"));
+    articleSearchService.index(article(2, "Pasta", "a guide to cooking"));
+    articleSearchService.index(article(3, "Pasta", "a long guide to cooking with many more words in it"));
+
+    assertEquals(List.of(2L, 3L, 1L), ids("pasta"));
+  }
+
+  @Test
+  void rare_words_weigh_more_than_common_ones() {
+    articleSearchService.index(article(1, "Notes", "common common rare"));
+    articleSearchService.index(article(2, "Notes", "common common common"));
+    articleSearchService.index(article(3, "Notes", "common"));
+
+    List<ArticleSearchHit> hits = articleSearchService.search("common", 10);
+    List<ArticleSearchHit> rare = articleSearchService.search("rare", 10);
+
+    assertEquals(1L, rare.get(0).getId());
+    assertTrue(rare.get(0).getScore() > hits.get(hits.size() - 1).getScore());
+  }
+
+  @Test
+  void hits_carry_the_title_and_url_of_the_article() {
+    indexSamples();
+
+    ArticleSearchHit hit = articleSearchService.search("records", 10).get(0);
+
+    assertEquals(3L, hit.getId());
+    assertEquals("Java records", hit.getTitle());
+    assertEquals("https://example.org/3", hit.getUrl());
+    assertTrue(hit.getScore() > 0);
+  }
+
+  @Test
+  void search_returns_at_most_limit_hits() {
+    for (long id = 1; id <= 20; id++) {
+      articleSearchService.index(article(id, "Article", "the same words"));
+    }
+
+    List<ArticleSearchHit> hits = articleSearchService.search("words", 3);
+
+    assertEquals(List.of(1L, 2L, 3L), hits.stream().map(ArticleSearchHit::getId).toList());
+    assertEquals(List.of(), articleSearchService.search("words", 0));
+    assertEquals(List.of(), articleSearchService.search("  ", 10));
+  }
+
+  @Test
+  void the_best_articles_are_found_when_the_search_stops_early() {
+    articleSearchService.index(article(1, "Notes", "java java streams and more words here"));
+    articleSearchService.index(article(2, "Java streams", "short"));
+    articleSearchService.index(article(3, "Notes", "streams of water"));
+    articleSearchService.index(article(4, "Java", "coffee"));
+
+    assertEquals(List.of(2L), articleSearchService.search("java streams", 1).stream().map(ArticleSearchHit::getId).toList());
+    assertEquals(List.of(4L), articleSearchService.search("java", 1).stream().map(ArticleSearchHit::getId).toList());
+    assertEquals(List.of(3L), articleSearchService.search("water", 1).stream().map(ArticleSearchHit::getId).toList());
+  }
+
+  @Test
+  void ties_go_to_the_lower_id_even_when_it_is_read_later() {
+    articleSearchService.index(article(5, "", "apple apple banana cherry"));
+    articleSearchService.index(article(2, "", "apple banana banana cherry"));
+
+    assertEquals(List.of(2L), articleSearchService.search("apple banana", 1).stream().map(ArticleSearchHit::getId).toList());
+  }
+
+  @Test
+  void stopping_early_finds_the_same_articles_as_reading_every_posting() {
+    Random random = new Random(7);
+    for (long id = 1; id <= 300; id++) {
+      articleSearchService.index(article(id, words(random, 3), words(random, 12)));
+    }
+
+    for (String query : List.of("w1", "w2 w5", "w0 w3 w1", "w1 w", "w4 w1")) {
+      List<ArticleSearchHit> all = articleSearchService.search(query, 1000);
+      assertEquals(all.subList(0, Math.min(5, all.size())), articleSearchService.search(query, 5), query);
+    }
+  }
+
+  private static String words(Random random, int count) {
+    StringBuilder text = new StringBuilder();
+    for (int i = 0; i < count; i++) {
+      text.append('w').append((int) Math.pow(30, random.nextDouble()) - 1).append(' ');
+    }
+    return text.toString();
+  }
+
+  @Test
+  void an_article_matching_several_prefix_words_is_found_once() {
+    articleSearchService.index(article(1, "Alphabet", "alpha alphanumeric"));
+    articleSearchService.index(article(2, "Notes", "alpha"));
+
+    assertEquals(List.of(1L, 2L), ids("alp"));
+  }
+
+  @Test
+  void prefix_expansion_is_capped() {
+    articleSearchService.maxPrefixTerms = 2;
+    articleSearchService.index(article(1, "Notes", "alpha"));
+    articleSearchService.index(article(2, "Notes", "alphabet"));
+    articleSearchService.index(article(3, "Notes", "alphanumeric"));
+
+    assertEquals(List.of(1L, 2L), ids("alp"));
+  }
+
+  @Test
+  void reindexing_an_article_replaces_its_words() {
+    indexSamples();
+
+    articleSearchService.index(article(2, "Winter gardening", "Pruning roses"));
+
+    assertEquals(List.of(1L), ids("spring"));
+    assertEquals(List.of(2L), ids("roses"));
+    assertEquals(List.of(), ids("frost"));
+  }
+
+  @Test
+  void removed_articles_are_no_longer_found() {
+    indexSamples();
+
+    articleSearchService.remove(1);
+    articleSearchService.remove(99);
+
+    assertEquals(List.of(2L), ids("spring"));
+    assertEquals(List.of(4L), ids("web"));
+    assertEquals(List.of(), ids("guide"));
+  }
+
+  @Test
+  void articles_without_text_can_be_indexed() {
+    articleSearchService.index(Articles.builder().id(5L).build());
+    articleSearchService.index(article(6, "Spring", null));
+
+    assertEquals(List.of(6L), ids("spring"));
+  }
+}
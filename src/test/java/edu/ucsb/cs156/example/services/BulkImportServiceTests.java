@@ -0,0 +1,221 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItem;
+import edu.ucsb.cs156.example.models.ImportReport;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsMenuItemRepository;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.http.MediaType;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+@ExtendWith(MockitoExtension.class)
+class BulkImportServiceTests {
+
+  @Mock
+  UCSBDiningCommonsMenuItemRepository menuItemRepository;
+
+  @Mock
+  UCSBDiningCommonsRepository commonsRepository;
+
+  @Mock
+  PlatformTransactionManager transactionManager;
+
+  @Spy
+  ObjectMapper mapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+  @InjectMocks
+  BulkImportService bulkImportService;
+
+  private static final MediaType TEXT_CSV = MediaType.parseMediaType(BulkImportService.TEXT_CSV_VALUE);
+
+  @BeforeEach
+  void setUp() {
+    bulkImportService.chunkSize = 2;
+    bulkImportService.maxErrors = 100;
+  }
+
+  private static InputStream body(String text) {
+    return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Stubs saveAll to return its argument, recording a copy of each chunk
+   * (the service reuses its buffer once a chunk is written).
+   */
+  private static <T> List<List<T>> recordChunks(CrudRepository<T, ?> repository) {
+    List<List<T>> chunks = new ArrayList<>();
+    when(repository.saveAll(anyList())).thenAnswer(invocation -> {
+      List<T> chunk = new ArrayList<>(invocation.<List<T>>getArgument(0));
+      chunks.add(chunk);
+      return chunk;
+    });
+    return chunks;
+  }
+
+  @Test
+  void ndjson_rows_are_saved_in_chunks_and_bad_rows_are_reported() throws Exception {
+    List<List<UCSBDiningCommonsMenuItem>> chunks = recordChunks(menuItemRepository);
+
+    String upload = """
+        {"id": 99, "diningCommonsCode": "ortega", "name": "Burrito", "station": "Grill"}
+
+        {"diningCommonsCode": "ortega", "name":
+        {"diningCommonsCode": "dlg", "name": "Pizza", "station": "Oven"}
+        {"diningCommonsCode": "dlg", "nmae": "Typo", "station": "Oven"}
+        {"diningCommonsCode": "carrillo", "name": "Salad", "station": "Greens"}
+        """;
+
+    ImportReport report = bulkImportService.importRows(body(upload), MediaType.APPLICATION_NDJSON,
+        UCSBDiningCommonsMenuItem.class, menuItemRepository);
+
+    assertEquals(5, report.getReceived());
+    assertEquals(3, report.getImported());
+    assertEquals(2, report.getErrorCount());
+    assertEquals(2, report.getErrors().size());
+    assertEquals(2, report.getErrors().get(0).getRow());
+    assertEquals(4, report.getErrors().get(1).getRow());
+    assertTrue(report.getErrors().get(1).getMessage().contains("nmae"));
+
+    assertEquals(2, chunks.size());
+    assertEquals(List.of(
+        UCSBDiningCommonsMenuItem.builder().diningCommonsCode("ortega").name("Burrito").station("Grill").build(),
+        UCSBDiningCommonsMenuItem.builder().diningCommonsCode("dlg").name("Pizza").station("Oven").build()),
+        chunks.get(0));
+    assertEquals(List.of(
+        UCSBDiningCommonsMenuItem.builder().diningCommonsCode("carrillo").name("Salad").station("Greens").build()),
+        chunks.get(1));
+  }
+
+  @Test
+  void csv_rows_are_mapped_by_header_and_coerced_to_field_types() throws Exception {
+    List<List<UCSBDiningCommons>> chunks = recordChunks(commonsRepository);
+
+    String upload = """
+        code,name,hasSackMeal,hasTakeOutMeal,hasDiningCam,latitude,longitude
+        ortega,Ortega,true,true,false,34.41,-119.84
+        dlg,De La Guerra,maybe,false,true,34.40,-119.84
+        carrillo,"Carrillo, the one by the lagoon",false,false,true,34.40,-119.85
+        """;
+
+    ImportReport report = bulkImportService.importRows(body(upload), TEXT_CSV,
+        UCSBDiningCommons.class, commonsRepository);
+
+    assertEquals(3, report.getReceived());
+    assertEquals(2, report.getImported());
+    assertEquals(1, report.getErrors().size());
+    assertEquals(2, report.getErrors().get(0).getRow());
+    assertTrue(report.getErrors().get(0).getMessage().contains("maybe"));
+
+    UCSBDiningCommons ortega = UCSBDiningCommons.builder().code("ortega").name("Ortega")
+        .hasSackMeal(true).hasTakeOutMeal(true).hasDiningCam(false)
+        .latitude(34.41).longitude(-119.84).build();
+    UCSBDiningCommons carrillo = UCSBDiningCommons.builder().code("carrillo").name("Carrillo, the one by the lagoon")
+        .hasSackMeal(false).hasTakeOutMeal(false).hasDiningCam(true)
+        .latitude(34.40).longitude(-119.85).build();
+    assertEquals(List.of(List.of(ortega, carrillo)), chunks);
+  }
+
+  @Test
+  void failed_chunk_is_retried_row_by_row_with_fresh_ids() throws Exception {
+    when(menuItemRepository.saveAll(anyList())).thenAnswer(invocation -> {
+      List<UCSBDiningCommonsMenuItem> rows = invocation.getArgument(0);
+      rows.forEach(row -> row.setId(51));
+      throw new DataIntegrityViolationException("chunk failed");
+    });
+    when(menuItemRepository.save(any(UCSBDiningCommonsMenuItem.class))).thenAnswer(invocation -> {
+      UCSBDiningCommonsMenuItem row = invocation.getArgument(0);
+      if (row.getName() == null) {
+        throw new DataIntegrityViolationException("outer", new IllegalStateException("NULL not allowed for column NAME"));
+      }
+      row.setId(60);
+      return row;
+    });
+    List<UCSBDiningCommonsMenuItem> committed = new ArrayList<>();
+
+    String upload = """
+        {"diningCommonsCode": "ortega", "name": "Burrito", "station": "Grill"}
+        {"diningCommonsCode": "ortega", "station": "Grill"}
+        """;
+
+    ImportReport report = bulkImportService.importRows(body(upload), MediaType.APPLICATION_NDJSON,
+        UCSBDiningCommonsMenuItem.class, menuItemRepository, committed::add);
+
+    assertEquals(2, report.getReceived());
+    assertEquals(1, report.getImported());
+    assertEquals(1, report.getErrors().size());
+    assertEquals(new ImportReport.RowError(2, "NULL not allowed for column NAME"), report.getErrors().get(0));
+
+    ArgumentCaptor<UCSBDiningCommonsMenuItem> retried = ArgumentCaptor.forClass(UCSBDiningCommonsMenuItem.class);
+    verify(menuItemRepository, times(2)).save(retried.capture());
+    assertEquals(0, retried.getAllValues().get(1).getId());
+    assertEquals(List.of(UCSBDiningCommonsMenuItem.builder().id(60).diningCommonsCode("ortega")
+        .name("Burrito").station("Grill").build()), committed);
+    verify(transactionManager, times(1)).commit(any());
+    verify(transactionManager, times(2)).rollback(any());
+  }
+
+  @Test
+  void every_bad_row_is_counted_but_only_the_first_are_listed() throws Exception {
+    bulkImportService.chunkSize = 10;
+    bulkImportService.maxErrors = 2;
+    when(menuItemRepository.saveAll(anyList())).thenThrow(new DataIntegrityViolationException("chunk failed"));
+    when(menuItemRepository.save(any(UCSBDiningCommonsMenuItem.class)))
+        .thenThrow(new DataIntegrityViolationException("NULL not allowed for column NAME"));
+
+    // row 1 is only rejected when the chunk is written, after rows 2 to 4 fail to parse
+    String upload = """
+        {"diningCommonsCode": "ortega", "station": "Grill"}
+        {"diningCommonsCode": "ortega", "name":
+        {"diningCommonsCode": "ortega", "name":
+        {"diningCommonsCode": "ortega", "name":
+        """;
+
+    ImportReport report = bulkImportService.importRows(body(upload), MediaType.APPLICATION_NDJSON,
+        UCSBDiningCommonsMenuItem.class, menuItemRepository);
+
+    assertEquals(4, report.getReceived());
+    assertEquals(4, report.getErrorCount());
+    assertEquals(List.of(1L, 2L), report.getErrors().stream().map(ImportReport.RowError::getRow).toList());
+    assertEquals("NULL not allowed for column NAME", report.getErrors().get(0).getMessage());
+  }
+
+  @Test
+  void empty_upload_saves_nothing() throws Exception {
+    ImportReport report = bulkImportService.importRows(body(""), MediaType.APPLICATION_NDJSON,
+        UCSBDiningCommonsMenuItem.class, menuItemRepository);
+
+    assertEquals(0, report.getReceived());
+    assertEquals(0, report.getImported());
+    assertTrue(report.getErrors().isEmpty());
+    verify(menuItemRepository, never()).saveAll(any());
+  }
+}
@@ -0,0 +1,67 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import edu.ucsb.cs156.example.models.CacheStatistics;
+import jakarta.persistence.EntityManagerFactory;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+@ExtendWith(MockitoExtension.class)
+class CacheStatisticsServiceTests {
+
+  @Mock
+  EntityManagerFactory entityManagerFactory;
+
+  @Mock
+  SessionFactory sessionFactory;
+
+  @Mock
+  Statistics statistics;
+
+  @InjectMocks
+  CacheStatisticsService cacheStatisticsService;
+
+  private static CacheRegionStatistics region(long hits, long misses, long puts) {
+    CacheRegionStatistics region = mock(CacheRegionStatistics.class);
+    when(region.getHitCount()).thenReturn(hits);
+    when(region.getMissCount()).thenReturn(misses);
+    when(region.getPutCount()).thenReturn(puts);
+    return region;
+  }
+
+  @Test
+  void getCacheStatistics_reports_each_region_in_name_order() {
+    when(entityManagerFactory.unwrap(SessionFactory.class)).thenReturn(sessionFactory);
+    when(sessionFactory.getStatistics()).thenReturn(statistics);
+    when(statistics.getSecondLevelCacheRegionNames()).thenReturn(new String[] {
+        "edu.ucsb.cs156.example.entities.UCSBOrganization",
+        "default-query-results-region"
+    });
+    CacheRegionStatistics organizations = region(10, 2, 2);
+    CacheRegionStatistics queries = region(4, 1, 1);
+    when(statistics.getCacheRegionStatistics("edu.ucsb.cs156.example.entities.UCSBOrganization"))
+        .thenReturn(organizations);
+    when(statistics.getCacheRegionStatistics("default-query-results-region")).thenReturn(queries);
+
+    List<CacheStatistics> result = cacheStatisticsService.getCacheStatistics();
+
+    assertEquals(List.of(
+        CacheStatistics.builder().regionName("default-query-results-region")
+            .hitCount(4).missCount(1).putCount(1).build(),
+        CacheStatistics.builder().regionName("edu.ucsb.cs156.example.entities.UCSBOrganization")
+            .hitCount(10).missCount(2).putCount(2).build()),
+        result);
+  }
+}
@@ -0,0 +1,180 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+
+import edu.ucsb.cs156.example.models.ConnectionBorrow;
+import edu.ucsb.cs156.example.models.ConnectionPoolState;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.sql.DataSource;
+
+import java.sql.SQLException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+
+@ExtendWith(MockitoExtension.class)
+class ConnectionPoolServiceTests {
+
+  @Mock
+  DataSource dataSource;
+
+  @Mock
+  HikariDataSource hikari;
+
+  @Mock
+  HikariPoolMXBean pool;
+
+  @InjectMocks
+  ConnectionPoolService connectionPoolService;
+
+  Instant now = Instant.parse("2024-10-01T12:00:00Z");
+
+  long nanos;
+
+  @BeforeEach
+  void setUp() {
+    connectionPoolService.leakThreshold = Duration.ofSeconds(2);
+    connectionPoolService.historySize = 3;
+    connectionPoolService.clock = Clock.fixed(now, ZoneOffset.UTC);
+    connectionPoolService.nanoTime = () -> nanos;
+    connectionPoolService.buildHistory();
+  }
+
+  @AfterEach
+  void clearRequest() {
+    RequestContextHolder.resetRequestAttributes();
+  }
+
+  private void stubPool() throws SQLException {
+    when(dataSource.unwrap(HikariDataSource.class)).thenReturn(hikari);
+    when(hikari.getHikariPoolMXBean()).thenReturn(pool);
+    when(hikari.getMaximumPoolSize()).thenReturn(10);
+    when(hikari.getMinimumIdle()).thenReturn(2);
+    when(pool.getActiveConnections()).thenReturn(4);
+    when(pool.getIdleConnections()).thenReturn(5);
+    when(pool.getTotalConnections()).thenReturn(9);
+    when(pool.getThreadsAwaitingConnection()).thenReturn(1);
+  }
+
+  private void inRequestHandledBy(String methodName) throws NoSuchMethodException {
+    MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/ucsbdates/all");
+    request.setAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE,
+        new HandlerMethod(this, ConnectionPoolServiceTests.class.getDeclaredMethod(methodName)));
+    RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+  }
+
+  private ConnectionPoolService.Borrow borrowFor(long heldMillis) {
+    ConnectionPoolService.Borrow borrow = connectionPoolService.borrowed();
+    nanos += heldMillis * 1_000_000;
+    connectionPoolService.returned(borrow);
+    return borrow;
+  }
+
+  @Test
+  void borrows_are_attributed_to_the_controller_method_of_the_request() throws Exception {
+    stubPool();
+    inRequestHandledBy("setUp");
+    borrowFor(5);
+
+    RequestContextHolder.setRequestAttributes(
+        new ServletRequestAttributes(new MockHttpServletRequest("POST", "/api/ucsbdates/post")));
+    borrowFor(7);
+
+    RequestContextHolder.resetRequestAttributes();
+    borrowFor(6);
+
+    List<ConnectionBorrow> slowest = connectionPoolService.getState(10).getSlowestRecent();
+
+    assertEquals(List.of("POST /api/ucsbdates/post", ConnectionPoolService.BACKGROUND,
+        "ConnectionPoolServiceTests.setUp"), slowest.stream().map(ConnectionBorrow::getBorrower).toList());
+    assertEquals(List.of(7.0, 6.0, 5.0), slowest.stream().map(ConnectionBorrow::getHeldMillis).toList());
+    assertEquals(now, slowest.get(0).getBorrowedAt());
+    assertEquals(Thread.currentThread().getName(), slowest.get(0).getThread());
+  }
+
+  @Test
+  void state_reports_pool_counts_and_connections_held_too_long() throws Exception {
+    stubPool();
+    inRequestHandledBy("stubPool");
+    ConnectionPoolService.Borrow leaked = connectionPoolService.borrowed();
+    nanos += 500_000_000L;
+    ConnectionPoolService.Borrow recent = connectionPoolService.borrowed();
+    nanos += 2_000_000_000L;
+
+    ConnectionPoolState state = connectionPoolService.getState(10);
+
+    assertEquals(ConnectionPoolState.builder()
+        .maximumPoolSize(10).minimumIdle(2)
+        .active(4).idle(5).total(9).pending(1)
+        .leakThresholdMillis(2000)
+        .heldTooLong(List.of(ConnectionBorrow.builder()
+            .borrower("ConnectionPoolServiceTests.stubPool")
+            .thread(Thread.currentThread().getName())
+            .borrowedAt(now)
+            .heldMillis(2500.0)
+            .build()))
+        .slowestRecent(List.of())
+        .build(), state);
+
+    connectionPoolService.returned(leaked);
+    connectionPoolService.returned(recent);
+    connectionPoolService.returned(recent);
+    assertEquals(List.of(2500.0, 2000.0), connectionPoolService.getState(10).getSlowestRecent().stream()
+        .map(ConnectionBorrow::getHeldMillis).toList());
+  }
+
+  @Test
+  void history_keeps_only_the_most_recent_borrows_and_lists_at_most_limit() throws Exception {
+    stubPool();
+    borrowFor(40);
+    borrowFor(10);
+    borrowFor(30);
+    borrowFor(20);
+
+    List<ConnectionBorrow> slowest = connectionPoolService.getState(2).getSlowestRecent();
+
+    assertEquals(List.of(30.0, 20.0), slowest.stream().map(ConnectionBorrow::getHeldMillis).toList());
+  }
+
+  @Test
+  void borrows_on_unnamed_threads_are_named_by_thread_id() throws Exception {
+    Thread thread = Thread.ofVirtual().unstarted(() -> connectionPoolService.returned(connectionPoolService.borrowed()));
+    thread.start();
+    thread.join();
+    stubPool();
+
+    ConnectionBorrow borrow = connectionPoolService.getState(1).getSlowestRecent().get(0);
+
+    assertEquals("virtual-" + thread.threadId(), borrow.getThread());
+  }
+
+  @Test
+  void state_fails_when_the_data_source_is_not_a_hikari_pool() throws Exception {
+    when(dataSource.unwrap(HikariDataSource.class)).thenThrow(new SQLException("not a wrapper"));
+
+    IllegalStateException e = assertThrows(IllegalStateException.class, () -> connectionPoolService.getState(10));
+
+    assertTrue(e.getMessage().contains("Hikari"));
+  }
+}
@@ -0,0 +1,204 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.client.authentication.OAuth2AuthenticationToken;
+import org.springframework.security.oauth2.core.user.DefaultOAuth2User;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+@ExtendWith(MockitoExtension.class)
+class CurrentUserServiceImplTests {
+
+  @Mock
+  UserRepository userRepository;
+
+  @Mock
+  TableVersionService tableVersionService;
+
+  @Mock
+  AdminDirectoryService adminDirectory;
+
+  @InjectMocks
+  CurrentUserServiceImpl currentUserService;
+
+  Instant now = Instant.parse("2024-10-01T12:00:00Z");
+
+  User stored = User.builder()
+      .id(7L)
+      .googleSub("115")
+      .email("cgaucho@ucsb.edu")
+      .pictureUrl("https://example.org/old.jpg")
+      .fullName("Chris Gaucho")
+      .givenName("Chris")
+      .familyName("Gaucho")
+      .emailVerified(true)
+      .locale("en")
+      .hostedDomain("ucsb.edu")
+      .admin(false)
+      .build();
+
+  @BeforeEach
+  void setUp() {
+    currentUserService.cacheMaxSize = 100;
+    currentUserService.cacheTtl = Duration.ofMinutes(15);
+    currentUserService.profileSyncInterval = Duration.ofHours(1);
+    currentUserService.clock = Clock.fixed(now, ZoneOffset.UTC);
+    currentUserService.buildUserCache();
+    lenient().when(userRepository.save(any(User.class))).thenAnswer(invocation -> invocation.getArgument(0));
+  }
+
+  @AfterEach
+  void clearContext() {
+    SecurityContextHolder.clearContext();
+  }
+
+  private void logInAs(String pictureUrl) {
+    Map<String, Object> attributes = new HashMap<>();
+    attributes.put("sub", "115");
+    attributes.put("email", "cgaucho@ucsb.edu");
+    attributes.put("picture", pictureUrl);
+    attributes.put("name", "Chris Gaucho");
+    attributes.put("given_name", "Chris");
+    attributes.put("family_name", "Gaucho");
+    attributes.put("email_verified", true);
+    attributes.put("locale", "en");
+    attributes.put("hd", "ucsb.edu");
+    List<SimpleGrantedAuthority> authorities = List.of(new SimpleGrantedAuthority("ROLE_USER"));
+    SecurityContextHolder.getContext().setAuthentication(new OAuth2AuthenticationToken(
+        new DefaultOAuth2User(authorities, attributes, "sub"), authorities, "google"));
+  }
+
+  private void advance(Duration duration) {
+    now = now.plus(duration);
+    currentUserService.clock = Clock.fixed(now, ZoneOffset.UTC);
+  }
+
+  @Test
+  void repeated_calls_are_served_from_the_cache() {
+    when(userRepository.findByEmail("cgaucho@ucsb.edu")).thenReturn(Optional.of(stored));
+    logInAs("https://example.org/old.jpg");
+
+    User first = currentUserService.getUser();
+    User second = currentUserService.getUser();
+
+    assertSame(stored, first);
+    assertSame(stored, second);
+    verify(userRepository, times(1)).findByEmail("cgaucho@ucsb.edu");
+    verify(userRepository, never()).save(any());
+  }
+
+  @Test
+  void new_user_is_saved_once() {
+    when(userRepository.findByEmail("cgaucho@ucsb.edu")).thenReturn(Optional.empty());
+    logInAs("https://example.org/old.jpg");
+
+    currentUserService.getUser();
+    currentUserService.getUser();
+
+    verify(userRepository, times(1)).save(any());
+    verify(tableVersionService, times(1)).bump(User.class);
+  }
+
+  @Test
+  void a_new_user_inserted_first_by_another_server_is_read_back() {
+    when(userRepository.findByEmail("cgaucho@ucsb.edu")).thenReturn(Optional.empty(), Optional.of(stored));
+    when(userRepository.save(any(User.class))).thenThrow(new DataIntegrityViolationException("UX_USERS_EMAIL"));
+    logInAs("https://example.org/old.jpg");
+
+    User user = currentUserService.getUser();
+
+    assertSame(stored, user);
+    verify(userRepository, times(2)).findByEmail("cgaucho@ucsb.edu");
+    verify(tableVersionService, never()).bump(User.class);
+  }
+
+  @Test
+  void a_failed_insert_is_rethrown_when_no_user_has_the_email() {
+    DataIntegrityViolationException failure = new DataIntegrityViolationException("some other constraint");
+    when(userRepository.findByEmail("cgaucho@ucsb.edu")).thenReturn(Optional.empty());
+    when(userRepository.save(any(User.class))).thenThrow(failure);
+    logInAs("https://example.org/old.jpg");
+
+    Exception thrown = assertThrows(Exception.class, () -> currentUserService.getUser());
+
+    assertSame(failure, rootCause(thrown));
+  }
+
+  private static Throwable rootCause(Throwable thrown) {
+    while (thrown.getCause() != null) {
+      thrown = thrown.getCause();
+    }
+    return thrown;
+  }
+
+  @Test
+  void changed_profile_is_written_back_on_load_and_then_at_most_once_per_interval() {
+    when(userRepository.findByEmail("cgaucho@ucsb.edu")).thenReturn(Optional.of(stored));
+    ArgumentCaptor<User> saved = ArgumentCaptor.forClass(User.class);
+
+    logInAs("https://example.org/new.jpg");
+    assertEquals("https://example.org/new.jpg", currentUserService.getUser().getPictureUrl());
+
+    advance(Duration.ofMinutes(30));
+    logInAs("https://example.org/newer.jpg");
+    assertEquals("https://example.org/new.jpg", currentUserService.getUser().getPictureUrl());
+
+    advance(Duration.ofMinutes(30));
+    User u = currentUserService.getUser();
+    assertEquals("https://example.org/newer.jpg", u.getPictureUrl());
+    assertEquals(7L, u.getId());
+
+    verify(userRepository, times(2)).save(saved.capture());
+    assertEquals("https://example.org/new.jpg", saved.getAllValues().get(0).getPictureUrl());
+    assertEquals("https://example.org/newer.jpg", saved.getAllValues().get(1).getPictureUrl());
+    verify(userRepository, times(1)).findByEmail("cgaucho@ucsb.edu");
+  }
+
+  @Test
+  void invalidated_user_is_read_from_the_database_again() {
+    User promoted = User.builder().id(7L).googleSub("115").email("cgaucho@ucsb.edu")
+        .pictureUrl("https://example.org/old.jpg").fullName("Chris Gaucho").givenName("Chris")
+        .familyName("Gaucho").emailVerified(true).locale("en").hostedDomain("ucsb.edu")
+        .admin(true).build();
+    when(userRepository.findByEmail("cgaucho@ucsb.edu")).thenReturn(Optional.of(stored), Optional.of(promoted));
+    logInAs("https://example.org/old.jpg");
+
+    assertEquals(false, currentUserService.getUser().getAdmin());
+    currentUserService.invalidateUser("115");
+    assertEquals(true, currentUserService.getUser().getAdmin());
+
+    currentUserService.invalidateAllUsers();
+    currentUserService.getUser();
+    verify(userRepository, times(3)).findByEmail("cgaucho@ucsb.edu");
+  }
+}
@@ -0,0 +1,164 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.when;
+
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.models.NearbyDiningCommons;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+@ExtendWith(MockitoExtension.class)
+class DiningCommonsLocationServiceTests {
+
+  @Mock
+  UCSBDiningCommonsRepository ucsbDiningCommonsRepository;
+
+  @InjectMocks
+  DiningCommonsLocationService locations;
+
+  private static UCSBDiningCommons commons(String code, boolean sack, boolean takeOut, boolean cam,
+      Double latitude, Double longitude) {
+    return UCSBDiningCommons.builder().code(code).name(code.toUpperCase()).hasSackMeal(sack)
+        .hasTakeOutMeal(takeOut).hasDiningCam(cam).latitude(latitude).longitude(longitude).build();
+  }
+
+  private static final UCSBDiningCommons ORTEGA = commons("ortega", true, true, true, 34.410987, -119.84709);
+  private static final UCSBDiningCommons CARRILLO = commons("carrillo", false, false, true, 34.409953, -119.85277);
+  private static final UCSBDiningCommons DE_LA_GUERRA = commons("de-la-guerra", false, true, true, 34.409811, -119.845325);
+  private static final UCSBDiningCommons PORTOLA = commons("portola", true, true, false, 34.417723, -119.867427);
+
+  private void load(List<UCSBDiningCommons> commons) {
+    when(ucsbDiningCommonsRepository.findAll()).thenReturn(commons);
+    locations.rebuild();
+  }
+
+  private List<String> nearest(double latitude, double longitude, int k,
+      Boolean hasSackMeal, Boolean hasTakeOutMeal, Boolean hasDiningCam) {
+    return locations.nearest(latitude, longitude, k, hasSackMeal, hasTakeOutMeal, hasDiningCam).stream()
+        .map(NearbyDiningCommons::getCode).toList();
+  }
+
+  private static double haversineMeters(double lat1, double lon1, double lat2, double lon2) {
+    double dLat = Math.toRadians(lat2 - lat1);
+    double dLon = Math.toRadians(lon2 - lon1);
+    double a = Math.pow(Math.sin(dLat / 2), 2)
+        + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.pow(Math.sin(dLon / 2), 2);
+    return 2 * DiningCommonsLocationService.EARTH_RADIUS_METERS * Math.asin(Math.sqrt(a));
+  }
+
+  @Test
+  void nearest_returns_commons_nearest_first_with_their_distance() {
+    load(List.of(ORTEGA, CARRILLO, DE_LA_GUERRA, PORTOLA));
+
+    // Storke Tower
+    assertEquals(List.of("ortega", "de-la-guerra", "carrillo", "portola"), nearest(34.412527, -119.848675, 10, null, null, null));
+    assertEquals(List.of("portola", "carrillo"), nearest(34.418, -119.866, 2, null, null, null));
+
+    NearbyDiningCommons ortega = locations.nearest(34.412527, -119.848675, 1, null, null, null).get(0);
+    assertEquals(NearbyDiningCommons.builder()
+        .code("ortega").name("ORTEGA").hasSackMeal(true).hasTakeOutMeal(true).hasDiningCam(true)
+        .latitude(34.410987).longitude(-119.84709)
+        .distanceMeters(ortega.getDistanceMeters())
+        .build(), ortega);
+    assertEquals(haversineMeters(34.412527, -119.848675, 34.410987, -119.84709), ortega.getDistanceMeters(), 1e-6);
+  }
+
+  @Test
+  void amenity_filters_can_require_exclude_or_ignore_each_flag() {
+    load(List.of(ORTEGA, CARRILLO, DE_LA_GUERRA, PORTOLA));
+    double lat = 34.412527;
+    double lon = -119.848675;
+
+    assertEquals(List.of("ortega", "portola"), nearest(lat, lon, 10, true, null, null));
+    assertEquals(List.of("de-la-guerra", "carrillo"), nearest(lat, lon, 10, false, null, null));
+    assertEquals(List.of("ortega", "de-la-guerra", "portola"), nearest(lat, lon, 10, null, true, null));
+    assertEquals(List.of("carrillo"), nearest(lat, lon, 10, null, false, null));
+    assertEquals(List.of("portola"), nearest(lat, lon, 10, null, null, false));
+    assertEquals(List.of("de-la-guerra"), nearest(lat, lon, 10, false, true, true));
+    assertEquals(List.of(), nearest(lat, lon, 10, true, false, null));
+  }
+
+  @Test
+  void commons_without_a_location_are_not_indexed() {
+    load(List.of(ORTEGA, commons("no-latitude", true, true, true, null, -119.85),
+        commons("no-longitude", true, true, true, 34.41, null)));
+
+    assertEquals(List.of("ortega"), nearest(34.41, -119.85, 10, null, null, null));
+  }
+
+  @Test
+  void nothing_is_found_before_the_first_rebuild_or_when_k_is_zero() {
+    assertEquals(List.of(), nearest(34.41, -119.85, 5, null, null, null));
+
+    load(List.of(ORTEGA));
+
+    assertEquals(List.of(), nearest(34.41, -119.85, 0, null, null, null));
+  }
+
+  @Test
+  void commons_at_the_same_place_are_ordered_by_code() {
+    load(List.of(commons("b", true, true, true, 34.41, -119.85), commons("c", true, true, true, 34.41, -119.85),
+        commons("a", true, true, true, 34.41, -119.85)));
+
+    assertEquals(List.of("a", "b"), nearest(34.0, -119.0, 2, null, null, null));
+  }
+
+  @Test
+  void a_rebuild_replaces_what_was_indexed() {
+    load(List.of(ORTEGA, CARRILLO));
+    load(List.of(PORTOLA));
+
+    assertEquals(List.of("portola"), nearest(34.41, -119.85, 10, null, null, null));
+  }
+
+  @Test
+  void a_failed_rebuild_keeps_the_old_trees_and_does_not_block_the_next_one() {
+    when(ucsbDiningCommonsRepository.findAll()).thenReturn(List.of(ORTEGA))
+        .thenThrow(new IllegalStateException("database down"))
+        .thenReturn(List.of(PORTOLA));
+
+    locations.rebuild();
+    assertThrows(IllegalStateException.class, () -> locations.rebuild());
+    assertEquals(List.of("ortega"), nearest(34.41, -119.85, 10, null, null, null));
+
+    locations.rebuild();
+    assertEquals(List.of("portola"), nearest(34.41, -119.85, 10, null, null, null));
+  }
+
+  @Test
+  void nearest_agrees_with_a_scan_of_every_commons_anywhere_on_earth() {
+    Random random = new Random(11);
+    List<UCSBDiningCommons> all = new ArrayList<>();
+    for (int i = 0; i < 500; i++) {
+      all.add(commons("c" + i, random.nextBoolean(), random.nextBoolean(), random.nextBoolean(),
+          Math.toDegrees(Math.asin(2 * random.nextDouble() - 1)), 360 * random.nextDouble() - 180));
+    }
+    load(all);
+
+    for (int q = 0; q < 50; q++) {
+      double lat = q == 0 ? 90 : Math.toDegrees(Math.asin(2 * random.nextDouble() - 1));
+      double lon = q == 1 ? 180 : 360 * random.nextDouble() - 180;
+      Boolean sack = q % 3 == 0 ? null : q % 3 == 1;
+      List<String> expected = all.stream()
+          .filter(c -> sack == null || c.getHasSackMeal() == sack)
+          .sorted(Comparator.comparingDouble(c -> haversineMeters(lat, lon, c.getLatitude(), c.getLongitude())))
+          .limit(7)
+          .map(UCSBDiningCommons::getCode)
+          .toList();
+
+      assertEquals(expected, nearest(lat, lon, 7, sack, null, null));
+    }
+  }
+}
@@ -0,0 +1,207 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mockConstruction;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import edu.ucsb.cs156.example.entities.HelpRequest;
+import edu.ucsb.cs156.example.models.HelpRequestEvent;
+import edu.ucsb.cs156.example.repositories.HelpRequestRepository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockedConstruction;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter.SseEventBuilder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+@ExtendWith(MockitoExtension.class)
+class HelpRequestQueueServiceTests {
+
+  @Mock
+  HelpRequestRepository helpRequestRepository;
+
+  @InjectMocks
+  HelpRequestQueueService helpRequestQueueService;
+
+  // tasks handed to the executor; run explicitly so tests control when draining happens
+  List<Runnable> tasks = new ArrayList<>();
+
+  @BeforeEach
+  void setup() {
+    helpRequestQueueService.taskExecutor = tasks::add;
+    helpRequestQueueService.timeoutMs = 1000L;
+    helpRequestQueueService.maxPending = 2;
+  }
+
+  private void runTasks() {
+    while (!tasks.isEmpty()) {
+      tasks.remove(0).run();
+    }
+  }
+
+  private List<String> sentEventNames(SseEmitter emitter, int expectedSends) throws IOException {
+    ArgumentCaptor<SseEventBuilder> captor = ArgumentCaptor.forClass(SseEventBuilder.class);
+    verify(emitter, times(expectedSends)).send(captor.capture());
+    return captor.getAllValues().stream()
+        .map(builder -> builder.build().iterator().next().getData().toString())
+        .collect(Collectors.toList());
+  }
+
+  private HelpRequestEvent event(HelpRequestEvent.Type type, long id) {
+    return HelpRequestEvent.builder()
+        .type(type)
+        .id(id)
+        .helpRequest(HelpRequest.builder().id(id).build())
+        .build();
+  }
+
+  @Test
+  void subscribe_sends_snapshot_of_unsolved_requests() throws Exception {
+    when(helpRequestRepository.findBySolvedFalseOrderByRequestTimeAsc())
+        .thenReturn(List.of(HelpRequest.builder().id(1L).build()));
+
+    try (MockedConstruction<SseEmitter> emitters = mockConstruction(SseEmitter.class)) {
+      helpRequestQueueService.subscribe();
+      runTasks();
+
+      SseEmitter emitter = emitters.constructed().get(0);
+      assertEquals(List.of("event:snapshot\ndata:"), sentEventNames(emitter, 1));
+      assertEquals(1, helpRequestQueueService.getSubscriberCount());
+    }
+  }
+
+  @Test
+  void publish_coalesces_pending_events_for_the_same_id() throws Exception {
+    when(helpRequestRepository.findBySolvedFalseOrderByRequestTimeAsc()).thenReturn(List.of());
+
+    try (MockedConstruction<SseEmitter> emitters = mockConstruction(SseEmitter.class)) {
+      helpRequestQueueService.subscribe();
+      runTasks();
+
+      helpRequestQueueService.publish(event(HelpRequestEvent.Type.CREATED, 1L));
+      helpRequestQueueService.publish(event(HelpRequestEvent.Type.CREATED, 2L));
+      helpRequestQueueService.publish(event(HelpRequestEvent.Type.SOLVED, 1L));
+      assertEquals(1, tasks.size());
+      runTasks();
+
+      SseEmitter emitter = emitters.constructed().get(0);
+      assertEquals(List.of("event:snapshot\ndata:", "event:created\ndata:", "event:solved\ndata:"),
+          sentEventNames(emitter, 3));
+    }
+  }
+
+  @Test
+  void slow_subscriber_that_overflows_gets_a_new_snapshot_instead_of_events() throws Exception {
+    when(helpRequestRepository.findBySolvedFalseOrderByRequestTimeAsc()).thenReturn(List.of());
+
+    try (MockedConstruction<SseEmitter> emitters = mockConstruction(SseEmitter.class)) {
+      helpRequestQueueService.subscribe();
+      runTasks();
+
+      helpRequestQueueService.publish(event(HelpRequestEvent.Type.CREATED, 1L));
+      helpRequestQueueService.publish(event(HelpRequestEvent.Type.CREATED, 2L));
+      helpRequestQueueService.publish(event(HelpRequestEvent.Type.CREATED, 3L));
+      // ignored: a snapshot is already pending
+      helpRequestQueueService.publish(event(HelpRequestEvent.Type.CREATED, 4L));
+      runTasks();
+
+      SseEmitter emitter = emitters.constructed().get(0);
+      assertEquals(List.of("event:snapshot\ndata:", "event:snapshot\ndata:"), sentEventNames(emitter, 2));
+      verify(helpRequestRepository, times(2)).findBySolvedFalseOrderByRequestTimeAsc();
+    }
+  }
+
+  @Test
+  void publish_snapshot_replaces_pending_events_with_one_snapshot() throws Exception {
+    when(helpRequestRepository.findBySolvedFalseOrderByRequestTimeAsc()).thenReturn(List.of());
+
+    try (MockedConstruction<SseEmitter> emitters = mockConstruction(SseEmitter.class)) {
+      helpRequestQueueService.subscribe();
+      runTasks();
+
+      helpRequestQueueService.publish(event(HelpRequestEvent.Type.CREATED, 1L));
+      helpRequestQueueService.publishSnapshot();
+      runTasks();
+
+      SseEmitter emitter = emitters.constructed().get(0);
+      assertEquals(List.of("event:snapshot\ndata:", "event:snapshot\ndata:"), sentEventNames(emitter, 2));
+    }
+  }
+
+  @Test
+  void subscriber_is_dropped_when_send_fails() throws Exception {
+    when(helpRequestRepository.findBySolvedFalseOrderByRequestTimeAsc()).thenReturn(List.of());
+
+    try (MockedConstruction<SseEmitter> emitters = mockConstruction(SseEmitter.class,
+        (mock, context) -> doThrow(new IOException("broken pipe")).when(mock).send(any(SseEventBuilder.class)))) {
+      helpRequestQueueService.subscribe();
+      runTasks();
+
+      SseEmitter emitter = emitters.constructed().get(0);
+      verify(emitter, times(1)).completeWithError(any(IOException.class));
+      assertEquals(0, helpRequestQueueService.getSubscriberCount());
+
+      helpRequestQueueService.publish(event(HelpRequestEvent.Type.CREATED, 1L));
+      assertTrue(tasks.isEmpty());
+    }
+  }
+
+  @Test
+  void subscriber_is_removed_when_emitter_completes() throws Exception {
+    try (MockedConstruction<SseEmitter> emitters = mockConstruction(SseEmitter.class)) {
+      helpRequestQueueService.subscribe();
+      helpRequestQueueService.subscribe();
+      helpRequestQueueService.subscribe();
+      assertEquals(3, helpRequestQueueService.getSubscriberCount());
+
+      ArgumentCaptor<Runnable> completion = ArgumentCaptor.forClass(Runnable.class);
+      verify(emitters.constructed().get(0)).onCompletion(completion.capture());
+      completion.getValue().run();
+
+      ArgumentCaptor<Runnable> timeout = ArgumentCaptor.forClass(Runnable.class);
+      verify(emitters.constructed().get(1)).onTimeout(timeout.capture());
+      timeout.getValue().run();
+
+      @SuppressWarnings("unchecked")
+      ArgumentCaptor<java.util.function.Consumer<Throwable>> error =
+          ArgumentCaptor.forClass(java.util.function.Consumer.class);
+      verify(emitters.constructed().get(2)).onError(error.capture());
+      error.getValue().accept(new IOException("gone"));
+
+      assertEquals(0, helpRequestQueueService.getSubscriberCount());
+      verify(emitters.constructed().get(0), never()).complete();
+    }
+  }
+
+  @Test
+  void events_are_sent_on_the_services_own_threads() throws Exception {
+    helpRequestQueueService.senders = 2;
+    helpRequestQueueService.startSenders();
+    try {
+      CompletableFuture<String> sender = new CompletableFuture<>();
+      helpRequestQueueService.taskExecutor.execute(() -> sender.complete(Thread.currentThread().getName()));
+
+      assertTrue(sender.get(5, TimeUnit.SECONDS).startsWith("helprequest-queue-"));
+    } finally {
+      helpRequestQueueService.stopSenders();
+    }
+  }
+}
@@ -0,0 +1,222 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.when;
+
+import edu.ucsb.cs156.example.entities.MenuItemRating;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItem;
+import edu.ucsb.cs156.example.models.MenuItemRanking;
+import edu.ucsb.cs156.example.repositories.MenuItemRatingRepository;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsMenuItemRepository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@ExtendWith(MockitoExtension.class)
+class MenuItemLeaderboardServiceTests {
+
+  @Mock
+  MenuItemRatingRepository menuItemRatingRepository;
+
+  @Mock
+  UCSBDiningCommonsMenuItemRepository ucsbDiningCommonsMenuItemRepository;
+
+  @InjectMocks
+  MenuItemLeaderboardService leaderboard;
+
+  @BeforeEach
+  void setUp() {
+    leaderboard.priorMean = 3.0;
+    leaderboard.priorWeight = 2;
+  }
+
+  private static UCSBDiningCommonsMenuItem item(long id, String diningCommonsCode) {
+    return UCSBDiningCommonsMenuItem.builder().id(id).diningCommonsCode(diningCommonsCode)
+        .name("Item " + id).station("Grill").build();
+  }
+
+  private static MenuItemRating rating(long itemId, long reviewCount, long starsSum) {
+    return MenuItemRating.builder().itemId(itemId).reviewCount(reviewCount).starsSum(starsSum).build();
+  }
+
+  private void rated(long itemId, long reviewCount, long starsSum) {
+    when(menuItemRatingRepository.findAllById(List.of(itemId))).thenReturn(List.of(rating(itemId, reviewCount, starsSum)));
+    leaderboard.ratingChanged(itemId);
+  }
+
+  private List<Long> top(int n, String diningCommonsCode) {
+    return leaderboard.getTop(n, diningCommonsCode).stream().map(MenuItemRanking::getItemId).toList();
+  }
+
+  @Test
+  void load_ranks_reviewed_menu_items_by_bayesian_average() {
+    when(ucsbDiningCommonsMenuItemRepository.findAll())
+        .thenReturn(List.of(item(1, "ortega"), item(2, "ortega"), item(3, "carrillo"), item(4, "ortega")));
+    // item 5 has reviews but is not a menu item; item 4 has no reviews
+    when(menuItemRatingRepository.findAll())
+        .thenReturn(List.of(rating(1, 1, 5), rating(2, 10, 45), rating(3, 4, 12), rating(5, 3, 15)));
+
+    leaderboard.load();
+
+    // 2: (6 + 45) / 12 = 4.25; 1: (6 + 5) / 3 = 3.67; 3: (6 + 12) / 6 = 3.0
+    assertEquals(List.of(2L, 1L, 3L), top(10, null));
+    assertEquals(List.of(2L, 1L), top(10, "ortega"));
+    assertEquals(List.of(3L), top(10, "carrillo"));
+    assertEquals(List.of(2L), top(1, null));
+    assertEquals(List.of(), top(0, null));
+    assertEquals(List.of(), top(10, "de-la-guerra"));
+
+    MenuItemRanking first = leaderboard.getTop(1, "ortega").get(0);
+    assertEquals(MenuItemRanking.builder()
+        .rank(1).itemId(2L).diningCommonsCode("ortega").name("Item 2").station("Grill")
+        .reviewCount(10).averageStars(4.5).score(51.0 / 12)
+        .build(), first);
+    assertEquals(2, leaderboard.getTop(2, null).get(1).getRank());
+  }
+
+  @Test
+  void ties_go_to_the_item_with_more_reviews_then_the_lower_id() {
+    leaderboard.itemSaved(item(1, "ortega"));
+    leaderboard.itemSaved(item(2, "ortega"));
+    leaderboard.itemSaved(item(3, "ortega"));
+    rated(3, 1, 3);
+    rated(2, 2, 6);
+    rated(1, 1, 3);
+
+    assertEquals(List.of(2L, 1L, 3L), top(10, "ortega"));
+  }
+
+  @Test
+  void reviews_move_an_item_through_the_ranking() {
+    leaderboard.itemSaved(item(1, "ortega"));
+    leaderboard.itemSaved(item(2, "ortega"));
+    rated(1, 1, 4);
+    rated(2, 1, 3);
+    assertEquals(List.of(1L, 2L), top(10, null));
+
+    rated(2, 3, 13);
+    assertEquals(List.of(2L, 1L), top(10, null));
+    assertEquals(List.of(2L, 1L), top(10, "ortega"));
+
+    rated(2, 0, 0);
+    assertEquals(List.of(1L), top(10, null));
+    assertEquals(List.of(1L), top(10, "ortega"));
+  }
+
+  @Test
+  void an_item_moved_to_another_dining_commons_is_ranked_there() {
+    leaderboard.itemSaved(item(1, "ortega"));
+    rated(1, 2, 8);
+
+    leaderboard.itemSaved(item(1, "portola"));
+
+    assertEquals(List.of(), top(10, "ortega"));
+    assertEquals(List.of(1L), top(10, "portola"));
+    assertEquals("portola", leaderboard.getTop(1, null).get(0).getDiningCommonsCode());
+  }
+
+  @Test
+  void an_item_without_a_dining_commons_is_ranked_only_overall() {
+    leaderboard.itemSaved(item(1, null));
+    rated(1, 2, 8);
+    leaderboard.itemSaved(item(1, null));
+
+    assertEquals(List.of(1L), top(10, null));
+
+    leaderboard.itemRemoved(1);
+
+    assertEquals(List.of(), top(10, null));
+  }
+
+  @Test
+  void reviews_of_unknown_items_are_ranked_once_the_item_exists() {
+    rated(9, 2, 10);
+    assertEquals(List.of(), top(10, null));
+
+    leaderboard.itemSaved(item(9, "ortega"));
+    assertEquals(List.of(9L), top(10, "ortega"));
+    assertEquals(2, leaderboard.getTop(1, null).get(0).getReviewCount());
+  }
+
+  @Test
+  void a_deleted_item_is_no_longer_ranked() {
+    leaderboard.itemSaved(item(1, "ortega"));
+    leaderboard.itemSaved(item(2, "ortega"));
+    rated(1, 1, 5);
+    rated(2, 1, 4);
+
+    leaderboard.itemRemoved(1);
+    leaderboard.itemRemoved(3);
+
+    assertEquals(List.of(2L), top(10, null));
+    assertEquals(List.of(2L), top(10, "ortega"));
+  }
+
+  @Test
+  void refreshRatings_reloads_the_given_items() {
+    leaderboard.itemSaved(item(1, "ortega"));
+    leaderboard.itemSaved(item(2, "ortega"));
+    rated(1, 1, 1);
+    rated(2, 1, 2);
+    when(menuItemRatingRepository.findAllById(Set.of(1L, 2L))).thenReturn(List.of(rating(1, 3, 15)));
+
+    leaderboard.refreshRatings(Set.of(1L, 2L));
+
+    assertEquals(List.of(1L), top(10, null));
+    assertEquals(3, leaderboard.getTop(1, null).get(0).getReviewCount());
+  }
+
+  @Test
+  void refreshRatings_without_ids_reloads_every_item() {
+    leaderboard.itemSaved(item(1, "ortega"));
+    leaderboard.itemSaved(item(2, "ortega"));
+    rated(1, 1, 1);
+    rated(7, 1, 1);
+    when(menuItemRatingRepository.findAll()).thenReturn(List.of(rating(2, 2, 9)));
+
+    leaderboard.refreshRatings();
+
+    assertEquals(List.of(2L), top(10, null));
+  }
+
+  @Test
+  void a_reload_does_not_undo_a_review_read_while_it_ran() {
+    leaderboard.itemSaved(item(1, "ortega"));
+    when(menuItemRatingRepository.findAllById(List.of(1L))).thenReturn(List.of(rating(1, 2, 8)));
+    // a review commits and is read after the reload has read the table
+    when(menuItemRatingRepository.findAll()).thenAnswer(invocation -> {
+      leaderboard.ratingChanged(1);
+      return List.of(rating(1, 1, 4));
+    });
+
+    leaderboard.refreshRatings();
+
+    assertEquals(2, leaderboard.getTop(1, null).get(0).getReviewCount());
+  }
+
+  @Test
+  void an_older_read_of_an_item_does_not_replace_a_newer_one() {
+    leaderboard.itemSaved(item(1, "ortega"));
+    AtomicInteger reads = new AtomicInteger();
+    // the second review's read finishes before the first review's
+    when(menuItemRatingRepository.findAllById(List.of(1L))).thenAnswer(invocation -> {
+      if (reads.incrementAndGet() == 1) {
+        leaderboard.ratingChanged(1);
+        return List.of(rating(1, 1, 4));
+      }
+      return List.of(rating(1, 2, 8));
+    });
+
+    leaderboard.ratingChanged(1);
+
+    assertEquals(2, leaderboard.getTop(1, null).get(0).getReviewCount());
+  }
+}
@@ -0,0 +1,244 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import edu.ucsb.cs156.example.entities.MenuItemRating;
+import edu.ucsb.cs156.example.entities.MenuItemReview;
+import edu.ucsb.cs156.example.models.RatingRebuildReport;
+import edu.ucsb.cs156.example.repositories.MenuItemRatingRepository;
+import jakarta.persistence.EntityManager;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+@ExtendWith(MockitoExtension.class)
+class MenuItemRatingServiceTests {
+
+  @Mock
+  MenuItemRatingRepository menuItemRatingRepository;
+
+  @Mock
+  PlatformTransactionManager transactionManager;
+
+  @Mock
+  EntityManager entityManager;
+
+  @Mock
+  MenuItemLeaderboardService menuItemLeaderboardService;
+
+  @InjectMocks
+  MenuItemRatingService menuItemRatingService;
+
+  private static final LocalDateTime ldt = LocalDateTime.parse("2022-01-03T00:00:00");
+
+  @BeforeEach
+  void setUp() {
+    menuItemRatingService.chunkSize = 2;
+    menuItemRatingService.parallelism = 2;
+    menuItemRatingService.taskExecutor = new SimpleAsyncTaskExecutor();
+    menuItemRatingService.buildTransactionTemplates();
+  }
+
+  private static MenuItemReview review(Long itemId, int stars, LocalDateTime dateReviewed) {
+    return MenuItemReview.builder().id(1L).itemId(itemId).stars(stars).dateReviewed(dateReviewed).build();
+  }
+
+  @Test
+  void getRating_returns_the_stored_rating() {
+    MenuItemRating rating = MenuItemRating.builder().itemId(7L).reviewCount(2).starsSum(9).build();
+    when(menuItemRatingRepository.findById(7L)).thenReturn(Optional.of(rating));
+
+    assertEquals(rating, menuItemRatingService.getRating(7L));
+    assertEquals(4.5, rating.getAverageStars());
+  }
+
+  @Test
+  void getRating_returns_an_empty_rating_for_an_unreviewed_item() {
+    when(menuItemRatingRepository.findById(7L)).thenReturn(Optional.empty());
+
+    MenuItemRating rating = menuItemRatingService.getRating(7L);
+
+    assertEquals(MenuItemRating.builder().itemId(7L).build(), rating);
+    assertNull(rating.getAverageStars());
+  }
+
+  @Test
+  void reviewAdded_creates_the_rating_and_adds_the_review() {
+
+    menuItemRatingService.reviewAdded(review(7L, 4, ldt));
+
+    verify(menuItemRatingRepository, times(1)).createIfMissing(7L);
+    verify(menuItemRatingRepository, times(1)).addToCounts(
+        MenuItemRating.builder().itemId(7L).reviewCount(1).starsSum(4).fourStars(1).build());
+    verify(menuItemRatingRepository, times(1)).advanceLastReviewed(7L, ldt);
+    // the rating is created in the caller's transaction, not in one of its own
+    verifyNoInteractions(transactionManager);
+    verify(menuItemLeaderboardService, times(1)).ratingChanged(7L);
+  }
+
+  @Test
+  void the_leaderboard_hears_of_a_change_only_once_its_transaction_commits() {
+    TransactionSynchronizationManager.initSynchronization();
+    try {
+      menuItemRatingService.reviewAdded(review(7L, 4, ldt));
+      menuItemRatingService.reviewRemoved(review(7L, 4, ldt));
+      verifyNoInteractions(menuItemLeaderboardService);
+
+      TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+    } finally {
+      TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    verify(menuItemLeaderboardService, times(2)).ratingChanged(7L);
+  }
+
+  @Test
+  void reviewAdded_reuses_an_existing_rating_and_skips_a_missing_date() {
+
+    menuItemRatingService.reviewAdded(review(7L, 1, null));
+
+    verify(menuItemRatingRepository, never()).save(any());
+    verify(menuItemRatingRepository, times(1)).addToCounts(
+        MenuItemRating.builder().itemId(7L).reviewCount(1).starsSum(1).oneStar(1).build());
+    verify(menuItemRatingRepository, never()).advanceLastReviewed(anyLong(), any());
+  }
+
+  @Test
+  void reviews_without_an_item_are_ignored() {
+    menuItemRatingService.reviewAdded(review(null, 3, ldt));
+    menuItemRatingService.reviewRemoved(review(null, 3, ldt));
+
+    verifyNoInteractions(menuItemRatingRepository);
+  }
+
+  @Test
+  void reviewRemoved_subtracts_the_review_and_recomputes_the_last_review_time() {
+    menuItemRatingService.reviewRemoved(review(7L, 5, ldt));
+
+    verify(menuItemRatingRepository, times(1)).addToCounts(
+        MenuItemRating.builder().itemId(7L).reviewCount(-1).starsSum(-5).fiveStars(-1).build());
+    verify(menuItemRatingRepository, times(1)).recomputeLastReviewed(7L);
+  }
+
+  @Test
+  void reviewChanged_moves_the_review_to_its_new_values() {
+    menuItemRatingService.reviewChanged(review(7L, 3, ldt), review(8L, 3, ldt));
+
+    verify(menuItemRatingRepository, times(1)).addToCounts(
+        MenuItemRating.builder().itemId(7L).reviewCount(-1).starsSum(-3).threeStars(-1).build());
+    verify(menuItemRatingRepository, times(1)).recomputeLastReviewed(7L);
+    verify(menuItemRatingRepository, times(1)).addToCounts(
+        MenuItemRating.builder().itemId(8L).reviewCount(1).starsSum(3).threeStars(1).build());
+    verify(menuItemRatingRepository, times(1)).advanceLastReviewed(8L, ldt);
+  }
+
+  @Test
+  void reviewChanged_updates_when_only_stars_or_date_change() {
+    menuItemRatingService.reviewChanged(review(7L, 2, ldt), review(7L, 4, ldt));
+    menuItemRatingService.reviewChanged(review(7L, 3, ldt), review(7L, 3, ldt.plusDays(1)));
+
+    verify(menuItemRatingRepository, times(1)).addToCounts(
+        MenuItemRating.builder().itemId(7L).reviewCount(-1).starsSum(-2).twoStars(-1).build());
+    verify(menuItemRatingRepository, times(2)).recomputeLastReviewed(7L);
+    verify(menuItemRatingRepository, times(1)).advanceLastReviewed(7L, ldt.plusDays(1));
+  }
+
+  @Test
+  void reviewChanged_does_nothing_when_nothing_summarized_changed() {
+    menuItemRatingService.reviewChanged(review(7L, 3, ldt), review(7L, 3, ldt));
+
+    verifyNoInteractions(menuItemRatingRepository);
+  }
+
+  @Test
+  void rebuildAll_recomputes_every_reviewed_item_in_chunks() {
+    when(menuItemRatingRepository.findReviewedItemIds()).thenReturn(List.of(1L, 2L, 3L));
+    MenuItemRating one = MenuItemRating.builder().itemId(1L).reviewCount(2).build();
+    MenuItemRating two = MenuItemRating.builder().itemId(2L).reviewCount(3).build();
+    MenuItemRating three = MenuItemRating.builder().itemId(3L).reviewCount(1).build();
+    when(menuItemRatingRepository.computeRatings(List.of(1L, 2L))).thenReturn(List.of(one, two));
+    when(menuItemRatingRepository.computeRatings(List.of(3L))).thenReturn(List.of(three));
+    when(menuItemRatingRepository.deleteUnreviewed()).thenReturn(4);
+
+    RatingRebuildReport report = menuItemRatingService.rebuildAll();
+
+    assertEquals(3, report.getItems());
+    assertEquals(6, report.getReviews());
+    assertEquals(2, report.getChunks());
+    assertEquals(4, report.getRemoved());
+    verify(menuItemRatingRepository, times(1)).deleteByItemIds(List.of(1L, 2L));
+    verify(menuItemRatingRepository, times(1)).deleteByItemIds(List.of(3L));
+    verify(entityManager, times(1)).persist(one);
+    verify(entityManager, times(1)).persist(two);
+    verify(entityManager, times(1)).persist(three);
+    verify(transactionManager, times(3)).commit(any());
+    verify(menuItemLeaderboardService, times(1)).refreshRatings();
+  }
+
+  @Test
+  void rebuild_runs_no_more_chunks_at_once_than_its_parallelism() {
+    menuItemRatingService.parallelism = 1;
+    List<Long> itemIds = List.of(1L, 2L, 3L, 4L, 5L);
+    when(menuItemRatingRepository.computeRatings(any())).thenAnswer(invocation -> {
+      List<Long> chunk = invocation.getArgument(0);
+      return chunk.stream().map(itemId -> MenuItemRating.builder().itemId(itemId).reviewCount(1).build()).toList();
+    });
+
+    RatingRebuildReport report = menuItemRatingService.rebuild(itemIds);
+
+    assertEquals(5, report.getItems());
+    assertEquals(5, report.getReviews());
+    assertEquals(3, report.getChunks());
+    verify(menuItemRatingRepository, times(3)).computeRatings(any());
+  }
+
+  @Test
+  void rebuildAll_with_no_reviews_only_removes_stale_ratings() {
+    when(menuItemRatingRepository.findReviewedItemIds()).thenReturn(List.of());
+    when(menuItemRatingRepository.deleteUnreviewed()).thenReturn(2);
+
+    RatingRebuildReport report = menuItemRatingService.rebuildAll();
+
+    assertEquals(RatingRebuildReport.builder().removed(2).millis(report.getMillis()).build(), report);
+    verify(menuItemRatingRepository, never()).computeRatings(any());
+  }
+
+  @Test
+  void rebuild_recomputes_the_distinct_given_items() {
+    List<Long> itemIds = new ArrayList<>(Arrays.asList(5L, null, 5L));
+    MenuItemRating five = MenuItemRating.builder().itemId(5L).reviewCount(2).build();
+    when(menuItemRatingRepository.computeRatings(List.of(5L))).thenReturn(List.of(five));
+
+    RatingRebuildReport report = menuItemRatingService.rebuild(itemIds);
+
+    assertEquals(1, report.getItems());
+    assertEquals(2, report.getReviews());
+    assertEquals(1, report.getChunks());
+    assertEquals(0, report.getRemoved());
+    verify(menuItemRatingRepository, times(1)).deleteByItemIds(List.of(5L));
+    verify(menuItemRatingRepository, never()).deleteUnreviewed();
+    verify(menuItemLeaderboardService, times(1)).refreshRatings(List.of(5L));
+  }
+}
@@ -0,0 +1,66 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import edu.ucsb.cs156.example.entities.MenuItemReview;
+import edu.ucsb.cs156.example.repositories.MenuItemReviewRepository;
+import jakarta.persistence.EntityManager;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayOutputStream;
+import java.util.stream.Stream;
+
+@ExtendWith(MockitoExtension.class)
+class MenuItemReviewExportServiceTests {
+
+  @Mock
+  MenuItemReviewRepository menuItemReviewRepository;
+
+  @Mock
+  EntityManager entityManager;
+
+  @Spy
+  ObjectMapper mapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+  @InjectMocks
+  MenuItemReviewExportService menuItemReviewExportService;
+
+  @Test
+  void writeNdjson_writes_one_line_per_review_and_detaches_each() throws Exception {
+    MenuItemReview r1 = MenuItemReview.builder().id(1L).itemId(7L).stars(5).comments("great").build();
+    MenuItemReview r2 = MenuItemReview.builder().id(2L).itemId(8L).stars(2).comments("meh").build();
+    when(menuItemReviewRepository.streamAllByOrderByIdAsc()).thenReturn(Stream.of(r1, r2));
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    long count = menuItemReviewExportService.writeNdjson(out);
+
+    assertEquals(2L, count);
+    String expected = mapper.writeValueAsString(r1) + "\n" + mapper.writeValueAsString(r2) + "\n";
+    assertEquals(expected, out.toString());
+    verify(entityManager, times(1)).detach(r1);
+    verify(entityManager, times(1)).detach(r2);
+  }
+
+  @Test
+  void writeNdjson_writes_nothing_for_empty_table() throws Exception {
+    when(menuItemReviewRepository.streamAllByOrderByIdAsc()).thenReturn(Stream.empty());
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    long count = menuItemReviewExportService.writeNdjson(out);
+
+    assertEquals(0L, count);
+    assertEquals("", out.toString());
+  }
+}
@@ -0,0 +1,261 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import edu.ucsb.cs156.example.entities.HelpRequest;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.errors.InvalidPatchException;
+import edu.ucsb.cs156.example.repositories.HelpRequestRepository;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
+import edu.ucsb.cs156.example.services.wiremock.WiremockService;
+
+import jakarta.persistence.EntityManager;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Applies merge patches against H2 and checks both the rows and the SQL that was issued.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+    + "edu.ucsb.cs156.example.services.MergePatchServiceTests$RecordingInspector")
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@Import(MergePatchService.class)
+class MergePatchServiceTests {
+
+  private static final List<String> statements = new CopyOnWriteArrayList<>();
+
+  /**
+   * Records the SQL of every statement Hibernate prepares.
+   */
+  public static class RecordingInspector implements StatementInspector {
+    @Override
+    public String inspect(String sql) {
+      statements.add(sql);
+      return sql;
+    }
+  }
+
+  @MockBean
+  WiremockService wiremockService;
+
+  @Autowired
+  MergePatchService mergePatchService;
+
+  @Autowired
+  HelpRequestRepository helpRequestRepository;
+
+  @Autowired
+  UCSBDiningCommonsRepository ucsbDiningCommonsRepository;
+
+  @Autowired
+  EntityManager entityManager;
+
+  @Autowired
+  ObjectMapper mapper;
+
+  private long id;
+
+  @BeforeEach
+  void setUp() {
+    HelpRequest helpRequest = HelpRequest.builder()
+        .requesterEmail("cgaucho@ucsb.edu")
+        .teamId("s22-5pm-3")
+        .tableOrBreakoutRoom("7")
+        .requestTime(LocalDateTime.parse("2022-04-20T17:35:00"))
+        .explanation("Need help with Swagger-ui")
+        .solved(false)
+        .build();
+    id = helpRequestRepository.save(helpRequest).getId();
+    entityManager.flush();
+    entityManager.clear();
+    statements.clear();
+  }
+
+  private JsonNode json(String text) throws Exception {
+    return mapper.readTree(text);
+  }
+
+  private HelpRequest reload() {
+    entityManager.clear();
+    return helpRequestRepository.findById(id).orElseThrow();
+  }
+
+  @Test
+  void a_patch_updates_only_the_columns_it_names() throws Exception {
+    int changed = mergePatchService.patch(HelpRequest.class, id, json("{\"solved\": true}"), null);
+
+    assertEquals(1, changed);
+    assertEquals(1, statements.size());
+    String sql = statements.get(0);
+    assertTrue(sql.matches("(?i)update helprequest (\\w+) set solved=\\?,version=\\(\\1\\.version\\+1\\) where \\1\\.id=\\?"),
+        sql);
+    HelpRequest patched = reload();
+    assertTrue(patched.getSolved());
+    assertEquals("Need help with Swagger-ui", patched.getExplanation());
+    assertEquals("s22-5pm-3", patched.getTeamId());
+  }
+
+  @Test
+  void a_patch_converts_values_to_the_field_types() throws Exception {
+    mergePatchService.patch(HelpRequest.class, id,
+        json("{\"requestTime\": \"2022-05-01T09:00:00\", \"teamId\": \"s22-6pm-1\"}"), null);
+
+    HelpRequest patched = reload();
+    assertEquals(LocalDateTime.parse("2022-05-01T09:00:00"), patched.getRequestTime());
+    assertEquals("s22-6pm-1", patched.getTeamId());
+    assertEquals("7", patched.getTableOrBreakoutRoom());
+  }
+
+  @Test
+  void null_clears_a_field() throws Exception {
+    mergePatchService.patch(HelpRequest.class, id, json("{\"explanation\": null}"), null);
+
+    assertNull(reload().getExplanation());
+  }
+
+  @Test
+  void a_patch_of_a_missing_entity_changes_nothing() throws Exception {
+    assertEquals(0, mergePatchService.patch(HelpRequest.class, id + 1, json("{\"solved\": true}"), null));
+  }
+
+  @Test
+  void an_empty_patch_only_checks_that_the_entity_exists() throws Exception {
+    assertEquals(1, mergePatchService.patch(HelpRequest.class, id, json("{}"), null));
+    assertEquals(0, mergePatchService.patch(HelpRequest.class, id + 1, json("{}"), null));
+    assertTrue(statements.stream().allMatch(sql -> sql.toLowerCase().startsWith("select")), statements::toString);
+  }
+
+  @Test
+  void a_conditional_patch_applies_only_while_the_field_has_the_expected_value() throws Exception {
+    JsonNode solve = json("{\"solved\": true}");
+
+    assertEquals(1, mergePatchService.patchIf(HelpRequest.class, id, solve, "solved", false, null));
+    assertEquals(0, mergePatchService.patchIf(HelpRequest.class, id, solve, "solved", false, null));
+    assertTrue(reload().getSolved());
+  }
+
+  @Test
+  void every_patch_increments_the_version() throws Exception {
+    mergePatchService.patch(HelpRequest.class, id, json("{\"solved\": true}"), null);
+    mergePatchService.patch(HelpRequest.class, id, json("{\"explanation\": \"changed\"}"), null);
+
+    assertEquals(2L, reload().getVersion());
+  }
+
+  @Test
+  void a_patch_applies_only_while_the_entity_is_at_the_expected_version() throws Exception {
+    JsonNode patch = json("{\"explanation\": \"changed\"}");
+
+    assertEquals(1, mergePatchService.patch(HelpRequest.class, id, patch, 0L));
+    assertEquals(0, mergePatchService.patch(HelpRequest.class, id, json("{\"teamId\": \"s22-6pm-1\"}"), 0L));
+    assertEquals(0, mergePatchService.patch(HelpRequest.class, id, json("{}"), 0L));
+    assertEquals(1, mergePatchService.patch(HelpRequest.class, id, json("{}"), 1L));
+
+    HelpRequest patched = reload();
+    assertEquals(1L, patched.getVersion());
+    assertEquals("changed", patched.getExplanation());
+    assertEquals("s22-5pm-3", patched.getTeamId());
+  }
+
+  @Test
+  void entities_with_a_string_key_can_be_patched() throws Exception {
+    ucsbDiningCommonsRepository.save(UCSBDiningCommons.builder()
+        .code("ortega")
+        .name("Ortega")
+        .hasSackMeal(true)
+        .hasTakeOutMeal(true)
+        .hasDiningCam(true)
+        .latitude(34.410987)
+        .longitude(-119.84709)
+        .build());
+    entityManager.flush();
+
+    assertEquals(1, mergePatchService.patch(UCSBDiningCommons.class, "ortega", json("{\"hasSackMeal\": false}"), null));
+
+    entityManager.clear();
+    UCSBDiningCommons patched = ucsbDiningCommonsRepository.findById("ortega").orElseThrow();
+    assertFalse(patched.getHasSackMeal());
+    assertEquals("Ortega", patched.getName());
+  }
+
+  @Test
+  void a_patch_that_is_not_an_object_is_rejected() throws Exception {
+    JsonNode patch = json("[{\"solved\": true}]");
+
+    InvalidPatchException e = assertThrows(InvalidPatchException.class,
+        () -> mergePatchService.patch(HelpRequest.class, id, patch, null));
+
+    assertEquals("Cannot patch HelpRequest: a merge patch must be a JSON object", e.getMessage());
+  }
+
+  @Test
+  void an_unknown_field_is_rejected_before_anything_is_written() throws Exception {
+    JsonNode patch = json("{\"explanation\": \"changed\", \"priority\": 1}");
+
+    InvalidPatchException e = assertThrows(InvalidPatchException.class,
+        () -> mergePatchService.patch(HelpRequest.class, id, patch, null));
+
+    assertEquals("Cannot patch HelpRequest: there is no field priority that can be patched", e.getMessage());
+    assertTrue(statements.isEmpty(), statements::toString);
+    assertEquals("Need help with Swagger-ui", reload().getExplanation());
+  }
+
+  @Test
+  void the_id_cannot_be_patched() throws Exception {
+    JsonNode patch = json("{\"id\": 99}");
+
+    InvalidPatchException e = assertThrows(InvalidPatchException.class,
+        () -> mergePatchService.patch(HelpRequest.class, id, patch, null));
+
+    assertEquals("Cannot patch HelpRequest: there is no field id that can be patched", e.getMessage());
+  }
+
+  @Test
+  void the_version_cannot_be_patched() throws Exception {
+    JsonNode patch = json("{\"version\": 7}");
+
+    InvalidPatchException e = assertThrows(InvalidPatchException.class,
+        () -> mergePatchService.patch(HelpRequest.class, id, patch, null));
+
+    assertEquals("Cannot patch HelpRequest: there is no field version that can be patched", e.getMessage());
+  }
+
+  @Test
+  void a_field_that_cannot_be_null_is_not_cleared() throws Exception {
+    JsonNode patch = json("{\"solved\": null}");
+
+    InvalidPatchException e = assertThrows(InvalidPatchException.class,
+        () -> mergePatchService.patch(HelpRequest.class, id, patch, null));
+
+    assertEquals("Cannot patch HelpRequest: solved cannot be null", e.getMessage());
+  }
+
+  @Test
+  void a_value_of_the_wrong_type_is_rejected() throws Exception {
+    JsonNode patch = json("{\"requestTime\": \"last tuesday\"}");
+
+    InvalidPatchException e = assertThrows(InvalidPatchException.class,
+        () -> mergePatchService.patch(HelpRequest.class, id, patch, null));
+
+    assertTrue(e.getMessage().startsWith("Cannot patch HelpRequest: requestTime: "), e.getMessage());
+  }
+}
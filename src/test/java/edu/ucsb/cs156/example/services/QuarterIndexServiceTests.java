@@ -0,0 +1,111 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.when;
+
+import edu.ucsb.cs156.example.models.QuarterSpan;
+import edu.ucsb.cs156.example.repositories.UCSBDateRepository;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@ExtendWith(MockitoExtension.class)
+class QuarterIndexServiceTests {
+
+  @Mock
+  UCSBDateRepository ucsbDateRepository;
+
+  @InjectMocks
+  QuarterIndexService quarterIndexService;
+
+  private static QuarterSpan span(String quarterYYYYQ, String start, String end) {
+    return QuarterSpan.builder().quarterYYYYQ(quarterYYYYQ).start(LocalDateTime.parse(start))
+        .end(LocalDateTime.parse(end)).dates(2).build();
+  }
+
+  private static final QuarterSpan WINTER = span("20221", "2022-01-03T00:00:00", "2022-03-18T00:00:00");
+  private static final QuarterSpan SPRING = span("20222", "2022-03-28T00:00:00", "2022-06-10T00:00:00");
+  private static final QuarterSpan SUMMER = span("20223", "2022-06-20T00:00:00", "2022-09-09T00:00:00");
+  private static final QuarterSpan FALL = span("20224", "2022-09-22T00:00:00", "2022-12-09T00:00:00");
+
+  private List<String> containing(String at) {
+    return quarterIndexService.containing(LocalDateTime.parse(at)).stream().map(QuarterSpan::getQuarterYYYYQ).toList();
+  }
+
+  @Test
+  void quarterKey_parses_quarters_into_ints_in_calendar_order() {
+    assertEquals(20244, QuarterIndexService.quarterKey("20244"));
+    assertEquals(19991, QuarterIndexService.quarterKey("19991"));
+    assertEquals(-1, QuarterIndexService.quarterKey("20245"));
+    assertEquals(-1, QuarterIndexService.quarterKey("20240"));
+    assertEquals(-1, QuarterIndexService.quarterKey("2024"));
+    assertEquals(-1, QuarterIndexService.quarterKey("F2024"));
+    assertEquals(-1, QuarterIndexService.quarterKey("2024:"));
+    assertEquals(-1, QuarterIndexService.quarterKey("2024-"));
+    assertEquals(-1, QuarterIndexService.quarterKey(null));
+  }
+
+  @Test
+  void quarters_are_listed_in_quarter_order_without_malformed_ones() {
+    when(ucsbDateRepository.findQuarterSpans()).thenReturn(List.of(FALL, WINTER,
+        span("fall", "2022-09-01T00:00:00", "2022-09-02T00:00:00"), SUMMER, SPRING));
+
+    quarterIndexService.rebuild();
+
+    assertEquals(List.of(WINTER, SPRING, SUMMER, FALL), quarterIndexService.getQuarters());
+  }
+
+  @Test
+  void a_failed_rebuild_keeps_the_old_index_and_does_not_block_the_next_one() {
+    when(ucsbDateRepository.findQuarterSpans()).thenReturn(List.of(WINTER))
+        .thenThrow(new IllegalStateException("database down"))
+        .thenReturn(List.of(SPRING));
+
+    quarterIndexService.rebuild();
+    assertThrows(IllegalStateException.class, () -> quarterIndexService.rebuild());
+    assertEquals(List.of(WINTER), quarterIndexService.getQuarters());
+
+    quarterIndexService.rebuild();
+    assertEquals(List.of(SPRING), quarterIndexService.getQuarters());
+  }
+
+  @Test
+  void containing_finds_the_quarter_whose_span_encloses_an_instant() {
+    when(ucsbDateRepository.findQuarterSpans()).thenReturn(List.of(FALL, SPRING, WINTER, SUMMER));
+    quarterIndexService.rebuild();
+
+    assertEquals(List.of("20222"), containing("2022-04-15T12:00:00"));
+    assertEquals(List.of("20221"), containing("2022-01-03T00:00:00"));
+    assertEquals(List.of("20224"), containing("2022-12-09T00:00:00"));
+    assertEquals(List.of(), containing("2022-03-20T00:00:00"));
+    assertEquals(List.of(), containing("2021-12-31T00:00:00"));
+    assertEquals(List.of(), containing("2023-01-01T00:00:00"));
+  }
+
+  @Test
+  void containing_finds_every_overlapping_quarter_in_quarter_order() {
+    // a long quarter that ends after a later, shorter one starts and ends
+    QuarterSpan longSummer = span("20223", "2022-06-01T00:00:00", "2022-10-01T00:00:00");
+    QuarterSpan shortSpring = span("20222", "2022-06-05T00:00:00", "2022-06-10T00:00:00");
+    QuarterSpan fall = span("20224", "2022-09-20T00:00:00", "2022-12-09T00:00:00");
+    when(ucsbDateRepository.findQuarterSpans()).thenReturn(List.of(fall, shortSpring, longSummer));
+    quarterIndexService.rebuild();
+
+    assertEquals(List.of("20222", "20223"), containing("2022-06-07T00:00:00"));
+    assertEquals(List.of("20223", "20224"), containing("2022-09-25T00:00:00"));
+    assertEquals(List.of("20223"), containing("2022-07-01T00:00:00"));
+  }
+
+  @Test
+  void nothing_is_found_before_the_first_rebuild() {
+    assertEquals(List.of(), quarterIndexService.getQuarters());
+    assertEquals(List.of(), containing("2022-04-15T12:00:00"));
+  }
+}
@@ -0,0 +1,60 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.ucsb.cs156.example.entities.Articles;
+import edu.ucsb.cs156.example.entities.Restaurant;
+
+import org.junit.jupiter.api.Test;
+
+class TableVersionServiceTests {
+
+  TableVersionService tableVersionService = new TableVersionService();
+
+  @Test
+  void bump_changes_the_version_and_etag_of_that_table_only() {
+    String articlesBefore = tableVersionService.etag(Articles.class);
+    String restaurantsBefore = tableVersionService.etag(Restaurant.class);
+    assertEquals(0, tableVersionService.getVersion(Articles.class));
+
+    tableVersionService.bump(Articles.class);
+    tableVersionService.bump(Articles.class);
+
+    assertEquals(2, tableVersionService.getVersion(Articles.class));
+    assertNotEquals(articlesBefore, tableVersionService.etag(Articles.class));
+    assertEquals(restaurantsBefore, tableVersionService.etag(Restaurant.class));
+  }
+
+  @Test
+  void etags_from_different_runs_do_not_match() throws Exception {
+    String first = tableVersionService.etag(Articles.class);
+    Thread.sleep(2);
+    TableVersionService restarted = new TableVersionService();
+
+    assertNotEquals(first, restarted.etag(Articles.class));
+    assertTrue(first.endsWith("-0"));
+  }
+
+  @Test
+  void an_entity_tag_names_its_version_only_in_the_same_run_and_generation() throws Exception {
+    String tag = tableVersionService.etag(0, 7);
+
+    assertEquals(7L, tableVersionService.version(0, tag));
+    assertNull(tableVersionService.version(1, tag));
+    assertNull(tableVersionService.version(0, "7"));
+    Thread.sleep(2);
+    assertNull(new TableVersionService().version(0, tag));
+  }
+
+  @Test
+  void removed_changes_the_generation_of_that_table_only() {
+    tableVersionService.removed(Articles.class);
+
+    assertEquals(1, tableVersionService.getGeneration(Articles.class));
+    assertEquals(0, tableVersionService.getGeneration(Restaurant.class));
+    assertEquals(0, tableVersionService.getVersion(Articles.class));
+  }
+}